@@ -0,0 +1,182 @@
+package se.florry.engine.font;
+
+import java.awt.image.BufferedImage;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import javax.imageio.ImageIO;
+
+import se.florry.engine.constants.Constants;
+import se.florry.engine.texture.TextureImage;
+import se.florry.engine.texture.TextureLoader;
+import se.florry.engine.utils.EngineUtils;
+
+/*
+ * Converts a BMFont font in the font directory, rendered large with padding around the glyphs, to a distance field
+ * font named name_sdf. The pages are converted and the descriptor scaled down and marked as a distance field font.
+ * Text grows the glyph quads by the spread, so the padding and spacing between glyphs should add up to at least the
+ * spread.
+ *
+ * Usage: DistanceFieldFontTool <font name> [spread] [downscale]
+ */
+public final class DistanceFieldFontTool
+{
+
+	public static void main(final String[] args) throws IOException
+	{
+		if (args.length == 0)
+		{
+			System.err.println("Usage: DistanceFieldFontTool <font name> [spread] [downscale]");
+			return;
+		}
+
+		final String fontName = args[0];
+		final float spread = args.length > 1 ? Float.parseFloat(args[1]) : 8;
+		final int downscale = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+		final String directory = Constants.Textures.TEXTURE_LOCATION + Constants.UI.Text.FONT_DIRECTORY;
+		final String extension = "." + Constants.UI.Text.FONT_FILEFORMAT;
+		final long start = EngineUtils.getNanoTime();
+
+		try (final BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(directory + fontName + extension),
+				StandardCharsets.UTF_8)); final PrintWriter writer = new PrintWriter(new File(directory + fontName + "_sdf" + extension), "UTF-8"))
+		{
+			String line;
+
+			while ((line = reader.readLine()) != null)
+			{
+				if (line.startsWith("page "))
+				{
+					final int fileStart = line.indexOf("file=\"") + 6;
+					final String file = line.substring(fileStart, line.indexOf('"', fileStart));
+					final String page = file.substring(0, file.lastIndexOf('.'));
+					final TextureImage image = TextureLoader.decodeTexture(Constants.UI.Text.FONT_DIRECTORY + page);
+
+					if (image == null)
+					{
+						return;
+					}
+
+					writePNG(DistanceFieldGenerator.generate(image, spread, downscale), new File(directory + page + "_sdf.png"));
+					line = line.replace(file, page + "_sdf.png");
+				} else if (line.startsWith("common "))
+				{
+					line = scale(line, downscale, "lineHeight", "base", "scaleW", "scaleH");
+				} else if (line.startsWith("char "))
+				{
+					line = scale(line, downscale, "x", "y", "width", "height", "xoffset", "yoffset", "xadvance");
+				} else if (line.startsWith("kerning "))
+				{
+					line = scale(line, downscale, "amount");
+				} else if (line.startsWith("info "))
+				{
+					checkPadding(line, spread);
+					line = scale(line, downscale, "size");
+				}
+
+				writer.println(line);
+
+				if (line.startsWith("common "))
+				{
+					writer.println("distanceField spread=" + spread / downscale);
+				}
+			}
+		}
+
+		EngineUtils.log("Generated", fontName + "_sdf in", (EngineUtils.getNanoTime() - start) / 1000000f, "ms");
+	}
+
+	/*
+	 * Warns if the glyphs of a font are packed closer than the spread, in
+	 * which case the grown quads of a glyph show the field of its neighbours.
+	 */
+	private static void checkPadding(final String line, final float spread)
+	{
+		int padding = 0;
+		int spacing = 0;
+
+		for (final String part : line.split(" "))
+		{
+			if (part.startsWith("padding="))
+			{
+				padding = Integer.MAX_VALUE;
+
+				for (final String value : part.substring(8)
+						.split(","))
+				{
+					padding = Math.min(padding, Integer.parseInt(value));
+				}
+			} else if (part.startsWith("spacing="))
+			{
+				spacing = Integer.MAX_VALUE;
+
+				for (final String value : part.substring(8)
+						.split(","))
+				{
+					spacing = Math.min(spacing, Integer.parseInt(value));
+				}
+			}
+		}
+
+		if (padding + spacing < spread)
+		{
+			System.out.println("Warning glyph padding " + padding + " and spacing " + spacing + " are less than the spread " + spread
+					+ ", effects may show parts of neighbouring glyphs");
+		}
+	}
+
+	/*
+	 * Divides the given integer attributes of a descriptor line.
+	 */
+	private static String scale(final String line, final int downscale, final String... keys)
+	{
+		final StringBuilder scaled = new StringBuilder();
+
+		for (final String part : line.split(" "))
+		{
+			final int equals = part.indexOf('=');
+
+			if (equals > 0 && Arrays.asList(keys)
+					.contains(part.substring(0, equals)))
+			{
+				final int value = Integer.parseInt(part.substring(equals + 1));
+
+				scaled.append(part, 0, equals + 1)
+						.append(Math.round((float) value / downscale));
+			} else
+			{
+				scaled.append(part);
+			}
+
+			scaled.append(' ');
+		}
+
+		return scaled.toString()
+				.trim();
+	}
+
+	private static void writePNG(final TextureImage image, final File file) throws IOException
+	{
+		final BufferedImage output = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_ARGB);
+		final ByteBuffer pixels = image.getPixels();
+
+		for (int y = 0; y < image.getHeight(); y++)
+		{
+			for (int x = 0; x < image.getWidth(); x++)
+			{
+				final int alpha = pixels.get((y * image.getWidth() + x) * TextureImage.BYTES_PER_PIXEL + 3) & 0xFF;
+
+				output.setRGB(x, y, alpha << 24 | 0xFFFFFF);
+			}
+		}
+
+		ImageIO.write(output, "png", file);
+	}
+
+}
@@ -0,0 +1,68 @@
+package se.florry.engine.font;
+
+import java.nio.ByteBuffer;
+
+import se.florry.engine.texture.TextureImage;
+import se.florry.engine.utils.EngineUtils;
+
+/*
+ * Generates the distance field of a circle and compares it to the exact distance to its edge, logging the largest
+ * error in field pixels.
+ *
+ * Usage: DistanceFieldGeneratorBench
+ */
+public final class DistanceFieldGeneratorBench
+{
+
+	public static void main(final String[] args)
+	{
+		final int size = 512;
+		final int downscale = 8;
+		final float spread = 64;
+		final float radius = 150;
+		final ByteBuffer pixels = ByteBuffer.allocateDirect(size * size * TextureImage.BYTES_PER_PIXEL);
+
+		for (int y = 0; y < size; y++)
+		{
+			for (int x = 0; x < size; x++)
+			{
+				final boolean inside = Math.hypot(x + 0.5 - size / 2, y + 0.5 - size / 2) <= radius;
+
+				pixels.putInt(inside ? -1 : 0);
+			}
+		}
+		pixels.flip();
+
+		final long start = EngineUtils.getNanoTime();
+		final TextureImage field = DistanceFieldGenerator.generate(new TextureImage(size, size, pixels), spread, downscale);
+		final long time = EngineUtils.getNanoTime() - start;
+		float maxError = 0;
+
+		for (int y = 0; y < field.getHeight(); y++)
+		{
+			for (int x = 0; x < field.getWidth(); x++)
+			{
+				final double sourceX = x * downscale + downscale / 2 + 0.5;
+				final double sourceY = y * downscale + downscale / 2 + 0.5;
+				final double exact = radius - Math.hypot(sourceX - size / 2, sourceY - size / 2);
+
+				if (Math.abs(exact) < spread)
+				{
+					final int alpha = field.getPixels()
+							.get((y * field.getWidth() + x) * TextureImage.BYTES_PER_PIXEL + 3) & 0xFF;
+					final double distance = (alpha / 255.0 - 0.5) * 2 * spread;
+
+					maxError = (float) Math.max(maxError, Math.abs(distance - exact) / downscale);
+				}
+			}
+		}
+
+		EngineUtils.log("Distance field of a", size + "x" + size, "circle in", time / 1000000f, "ms, largest error", maxError, "field pixels");
+
+		if (maxError > 0.5f)
+		{
+			throw new IllegalStateException("Distance field error " + maxError + " is over half a pixel");
+		}
+	}
+
+}
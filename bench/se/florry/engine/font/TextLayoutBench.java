@@ -0,0 +1,59 @@
+package se.florry.engine.font;
+
+import java.lang.management.ManagementFactory;
+
+import se.florry.engine.font.TextLayout.Alignment;
+import se.florry.engine.utils.EngineUtils;
+
+/*
+ * Measures laying out a wrapped and centered paragraph with the letter font, or a bitmap font from the font
+ * directory, and the bytes allocated while doing it.
+ *
+ * Usage: TextLayoutBench [glyphs] [frames] [font name]
+ */
+public final class TextLayoutBench
+{
+
+	public static void main(final String[] args)
+	{
+		final int glyphs = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+		final int frames = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+		final BitmapFont font = args.length > 2 ? BitmapFont.load(args[2]) : BitmapFont.createLetters(16, 2);
+
+		if (font == null)
+		{
+			return;
+		}
+
+		final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		final long thread = Thread.currentThread()
+				.getId();
+		final String words = "The quick brown fox jumps over the lazy dog 0123456789! ";
+		final StringBuilder text = new StringBuilder();
+
+		while (text.length() < glyphs)
+		{
+			text.append(words);
+		}
+		text.setLength(glyphs);
+
+		final TextLayout layout = new TextLayout();
+		final float scale = 16 / font.getSize();
+		layout.layout(font, text, scale, 800, Alignment.CENTER);
+
+		final long bytes = threads.getThreadAllocatedBytes(thread);
+		final long start = EngineUtils.getNanoTime();
+
+		for (int i = 0; i < frames; i++)
+		{
+			layout.layout(font, text, scale, 800, Alignment.CENTER);
+		}
+
+		final long time = EngineUtils.getNanoTime() - start;
+		final long allocated = threads.getThreadAllocatedBytes(thread) - bytes;
+
+		EngineUtils.log("Layout of", glyphs, "glyphs in", layout.getLineCount(), "lines:", time / 1000f / frames, "us per frame,",
+				(float) glyphs * frames / (time / 1000000000f), "glyphs per second,", allocated, "bytes allocated over", frames, "frames");
+	}
+
+}
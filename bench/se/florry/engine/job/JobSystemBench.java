@@ -0,0 +1,98 @@
+package se.florry.engine.job;
+
+import se.florry.engine.constants.Constants;
+import se.florry.engine.model.SystemModel;
+import se.florry.engine.utils.EngineUtils;
+
+/*
+ * Runs eight independent systems integrating particles and one system reading all of them, at 1, 2, 4 and 8 workers,
+ * logging the mean step time and speedup over one worker.
+ *
+ * Usage: JobSystemBench [particles per system] [steps]
+ */
+public final class JobSystemBench
+{
+
+	public static void main(final String[] args)
+	{
+		final int particles = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+		final int steps = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+		final int systemCount = 8;
+		final float[][] positions = new float[systemCount][particles];
+		final float[][] velocities = new float[systemCount][particles];
+		final float[] extents = new float[systemCount];
+		long singleWorker = 0;
+
+		for (final int workers : new int[] { 1, 2, 4, 8 })
+		{
+			final JobSystem jobs = new JobSystem(workers);
+
+			for (int i = 0; i < systemCount; i++)
+			{
+				final float[] position = positions[i];
+				final float[] velocity = velocities[i];
+
+				jobs.add(new SystemModel("particles" + i, deltaTime ->
+				{
+					for (int j = 0; j < position.length; j++)
+					{
+						velocity[j] += (float) Math.sin(position[j]) * deltaTime;
+						position[j] += velocity[j] * deltaTime;
+					}
+				}).writes("particles" + i));
+			}
+
+			final SystemModel bounds = new SystemModel("bounds", deltaTime ->
+			{
+				for (int i = 0; i < systemCount; i++)
+				{
+					float extent = 0;
+
+					for (final float position : positions[i])
+					{
+						extent = Math.max(extent, Math.abs(position));
+					}
+
+					extents[i] = extent;
+				}
+			});
+
+			for (int i = 0; i < systemCount; i++)
+			{
+				bounds.reads("particles" + i);
+			}
+
+			jobs.add(bounds);
+
+			// Warms up the systems before measuring.
+			for (int step = 0; step < steps / 4; step++)
+			{
+				jobs.update(1f / Constants.Loop.UPDATE_RATE);
+			}
+
+			final long start = EngineUtils.getNanoTime();
+
+			for (int step = 0; step < steps; step++)
+			{
+				jobs.update(1f / Constants.Loop.UPDATE_RATE);
+			}
+
+			final long mean = (EngineUtils.getNanoTime() - start) / steps;
+
+			if (workers == 1)
+			{
+				singleWorker = mean;
+			}
+
+			EngineUtils.log(workers, "workers:", jobs.getStageCount(), "stages, step mean", mean / 1000f, "us, speedup", (float) singleWorker / mean + "x,", "particles0 p50", jobs.getSystems()
+							.get(0)
+							.getTimes()
+							.getPercentile(50) / 1000f,
+					"us, bounds p50", bounds.getTimes()
+							.getPercentile(50) / 1000f,
+					"us");
+			jobs.shutdown();
+		}
+	}
+
+}
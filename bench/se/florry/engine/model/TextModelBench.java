@@ -0,0 +1,88 @@
+package se.florry.engine.model;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.lwjgl.util.vector.Vector2f;
+
+import se.florry.engine.utils.EngineUtils;
+
+/*
+ * Compares the bytes allocated per changed and rendered text by laying text out as one TextQuadModel per glyph, the
+ * way text used to be laid out, against the cached layout fed from a reused StringBuilder.
+ *
+ * Usage: TextModelBench [updates]
+ */
+public final class TextModelBench
+{
+
+	public static void main(final String[] args)
+	{
+		final int updates = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+		final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		final long thread = Thread.currentThread()
+				.getId();
+		final TextModel text = new TextModel("SCORE 0", 16, new Vector2f());
+		final StringBuilder score = new StringBuilder();
+		final Color white = new Color(255, 255, 255, 255);
+		final Color black = new Color(0, 0, 0, 255);
+		long checksum = 0;
+
+		for (int pass = 0; pass < 2; pass++)
+		{
+			long start = threads.getThreadAllocatedBytes(thread);
+			long time = EngineUtils.getNanoTime();
+
+			for (int i = 0; i < updates; i++)
+			{
+				score.setLength(0);
+				score.append("Score ")
+						.append(i);
+
+				final List<TextQuadModel> quads = new ArrayList<>();
+				final String sentence = score.toString()
+						.toUpperCase();
+
+				for (int j = 0; j < sentence.length(); j++)
+				{
+					final TextQuadModel shadow = new TextQuadModel(new Size(16, 16), black);
+					final TextQuadModel letter = new TextQuadModel(new Size(16, 16), white);
+
+					shadow.textureCoordinates.x = sentence.charAt(j);
+					letter.textureCoordinates.x = sentence.charAt(j);
+					quads.add(shadow);
+					quads.add(letter);
+				}
+
+				checksum += quads.size();
+			}
+
+			final long oldBytes = threads.getThreadAllocatedBytes(thread) - start;
+			final long oldTime = EngineUtils.getNanoTime() - time;
+
+			start = threads.getThreadAllocatedBytes(thread);
+			time = EngineUtils.getNanoTime();
+
+			for (int i = 0; i < updates; i++)
+			{
+				score.setLength(0);
+				score.append("Score ")
+						.append(i);
+
+				text.setSentence(score);
+				checksum += text.length();
+			}
+
+			final long newBytes = threads.getThreadAllocatedBytes(thread) - start;
+			final long newTime = EngineUtils.getNanoTime() - time;
+
+			if (pass == 1)
+			{
+				EngineUtils.log("Per glyph quads:", (float) oldBytes / updates, "bytes and", (float) oldTime / updates, "ns per setSentence");
+				EngineUtils.log("Cached layout:", (float) newBytes / updates, "bytes and", (float) newTime / updates, "ns per setSentence, checksum", checksum);
+			}
+		}
+	}
+
+}
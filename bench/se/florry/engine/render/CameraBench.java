@@ -0,0 +1,66 @@
+package se.florry.engine.render;
+
+import java.util.Random;
+
+import se.florry.engine.constants.Constants;
+import se.florry.engine.utils.EngineUtils;
+
+/*
+ * Checks the default camera projects like drawing without a camera, that bounds keep the camera inside them and that
+ * no point the camera projects onto the display is culled, for random positions, zooms and rotations.
+ *
+ * Usage: CameraBench [cameras]
+ */
+public final class CameraBench
+{
+
+	public static void main(final String[] args)
+	{
+		final int cameras = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+		final Random random = new Random(1);
+		final Camera camera = new Camera();
+
+		if (Math.abs(camera.toScreenX(100, 200) - 100) > 0.01f || Math.abs(camera.toScreenY(100, 200) - 200) > 0.01f)
+		{
+			throw new IllegalStateException("The default camera does not project the world onto the display as it is");
+		}
+
+		camera.setBounds(0, 0, 2000, 1000);
+		camera.setPosition(-500, 5000);
+
+		if (camera.getVisibleX() != 0 || camera.getVisibleY() + camera.getVisibleHeight() != 1000)
+		{
+			throw new IllegalStateException("The camera shows " + camera.getVisibleX() + ", " + camera.getVisibleY() + " outside its bounds");
+		}
+
+		camera.clearBounds();
+
+		int culled = 0;
+
+		for (int i = 0; i < cameras; i++)
+		{
+			camera.setPosition(random.nextFloat() * 4000 - 2000, random.nextFloat() * 4000 - 2000);
+			camera.setZoom(0.25f + random.nextFloat() * 4);
+			camera.setRotation(random.nextFloat() * 7);
+
+			final float x = camera.getX() + random.nextFloat() * 4000 - 2000;
+			final float y = camera.getY() + random.nextFloat() * 4000 - 2000;
+			final float screenX = camera.toScreenX(x, y);
+			final float screenY = camera.toScreenY(x, y);
+			final boolean onDisplay = screenX >= 0 && screenX < Constants.Display.WIDTH && screenY >= 0 && screenY < Constants.Display.HEIGHT;
+
+			if (onDisplay && !camera.isVisible(x, y, 1, 1))
+			{
+				throw new IllegalStateException("A point on the display at " + screenX + ", " + screenY + " was culled");
+			}
+
+			if (!camera.isVisible(x, y, 1, 1))
+			{
+				culled++;
+			}
+		}
+
+		EngineUtils.log(cameras, "cameras checked,", culled, "random points culled, none of them on the display");
+	}
+
+}
@@ -0,0 +1,106 @@
+package se.florry.engine.render;
+
+import java.nio.ByteBuffer;
+
+import se.florry.engine.constants.Constants;
+import se.florry.engine.model.Engine;
+import se.florry.engine.render.RenderLayer.BlendMode;
+import se.florry.engine.texture.TextureImage;
+import se.florry.engine.texture.TextureLoader;
+import se.florry.engine.utils.EngineUtils;
+import se.florry.engine.utils.FrameProfiler.Phase;
+import se.florry.engine.utils.FrameTimeRecorder;
+
+/*
+ * Runs the full engine loop headless for a number of frames, drawing sprites spread over a few textures between an
+ * opaque background layer, with hills in front of its tiles, and an opaque HUD layer over the top of the display,
+ * and logs what would have been sent to the GPU per frame and per layer along with the frame times.
+ *
+ * Usage: HeadlessRenderBackendBench [frames] [sprites]
+ */
+public final class HeadlessRenderBackendBench
+{
+
+	public static void main(final String[] args)
+	{
+		final int frames = args.length > 0 ? Integer.parseInt(args[0]) : 600;
+		final int sprites = args.length > 1 ? Integer.parseInt(args[1]) : 20000;
+		final HeadlessRenderBackend backend = new HeadlessRenderBackend();
+		final Engine engine = new Engine(backend);
+		final int[] textures = new int[4];
+
+		for (int i = 0; i < textures.length; i++)
+		{
+			textures[i] = TextureLoader.uploadTexture(new TextureImage(64, 64, ByteBuffer.allocateDirect(64 * 64 * TextureImage.BYTES_PER_PIXEL)));
+		}
+
+		final float[] positions = new float[sprites];
+		final RenderLayer background = RenderLayers.get()
+				.add("background", 0, BlendMode.OPAQUE);
+		final RenderLayer world = RenderLayers.get()
+				.add("sprites", 1, BlendMode.ALPHA);
+		final RenderLayer hud = RenderLayers.get()
+				.add("hud", 2, BlendMode.OPAQUE);
+
+		engine.run(deltaTime ->
+		{
+			for (int i = 0; i < sprites; i++)
+			{
+				positions[i] = (positions[i] + i % 7 + 1) % 1280;
+			}
+
+			if (backend.getFrames() >= frames - 1)
+			{
+				engine.stop();
+			}
+		}, alpha ->
+		{
+			for (int y = 0; y < Constants.Display.HEIGHT; y += 64)
+			{
+				for (int x = 0; x < Constants.Display.WIDTH; x += 64)
+				{
+					background.getQueue()
+							.submit(0, 0, textures[0], false, x, y, x + 64, y + 64, 0, 0, 1, 1, -1);
+				}
+			}
+
+			for (int x = 0; x < Constants.Display.WIDTH; x += 256)
+			{
+				background.getQueue()
+						.submit(0, 1, textures[0], false, x, Constants.Display.HEIGHT - 256, x + 256, Constants.Display.HEIGHT, 0, 0, 1, 1, -1);
+			}
+
+			for (int i = 0; i < sprites; i++)
+			{
+				final int texture = i * textures.length / sprites;
+
+				world.getQueue()
+						.submit(0, 0, textures[texture], texture % 2 == 1, positions[i], i / 1280 * 16, positions[i] + 16, i / 1280 * 16 + 16, 0, 0, 1, 1, -1);
+			}
+
+			hud.getQueue()
+					.submit(0, 0, textures[1], false, 0, 0, Constants.Display.WIDTH, 64, 0, 0, 1, 1, -1);
+		});
+
+		final FrameTimeRecorder frameTimes = engine.getFrameProfiler()
+				.get(Phase.FRAME);
+
+		EngineUtils.log(backend.getFrames(), "frames of", sprites, "sprites,", backend.getLiveTextures(), "textures uploaded");
+		EngineUtils.log("Last frame:", backend.getDrawCalls(), "draw calls,", backend.getStateChanges(), "state changes,", backend.getVertices(), "vertices");
+		EngineUtils.log("Total:", backend.getTotalDrawCalls(), "draw calls,", backend.getTotalVertices(), "vertices");
+
+		float hidden = 0;
+
+		for (final RenderLayer layer : RenderLayers.get()
+				.getLayers())
+		{
+			hidden += backend.getHiddenOverdraw(layer);
+			EngineUtils.log("Layer " + layer + ", " + layer.getBlendMode() + ":", backend.getDrawCalls(layer), "draw calls,", backend.getQuads(layer), "quads, overdraw",
+					backend.getOverdraw(layer), "shaded,", backend.getHiddenOverdraw(layer), "hidden");
+		}
+
+		EngineUtils.log("Overdraw", backend.getOverdraw(), "front to back,", backend.getOverdraw() + hidden, "drawn back to front");
+		EngineUtils.log("Frame time mean", frameTimes.getMean() / 1000000f, "ms, p50", frameTimes.getPercentile(50) / 1000000f, "ms, p99", frameTimes.getPercentile(99) / 1000000f, "ms");
+	}
+
+}
@@ -0,0 +1,121 @@
+package se.florry.engine.render;
+
+import se.florry.engine.constants.Constants;
+import se.florry.engine.utils.EngineUtils;
+
+/*
+ * Draws sprites sorted by texture page through a sprite batch into an instance buffer, a tenth of them rotated.
+ * Checks every packed instance gives back the corners, texture rectangle and color of its sprite and that each page
+ * is drawn with one draw call, then logs the packing time and the bytes uploaded per frame compared to the vertices.
+ *
+ * Usage: InstanceBufferBench [sprites] [pages] [frames]
+ */
+public final class InstanceBufferBench
+{
+
+	public static void main(final String[] args)
+	{
+		final int sprites = args.length > 0 ? Integer.parseInt(args[0]) : 50000;
+		final int pages = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+		final int frames = args.length > 2 ? Integer.parseInt(args[2]) : 200;
+		final float[] expected = new float[sprites * 8];
+		final int[] checked = new int[2];
+
+		final InstanceBuffer buffer = new InstanceBuffer(1024, (instances, instanceCount, texture, blend) ->
+		{
+			for (int i = 0; i < instanceCount; i++, checked[0]++)
+			{
+				final int instance = i * InstanceBuffer.INSTANCE_SIZE;
+				final int sprite = checked[0] * 8;
+				final float x = instances.getFloat(instance + InstanceBuffer.POSITION_OFFSET);
+				final float y = instances.getFloat(instance + InstanceBuffer.POSITION_OFFSET + 4);
+
+				// The bottom right corner is the corner plus both edges.
+				if (Math.abs(x - expected[sprite]) > 0.01f || Math.abs(y - expected[sprite + 1]) > 0.01f
+						|| Math.abs(x + instances.getFloat(instance + InstanceBuffer.X_EDGE_OFFSET) + instances.getFloat(instance + InstanceBuffer.Y_EDGE_OFFSET) - expected[sprite + 2]) > 0.01f
+						|| Math.abs(y + instances.getFloat(instance + InstanceBuffer.X_EDGE_OFFSET + 4) + instances.getFloat(instance + InstanceBuffer.Y_EDGE_OFFSET + 4) - expected[sprite + 3]) > 0.01f
+						|| instances.getFloat(instance + InstanceBuffer.TEXTURE_RECT_OFFSET + 8) != expected[sprite + 4]
+						|| (instances.get(instance + InstanceBuffer.COLOR_OFFSET) & 0xFF) != expected[sprite + 5] || instances.get(instance + InstanceBuffer.COLOR_OFFSET + 3) != (byte) 255
+						|| texture != (int) expected[sprite + 6])
+				{
+					throw new IllegalStateException("Instance " + checked[0] + " does not match its sprite");
+				}
+			}
+
+			checked[1]++;
+		});
+		final SpriteBatch batch = new SpriteBatch(Constants.Render.BATCH_SIZE, (vertices, vertexCount, texture, blend, program) -> buffer.add(vertices,
+				vertexCount,
+				texture,
+				blend));
+		long packNanos = 0;
+
+		for (int frame = 0; frame < frames; frame++)
+		{
+			final long start = EngineUtils.getNanoTime();
+
+			checked[0] = 0;
+			checked[1] = 0;
+			batch.begin();
+
+			for (int i = 0; i < sprites; i++)
+			{
+				final int page = i * pages / sprites + 1;
+				final float x = i % 1280;
+				final float y = i / 1280 % 720;
+				final int red = i % 256;
+				// Packed with red in the lowest byte and opaque alpha.
+				final int color = red | 0xFF000000;
+
+				batch.setTexture(page);
+
+				if (i % 10 == 0)
+				{
+					final float angle = i * 0.01f;
+					final float cos = (float) Math.cos(angle);
+					final float sin = (float) Math.sin(angle);
+
+					batch.setTransform(cos, sin, -sin, cos, x, y);
+					batch.draw(0, 0, 16, 8, 0, 0, 0.5f, 0.25f, color, false);
+					batch.resetTransform();
+
+					expected[i * 8] = x;
+					expected[i * 8 + 1] = y;
+					expected[i * 8 + 2] = x + cos * 16 - sin * 8;
+					expected[i * 8 + 3] = y + sin * 16 + cos * 8;
+				} else
+				{
+					batch.draw(x, y, x + 16, y + 8, 0, 0, 0.5f, 0.25f, color, false);
+
+					expected[i * 8] = x;
+					expected[i * 8 + 1] = y;
+					expected[i * 8 + 2] = x + 16;
+					expected[i * 8 + 3] = y + 8;
+				}
+
+				expected[i * 8 + 4] = 0.5f;
+				expected[i * 8 + 5] = red;
+				expected[i * 8 + 6] = page;
+			}
+
+			batch.end();
+			buffer.flush();
+
+			if (frame >= frames / 4)
+			{
+				packNanos += EngineUtils.getNanoTime() - start;
+			}
+		}
+
+		if (checked[0] != sprites || checked[1] != pages)
+		{
+			throw new IllegalStateException(checked[0] + " instances in " + checked[1] + " draws, expected " + sprites + " in " + pages);
+		}
+
+		EngineUtils.log(sprites, "sprites on", pages, "texture pages: sprite batch flushed", batch.getFlushesPerFrame(), "batches, instanced", checked[1], "draws");
+		EngineUtils.log("Uploaded per frame: vertices", sprites * SpriteBatch.VERTICES_PER_QUAD * SpriteBatch.VERTEX_SIZE / 1024, "kB, instances", sprites
+				* InstanceBuffer.INSTANCE_SIZE / 1024, "kB");
+		EngineUtils.log("Batching, packing and checking", (float) packNanos / (frames - frames / 4) / sprites, "ns per sprite");
+	}
+
+}
@@ -0,0 +1,114 @@
+package se.florry.engine.render;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import se.florry.engine.constants.Constants;
+import se.florry.engine.utils.EngineUtils;
+
+/*
+ * Queues commands of random layers, depths, textures and blend states, checks the radix sort gives the keys in the
+ * order of Arrays.sort with equal keys in submission order, and compares the time of the two sorts. Then executes a
+ * queue of quads on a few depths, as sprites of a scene mostly share their depth, through a sprite batch without a
+ * handler and logs the state changes and draws against submission order.
+ *
+ * Usage: RenderQueueBench [commands] [textures] [frames]
+ */
+public final class RenderQueueBench
+{
+
+	public static void main(final String[] args)
+	{
+		final int commands = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+		final int textures = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+		final int frames = args.length > 2 ? Integer.parseInt(args[2]) : 100;
+		final Random random = new Random(1);
+		final RenderQueue queue = new RenderQueue(commands);
+		final long[] expected = new long[commands];
+		long radixNanos = 0;
+		long arraysNanos = 0;
+
+		for (int frame = 0; frame < frames; frame++)
+		{
+			fill(queue, null, commands, textures, RenderQueue.MAX_DEPTH + 1, random);
+
+			for (int i = 0; i < commands; i++)
+			{
+				expected[i] = queue.getKey(i);
+			}
+
+			long start = EngineUtils.getNanoTime();
+			Arrays.sort(expected);
+			final long arrays = EngineUtils.getNanoTime() - start;
+
+			start = EngineUtils.getNanoTime();
+			queue.sort();
+			final long radix = EngineUtils.getNanoTime() - start;
+
+			for (int i = 0; i < commands; i++)
+			{
+				if (queue.getKey(i) != expected[i] || i > 0 && queue.getKey(i) == queue.getKey(i - 1) && queue.getOrder(i) < queue.getOrder(i - 1))
+				{
+					throw new IllegalStateException("Command " + i + " is out of order");
+				}
+			}
+
+			if (frame >= frames / 4)
+			{
+				radixNanos += radix;
+				arraysNanos += arrays;
+			}
+
+			queue.clear();
+		}
+
+		final int measured = frames - frames / 4;
+
+		EngineUtils.log("Sorting", commands, "commands: radix sort", (float) radixNanos / measured / 1000000, "ms,", (float) radixNanos / measured / commands,
+				"ns per command, Arrays.sort of the keys only", (float) arraysNanos / measured / 1000000, "ms");
+
+		final SpriteBatch batch = new SpriteBatch(Constants.Render.BATCH_SIZE, null);
+
+		// Draws the quads in submission order while queueing them.
+		batch.begin();
+		fill(queue, batch, commands, textures, 8, random);
+		batch.end();
+
+		final int submittedDraws = batch.getFlushesPerFrame();
+
+		batch.begin();
+		queue.execute(batch);
+		batch.end();
+
+		EngineUtils.log("State changes per frame:", queue.getStateChanges() + queue.getStateChangesAvoided(), "in submission order,", queue.getStateChanges(),
+				"sorted,", queue.getStateChangesAvoided(), "avoided");
+		EngineUtils.log("Draws per frame:", submittedDraws, "in submission order,", batch.getFlushesPerFrame(), "sorted, sort took", (float) queue
+				.getSortNanos() / 1000000, "ms");
+	}
+
+	/*
+	 * Queues quads of random layers, depths, textures and blend states, also
+	 * drawing them into the batch if there is one.
+	 */
+	private static void fill(final RenderQueue queue, final SpriteBatch batch, final int commands, final int textures, final int depths,
+			final Random random)
+	{
+		for (int i = 0; i < commands; i++)
+		{
+			final float x = random.nextInt(1280);
+			final float y = random.nextInt(720);
+			final int texture = random.nextInt(textures) + 1;
+			// A quarter of the quads blended, on four layers.
+			final boolean blend = random.nextInt(4) == 0;
+
+			queue.submit(random.nextInt(4), random.nextInt(depths), texture, blend, x, y, x + 16, y + 16, 0, 0, 1, 1, 0xFFFFFFFF);
+
+			if (batch != null)
+			{
+				batch.setTexture(texture);
+				batch.draw(x, y, x + 16, y + 16, 0, 0, 1, 1, 0xFFFFFFFF, blend);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,103 @@
+package se.florry.engine.render;
+
+import se.florry.engine.utils.EngineUtils;
+
+/*
+ * Runs the controller on synthetic frame time traces of a renderer whose frame time is a fixed part plus a part
+ * growing with the pixels rendered, with noise, and checks it settles under the target without flickering, ignores
+ * single slow frames and raises the scale again once the load drops. Every trace is run twice, checking the scales
+ * are the same.
+ *
+ * Usage: ResolutionControllerBench [frames]
+ */
+public final class ResolutionControllerBench
+{
+
+	public static void main(final String[] args)
+	{
+		final int frames = args.length > 0 ? Integer.parseInt(args[0]) : 3000;
+		// 60 frames per second.
+		final long target = 16666667;
+
+		// Fixed and full scale pixel milliseconds before and after the load changes, and every how many frames a frame spikes.
+		trace("Within budget:          ", frames, target, 4, 9, 4, 9, 0, 1, 1);
+		trace("Heavy load:             ", frames, target, 4, 22, 4, 22, 0, 0.6f, 0.8f);
+		trace("Spikes every 50 frames: ", frames, target, 4, 9, 4, 9, 50, 1, 1);
+		trace("Load dropping halfway:  ", frames, target, 4, 22, 4, 9, 0, 0.95f, 1);
+		trace("Load rising halfway:    ", frames, target, 4, 9, 4, 24, 0, 0.6f, 0.8f);
+		trace("Beyond the lowest scale:", frames, target, 8, 60, 8, 60, 0, 0.5f, 0.5f);
+	}
+
+	private static void trace(final String name, final int frames, final long target, final float fixed, final float pixels, final float laterFixed,
+			final float laterPixels, final int spikeEvery, final float minEndScale, final float maxEndScale)
+	{
+		final float[] first = run(frames, target, fixed, pixels, laterFixed, laterPixels, spikeEvery);
+		final float[] second = run(frames, target, fixed, pixels, laterFixed, laterPixels, spikeEvery);
+		final float endScale = first[frames - 1];
+		int changes = 0;
+		int overBudget = 0;
+
+		for (int frame = 0; frame < frames; frame++)
+		{
+			if (first[frame] != second[frame])
+			{
+				throw new IllegalStateException(name + " gave scale " + first[frame] + " and " + second[frame] + " at frame " + frame);
+			}
+
+			if (frame > 0 && first[frame] != first[frame - 1])
+			{
+				changes++;
+			}
+
+			final boolean later = frame >= frames / 2;
+			final float scale = first[frame];
+
+			// Counts the frames of the last quarter of each half over the target, ignoring the spikes.
+			if (frame % (frames / 2) >= frames * 3 / 8 && frameMillis(later ? laterFixed : fixed, later ? laterPixels : pixels, scale) * 1000000 > target)
+			{
+				overBudget++;
+			}
+		}
+
+		if (endScale < minEndScale - 0.001f || endScale > maxEndScale + 0.001f || changes > 10)
+		{
+			throw new IllegalStateException(name + " ended at scale " + endScale + " after " + changes + " changes");
+		}
+
+		EngineUtils.log(name, "ended at scale", endScale, "after", changes, "changes,", overBudget, "settled frames over budget");
+	}
+
+	private static float[] run(final int frames, final long target, final float fixed, final float pixels, final float laterFixed, final float laterPixels,
+			final int spikeEvery)
+	{
+		final ResolutionController controller = new ResolutionController(target);
+		final float[] scales = new float[frames];
+		// Noise of its own, the same every run.
+		long noise = 1;
+
+		for (int frame = 0; frame < frames; frame++)
+		{
+			final boolean later = frame >= frames / 2;
+			final float scale = controller.getScale();
+
+			noise = noise * 6364136223846793005L + 1442695040888963407L;
+
+			float millis = frameMillis(later ? laterFixed : fixed, later ? laterPixels : pixels, scale) * (0.95f + (noise >>> 40) / (float) (1 << 24) * 0.1f);
+
+			if (spikeEvery > 0 && frame % spikeEvery == 0)
+			{
+				millis += 30;
+			}
+
+			scales[frame] = controller.update((long) (millis * 1000000));
+		}
+
+		return scales;
+	}
+
+	private static float frameMillis(final float fixed, final float pixels, final float scale)
+	{
+		return fixed + pixels * scale * scale;
+	}
+
+}
@@ -0,0 +1,196 @@
+package se.florry.engine.render;
+
+import java.util.concurrent.locks.LockSupport;
+
+import se.florry.engine.utils.EngineUtils;
+
+/*
+ * Checks that the render thread never sees a torn snapshot, by recording snapshots where every vertex holds the step
+ * number and checking every acquired snapshot holds one step number only, with step numbers never going backwards.
+ * Then compares the frame rate of running a heavy update and a heavy render one after another with running them on
+ * two threads.
+ *
+ * Usage: SnapshotBufferBench [seconds] [update milliseconds] [render milliseconds]
+ */
+public final class SnapshotBufferBench
+{
+
+	public static void main(final String[] args) throws InterruptedException
+	{
+		final long seconds = args.length > 0 ? Long.parseLong(args[0]) : 2;
+		final long updateNanos = (long) ((args.length > 1 ? Double.parseDouble(args[1]) : 4) * 1000000);
+		final long renderNanos = (long) ((args.length > 2 ? Double.parseDouble(args[2]) : 4) * 1000000);
+
+		checkTearing(seconds * 1000000000L);
+
+		final SpriteBatch serialBatch = new SpriteBatch(1024, null);
+		final RenderSnapshot serialSnapshot = new RenderSnapshot();
+		serialBatch.setHandler(serialSnapshot::record);
+		final long serialStart = EngineUtils.getNanoTime();
+		long serialFrames = 0;
+
+		while (EngineUtils.getNanoTime() - serialStart < seconds * 1000000000L)
+		{
+			serialSnapshot.clear(serialFrames, 1);
+			simulate(serialBatch, serialFrames, updateNanos);
+			serialSnapshot.replay((vertices, vertexCount, texture, blend, program) -> spin(renderNanos / serialSnapshot.getBatchCount()));
+			serialFrames++;
+		}
+
+		final SnapshotBuffer buffer = new SnapshotBuffer();
+		final long threadedStart = EngineUtils.getNanoTime();
+		final Thread simulation = new Thread(() ->
+		{
+			final SpriteBatch batch = new SpriteBatch(1024, null);
+			long step = 0;
+
+			while (EngineUtils.getNanoTime() - threadedStart < seconds * 1000000000L)
+			{
+				final RenderSnapshot snapshot = buffer.getWriteSnapshot();
+
+				batch.setHandler(snapshot::record);
+				snapshot.clear(step, 1);
+				simulate(batch, step++, updateNanos);
+				buffer.publish();
+			}
+		}, "Simulation");
+		simulation.start();
+
+		long threadedFrames = 0;
+		long lastSequence = -1;
+
+		while (simulation.isAlive())
+		{
+			final RenderSnapshot snapshot = buffer.acquire();
+
+			if (snapshot.getBatchCount() == 0 || snapshot.getSequence() == lastSequence)
+			{
+				LockSupport.parkNanos(50000);
+				continue;
+			}
+
+			lastSequence = snapshot.getSequence();
+			snapshot.replay((vertices, vertexCount, texture, blend, program) -> spin(renderNanos / snapshot.getBatchCount()));
+			threadedFrames++;
+		}
+
+		final float serialRate = (float) serialFrames / seconds;
+		final float threadedRate = (float) threadedFrames / seconds;
+
+		EngineUtils.log("Update", updateNanos / 1000000f, "ms, render", renderNanos / 1000000f, "ms per frame:");
+		EngineUtils.log("One thread:  ", serialRate, "frames/s");
+		EngineUtils.log("Two threads: ", threadedRate, "frames/s,", threadedRate / serialRate + "x");
+	}
+
+	/*
+	 * Records and publishes snapshots on one thread while acquiring and
+	 * checking them on another.
+	 */
+	private static void checkTearing(final long nanos) throws InterruptedException
+	{
+		final SnapshotBuffer buffer = new SnapshotBuffer();
+		final long start = EngineUtils.getNanoTime();
+		final Thread simulation = new Thread(() ->
+		{
+			final SpriteBatch batch = new SpriteBatch(64, null);
+			long step = 1;
+
+			while (EngineUtils.getNanoTime() - start < nanos)
+			{
+				final RenderSnapshot snapshot = buffer.getWriteSnapshot();
+
+				batch.setHandler(snapshot::record);
+				snapshot.clear(step, 1);
+				batch.begin();
+
+				// Several batches, so a torn snapshot would mix steps.
+				for (int i = 0; i < 200; i++)
+				{
+					batch.setTexture(i / 50 + 1);
+					batch.draw(step, step, step, step, 0, 0, 1, 1, (int) step, false);
+				}
+
+				batch.end();
+				buffer.publish();
+				step++;
+			}
+		}, "Simulation");
+		simulation.start();
+
+		long checked = 0;
+		long torn = 0;
+		long lastSequence = 0;
+
+		while (simulation.isAlive())
+		{
+			final RenderSnapshot snapshot = buffer.acquire();
+			final long sequence = snapshot.getSequence();
+
+			if (sequence == 0 || sequence == lastSequence)
+			{
+				Thread.yield();
+				continue;
+			}
+
+			if (sequence < lastSequence)
+			{
+				torn++;
+			}
+
+			lastSequence = sequence;
+
+			for (int batch = 0; batch < snapshot.getBatchCount(); batch++)
+			{
+				for (int vertex = 0; vertex < snapshot.getVertexCount(batch); vertex++)
+				{
+					if (snapshot.getVertices(batch)
+							.getFloat(vertex * SpriteBatch.VERTEX_SIZE + SpriteBatch.POSITION_OFFSET) != sequence)
+					{
+						torn++;
+					}
+				}
+			}
+
+			checked++;
+		}
+
+		simulation.join();
+		EngineUtils.log("Checked", checked, "snapshots,", torn, "torn");
+
+		if (torn > 0)
+		{
+			throw new IllegalStateException(torn + " torn snapshots");
+		}
+	}
+
+	/*
+	 * Stands in for the game loop: draws 20000 quads in 8 batches and keeps
+	 * the thread busy for the given time.
+	 */
+	private static void simulate(final SpriteBatch batch, final long step, final long nanos)
+	{
+		final long start = EngineUtils.getNanoTime();
+
+		batch.begin();
+
+		for (int i = 0; i < 20000; i++)
+		{
+			batch.setTexture(i / 2500 + 1);
+			batch.draw(i % 1280, i / 1280 * 16, i % 1280 + 16, i / 1280 * 16 + 16, 0, 0, 1, 1, -1, false);
+		}
+
+		batch.end();
+		spin(nanos - (EngineUtils.getNanoTime() - start));
+	}
+
+	private static void spin(final long nanos)
+	{
+		final long end = EngineUtils.getNanoTime() + nanos;
+
+		while (EngineUtils.getNanoTime() < end)
+		{
+			// Busy, like a thread doing actual work.
+		}
+	}
+
+}
@@ -0,0 +1,125 @@
+package se.florry.engine.render;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import se.florry.engine.constants.Constants;
+import se.florry.engine.texture.TextureImage;
+import se.florry.engine.utils.EngineUtils;
+
+/*
+ * Draws sprites of random size, texture and color, a tenth of them rotated and half of them blended, at 1, 2, 4 and
+ * 8 workers. Logs the sprites drawn per second, in total and per core used, checks every worker count draws exactly
+ * the same pixels and writes the last frame to a PNG file.
+ *
+ * Usage: SoftwareRenderBackendBench [sprites] [frames] [png file]
+ */
+public final class SoftwareRenderBackendBench
+{
+
+	public static void main(final String[] args) throws IOException
+	{
+		final int sprites = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+		final int frames = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+		final File file = new File(args.length > 2 ? args[2] : System.getProperty("java.io.tmpdir") + "/software-frame.png");
+		final int cores = Runtime.getRuntime()
+				.availableProcessors();
+		long firstChecksum = 0;
+		SoftwareRenderBackend last = null;
+
+		for (final int workers : new int[] { 1, 2, 4, 8 })
+		{
+			final SoftwareRenderBackend backend = new SoftwareRenderBackend(workers);
+			final Random random = new Random(1);
+			final int[] textures = new int[4];
+
+			backend.init();
+
+			for (int i = 0; i < textures.length; i++)
+			{
+				final ByteBuffer pixels = ByteBuffer.allocateDirect(32 * 32 * TextureImage.BYTES_PER_PIXEL);
+
+				while (pixels.hasRemaining())
+				{
+					pixels.put((byte) random.nextInt(256));
+				}
+
+				pixels.flip();
+				textures[i] = backend.uploadTexture(new TextureImage(32, 32, pixels));
+			}
+
+			final SpriteBatch batch = SpriteBatch.get();
+			long rasterNanos = 0;
+			final long start = EngineUtils.getNanoTime();
+
+			for (int frame = 0; frame < frames; frame++)
+			{
+				random.setSeed(frame);
+				backend.prepare();
+
+				for (int i = 0; i < sprites; i++)
+				{
+					final float x = random.nextFloat() * Constants.Display.WIDTH;
+					final float y = random.nextFloat() * Constants.Display.HEIGHT;
+					final float size = 8 + random.nextInt(56);
+					final int color = random.nextInt() | 0x80000000;
+
+					if (i % 10 == 0)
+					{
+						final float angle = random.nextFloat() * 6.28f;
+						final float cos = (float) Math.cos(angle);
+						final float sin = (float) Math.sin(angle);
+
+						batch.setTransform(cos, sin, -sin, cos, x, y);
+						batch.setTexture(textures[i % textures.length]);
+						batch.draw(-size / 2, -size / 2, size / 2, size / 2, 0, 0, 1, 1, color, i % 2 == 0);
+						batch.resetTransform();
+					} else
+					{
+						batch.setTexture(textures[i % textures.length]);
+						batch.draw(x, y, x + size, y + size, 0, 0, 2, 2, color, i % 2 == 0);
+					}
+				}
+
+				backend.present();
+				rasterNanos += backend.getRasterNanos();
+			}
+
+			final float seconds = (EngineUtils.getNanoTime() - start) / 1000000000f;
+			final float rate = sprites * frames / seconds;
+			long checksum = 0;
+
+			for (int i = 0; i < backend.getFramebuffer()
+					.capacity(); i++)
+			{
+				checksum = checksum * 31 + backend.getFramebuffer()
+						.get(i);
+			}
+
+			if (workers == 1)
+			{
+				firstChecksum = checksum;
+			} else if (checksum != firstChecksum)
+			{
+				throw new IllegalStateException(workers + " workers drew other pixels than 1 worker");
+			}
+
+			EngineUtils.log(workers, "workers:", rate, "sprites/s,", rate / Math.min(workers, cores), "sprites/s per core, raster", rasterNanos / frames
+					/ 1000000f, "ms per frame");
+
+			if (last != null)
+			{
+				last.shutdown();
+			}
+
+			last = backend;
+		}
+
+		last.writePNG(file);
+		last.shutdown();
+		EngineUtils.log("Same pixels at every worker count, last frame written to", file);
+	}
+
+}
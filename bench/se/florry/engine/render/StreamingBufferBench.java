@@ -0,0 +1,144 @@
+package se.florry.engine.render;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import se.florry.engine.utils.EngineUtils;
+
+/*
+ * Streams frames through buffers on a fake storage whose GPU is a number of fences behind, checking no reservation
+ * ever overlaps bytes the GPU may still be reading, and logs the stalls and wrap-arounds. Covers a GPU keeping up,
+ * one falling behind, frames larger than a region and storage that can not be mapped.
+ *
+ * Usage: StreamingBufferBench [frames]
+ */
+public final class StreamingBufferBench
+{
+
+	public static void main(final String[] args)
+	{
+		final int frames = args.length > 0 ? Integer.parseInt(args[0]) : 300;
+
+		stream("GPU 1 frame behind:         ", frames, 1, 3000, true);
+		stream("GPU 2 frames behind:        ", frames, 2, 3000, true);
+		stream("GPU 3 frames behind:        ", frames, 3, 3000, true);
+		stream("1.5 regions per frame:      ", frames, 1, 6000, true);
+		stream("Not mapped, 2 frames behind:", frames, 2, 3000, false);
+	}
+
+	private static void stream(final String name, final int frames, final int latency, final int frameBytes, final boolean mappable)
+	{
+		final FakeStorage storage = new FakeStorage(latency, mappable);
+		final StreamingBuffer buffer = new StreamingBuffer(4096, 3, storage);
+		// Offset, bytes and the fence covering them of every reservation still read by the GPU.
+		final List<long[]> inFlight = new ArrayList<>();
+
+		for (int frame = 0; frame < frames; frame++)
+		{
+			for (int written = 0; written < frameBytes; written += 500)
+			{
+				final ByteBuffer reserved = buffer.reserve(500);
+				final int start = reserved.position();
+
+				inFlight.removeIf(range -> range[2] <= storage.completed);
+
+				for (final long[] range : inFlight)
+				{
+					if (start < range[0] + range[1] && range[0] < start + 500)
+					{
+						throw new IllegalStateException(name + " reserved bytes " + start + " the GPU is still reading");
+					}
+				}
+
+				while (reserved.hasRemaining())
+				{
+					reserved.put((byte) frame);
+				}
+
+				buffer.commit();
+
+				// Uploaded data is copied by the driver, so only mapped bytes stay in flight.
+				if (mappable)
+				{
+					inFlight.add(new long[] { start, 500, storage.issued + 1 });
+				}
+			}
+
+			buffer.endFrame();
+			storage.completeFrame();
+		}
+
+		EngineUtils.log(name, frames, "frames,", buffer.getStalls(), "stalls,", buffer.getWrapArounds(), "wrap-arounds,", storage.uploads, "uploads,",
+				storage.orphans, "orphans");
+	}
+
+	/*
+	 * Storage without a GPU, completing fences a number of fences after they
+	 * were issued, or at once when waited for.
+	 */
+	private static final class FakeStorage implements StreamingStorage
+	{
+
+		private final int latency;
+		private final boolean mappable;
+		private long issued;
+		private long completed;
+		private int uploads;
+		private int orphans;
+
+		private FakeStorage(final int latency, final boolean mappable)
+		{
+			this.latency = latency;
+			this.mappable = mappable;
+		}
+
+		@Override
+		public ByteBuffer create(final int size)
+		{
+			return this.mappable ? ByteBuffer.allocateDirect(size) : null;
+		}
+
+		@Override
+		public void upload(final int offset, final ByteBuffer data)
+		{
+			this.uploads++;
+		}
+
+		@Override
+		public void orphan()
+		{
+			this.orphans++;
+		}
+
+		@Override
+		public long fence()
+		{
+			return ++this.issued;
+		}
+
+		@Override
+		public boolean isSignaled(final long fence)
+		{
+			return fence <= this.completed;
+		}
+
+		@Override
+		public void waitFor(final long fence)
+		{
+			this.completed = Math.max(this.completed, fence);
+		}
+
+		@Override
+		public void deleteFence(final long fence)
+		{
+		}
+
+		private void completeFrame()
+		{
+			this.completed = Math.max(this.completed, this.issued - this.latency);
+		}
+
+	}
+
+}
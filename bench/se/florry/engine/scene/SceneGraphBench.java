@@ -0,0 +1,109 @@
+package se.florry.engine.scene;
+
+import java.util.Random;
+
+import se.florry.engine.model.QuadModel;
+import se.florry.engine.model.Size;
+import se.florry.engine.render.SpriteBatch;
+import se.florry.engine.utils.EngineUtils;
+import se.florry.engine.utils.FrameTimeRecorder;
+
+/*
+ * Builds a UI like tree of 100 panels with 10 rows of 9 quads each, 10100 nodes, and moves 1% of the nodes every
+ * frame. Compares updating only the changed subtrees against recalculating every node each frame, both including the
+ * rendering into a sprite batch without a handler.
+ *
+ * Usage: SceneGraphBench [frames]
+ */
+public final class SceneGraphBench
+{
+
+	public static void main(final String[] args)
+	{
+		final int frames = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+		final SceneGraph graph = new SceneGraph();
+		final SpriteBatch batch = SpriteBatch.get();
+		final Size quadSize = new Size(8, 8);
+		final QuadModel quad = new QuadModel(quadSize);
+		final SceneNode[] nodes = new SceneNode[10100];
+		int count = 0;
+
+		for (int panel = 0; panel < 100; panel++)
+		{
+			final SceneNode panelNode = graph.getRoot()
+					.add(new SceneNode().setPosition(panel % 10 * 128, panel / 10 * 72));
+			nodes[count++] = panelNode;
+
+			for (int row = 0; row < 10; row++)
+			{
+				final SceneNode rowNode = panelNode.add(new SceneNode().setPosition(0, row * 7));
+				nodes[count++] = rowNode;
+
+				for (int column = 0; column < 9; column++)
+				{
+					nodes[count++] = rowNode.add(new SceneNode(node -> quad.render()).setPosition(column * 14, 0));
+				}
+			}
+		}
+
+		final Random random = new Random(1);
+		final FrameTimeRecorder dirtyUpdates = new FrameTimeRecorder(frames);
+		final FrameTimeRecorder dirtyFrames = new FrameTimeRecorder(frames);
+		final FrameTimeRecorder fullUpdates = new FrameTimeRecorder(frames);
+		final FrameTimeRecorder fullFrames = new FrameTimeRecorder(frames);
+		long updated = 0;
+
+		for (int frame = 0; frame < frames * 2; frame++)
+		{
+			final boolean full = frame % 2 == 1;
+
+			for (int i = 0; i < count / 100; i++)
+			{
+				final SceneNode node = nodes[random.nextInt(count)];
+
+				node.setPosition(node.getX() + random.nextInt(3) - 1, node.getY() + random.nextInt(3) - 1);
+			}
+
+			final long start = EngineUtils.getNanoTime();
+
+			if (full)
+			{
+				graph.getRoot()
+						.updateWorld();
+			}
+
+			graph.update();
+
+			final long update = EngineUtils.getNanoTime() - start;
+
+			if (!full)
+			{
+				updated += graph.getLastUpdatedNodes();
+			}
+
+			batch.begin();
+			graph.render();
+			batch.end();
+
+			final long total = EngineUtils.getNanoTime() - start;
+
+			if (full)
+			{
+				fullUpdates.record(update);
+				fullFrames.record(total);
+			} else
+			{
+				dirtyUpdates.record(update);
+				dirtyFrames.record(total);
+			}
+		}
+
+		EngineUtils.log(count, "nodes,", count / 100, "moving per frame,", graph.getRenderListSize(), "rendered,", batch.getVerticesPerFrame() / 4,
+				"quads batched,", graph.getRebuilds(), "render list rebuilds");
+		EngineUtils.log("Changed subtrees: update p50", dirtyUpdates.getPercentile(50) / 1000f, "us p99", dirtyUpdates.getPercentile(99) / 1000f,
+				"us, with rendering p50", dirtyFrames.getPercentile(50) / 1000f, "us,", updated / frames, "nodes recalculated per frame");
+		EngineUtils.log("Every node:       update p50", fullUpdates.getPercentile(50) / 1000f, "us p99", fullUpdates.getPercentile(99) / 1000f,
+				"us, with rendering p50", fullFrames.getPercentile(50) / 1000f, "us,", count, "nodes recalculated per frame");
+	}
+
+}
@@ -0,0 +1,91 @@
+package se.florry.engine.scene;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import se.florry.engine.constants.Constants;
+import se.florry.engine.model.QuadModel;
+import se.florry.engine.model.Size;
+import se.florry.engine.utils.EngineUtils;
+import se.florry.engine.utils.FrameTimeRecorder;
+
+/*
+ * Compares querying the visible quads of a display sized camera scrolling over a level of tiles against testing
+ * every tile, for growing numbers of tiles, with 1% of the tiles moving every frame.
+ *
+ * Usage: SpatialHashBench [frames]
+ */
+public final class SpatialHashBench
+{
+
+	public static void main(final String[] args)
+	{
+		final int frames = args.length > 0 ? Integer.parseInt(args[0]) : 600;
+		final int tileSize = 32;
+		final int[] counts = { 1000, 10000, 100000 };
+
+		for (final int count : counts)
+		{
+			final Random random = new Random(count);
+			final int columns = (int) Math.sqrt(count);
+			final SpatialHash hash = new SpatialHash();
+			final QuadModel[] tiles = new QuadModel[count];
+			final int[] handles = new int[count];
+
+			for (int i = 0; i < count; i++)
+			{
+				tiles[i] = new QuadModel(new Size(tileSize, tileSize), i % columns * tileSize, i / columns * tileSize);
+				handles[i] = hash.add(tiles[i]);
+			}
+
+			final float levelSize = columns * tileSize;
+			final List<QuadModel> visible = new ArrayList<>();
+			final FrameTimeRecorder queryTimes = new FrameTimeRecorder(frames);
+			final FrameTimeRecorder bruteForceTimes = new FrameTimeRecorder(frames);
+			long checksum = 0;
+
+			for (int frame = 0; frame < frames; frame++)
+			{
+				final float cameraX = (float) frame / frames * Math.max(0, levelSize - Constants.Display.WIDTH);
+				final float cameraY = (float) frame / frames * Math.max(0, levelSize - Constants.Display.HEIGHT);
+
+				for (int i = 0; i < count / 100; i++)
+				{
+					final int moving = random.nextInt(count);
+
+					tiles[moving].position.x += random.nextInt(65) - 32;
+					tiles[moving].position.y += random.nextInt(65) - 32;
+					hash.update(handles[moving]);
+				}
+
+				long start = EngineUtils.getNanoTime();
+				visible.clear();
+				checksum += hash.query(cameraX, cameraY, Constants.Display.WIDTH, Constants.Display.HEIGHT, visible);
+				queryTimes.record(EngineUtils.getNanoTime() - start);
+
+				start = EngineUtils.getNanoTime();
+				visible.clear();
+
+				for (int i = 0; i < count; i++)
+				{
+					final QuadModel tile = tiles[i];
+
+					if (tile.position.x < cameraX + Constants.Display.WIDTH && tile.position.x + tileSize > cameraX
+							&& tile.position.y < cameraY + Constants.Display.HEIGHT && tile.position.y + tileSize > cameraY)
+					{
+						visible.add(tile);
+					}
+				}
+
+				checksum -= visible.size();
+				bruteForceTimes.record(EngineUtils.getNanoTime() - start);
+			}
+
+			EngineUtils.log(count, "tiles,", visible.size(), "visible: spatial hash p50", queryTimes.getPercentile(50) / 1000f, "us p99",
+					queryTimes.getPercentile(99) / 1000f, "us, testing every tile p50", bruteForceTimes.getPercentile(50) / 1000f, "us p99",
+					bruteForceTimes.getPercentile(99) / 1000f, "us, mismatches", checksum);
+		}
+	}
+
+}
@@ -0,0 +1,120 @@
+package se.florry.engine.sprite;
+
+import java.util.Random;
+
+import se.florry.engine.constants.Constants;
+import se.florry.engine.model.QuadModel;
+import se.florry.engine.model.Size;
+import se.florry.engine.render.SpriteBatch;
+import se.florry.engine.utils.EngineUtils;
+import se.florry.engine.utils.FrameTimeRecorder;
+
+/*
+ * Moves 50000 sprites with a velocity and bounces them off the display edges every frame, then submits them to a
+ * sprite batch without a handler. Compares sprites as quad models, with velocities in separate arrays, against
+ * sprites in a store.
+ *
+ * Usage: SpriteStoreBench [sprites] [frames]
+ */
+public final class SpriteStoreBench
+{
+
+	public static void main(final String[] args)
+	{
+		final int count = args.length > 0 ? Integer.parseInt(args[0]) : 50000;
+		final int frames = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+		final float deltaTime = 1f / Constants.Loop.UPDATE_RATE;
+		final SpriteBatch batch = SpriteBatch.get();
+		final Random random = new Random(1);
+
+		final float[] velocityX = new float[count];
+		final float[] velocityY = new float[count];
+		final QuadModel[] quads = new QuadModel[count];
+		final SpriteStore store = new SpriteStore(count);
+
+		for (int i = 0; i < count; i++)
+		{
+			velocityX[i] = random.nextFloat() * 200 - 100;
+			velocityY[i] = random.nextFloat() * 200 - 100;
+			quads[i] = new QuadModel(new Size(16, 16), random.nextInt(Constants.Display.WIDTH), random.nextInt(Constants.Display.HEIGHT));
+			store.add(quads[i], 1);
+		}
+
+		// The quads are shuffled in memory, as they would be after a while of adding and removing.
+		for (int i = count - 1; i > 0; i--)
+		{
+			final int other = random.nextInt(i + 1);
+			final QuadModel quad = quads[i];
+
+			quads[i] = quads[other];
+			quads[other] = quad;
+		}
+
+		final FrameTimeRecorder quadTimes = new FrameTimeRecorder(frames);
+		final FrameTimeRecorder storeTimes = new FrameTimeRecorder(frames);
+		batch.setTexture(1);
+
+		for (int frame = 0; frame < frames * 2; frame++)
+		{
+			final long start = EngineUtils.getNanoTime();
+			batch.begin();
+
+			if (frame % 2 == 0)
+			{
+				for (int i = 0; i < count; i++)
+				{
+					final QuadModel quad = quads[i];
+
+					quad.position.x += velocityX[i] * deltaTime;
+					quad.position.y += velocityY[i] * deltaTime;
+
+					if (quad.position.x < 0 || quad.position.x > Constants.Display.WIDTH)
+					{
+						velocityX[i] = -velocityX[i];
+					}
+
+					if (quad.position.y < 0 || quad.position.y > Constants.Display.HEIGHT)
+					{
+						velocityY[i] = -velocityY[i];
+					}
+
+					quad.render();
+				}
+
+				batch.end();
+				quadTimes.record(EngineUtils.getNanoTime() - start);
+			} else
+			{
+				final float[] x = store.x;
+				final float[] y = store.y;
+
+				for (int i = 0; i < store.size(); i++)
+				{
+					x[i] += velocityX[i] * deltaTime;
+					y[i] += velocityY[i] * deltaTime;
+
+					if (x[i] < 0 || x[i] > Constants.Display.WIDTH)
+					{
+						velocityX[i] = -velocityX[i];
+					}
+
+					if (y[i] < 0 || y[i] > Constants.Display.HEIGHT)
+					{
+						velocityY[i] = -velocityY[i];
+					}
+				}
+
+				store.submit(batch);
+				batch.end();
+				storeTimes.record(EngineUtils.getNanoTime() - start);
+			}
+		}
+
+		EngineUtils.log(count, "sprites, update and submit per frame:");
+		EngineUtils.log("Quad models:  mean", quadTimes.getMean() / 1000f, "us p99", quadTimes.getPercentile(99) / 1000f, "us,",
+				(long) count * 1000000000L / Math.max(1, quadTimes.getMean()), "sprites/s");
+		EngineUtils.log("Sprite store: mean", storeTimes.getMean() / 1000f, "us p99", storeTimes.getPercentile(99) / 1000f, "us,",
+				(long) count * 1000000000L / Math.max(1, storeTimes.getMean()), "sprites/s");
+	}
+
+}
@@ -0,0 +1,58 @@
+package se.florry.engine.texture;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+import se.florry.engine.constants.Constants;
+
+/*
+ * Packs all PNG files of a directory into an atlas.
+ *
+ * Usage: AtlasPackerTool <input directory> <atlas name> [output directory] [page size]
+ *
+ * The output directory defaults to the texture location so the atlas can be loaded with
+ * TextureAtlas.load(atlasName).
+ */
+public final class AtlasPackerTool
+{
+
+	public static void main(final String[] args) throws IOException
+	{
+		if (args.length < 2)
+		{
+			System.err.println("Usage: AtlasPackerTool <input directory> <atlas name> [output directory] [page size]");
+			return;
+		}
+
+		final String outputDirectory = args.length > 2 ? args[2] : Constants.Textures.TEXTURE_LOCATION;
+		final int pageSize = args.length > 3 ? Integer.parseInt(args[3]) : Constants.Textures.ATLAS_PAGE_SIZE;
+		final AtlasPacker packer = new AtlasPacker(pageSize, Constants.Textures.ATLAS_PADDING);
+		final String extension = "." + Constants.Textures.TEXTURE_FILEFORMAT;
+		final File[] files = new File(args[0]).listFiles((directory, name) -> name.endsWith(extension));
+
+		if (files == null)
+		{
+			System.err.println("Error " + args[0] + " is not a directory");
+			return;
+		}
+
+		Arrays.sort(files);
+
+		for (final File file : files)
+		{
+			try (final InputStream in = new FileInputStream(file))
+			{
+				final String name = file.getName();
+				packer.add(name.substring(0, name.length() - extension.length()), TextureLoader.decode(in));
+			}
+		}
+
+		packer.pack();
+		packer.write(outputDirectory, args[1]);
+		packer.report(args[1]);
+	}
+
+}
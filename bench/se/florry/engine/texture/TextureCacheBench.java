@@ -0,0 +1,96 @@
+package se.florry.engine.texture;
+
+import java.io.File;
+import java.io.IOException;
+
+import se.florry.engine.constants.Constants;
+import se.florry.engine.utils.EngineUtils;
+
+/*
+ * Compares decoding every PNG in the texture location against reading the same textures from the cache, (re)writing
+ * the cache files in between.
+ *
+ * Usage: TextureCacheBench [compress]
+ */
+public final class TextureCacheBench
+{
+
+	public static void main(final String[] args)
+	{
+		final boolean compress = args.length > 0 && Boolean.parseBoolean(args[0]);
+		final String extension = "." + Constants.Textures.TEXTURE_FILEFORMAT;
+		final File[] files = new File(Constants.Textures.TEXTURE_LOCATION).listFiles((directory, name) -> name.endsWith(extension));
+
+		if (files == null || files.length == 0)
+		{
+			System.err.println("Error no textures found in " + Constants.Textures.TEXTURE_LOCATION);
+			return;
+		}
+
+		final String[] names = new String[files.length];
+
+		for (int i = 0; i < files.length; i++)
+		{
+			names[i] = files[i].getName()
+					.substring(0, files[i].getName()
+							.length() - extension.length());
+		}
+
+		long bytes = 0;
+		final long decodeStart = System.nanoTime();
+
+		for (final String name : names)
+		{
+			final TextureImage image = TextureLoader.decodePNG(name, null, false);
+
+			if (image != null)
+			{
+				bytes += image.getByteSize();
+			}
+		}
+
+		final long decodeTime = System.nanoTime() - decodeStart;
+
+		for (final String name : names)
+		{
+			final TextureImage image = TextureLoader.decodePNG(name, null, false);
+
+			if (image != null)
+			{
+				try
+				{
+					TextureCache.write(name, image, TextureCache.crc(new File(TextureLoader.getTextureFilename(name))), compress);
+				} catch (final IOException e)
+				{
+					System.out.println("Error reading " + name);
+				}
+			}
+		}
+
+		final long cacheStart = System.nanoTime();
+		long checksum = 0;
+
+		for (final String name : names)
+		{
+			final TextureImage image = TextureCache.read(name, null);
+
+			if (image != null)
+			{
+				// Touch every page of the mapping so the read is not lazy.
+				for (int i = 0; i < image.getByteSize(); i += 4096)
+				{
+					checksum += image.getPixels()
+							.get(i);
+				}
+			}
+		}
+
+		final long cacheTime = System.nanoTime() - cacheStart;
+		final float megabytes = bytes / (1024f * 1024f);
+
+		EngineUtils.log("PNG decode:", names.length, "textures,", decodeTime / 1000000f, "ms,", megabytes / (decodeTime / 1000000000f), "MB/s");
+		EngineUtils.log("Texture cache" + (compress ? " (compressed):" : ":"), names.length, "textures,", cacheTime / 1000000f, "ms,",
+				megabytes / (cacheTime / 1000000000f), "MB/s, checksum", checksum);
+	}
+
+}
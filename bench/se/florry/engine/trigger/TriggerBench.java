@@ -0,0 +1,47 @@
+package se.florry.engine.trigger;
+
+import java.util.Random;
+
+import se.florry.engine.utils.EngineUtils;
+import se.florry.engine.utils.FrameTimeRecorder;
+
+/*
+ * Measures the per frame dispatch cost of a number of triggers with random framerates, over simulated 60 fps frames.
+ *
+ * Usage: TriggerBench [triggers] [frames]
+ */
+public final class TriggerBench
+{
+
+	public static void main(final String[] args)
+	{
+		final int triggerCount = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+		final int frames = args.length > 1 ? Integer.parseInt(args[1]) : 3600;
+		final long frameTime = 1000000 / 60;
+		final Random random = new Random(1);
+		final Trigger trigger = new Trigger();
+		final FrameTimeRecorder dispatchTimes = new FrameTimeRecorder(frames);
+		final long[] counter = new long[1];
+		// In microseconds, as triggers are timed.
+		long time = EngineUtils.getNanoTime() / 1000;
+
+		for (int i = 0; i < triggerCount; i++)
+		{
+			trigger.add("trigger" + i, 1 + random.nextInt(240), success -> counter[0]++);
+		}
+
+		for (int frame = 0; frame < frames; frame++)
+		{
+			time += frameTime;
+			trigger.dispatch(time);
+			dispatchTimes.record(trigger.getLastDispatchTime());
+		}
+
+		final float seconds = frames * frameTime / 1000000f;
+
+		EngineUtils.log("Triggers:", triggerCount, "over", frames, "frames,", counter[0], "executions,", counter[0] / seconds, "per second");
+		EngineUtils.log("Dispatch per frame: mean", dispatchTimes.getMean() / 1000f, "us, p50", dispatchTimes.getPercentile(50) / 1000f, "us, p99",
+				dispatchTimes.getPercentile(99) / 1000f, "us, max", dispatchTimes.getMax() / 1000f, "us");
+	}
+
+}
@@ -0,0 +1,81 @@
+package se.florry.engine.ui.model;
+
+import java.nio.ByteBuffer;
+
+import org.lwjgl.util.vector.Vector2f;
+
+import se.florry.engine.material.AtlasMaterial;
+import se.florry.engine.model.Size;
+import se.florry.engine.render.HeadlessRenderBackend;
+import se.florry.engine.render.RenderContext;
+import se.florry.engine.render.SpriteBatch;
+import se.florry.engine.texture.AtlasPacker;
+import se.florry.engine.texture.TextureAtlas;
+import se.florry.engine.texture.TextureImage;
+import se.florry.engine.utils.EngineUtils;
+
+/*
+ * Draws UI quads showing two textures packed on one atlas page through the headless backend, and checks they are
+ * drawn in a single flush, against unbinding the texture after every quad.
+ *
+ * Usage: UIQuadBench [quads]
+ */
+public final class UIQuadBench
+{
+
+	public static void main(final String[] args)
+	{
+		final int count = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+		final HeadlessRenderBackend backend = new HeadlessRenderBackend();
+
+		RenderContext.set(backend);
+		backend.init();
+
+		final TextureAtlas atlas = TextureAtlas.pack(new AtlasPacker().add("button", image(64, 32))
+				.add("icon", image(32, 32)), "ui");
+		final AtlasMaterial button = new AtlasMaterial(atlas, "button");
+		final AtlasMaterial icon = new AtlasMaterial(atlas, "icon");
+		final UIQuad[] quads = new UIQuad[count];
+
+		for (int i = 0; i < count; i++)
+		{
+			quads[i] = new UIQuad(new Size(32, 32), new Vector2f(i % 40 * 32, i / 40 * 32), i % 2 == 0 ? button : icon);
+		}
+
+		final SpriteBatch batch = SpriteBatch.get();
+
+		batch.begin();
+
+		for (final UIQuad quad : quads)
+		{
+			quad.render();
+			batch.setTexture(0);
+		}
+
+		batch.end();
+
+		final int unbinding = batch.getFlushesPerFrame();
+
+		batch.begin();
+
+		for (final UIQuad quad : quads)
+		{
+			quad.render();
+		}
+
+		batch.end();
+
+		EngineUtils.log(count, "UI quads:", unbinding, "flushes unbinding the texture after every quad,", batch.getFlushesPerFrame(), "flushes batched");
+
+		if (batch.getFlushesPerFrame() != 1)
+		{
+			throw new IllegalStateException(count + " UI quads on one atlas page took " + batch.getFlushesPerFrame() + " flushes");
+		}
+	}
+
+	private static TextureImage image(final int width, final int height)
+	{
+		return new TextureImage(width, height, ByteBuffer.allocateDirect(width * height * TextureImage.BYTES_PER_PIXEL));
+	}
+
+}
@@ -0,0 +1,121 @@
+package se.florry.engine.utils;
+
+import java.nio.ByteBuffer;
+
+import se.florry.engine.handler.LoopHandler;
+import se.florry.engine.handler.RenderHandler;
+import se.florry.engine.model.AnimatedQuadModel;
+import se.florry.engine.model.Engine;
+import se.florry.engine.model.QuadModel;
+import se.florry.engine.model.Size;
+import se.florry.engine.render.HeadlessRenderBackend;
+import se.florry.engine.render.RenderLayer;
+import se.florry.engine.render.RenderLayer.BlendMode;
+import se.florry.engine.render.RenderLayers;
+import se.florry.engine.render.SpriteBatch;
+import se.florry.engine.texture.TextureImage;
+import se.florry.engine.texture.TextureLoader;
+
+/*
+ * Runs the engine loop headless with quads, animated quads, a render layer, a repeating trigger and dynamic
+ * resolution scaling, and checks the frames after warming up allocate nothing. Running threaded both the render
+ * thread and the simulation thread are checked.
+ *
+ * Usage: AllocationTrackerBench [frames] [quads] [threaded]
+ */
+public final class AllocationTrackerBench
+{
+
+	public static void main(final String[] args)
+	{
+		final int frames = args.length > 0 ? Integer.parseInt(args[0]) : 600;
+		final int quads = args.length > 1 ? Integer.parseInt(args[1]) : 5000;
+		final boolean threaded = args.length > 2 && Boolean.parseBoolean(args[2]);
+		final HeadlessRenderBackend backend = new HeadlessRenderBackend();
+		final Engine engine = new Engine(backend);
+		final int texture = TextureLoader.uploadTexture(new TextureImage(64, 64, ByteBuffer.allocateDirect(64 * 64 * TextureImage.BYTES_PER_PIXEL)));
+		final QuadModel[] models = new QuadModel[quads];
+		final RenderLayer layer = RenderLayers.get()
+				.add("sprites", 0, BlendMode.ALPHA);
+		final int[] triggered = new int[1];
+		// Game loop calls, a frame each running unthreaded and a simulation step each running threaded.
+		final int[] steps = new int[1];
+
+		for (int i = 0; i < quads; i++)
+		{
+			models[i] = i % 2 == 0 ? new QuadModel(new Size(16, 16), i % 1280, i / 1280 * 16) : new AnimatedQuadModel(new Size(16, 16), i % 1280, i / 1280
+					* 16, 100, 4);
+		}
+
+		engine.trackAllocations(true);
+		engine.setDynamicResolution(16666667);
+		engine.trigger()
+				.add("count", 60, returnValue -> triggered[0]++);
+
+		final LoopHandler loop = deltaTime ->
+		{
+			for (int i = 0; i < quads; i++)
+			{
+				models[i].position.x = (models[i].position.x + deltaTime * 60) % 1280;
+			}
+
+			steps[0]++;
+
+			if (steps[0] == frames / 2)
+			{
+				engine.getAllocationTracker()
+						.reset();
+
+				if (threaded)
+				{
+					engine.getSimulationAllocationTracker()
+							.reset();
+				}
+			} else if (steps[0] >= frames - 1)
+			{
+				engine.stop();
+			}
+		};
+		final RenderHandler render = alpha ->
+		{
+			final SpriteBatch batch = SpriteBatch.get();
+
+			batch.setTexture(texture);
+
+			for (int i = 0; i < quads / 2; i++)
+			{
+				models[i].render();
+			}
+
+			for (int i = quads / 2; i < quads; i++)
+			{
+				models[i].queue(layer.getQueue(), 0, 0, texture);
+			}
+		};
+
+		if (threaded)
+		{
+			engine.runThreaded(loop, render);
+		} else
+		{
+			engine.run(loop, render);
+		}
+
+		final AllocationTracker tracker = engine.getAllocationTracker();
+
+		EngineUtils.log(tracker.getFrames(), "frames after warming up,", tracker.getAllocatingFrames(), "allocated,", tracker.getTotalBytes(), "bytes in total,",
+				tracker.getMaxFrameBytes(), "bytes at most,", triggered[0], "triggers");
+
+		if (threaded)
+		{
+			final AllocationTracker simulation = engine.getSimulationAllocationTracker();
+
+			EngineUtils.log(simulation.getFrames(), "simulation steps after warming up,", simulation.getAllocatingFrames(), "allocated,",
+					simulation.getTotalBytes(), "bytes in total,", simulation.getMaxFrameBytes(), "bytes at most");
+			simulation.assertMaxFrameBytes(0);
+		}
+
+		tracker.assertMaxFrameBytes(0);
+	}
+
+}
@@ -26,11 +26,87 @@ public final class Constants
 
 	}
 
+	public final static class Loop
+	{
+
+		// Simulation steps per second when running with a fixed timestep.
+		public final static int UPDATE_RATE = 120;
+		// Steps taken at most per frame before the simulation is allowed to fall behind.
+		public final static int MAX_UPDATES_PER_FRAME = 5;
+		// Number of latest frames the frame time statistics are calculated over.
+		public final static int FRAME_TIME_WINDOW = 600;
+		// Microseconds a trigger may fall behind before missed firings are skipped instead of caught up.
+		public final static long MAX_TRIGGER_LAG = 250000;
+		// Triggers the trigger scheduler has room for before growing.
+		public final static int TRIGGER_CAPACITY = 256;
+		// Worker threads running systems in parallel.
+		public final static int WORKER_THREADS = Runtime.getRuntime()
+				.availableProcessors();
+		// Nanoseconds the simulation thread sleeps while it has no step to take.
+		public final static long SIMULATION_WAIT_NANOS = 200000;
+
+	}
+
+	public final static class Render
+	{
+
+		// Maximum number of quads in the sprite batch before it is flushed.
+		public final static int BATCH_SIZE = 4096;
+		// Sprites the sprite store has room for.
+		public final static int SPRITE_CAPACITY = 65536;
+		// Width and height of the tiles the software renderer rasterizes in parallel.
+		public final static int TILE_SIZE = 64;
+		// Bytes of each of the regions of the buffer streaming vertices to the GPU, one region per frame in flight.
+		public final static int STREAM_REGION_SIZE = 4 * 1024 * 1024;
+		// Regions of the streaming buffer, writing a region waits for the GPU to be done with the frame last written to it.
+		public final static int STREAM_REGIONS = 3;
+		// Scale of the display size frames are rendered at, scaled up onto the window when below 1.
+		public final static float RENDER_SCALE = 1;
+		// The smallest scale frames can be rendered at.
+		public final static float MIN_RENDER_SCALE = 0.5f;
+		// Frames whose times are averaged when scaling the resolution.
+		public final static int RESOLUTION_FRAME_WINDOW = 15;
+		// Frames in a row averaging over the target frame time before the resolution is lowered.
+		public final static int RESOLUTION_DOWN_FRAMES = 10;
+		// Frames in a row with room for a larger resolution before it is raised.
+		public final static int RESOLUTION_UP_FRAMES = 90;
+		// Share of the target frame time the resolution is scaled to take, and has to stay under to be raised.
+		public final static float RESOLUTION_HEADROOM = 0.85f;
+		// The resolution scale changes in steps of this size.
+		public final static float RESOLUTION_STEP = 0.05f;
+		// GPU timer queries in flight, read a few frames late so reading never waits for the GPU.
+		public final static int GPU_TIMER_QUERIES = 4;
+
+	}
+
+	public final static class Scene
+	{
+
+		// Width and height of the cells of the spatial hash.
+		public final static float CELL_SIZE = 256;
+
+	}
+
 	public final static class Textures
 	{
 
 		public static final String TEXTURE_LOCATION = "res/";
 		public static final String TEXTURE_FILEFORMAT = "png";
+		public static final String ATLAS_FILEFORMAT = "atlas";
+		public static final boolean USE_TEXTURE_CACHE = true;
+		public static final String TEXTURE_CACHE_LOCATION = "res/cache/";
+		public static final String TEXTURE_CACHE_FILEFORMAT = "ftex";
+		// Compressed cache files are smaller but have to be decompressed instead of mapped.
+		public static final boolean TEXTURE_CACHE_COMPRESSION = false;
+		public static final int ATLAS_PAGE_SIZE = 2048;
+		// Empty pixels between packed textures to avoid bleeding.
+		public static final int ATLAS_PADDING = 1;
+		// Bytes of unreferenced textures kept loaded before the least recently used are deleted.
+		public static final long TEXTURE_BUDGET = 256L * 1024 * 1024;
+		public static final int DECODE_THREADS = Math.max(1, Runtime.getRuntime()
+				.availableProcessors() - 1);
+		// Time per frame spent uploading asynchronously decoded textures.
+		public static final long UPLOAD_BUDGET_NANOS = 2000000;
 
 	}
 
@@ -63,6 +139,12 @@ public final class Constants
 					// Chars for the letters in the same order as the texture
 					{ 'A', 'B', 'C', 'D', 'E', 'F', 'G', 'H', 'I', 'J', 'K', 'L', 'M', 'N', 'O', 'P', 'Q', 'R', 'S', 'T', 'U', 'V', 'W', 'X', 'Y', 'Z', '0',
 							'1', '2', '3', '4', '5', '6', '7', '8', '9', '.', '=', '!', ':', 32 };
+			// Width of a letter in the letter texture, in texture coordinates.
+			public final static float LETTER_WIDTH = 0.025f;
+			public final static String LETTER_TEXTURE = "letters";
+			// Bitmap fonts are read from this directory in the texture location, together with their page textures.
+			public final static String FONT_DIRECTORY = "fonts/";
+			public final static String FONT_FILEFORMAT = "fnt";
 		}
 	}
 
@@ -15,10 +15,7 @@ import static org.lwjgl.glfw.GLFW.glfwSwapInterval;
 import static org.lwjgl.glfw.GLFW.glfwWindowHint;
 import static org.lwjgl.system.MemoryUtil.NULL;
 
-import org.lwjgl.glfw.GLFW;
 import org.lwjgl.glfw.GLFWErrorCallback;
-import org.lwjgl.glfw.GLFWFramebufferSizeCallback;
-import org.lwjgl.opengl.GL11;
 
 import se.florry.engine.constants.Constants;
 
@@ -73,22 +70,10 @@ public final class Display
 		glfwSwapInterval(1);
 		glfwShowWindow(this.window);
 
-		GLFW.glfwSetFramebufferSizeCallback(this.window, resizeWindow);
+		// The renderer scales its frames onto the window at whatever size it is resized to, letterboxed to keep the ratio.
 		// GLFW.glfwSetCursorPos(window, 1080, 1920);
 	}
 
-	private static GLFWFramebufferSizeCallback resizeWindow = new GLFWFramebufferSizeCallback()
-	{
-		@Override
-		public void invoke(final long window, final int width, final int height)
-		{
-			// Keep ratio when resizing window
-			final int newHeight = (int) (width / 1.777777777777778D);
-
-			GL11.glViewport(0, 0, width, newHeight);
-		}
-	};
-
 	public GLFWErrorCallback getErrorCallback()
 	{
 		return this.errorCallback;
@@ -0,0 +1,472 @@
+package se.florry.engine.font;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import se.florry.engine.constants.Constants;
+import se.florry.engine.utils.IntIntMap;
+
+/*
+ * A font of variable width glyphs packed into one or more texture pages, as described by an AngelCode BMFont text
+ * descriptor. Glyph metrics are kept in primitive arrays indexed by glyph, found through a table indexed by
+ * character, and kerning pairs in a primitive map, so looking glyphs up while laying out text never allocates.
+ * Lengths are in font pixels.
+ */
+public final class BitmapFont
+{
+
+	private final String name;
+	private final float size;
+	private final float lineHeight;
+	private final String[] pageTextures;
+	private float pageWidth;
+	private float pageHeight;
+	private float distanceFieldSpread;
+
+	private int[] glyphIndices;
+	private final float[] offsetX;
+	private final float[] offsetY;
+	private final float[] width;
+	private final float[] height;
+	private final float[] advance;
+	private final float[] u0;
+	private final float[] v0;
+	private final float[] u1;
+	private final float[] v1;
+	private final int[] page;
+	private int glyphCount;
+	private int missingGlyph;
+
+	private final IntIntMap kernings;
+
+	private BitmapFont(final String name, final float size, final float lineHeight, final String[] pageTextures, final int glyphs)
+	{
+		this.name = name;
+		this.size = size;
+		this.lineHeight = lineHeight;
+		this.pageTextures = pageTextures;
+
+		this.glyphIndices = new int[128];
+		Arrays.fill(this.glyphIndices, -1);
+
+		this.offsetX = new float[glyphs];
+		this.offsetY = new float[glyphs];
+		this.width = new float[glyphs];
+		this.height = new float[glyphs];
+		this.advance = new float[glyphs];
+		this.u0 = new float[glyphs];
+		this.v0 = new float[glyphs];
+		this.u1 = new float[glyphs];
+		this.v1 = new float[glyphs];
+		this.page = new int[glyphs];
+		this.missingGlyph = -1;
+
+		this.kernings = new IntIntMap();
+	}
+
+	/*
+	 * Loads a BMFont text descriptor named fontName.fnt from the font
+	 * directory. Its page textures are loaded from the same directory.
+	 * Descriptors written by the DistanceFieldFontTool have an extra
+	 * distanceField line and are drawn with the distance field text shader.
+	 *
+	 * @return the font, or null if it could not be read.
+	 */
+	public static BitmapFont load(final String fontName)
+	{
+		final String filename = Constants.Textures.TEXTURE_LOCATION + Constants.UI.Text.FONT_DIRECTORY + fontName + "."
+				+ Constants.UI.Text.FONT_FILEFORMAT;
+		final List<Map<String, String>> chars = new ArrayList<>();
+		final List<Map<String, String>> kernings = new ArrayList<>();
+		final Map<Integer, String> pages = new HashMap<>();
+		Map<String, String> info = new HashMap<>();
+		Map<String, String> common = null;
+		Map<String, String> distanceField = null;
+
+		try (final BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(filename), StandardCharsets.UTF_8)))
+		{
+			String line;
+
+			while ((line = reader.readLine()) != null)
+			{
+				if (line.startsWith("info "))
+				{
+					info = parseAttributes(line);
+				} else if (line.startsWith("common "))
+				{
+					common = parseAttributes(line);
+				} else if (line.startsWith("distanceField "))
+				{
+					distanceField = parseAttributes(line);
+				} else if (line.startsWith("page "))
+				{
+					final Map<String, String> attributes = parseAttributes(line);
+					final String file = attributes.get("file");
+
+					pages.put(Integer.parseInt(attributes.get("id")), file.substring(0, file.lastIndexOf('.') > 0 ? file.lastIndexOf('.') : file.length()));
+				} else if (line.startsWith("char "))
+				{
+					chars.add(parseAttributes(line));
+				} else if (line.startsWith("kerning "))
+				{
+					kernings.add(parseAttributes(line));
+				}
+			}
+		} catch (final IOException | RuntimeException e)
+		{
+			System.out.println("Error reading font " + filename);
+			return null;
+		}
+
+		if (common == null)
+		{
+			System.out.println("Error font " + filename + " has no common line");
+			return null;
+		}
+
+		final float pageWidth = Float.parseFloat(common.get("scaleW"));
+		final float pageHeight = Float.parseFloat(common.get("scaleH"));
+		final String[] pageTextures = new String[pages.size()];
+
+		for (int i = 0; i < pageTextures.length; i++)
+		{
+			pageTextures[i] = Constants.UI.Text.FONT_DIRECTORY + pages.get(i);
+		}
+
+		final BitmapFont font = new BitmapFont(fontName,
+				Math.abs(Float.parseFloat(info.getOrDefault("size", common.get("lineHeight")))),
+				Float.parseFloat(common.get("lineHeight")),
+				pageTextures,
+				chars.size());
+
+		font.pageWidth = pageWidth;
+		font.pageHeight = pageHeight;
+
+		if (distanceField != null)
+		{
+			font.distanceFieldSpread = Float.parseFloat(distanceField.get("spread"));
+		}
+
+		for (final Map<String, String> glyph : chars)
+		{
+			final float x = Float.parseFloat(glyph.get("x"));
+			final float y = Float.parseFloat(glyph.get("y"));
+			final float glyphWidth = Float.parseFloat(glyph.get("width"));
+			final float glyphHeight = Float.parseFloat(glyph.get("height"));
+
+			font.addGlyph((char) Integer.parseInt(glyph.get("id")),
+					Float.parseFloat(glyph.get("xoffset")),
+					Float.parseFloat(glyph.get("yoffset")),
+					glyphWidth,
+					glyphHeight,
+					Float.parseFloat(glyph.get("xadvance")),
+					x / pageWidth,
+					y / pageHeight,
+					(x + glyphWidth) / pageWidth,
+					(y + glyphHeight) / pageHeight,
+					Integer.parseInt(glyph.getOrDefault("page", "0")));
+		}
+
+		for (final Map<String, String> kerning : kernings)
+		{
+			font.kernings.put(kerningKey((char) Integer.parseInt(kerning.get("first")), (char) Integer.parseInt(kerning.get("second"))),
+					Integer.parseInt(kerning.get("amount")));
+		}
+
+		font.setMissingGlyph();
+
+		return font;
+	}
+
+	/*
+	 * Creates a monospaced font from a texture with the characters laid out
+	 * in a single row, like the letter texture.
+	 *
+	 * @param characterWidth the width of a character in texture coordinates.
+	 *
+	 * @param size the width and height of a character.
+	 *
+	 * @param spacing the space between two characters.
+	 */
+	public static BitmapFont createStrip(final String textureName, final char[] characters, final float characterWidth, final int size,
+			final int spacing)
+	{
+		final BitmapFont font = new BitmapFont(textureName, size, size, new String[] { textureName }, characters.length);
+
+		// The size the strip texture would have if its characters were drawn unscaled.
+		font.pageWidth = size / characterWidth;
+		font.pageHeight = size;
+
+		// Backwards so the first position of a character repeated in the strip is used.
+		for (int i = characters.length - 1; i >= 0; i--)
+		{
+			final float u = 1f / characters.length * i;
+
+			font.addGlyph(characters[i], 0, 0, size, size, size + spacing, u, 0, u + characterWidth, 1, 0);
+		}
+
+		font.setMissingGlyph();
+
+		return font;
+	}
+
+	/*
+	 * Returns the font of the letter texture, upper case letters, digits and
+	 * some punctuation.
+	 */
+	public static BitmapFont createLetters(final int size, final int spacing)
+	{
+		return createStrip(Constants.UI.Text.LETTER_TEXTURE, Constants.UI.Text.LETTERS, Constants.UI.Text.LETTER_WIDTH, size, spacing);
+	}
+
+	private void addGlyph(final char character, final float offsetX, final float offsetY, final float width, final float height, final float advance,
+			final float u0, final float v0, final float u1, final float v1, final int page)
+	{
+		int glyph = character < this.glyphIndices.length ? this.glyphIndices[character] : -1;
+
+		if (glyph == -1)
+		{
+			glyph = this.glyphCount++;
+		}
+
+		if (character >= this.glyphIndices.length)
+		{
+			final int oldLength = this.glyphIndices.length;
+
+			this.glyphIndices = Arrays.copyOf(this.glyphIndices, Math.min(Character.MAX_VALUE + 1, Math.max(character + 1, oldLength * 2)));
+			Arrays.fill(this.glyphIndices, oldLength, this.glyphIndices.length, -1);
+		}
+
+		this.glyphIndices[character] = glyph;
+		this.offsetX[glyph] = offsetX;
+		this.offsetY[glyph] = offsetY;
+		this.width[glyph] = width;
+		this.height[glyph] = height;
+		this.advance[glyph] = advance;
+		this.u0[glyph] = u0;
+		this.v0[glyph] = v0;
+		this.u1[glyph] = u1;
+		this.v1[glyph] = v1;
+		this.page[glyph] = page;
+	}
+
+	/*
+	 * Picks the glyph drawn for characters the font does not have, a
+	 * question mark or a space.
+	 */
+	private void setMissingGlyph()
+	{
+		this.missingGlyph = this.findGlyph('?');
+
+		if (this.missingGlyph == -1)
+		{
+			this.missingGlyph = this.findGlyph(' ');
+		}
+	}
+
+	private int findGlyph(final char character)
+	{
+		return character < this.glyphIndices.length ? this.glyphIndices[character] : -1;
+	}
+
+	/*
+	 * Returns the glyph of a character. Lower case characters fall back to
+	 * upper case in fonts without them, and other missing characters to the
+	 * missing glyph.
+	 *
+	 * @return the glyph index, or -1 if the font has no glyph to draw.
+	 */
+	public int getGlyph(final char character)
+	{
+		int glyph = this.findGlyph(character);
+
+		if (glyph == -1)
+		{
+			glyph = this.findGlyph(Character.toUpperCase(character));
+		}
+
+		return glyph != -1 ? glyph : this.missingGlyph;
+	}
+
+	private static int kerningKey(final char first, final char second)
+	{
+		return first << 16 | second;
+	}
+
+	/*
+	 * Returns the extra horizontal space between two characters.
+	 */
+	public float getKerning(final char first, final char second)
+	{
+		return this.kernings.size() > 0 ? this.kernings.get(kerningKey(first, second), 0) : 0;
+	}
+
+	/*
+	 * Splits a descriptor line into its key=value attributes, values can be
+	 * quoted.
+	 */
+	private static Map<String, String> parseAttributes(final String line)
+	{
+		final Map<String, String> attributes = new HashMap<>();
+		int i = line.indexOf(' ');
+
+		while (i != -1 && i < line.length())
+		{
+			while (i < line.length() && line.charAt(i) == ' ')
+			{
+				i++;
+			}
+
+			final int equals = line.indexOf('=', i);
+
+			if (equals == -1)
+			{
+				break;
+			}
+
+			final String key = line.substring(i, equals);
+			int end;
+
+			if (equals + 1 < line.length() && line.charAt(equals + 1) == '"')
+			{
+				end = line.indexOf('"', equals + 2);
+				end = end == -1 ? line.length() : end;
+				attributes.put(key, line.substring(equals + 2, end));
+				end++;
+			} else
+			{
+				end = line.indexOf(' ', equals);
+				end = end == -1 ? line.length() : end;
+				attributes.put(key, line.substring(equals + 1, end));
+			}
+
+			i = end;
+		}
+
+		return attributes;
+	}
+
+	public String getName()
+	{
+		return this.name;
+	}
+
+	/*
+	 * Returns the size the font was generated at, text drawn at this size is
+	 * not scaled.
+	 */
+	public float getSize()
+	{
+		return this.size;
+	}
+
+	public float getLineHeight()
+	{
+		return this.lineHeight;
+	}
+
+	/*
+	 * Returns the size of the page textures in pixels.
+	 */
+	public float getPageWidth()
+	{
+		return this.pageWidth;
+	}
+
+	public float getPageHeight()
+	{
+		return this.pageHeight;
+	}
+
+	public boolean isDistanceField()
+	{
+		return this.distanceFieldSpread > 0;
+	}
+
+	/*
+	 * Returns the distance in page pixels from a glyph edge where the distance
+	 * field reaches 0 or 1.
+	 */
+	public float getDistanceFieldSpread()
+	{
+		return this.distanceFieldSpread;
+	}
+
+	public int getPageCount()
+	{
+		return this.pageTextures.length;
+	}
+
+	/*
+	 * Returns the name of the texture of a page, for loading it with a
+	 * Material.
+	 */
+	public String getPageTexture(final int page)
+	{
+		return this.pageTextures[page];
+	}
+
+	public int getGlyphCount()
+	{
+		return this.glyphCount;
+	}
+
+	public float getOffsetX(final int glyph)
+	{
+		return this.offsetX[glyph];
+	}
+
+	public float getOffsetY(final int glyph)
+	{
+		return this.offsetY[glyph];
+	}
+
+	public float getWidth(final int glyph)
+	{
+		return this.width[glyph];
+	}
+
+	public float getHeight(final int glyph)
+	{
+		return this.height[glyph];
+	}
+
+	public float getAdvance(final int glyph)
+	{
+		return this.advance[glyph];
+	}
+
+	public float getU0(final int glyph)
+	{
+		return this.u0[glyph];
+	}
+
+	public float getV0(final int glyph)
+	{
+		return this.v0[glyph];
+	}
+
+	public float getU1(final int glyph)
+	{
+		return this.u1[glyph];
+	}
+
+	public float getV1(final int glyph)
+	{
+		return this.v1[glyph];
+	}
+
+	public int getPage(final int glyph)
+	{
+		return this.page[glyph];
+	}
+
+}
@@ -0,0 +1,162 @@
+package se.florry.engine.font;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import se.florry.engine.texture.TextureImage;
+
+/*
+ * Turns glyph bitmaps into signed distance fields with the 8SSEDT algorithm (two pass sequential Euclidean distance
+ * transform). Every pixel of the result stores in its alpha channel the distance to the nearest glyph edge, 0.5 on
+ * the edge and growing inwards, so the text shader can draw the glyphs sharp at any scale and find outlines, shadows
+ * and glows from the same texture. Runs without an Open GL context.
+ */
+public final class DistanceFieldGenerator
+{
+
+	private static final int FAR = 1 << 14;
+
+	/*
+	 * Generates a distance field from the alpha channel of an image, pixels
+	 * with at least half alpha being inside the glyphs.
+	 *
+	 * @param spread the distance in source pixels mapped to the range of the
+	 * field, distances further from an edge are clamped.
+	 *
+	 * @param downscale how many times smaller the field is than the source.
+	 * Generating from a larger source gives more accurate fields.
+	 *
+	 * @return a white image with the distance field as alpha.
+	 */
+	public static TextureImage generate(final TextureImage source, final float spread, final int downscale)
+	{
+		final int width = source.getWidth();
+		final int height = source.getHeight();
+		final boolean[] inside = new boolean[width * height];
+		final ByteBuffer pixels = source.getPixels();
+
+		for (int i = 0; i < inside.length; i++)
+		{
+			inside[i] = (pixels.get(i * TextureImage.BYTES_PER_PIXEL + 3) & 0xFF) >= 128;
+		}
+
+		// Squared distances to the nearest pixel inside and outside the glyphs.
+		final int[] toInside = transform(inside, width, height, true);
+		final int[] toOutside = transform(inside, width, height, false);
+
+		final int fieldWidth = Math.max(1, width / downscale);
+		final int fieldHeight = Math.max(1, height / downscale);
+		final ByteBuffer field = ByteBuffer.allocateDirect(fieldWidth * fieldHeight * TextureImage.BYTES_PER_PIXEL)
+				.order(ByteOrder.nativeOrder());
+
+		for (int y = 0; y < fieldHeight; y++)
+		{
+			for (int x = 0; x < fieldWidth; x++)
+			{
+				// Samples the source pixel at the center of the field pixel.
+				final int sourceX = Math.min(width - 1, x * downscale + downscale / 2);
+				final int sourceY = Math.min(height - 1, y * downscale + downscale / 2);
+				final int index = sourceY * width + sourceX;
+				// The edge lies half a pixel from the centers of the pixels on either side of it.
+				final float distance = (float) (inside[index] ? Math.sqrt(toOutside[index]) - 0.5 : 0.5 - Math.sqrt(toInside[index]));
+				final float value = Math.max(0, Math.min(1, 0.5f + distance / (2 * spread)));
+
+				field.put((byte) 255)
+						.put((byte) 255)
+						.put((byte) 255)
+						.put((byte) Math.round(value * 255));
+			}
+		}
+		field.flip();
+
+		return new TextureImage(fieldWidth, fieldHeight, field);
+	}
+
+	/*
+	 * Returns the squared distance of every pixel to the nearest pixel
+	 * matching target, by propagating offsets to the nearest match forwards
+	 * and then backwards over the grid.
+	 */
+	private static int[] transform(final boolean[] inside, final int width, final int height, final boolean target)
+	{
+		final int[] offsetX = new int[inside.length];
+		final int[] offsetY = new int[inside.length];
+
+		for (int i = 0; i < inside.length; i++)
+		{
+			final int offset = inside[i] == target ? 0 : FAR;
+
+			offsetX[i] = offset;
+			offsetY[i] = offset;
+		}
+
+		for (int y = 0; y < height; y++)
+		{
+			for (int x = 0; x < width; x++)
+			{
+				compare(offsetX, offsetY, width, height, x, y, -1, 0);
+				compare(offsetX, offsetY, width, height, x, y, 0, -1);
+				compare(offsetX, offsetY, width, height, x, y, -1, -1);
+				compare(offsetX, offsetY, width, height, x, y, 1, -1);
+			}
+
+			for (int x = width - 1; x >= 0; x--)
+			{
+				compare(offsetX, offsetY, width, height, x, y, 1, 0);
+			}
+		}
+
+		for (int y = height - 1; y >= 0; y--)
+		{
+			for (int x = width - 1; x >= 0; x--)
+			{
+				compare(offsetX, offsetY, width, height, x, y, 1, 0);
+				compare(offsetX, offsetY, width, height, x, y, 0, 1);
+				compare(offsetX, offsetY, width, height, x, y, -1, 1);
+				compare(offsetX, offsetY, width, height, x, y, 1, 1);
+			}
+
+			for (int x = 0; x < width; x++)
+			{
+				compare(offsetX, offsetY, width, height, x, y, -1, 0);
+			}
+		}
+
+		final int[] distances = new int[inside.length];
+
+		for (int i = 0; i < inside.length; i++)
+		{
+			distances[i] = offsetX[i] * offsetX[i] + offsetY[i] * offsetY[i];
+		}
+
+		return distances;
+	}
+
+	/*
+	 * Takes the offset of a neighbour, extended by the step to it, if that is
+	 * closer than the pixel's own offset.
+	 */
+	private static void compare(final int[] offsetX, final int[] offsetY, final int width, final int height, final int x, final int y, final int stepX,
+			final int stepY)
+	{
+		final int neighbourX = x + stepX;
+		final int neighbourY = y + stepY;
+
+		if (neighbourX < 0 || neighbourX >= width || neighbourY < 0 || neighbourY >= height)
+		{
+			return;
+		}
+
+		final int index = y * width + x;
+		final int neighbour = neighbourY * width + neighbourX;
+		final int candidateX = offsetX[neighbour] + stepX;
+		final int candidateY = offsetY[neighbour] + stepY;
+
+		if (candidateX * candidateX + candidateY * candidateY < offsetX[index] * offsetX[index] + offsetY[index] * offsetY[index])
+		{
+			offsetX[index] = candidateX;
+			offsetY[index] = candidateY;
+		}
+	}
+
+}
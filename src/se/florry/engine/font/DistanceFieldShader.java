@@ -0,0 +1,160 @@
+package se.florry.engine.font;
+
+import se.florry.engine.model.Color;
+import se.florry.engine.render.RenderContext;
+import se.florry.engine.render.ShaderProgram;
+import se.florry.engine.render.SpriteBatch;
+
+/*
+ * The shader drawing distance field text through the sprite batch. The glyph edge, outline, glow and drop shadow
+ * are all found from the distance field in the fragment shader, so shadowed and outlined text is drawn with one quad
+ * per glyph. Effect uniforms are only updated, flushing the batch, when they differ from the previous text's.
+ */
+public final class DistanceFieldShader
+{
+
+	private static final String VERTEX_SHADER = "#version 120\n"
+			+ "void main()\n"
+			+ "{\n"
+			+ "	gl_Position = gl_ModelViewProjectionMatrix * gl_Vertex;\n"
+			+ "	gl_TexCoord[0] = gl_MultiTexCoord0;\n"
+			+ "	gl_FrontColor = gl_Color;\n"
+			+ "}\n";
+
+	private static final String FRAGMENT_SHADER = "#version 120\n"
+			+ "uniform sampler2D page;\n"
+			+ "uniform float outlineWidth;\n"
+			+ "uniform vec4 outlineColor;\n"
+			+ "uniform float glowWidth;\n"
+			+ "uniform vec4 glowColor;\n"
+			+ "uniform vec2 shadowOffset;\n"
+			+ "uniform float shadowSoftness;\n"
+			+ "uniform vec4 shadowColor;\n"
+			+ "vec4 over(vec4 top, vec4 bottom)\n"
+			+ "{\n"
+			+ "	float alpha = top.a + bottom.a * (1.0 - top.a);\n"
+			+ "	return vec4((top.rgb * top.a + bottom.rgb * bottom.a * (1.0 - top.a)) / max(alpha, 0.0001), alpha);\n"
+			+ "}\n"
+			+ "void main()\n"
+			+ "{\n"
+			+ "	float field = texture2D(page, gl_TexCoord[0].st).a;\n"
+			+ "	float smoothing = max(fwidth(field) * 0.5, 0.0001);\n"
+			+ "	float edge = 0.5 - outlineWidth;\n"
+			+ "	float fill = smoothstep(0.5 - smoothing, 0.5 + smoothing, field);\n"
+			+ "	float outline = smoothstep(edge - smoothing, edge + smoothing, field);\n"
+			+ "	float glow = smoothstep(edge - glowWidth - smoothing, edge, field);\n"
+			+ "	float shadowDistance = texture2D(page, gl_TexCoord[0].st - shadowOffset).a;\n"
+			+ "	float shadow = smoothstep(edge - shadowSoftness - smoothing, edge + smoothing, shadowDistance);\n"
+			+ "	vec4 text = over(vec4(gl_Color.rgb, gl_Color.a * fill), vec4(outlineColor.rgb, outlineColor.a * outline));\n"
+			+ "	vec4 below = over(vec4(glowColor.rgb, glowColor.a * glow), vec4(shadowColor.rgb, shadowColor.a * shadow));\n"
+			+ "	gl_FragColor = over(text, below);\n"
+			+ "}\n";
+
+	private static final DistanceFieldShader shader = new DistanceFieldShader();
+
+	private ShaderProgram program;
+
+	// The uniform values of the last text drawn.
+	private float outlineWidth = -1;
+	private float glowWidth;
+	private float shadowOffsetU;
+	private float shadowOffsetV;
+	private float shadowSoftness;
+	private final Color outlineColor;
+	private final Color glowColor;
+	private final Color shadowColor;
+
+	private DistanceFieldShader()
+	{
+		this.outlineColor = new Color();
+		this.glowColor = new Color();
+		this.shadowColor = new Color();
+	}
+
+	public static DistanceFieldShader get()
+	{
+		return shader;
+	}
+
+	/*
+	 * Sets up the sprite batch for drawing text with a distance field font.
+	 * Has to be called on the render thread, as the effects are set on the
+	 * shader right away instead of being recorded with the quads.
+	 *
+	 * @param scale the size of the text divided by the size of the font.
+	 */
+	public void begin(final BitmapFont font, final float scale, final TextStyle style)
+	{
+		if (!RenderContext.isRenderThread())
+		{
+			throw new IllegalStateException("Distance field text can only be drawn on the render thread");
+		}
+
+		if (this.program == null)
+		{
+			this.program = new ShaderProgram(VERTEX_SHADER, FRAGMENT_SHADER);
+		}
+
+		final SpriteBatch batch = SpriteBatch.get();
+		batch.setProgram(this.program);
+
+		// Field values per screen pixel, the field goes from 0 to 1 over twice the spread.
+		final float perPixel = 1 / (scale * 2 * font.getDistanceFieldSpread());
+		final float outlineWidth = Math.min(0.5f, style.outlineWidth * perPixel);
+		final float glowWidth = style.glowWidth * perPixel;
+		final float shadowSoftness = style.shadowSoftness * perPixel;
+		// The shadow is kept within the spread the glyph quads are grown by, so it is neither cut off nor read from other glyphs.
+		final float maxShadowOffset = scale * font.getDistanceFieldSpread();
+		final float shadowOffsetU = Math.max(-maxShadowOffset, Math.min(maxShadowOffset, style.shadowOffsetX)) / (scale * font.getPageWidth());
+		final float shadowOffsetV = Math.max(-maxShadowOffset, Math.min(maxShadowOffset, style.shadowOffsetY)) / (scale * font.getPageHeight());
+
+		if (outlineWidth == this.outlineWidth && glowWidth == this.glowWidth && shadowSoftness == this.shadowSoftness
+				&& shadowOffsetU == this.shadowOffsetU && shadowOffsetV == this.shadowOffsetV && equal(style.outlineColor, this.outlineColor)
+				&& equal(style.glowColor, this.glowColor) && equal(style.shadowColor, this.shadowColor))
+		{
+			return;
+		}
+
+		batch.flush();
+
+		this.outlineWidth = outlineWidth;
+		this.glowWidth = glowWidth;
+		this.shadowSoftness = shadowSoftness;
+		this.shadowOffsetU = shadowOffsetU;
+		this.shadowOffsetV = shadowOffsetV;
+		copy(style.outlineColor, this.outlineColor);
+		copy(style.glowColor, this.glowColor);
+		copy(style.shadowColor, this.shadowColor);
+
+		this.program.setUniform("outlineWidth", outlineWidth);
+		this.program.setUniform("outlineColor", this.outlineColor);
+		this.program.setUniform("glowWidth", glowWidth);
+		this.program.setUniform("glowColor", this.glowColor);
+		this.program.setUniform("shadowOffset", shadowOffsetU, shadowOffsetV);
+		this.program.setUniform("shadowSoftness", shadowSoftness);
+		this.program.setUniform("shadowColor", this.shadowColor);
+	}
+
+	/*
+	 * Switches the sprite batch back to the fixed function pipeline.
+	 */
+	public void end()
+	{
+		SpriteBatch.get()
+				.setProgram(null);
+	}
+
+	private static boolean equal(final Color first, final Color second)
+	{
+		return first.r == second.r && first.g == second.g && first.b == second.b && first.a == second.a;
+	}
+
+	private static void copy(final Color from, final Color to)
+	{
+		to.r = from.r;
+		to.g = from.g;
+		to.b = from.b;
+		to.a = from.a;
+	}
+
+}
@@ -0,0 +1,247 @@
+package se.florry.engine.font;
+
+import java.util.Arrays;
+
+/*
+ * Lays text out as glyph quads with a bitmap font: kerning, line breaks, word wrapping within a maximum width and
+ * alignment of every line. The quads are kept in a float array reused between layouts, so laying out text only
+ * allocates when it grows past the largest text laid out before.
+ */
+public final class TextLayout
+{
+
+	public enum Alignment
+	{
+		LEFT, CENTER, RIGHT
+	}
+
+	// Values per quad: x0, y0, x1, y1, u0, v0, u1, v1 and the page.
+	public static final int QUAD_STRIDE = 9;
+
+	private float[] quads;
+	private int quadCount;
+
+	// Per line: the first quad, the quad after the last and the width.
+	private int[] lineStarts;
+	private int[] lineEnds;
+	private float[] lineWidths;
+	private int lineCount;
+
+	private float width;
+	private float height;
+
+	public TextLayout()
+	{
+		this.quads = new float[64 * QUAD_STRIDE];
+		this.lineStarts = new int[8];
+		this.lineEnds = new int[8];
+		this.lineWidths = new float[8];
+	}
+
+	/*
+	 * Lays out text with its first line's top left corner at 0, 0.
+	 *
+	 * @param scale the size of the text divided by the size of the font.
+	 *
+	 * @param maxWidth the width lines are wrapped at, breaking between words
+	 * where possible. 0 or less to only break lines at line breaks.
+	 *
+	 * @param alignment how lines are aligned within the max width, or within
+	 * the widest line if there is no max width.
+	 */
+	public void layout(final BitmapFont font, final CharSequence text, final float scale, final float maxWidth, final Alignment alignment)
+	{
+		final float lineHeight = font.getLineHeight() * scale;
+		final int length = text.length();
+		float penX = 0;
+		float penY = 0;
+		int lineStart = 0;
+		char previous = 0;
+
+		// The quad after the last space of the line and where the word after it starts, for wrapping.
+		int wordStartQuad = -1;
+		float wordStartX = 0;
+		float widthBeforeSpace = 0;
+
+		this.quadCount = 0;
+		this.lineCount = 0;
+		this.width = 0;
+
+		for (int i = 0; i < length; i++)
+		{
+			final char character = text.charAt(i);
+
+			if (character == '\n')
+			{
+				this.addLine(lineStart, this.quadCount, penX);
+				penX = 0;
+				penY += lineHeight;
+				lineStart = this.quadCount;
+				wordStartQuad = -1;
+				previous = 0;
+				continue;
+			}
+
+			final int glyph = font.getGlyph(character);
+
+			if (glyph == -1)
+			{
+				continue;
+			}
+
+			final float kerning = previous != 0 ? font.getKerning(previous, character) * scale : 0;
+			final float right = penX + kerning + (font.getOffsetX(glyph) + font.getWidth(glyph)) * scale;
+
+			if (maxWidth > 0 && character != ' ' && right > maxWidth && this.quadCount > lineStart)
+			{
+				if (wordStartQuad != -1 && wordStartQuad > lineStart)
+				{
+					// Moves the word being written to the start of the next line.
+					this.addLine(lineStart, wordStartQuad, widthBeforeSpace);
+					this.moveQuads(wordStartQuad, this.quadCount, -wordStartX, lineHeight);
+					lineStart = wordStartQuad;
+					penX += kerning - wordStartX;
+				} else
+				{
+					this.addLine(lineStart, this.quadCount, penX);
+					lineStart = this.quadCount;
+					penX = 0;
+				}
+
+				penY += lineHeight;
+				wordStartQuad = -1;
+			} else
+			{
+				penX += kerning;
+			}
+
+			if (character == ' ')
+			{
+				widthBeforeSpace = penX;
+			} else
+			{
+				this.addQuad(font, glyph, penX, penY, scale);
+			}
+
+			penX += font.getAdvance(glyph) * scale;
+			previous = character;
+
+			if (character == ' ')
+			{
+				wordStartQuad = this.quadCount;
+				wordStartX = penX;
+			}
+		}
+
+		this.addLine(lineStart, this.quadCount, penX);
+		this.height = penY + lineHeight;
+		this.align(maxWidth > 0 ? maxWidth : this.width, alignment);
+	}
+
+	/*
+	 * Adds the quad of a glyph. Quads of distance field glyphs are grown by
+	 * the spread on every side, along with their texture coordinates, so the
+	 * outline, glow and shadow drawn around the glyph are not cut off at its
+	 * box. Only the quads grow, the glyph still takes the same room in the
+	 * line.
+	 */
+	private void addQuad(final BitmapFont font, final int glyph, final float x, final float y, final float scale)
+	{
+		if ((this.quadCount + 1) * QUAD_STRIDE > this.quads.length)
+		{
+			this.quads = Arrays.copyOf(this.quads, this.quads.length * 2);
+		}
+
+		final int offset = this.quadCount * QUAD_STRIDE;
+		final float padding = font.getDistanceFieldSpread();
+		final float paddingU = padding / font.getPageWidth();
+		final float paddingV = padding / font.getPageHeight();
+		final float x0 = x + (font.getOffsetX(glyph) - padding) * scale;
+		final float y0 = y + (font.getOffsetY(glyph) - padding) * scale;
+
+		this.quads[offset] = x0;
+		this.quads[offset + 1] = y0;
+		this.quads[offset + 2] = x0 + (font.getWidth(glyph) + 2 * padding) * scale;
+		this.quads[offset + 3] = y0 + (font.getHeight(glyph) + 2 * padding) * scale;
+		this.quads[offset + 4] = font.getU0(glyph) - paddingU;
+		this.quads[offset + 5] = font.getV0(glyph) - paddingV;
+		this.quads[offset + 6] = font.getU1(glyph) + paddingU;
+		this.quads[offset + 7] = font.getV1(glyph) + paddingV;
+		this.quads[offset + 8] = font.getPage(glyph);
+		this.quadCount++;
+	}
+
+	private void moveQuads(final int start, final int end, final float x, final float y)
+	{
+		for (int offset = start * QUAD_STRIDE; offset < end * QUAD_STRIDE; offset += QUAD_STRIDE)
+		{
+			this.quads[offset] += x;
+			this.quads[offset + 1] += y;
+			this.quads[offset + 2] += x;
+			this.quads[offset + 3] += y;
+		}
+	}
+
+	private void addLine(final int start, final int end, final float lineWidth)
+	{
+		if (this.lineCount == this.lineStarts.length)
+		{
+			this.lineStarts = Arrays.copyOf(this.lineStarts, this.lineCount * 2);
+			this.lineEnds = Arrays.copyOf(this.lineEnds, this.lineCount * 2);
+			this.lineWidths = Arrays.copyOf(this.lineWidths, this.lineCount * 2);
+		}
+
+		this.lineStarts[this.lineCount] = start;
+		this.lineEnds[this.lineCount] = end;
+		this.lineWidths[this.lineCount] = lineWidth;
+		this.lineCount++;
+		this.width = Math.max(this.width, lineWidth);
+	}
+
+	private void align(final float alignWidth, final Alignment alignment)
+	{
+		if (alignment == Alignment.LEFT)
+		{
+			return;
+		}
+
+		for (int line = 0; line < this.lineCount; line++)
+		{
+			final float space = alignWidth - this.lineWidths[line];
+
+			this.moveQuads(this.lineStarts[line], this.lineEnds[line], alignment == Alignment.CENTER ? space / 2 : space, 0);
+		}
+	}
+
+	/*
+	 * Returns the quads, QUAD_STRIDE values per quad.
+	 */
+	public float[] getQuads()
+	{
+		return this.quads;
+	}
+
+	public int getQuadCount()
+	{
+		return this.quadCount;
+	}
+
+	public int getLineCount()
+	{
+		return this.lineCount;
+	}
+
+	/*
+	 * Returns the width of the widest line.
+	 */
+	public float getWidth()
+	{
+		return this.width;
+	}
+
+	public float getHeight()
+	{
+		return this.height;
+	}
+
+}
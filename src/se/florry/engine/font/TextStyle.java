@@ -0,0 +1,77 @@
+package se.florry.engine.font;
+
+import se.florry.engine.model.Color;
+
+/*
+ * Class for holding the effects text is drawn with. Lengths are in screen pixels. Bitmap fonts draw the shadow as a
+ * second set of quads and ignore the other effects, distance field fonts draw every effect in the text shader.
+ */
+public final class TextStyle
+{
+
+	public final Color shadowColor;
+	public float shadowOffsetX;
+	public float shadowOffsetY;
+	public float shadowSoftness;
+	public final Color outlineColor;
+	public float outlineWidth;
+	public final Color glowColor;
+	public float glowWidth;
+
+	public TextStyle()
+	{
+		this.shadowColor = new Color(0, 0, 0, 0);
+		this.outlineColor = new Color(0, 0, 0, 0);
+		this.glowColor = new Color(0, 0, 0, 0);
+	}
+
+	public TextStyle setShadow(final float offsetX, final float offsetY, final Color color)
+	{
+		this.shadowOffsetX = offsetX;
+		this.shadowOffsetY = offsetY;
+		copy(color, this.shadowColor);
+
+		return this;
+	}
+
+	/*
+	 * Blurs the edge of the shadow of distance field text over the given
+	 * width.
+	 */
+	public TextStyle setShadowSoftness(final float softness)
+	{
+		this.shadowSoftness = softness;
+
+		return this;
+	}
+
+	public TextStyle setOutline(final float width, final Color color)
+	{
+		this.outlineWidth = width;
+		copy(color, this.outlineColor);
+
+		return this;
+	}
+
+	public TextStyle setGlow(final float width, final Color color)
+	{
+		this.glowWidth = width;
+		copy(color, this.glowColor);
+
+		return this;
+	}
+
+	public boolean hasShadow()
+	{
+		return this.shadowColor.a > 0;
+	}
+
+	private static void copy(final Color from, final Color to)
+	{
+		to.r = from.r;
+		to.g = from.g;
+		to.b = from.b;
+		to.a = from.a;
+	}
+
+}
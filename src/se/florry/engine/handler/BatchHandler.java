@@ -0,0 +1,16 @@
+package se.florry.engine.handler;
+
+import java.nio.ByteBuffer;
+
+import se.florry.engine.render.ShaderProgram;
+
+/*
+ * Batch functional handler with the interleaved vertices of a batch and the state they should be drawn with
+ */
+
+public interface BatchHandler
+{
+
+	void flush(ByteBuffer vertices, int vertexCount, int texture, boolean blend, ShaderProgram program);
+
+}
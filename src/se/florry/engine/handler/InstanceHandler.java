@@ -0,0 +1,14 @@
+package se.florry.engine.handler;
+
+import java.nio.ByteBuffer;
+
+/*
+ * Instance functional handler with the packed sprite instances of a batch and the state they should be drawn with
+ */
+
+public interface InstanceHandler
+{
+
+	void draw(ByteBuffer instances, int instanceCount, int texture, boolean blend);
+
+}
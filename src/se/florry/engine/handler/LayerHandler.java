@@ -0,0 +1,14 @@
+package se.florry.engine.handler;
+
+import se.florry.engine.render.RenderLayer;
+
+/*
+ * Layer functional handler with the render layer the coming batches are drawn in, null for quads drawn outside layers
+ */
+
+public interface LayerHandler
+{
+
+	void setLayer(RenderLayer layer);
+
+}
@@ -0,0 +1,12 @@
+package se.florry.engine.handler;
+
+/*
+ * Range functional handler with the first index and the index after the last of a part of a parallel loop
+ */
+
+public interface RangeHandler
+{
+
+	void handle(int start, int end);
+
+}
@@ -0,0 +1,12 @@
+package se.florry.engine.handler;
+
+/*
+ * Render functional handler with how far between the last two simulation steps the frame is, from 0 to 1
+ */
+
+public interface RenderHandler
+{
+
+	void render(float alpha);
+
+}
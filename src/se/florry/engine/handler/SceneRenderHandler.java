@@ -0,0 +1,14 @@
+package se.florry.engine.handler;
+
+import se.florry.engine.scene.SceneNode;
+
+/*
+ * Scene render functional handler with the node being rendered, the sprite batch is transformed by the world transform of the node
+ */
+
+public interface SceneRenderHandler
+{
+
+	void render(SceneNode node);
+
+}
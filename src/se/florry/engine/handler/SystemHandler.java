@@ -0,0 +1,12 @@
+package se.florry.engine.handler;
+
+/*
+ * System functional handler with deltaTime of the step as parameter, possibly called on a worker thread
+ */
+
+public interface SystemHandler
+{
+
+	void update(float deltaTime);
+
+}
@@ -4,9 +4,13 @@ import static org.lwjgl.glfw.GLFW.GLFW_KEY_ESCAPE;
 import static org.lwjgl.glfw.GLFW.GLFW_RELEASE;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.lwjgl.glfw.GLFW;
 import org.lwjgl.glfw.GLFWKeyCallback;
@@ -15,21 +19,26 @@ import se.florry.engine.handler.InputHandler;
 import se.florry.engine.model.InputModel;
 
 /*
- * Class for handling all inputs for the engine.
+ * Class for handling all inputs for the engine. Key events arrive on the thread polling the display while the inputs
+ * are triggered on the thread running the game loop, which are different threads when the engine runs threaded, so
+ * the inputs are kept in concurrent collections and released keys are queued until the inputs are triggered.
  */
 public final class Input
 {
 
 	private final Map<Integer, List<InputModel>> inputs;
-	private final List<InputModel> activeInputs;
+	// Copied on every change and iterated by index, so triggering the inputs allocates nothing.
+	private volatile InputModel[] activeInputs;
+	private final Queue<InputModel> releasedInputs;
 	private GLFWKeyCallback keyCallback;
 	private float deltaTime;
-	private boolean paused;
+	private volatile boolean paused;
 
 	public Input()
 	{
-		this.inputs = new HashMap<>();
-		this.activeInputs = new ArrayList<>();
+		this.inputs = new ConcurrentHashMap<>();
+		this.activeInputs = new InputModel[0];
+		this.releasedInputs = new ConcurrentLinkedQueue<>();
 	}
 
 	/*
@@ -51,7 +60,7 @@ public final class Input
 
 		if (!this.inputs.containsKey(inputKey))
 		{
-			this.inputs.put(inputKey, new ArrayList<>());
+			this.inputs.put(inputKey, new CopyOnWriteArrayList<>());
 		}
 
 		final List<InputModel> inputModels = this.inputs.get(inputKey);
@@ -132,7 +141,7 @@ public final class Input
 			for (final InputModel inputModel : inputsToRemove)
 			{
 				inputModels.remove(inputModel);
-				this.activeInputs.remove(inputModel);
+				this.removeActive(inputModel);
 			}
 
 		}
@@ -166,23 +175,19 @@ public final class Input
 						{
 							final boolean eventIsKeyUp = action == GLFW_RELEASE;
 
-							if (!Input.this.activeInputs.contains(input))
+							if (!input.isKeyUp())
 							{
-								if (!input.isKeyUp())
-								{
-									Input.this.activeInputs.add(input);
-								}
+								Input.this.addActive(input);
 							}
 
 							if (eventIsKeyUp)
 							{
 								if (input.isKeyUp())
 								{
-									input.getInputHandler()
-											.pressed(Input.this.deltaTime);
+									Input.this.releasedInputs.add(input);
 								} else
 								{
-									Input.this.activeInputs.remove(input);
+									Input.this.removeActive(input);
 								}
 							}
 						}
@@ -193,20 +198,66 @@ public final class Input
 	}
 
 	/*
-	 * Triggers all inputs marked as active.
+	 * Triggers the inputs of keys released since the last call and all inputs
+	 * marked as active.
 	 */
 	public void triggerActiveInputs(final float deltaTime)
 	{
-		final List<InputModel> inputs = new ArrayList<>(this.activeInputs);
 		this.deltaTime = deltaTime;
 
-		for (final InputModel input : inputs)
+		InputModel released;
+
+		while ((released = this.releasedInputs.poll()) != null)
+		{
+			released.getInputHandler()
+					.pressed(this.deltaTime);
+		}
+
+		final InputModel[] activeInputs = this.activeInputs;
+
+		for (int i = 0; i < activeInputs.length; i++)
 		{
-			input.getInputHandler()
+			activeInputs[i].getInputHandler()
 					.pressed(this.deltaTime);
 		}
 	}
 
+	private synchronized void addActive(final InputModel input)
+	{
+		final InputModel[] activeInputs = this.activeInputs;
+
+		for (final InputModel activeInput : activeInputs)
+		{
+			if (activeInput == input)
+			{
+				return;
+			}
+		}
+
+		final InputModel[] added = Arrays.copyOf(activeInputs, activeInputs.length + 1);
+
+		added[activeInputs.length] = input;
+		this.activeInputs = added;
+	}
+
+	private synchronized void removeActive(final InputModel input)
+	{
+		final InputModel[] activeInputs = this.activeInputs;
+
+		for (int i = 0; i < activeInputs.length; i++)
+		{
+			if (activeInputs[i] == input)
+			{
+				final InputModel[] removed = new InputModel[activeInputs.length - 1];
+
+				System.arraycopy(activeInputs, 0, removed, 0, i);
+				System.arraycopy(activeInputs, i + 1, removed, i, removed.length - i);
+				this.activeInputs = removed;
+				return;
+			}
+		}
+	}
+
 	public GLFWKeyCallback getKeyCallback()
 	{
 		return this.keyCallback;
@@ -218,7 +269,11 @@ public final class Input
 	public void pause()
 	{
 		this.paused = true;
-		this.activeInputs.clear();
+
+		synchronized (this)
+		{
+			this.activeInputs = new InputModel[0];
+		}
 	}
 
 	/*
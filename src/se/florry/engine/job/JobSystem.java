@@ -0,0 +1,359 @@
+package se.florry.engine.job;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+import se.florry.engine.constants.Constants;
+import se.florry.engine.handler.RangeHandler;
+import se.florry.engine.model.SystemModel;
+import se.florry.engine.utils.EngineUtils;
+import se.florry.engine.utils.FrameTimeRecorder;
+
+/*
+ * Runs the systems of the game every step on a work stealing fork/join pool. The systems are split into stages in
+ * the order they were added: a system goes into the stage after the last stage holding a system it conflicts with, so
+ * systems touching the same components keep running in the order they were added while systems in the same stage run
+ * in parallel. A stage is joined before the next one starts and update returns once all stages are done, so the
+ * results can be rendered right after. Needs no display and can run headless.
+ */
+public final class JobSystem
+{
+
+	private final int workers;
+	private final ForkJoinPool pool;
+	private final List<SystemModel> systems;
+	private final Map<String, Integer> components;
+	private final FrameTimeRecorder updateTimes;
+
+	private SystemTask[][] stages;
+	private StageTask[] stageTasks;
+	private boolean stagesDirty;
+	private float deltaTime;
+
+	/*
+	 * @param workers the number of threads running systems. With one worker
+	 * all systems run on the thread calling update.
+	 */
+	public JobSystem(final int workers)
+	{
+		this.workers = Math.max(1, workers);
+		this.pool = this.workers > 1 ? new ForkJoinPool(this.workers) : null;
+		this.systems = new ArrayList<>();
+		this.components = new HashMap<>();
+		this.updateTimes = new FrameTimeRecorder(Constants.Loop.FRAME_TIME_WINDOW);
+		this.stages = new SystemTask[0][];
+		this.stageTasks = new StageTask[0];
+	}
+
+	public JobSystem()
+	{
+		this(Constants.Loop.WORKER_THREADS);
+	}
+
+	/*
+	 * Adds a system, run after the systems added before it that it conflicts
+	 * with.
+	 */
+	public JobSystem add(final SystemModel system)
+	{
+		system.setMasks(this.toMask(system.getReads()), this.toMask(system.getWrites()));
+		this.systems.add(system);
+		this.stagesDirty = true;
+
+		return this;
+	}
+
+	/*
+	 * Removes the system with the given name.
+	 */
+	public void remove(final String name)
+	{
+		for (int i = 0; i < this.systems.size(); i++)
+		{
+			if (this.systems.get(i)
+					.getName()
+					.equals(name))
+			{
+				this.systems.remove(i);
+				this.stagesDirty = true;
+				return;
+			}
+		}
+	}
+
+	/*
+	 * Runs every system once, returning when all of them are done.
+	 */
+	public void update(final float deltaTime)
+	{
+		if (this.stagesDirty)
+		{
+			this.buildStages();
+		}
+
+		final long start = EngineUtils.getNanoTime();
+		this.deltaTime = deltaTime;
+
+		for (int i = 0; i < this.stages.length; i++)
+		{
+			final SystemTask[] stage = this.stages[i];
+
+			if (this.pool == null || stage.length == 1)
+			{
+				for (final SystemTask task : stage)
+				{
+					task.runSystem();
+				}
+			} else
+			{
+				final StageTask stageTask = this.stageTasks[i];
+
+				stageTask.reinitialize();
+
+				for (final SystemTask task : stage)
+				{
+					task.reinitialize();
+				}
+
+				this.pool.invoke(stageTask);
+			}
+		}
+
+		this.updateTimes.record(EngineUtils.getNanoTime() - start);
+	}
+
+	/*
+	 * Splits a loop over count elements into ranges of at most grain elements
+	 * and runs them on the workers, returning when all ranges are done. Can be
+	 * used from within systems to spread the work of one system over the
+	 * workers.
+	 */
+	public void parallelFor(final int count, final int grain, final RangeHandler handler)
+	{
+		if (this.pool == null || count <= grain)
+		{
+			handler.handle(0, count);
+			return;
+		}
+
+		final RangeTask task = new RangeTask(handler, 0, count, Math.max(1, grain));
+
+		if (ForkJoinTask.inForkJoinPool())
+		{
+			task.invoke();
+		} else
+		{
+			this.pool.invoke(task);
+		}
+	}
+
+	/*
+	 * Puts every system in the stage after the last stage holding a system
+	 * added before it that it conflicts with.
+	 */
+	private void buildStages()
+	{
+		final int[] systemStages = new int[this.systems.size()];
+		int stageCount = 0;
+
+		for (int i = 0; i < this.systems.size(); i++)
+		{
+			int stage = 0;
+
+			for (int j = 0; j < i; j++)
+			{
+				if (this.systems.get(i)
+						.conflictsWith(this.systems.get(j)))
+				{
+					stage = Math.max(stage, systemStages[j] + 1);
+				}
+			}
+
+			systemStages[i] = stage;
+			stageCount = Math.max(stageCount, stage + 1);
+		}
+
+		final List<List<SystemTask>> stages = new ArrayList<>();
+
+		for (int i = 0; i < stageCount; i++)
+		{
+			stages.add(new ArrayList<>());
+		}
+
+		for (int i = 0; i < this.systems.size(); i++)
+		{
+			stages.get(systemStages[i])
+					.add(new SystemTask(this.systems.get(i)));
+		}
+
+		this.stages = new SystemTask[stageCount][];
+		this.stageTasks = new StageTask[stageCount];
+
+		for (int i = 0; i < stageCount; i++)
+		{
+			this.stages[i] = stages.get(i)
+					.toArray(new SystemTask[0]);
+			this.stageTasks[i] = new StageTask(this.stages[i]);
+		}
+
+		this.stagesDirty = false;
+	}
+
+	private long toMask(final List<String> names)
+	{
+		long mask = 0;
+
+		for (final String name : names)
+		{
+			Integer bit = this.components.get(name);
+
+			if (bit == null)
+			{
+				if (this.components.size() == Long.SIZE)
+				{
+					throw new IllegalArgumentException("More than " + Long.SIZE + " components declared, can not add " + name);
+				}
+
+				bit = this.components.size();
+				this.components.put(name, bit);
+			}
+
+			mask |= 1L << bit;
+		}
+
+		return mask;
+	}
+
+	/*
+	 * Stops the worker threads. The job system can not be updated after being
+	 * shut down.
+	 */
+	public void shutdown()
+	{
+		if (this.pool != null)
+		{
+			this.pool.shutdown();
+		}
+	}
+
+	public int getWorkers()
+	{
+		return this.workers;
+	}
+
+	public List<SystemModel> getSystems()
+	{
+		return this.systems;
+	}
+
+	/*
+	 * Returns the number of stages the systems are run in, one after another.
+	 */
+	public int getStageCount()
+	{
+		if (this.stagesDirty)
+		{
+			this.buildStages();
+		}
+
+		return this.stages.length;
+	}
+
+	/*
+	 * Returns the time of the latest updates of all systems in nanoseconds.
+	 */
+	public FrameTimeRecorder getUpdateTimes()
+	{
+		return this.updateTimes;
+	}
+
+	private final class SystemTask extends RecursiveAction
+	{
+
+		private static final long serialVersionUID = 1L;
+
+		private final SystemModel system;
+
+		private SystemTask(final SystemModel system)
+		{
+			this.system = system;
+		}
+
+		@Override
+		protected void compute()
+		{
+			this.runSystem();
+		}
+
+		private void runSystem()
+		{
+			final long start = EngineUtils.getNanoTime();
+
+			this.system.getHandler()
+					.update(JobSystem.this.deltaTime);
+			this.system.getTimes()
+					.record(EngineUtils.getNanoTime() - start);
+		}
+
+	}
+
+	private static final class StageTask extends RecursiveAction
+	{
+
+		private static final long serialVersionUID = 1L;
+
+		private final SystemTask[] tasks;
+
+		private StageTask(final SystemTask[] tasks)
+		{
+			this.tasks = tasks;
+		}
+
+		@Override
+		protected void compute()
+		{
+			invokeAll(this.tasks);
+		}
+
+	}
+
+	private static final class RangeTask extends RecursiveAction
+	{
+
+		private static final long serialVersionUID = 1L;
+
+		private final RangeHandler handler;
+		private final int start;
+		private final int end;
+		private final int grain;
+
+		private RangeTask(final RangeHandler handler, final int start, final int end, final int grain)
+		{
+			this.handler = handler;
+			this.start = start;
+			this.end = end;
+			this.grain = grain;
+		}
+
+		@Override
+		protected void compute()
+		{
+			if (this.end - this.start <= this.grain)
+			{
+				this.handler.handle(this.start, this.end);
+				return;
+			}
+
+			final int middle = this.start + this.end >>> 1;
+
+			invokeAll(new RangeTask(this.handler, this.start, middle, this.grain), new RangeTask(this.handler, middle, this.end, this.grain));
+		}
+
+	}
+
+}
@@ -0,0 +1,97 @@
+package se.florry.engine.material;
+
+import se.florry.engine.model.QuadModel;
+import se.florry.engine.render.SpriteBatch;
+import se.florry.engine.texture.AtlasRegion;
+import se.florry.engine.texture.TextureAtlas;
+
+/*
+ * Material for rendering a texture packed in a texture atlas. All materials on the same atlas page share one texture
+ * so quads using them end up in the same batch.
+ */
+public final class AtlasMaterial
+{
+
+	private final TextureAtlas atlas;
+	private final AtlasRegion region;
+
+	/*
+	 * Resolves the texture name to its page and UV rectangle within the atlas.
+	 */
+	public AtlasMaterial(final TextureAtlas atlas, final String textureName)
+	{
+		this.atlas = atlas;
+		this.region = atlas.getRegion(textureName);
+
+		if (this.region == null)
+		{
+			throw new IllegalArgumentException("Texture " + textureName + " is not packed in the atlas");
+		}
+	}
+
+	public int getTexture()
+	{
+		return this.atlas.getPageTexture(this.region.getPage());
+	}
+
+	public AtlasRegion getRegion()
+	{
+		return this.region;
+	}
+
+	/*
+	 * Sets the texture coordinates and texture size of a quad to the region of
+	 * this material.
+	 */
+	public QuadModel apply(final QuadModel quad)
+	{
+		quad.textureCoordinates.x = this.region.u0;
+		quad.textureCoordinates.y = this.region.v0;
+		quad.textureSize.x = this.region.u1 - this.region.u0;
+		quad.textureSize.y = this.region.v1 - this.region.v0;
+
+		return quad;
+	}
+
+	/*
+	 * Sets the atlas page of this material as the texture to be rendered on
+	 * all coming quads.
+	 */
+	public void setMaterial()
+	{
+		SpriteBatch.get()
+				.setTexture(this.getTexture());
+	}
+
+	/*
+	 * Removes the material from being the material to be rendered on all
+	 * quads.
+	 */
+	public void disable()
+	{
+		SpriteBatch.get()
+				.setTexture(0);
+	}
+
+	@Override
+	public boolean equals(final Object obj)
+	{
+		if (obj == this)
+		{
+			return true;
+		} else if (obj instanceof AtlasMaterial)
+		{
+			final AtlasMaterial otherMat = (AtlasMaterial) obj;
+			return otherMat.atlas == this.atlas && otherMat.region == this.region;
+		}
+
+		return false;
+	}
+
+	@Override
+	public int hashCode()
+	{
+		return 31 * System.identityHashCode(this.atlas) + System.identityHashCode(this.region);
+	}
+
+}
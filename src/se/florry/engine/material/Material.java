@@ -1,11 +1,9 @@
 package se.florry.engine.material;
 
-import java.util.HashMap;
-import java.util.Map;
-
-import org.lwjgl.opengl.GL11;
-
-import se.florry.engine.texture.TextureLoader;
+import se.florry.engine.render.SpriteBatch;
+import se.florry.engine.texture.AsyncTextureLoader;
+import se.florry.engine.texture.TextureHandle;
+import se.florry.engine.texture.TextureRegistry;
 
 /*
  * Class for rendering a texture to one or more quads.
@@ -13,60 +11,83 @@ import se.florry.engine.texture.TextureLoader;
 public final class Material
 {
 
-	private final static Map<Integer, String> loadedTextures = new HashMap<>();
-	private int texture;
+	private final TextureHandle texture;
+	private boolean released;
 
 	/*
-	 * Looks at the static loadedTexture map to see if texture has already been
-	 * loaded, otherwise it is loaded and saved in the map.
+	 * Acquires the texture from the texture registry, which loads it if it has
+	 * not already been loaded.
 	 */
 	public Material(final String textureName)
 	{
-		try
-		{
-			boolean textureIsLoaded = false;
-
-			for (final Integer textureId : loadedTextures.keySet())
-			{
-				final String loadedTexture = loadedTextures.get(textureId);
-
-				if (loadedTexture.equals(textureName))
-				{
-					textureIsLoaded = true;
-					this.texture = textureId;
-
-					break;
-				}
-			}
+		this.texture = TextureRegistry.get()
+				.acquire(textureName);
+	}
 
-			if (!textureIsLoaded)
-			{
-				this.loadTexture(textureName);
-			}
-		} catch (final Exception e)
+	/*
+	 * @param async if the texture should be loaded in the background. Until
+	 * loaded, quads with the material are rendered with a placeholder texture.
+	 */
+	public Material(final String textureName, final boolean async)
+	{
+		if (async)
+		{
+			this.texture = TextureRegistry.get()
+					.acquireAsync(textureName, AsyncTextureLoader.get());
+		} else
 		{
+			this.texture = TextureRegistry.get()
+					.acquire(textureName);
 		}
 	}
 
-	private void loadTexture(final String textureName)
+	public int getTexture()
 	{
-		this.texture = TextureLoader.readTexture(textureName);
-		loadedTextures.put(this.texture, textureName);
+		return this.texture.getId();
 	}
 
-	public int getTexture()
+	/*
+	 * Returns false while the texture is loaded in the background.
+	 */
+	public boolean isLoaded()
 	{
-		return this.texture;
+		return this.texture.isLoaded();
+	}
+
+	/*
+	 * Returns true if the texture could not be loaded in the background, in
+	 * which case the material keeps rendering the placeholder texture.
+	 */
+	public boolean isFailed()
+	{
+		return this.texture.isFailed();
+	}
+
+	/*
+	 * Gives up the material's reference to its texture, allowing the texture to
+	 * be deleted when no other material uses it. The material should not be
+	 * rendered after being released.
+	 */
+	public void release()
+	{
+		if (!this.released)
+		{
+			this.released = true;
+			TextureRegistry.get()
+					.release(this.texture);
+		}
 	}
 
 	/*
 	 * Used in the render class of any of the quads before drawing the actual
 	 * mesh data of that quad. This sets the material to be rendered on all
-	 * quads to this material.
+	 * quads to this material. Quads sharing a material end up in the same
+	 * batch.
 	 */
 	public void setMaterial()
 	{
-		GL11.glBindTexture(GL11.GL_TEXTURE_2D, this.getTexture());
+		SpriteBatch.get()
+				.setTexture(this.getTexture());
 	}
 
 	/*
@@ -76,7 +97,8 @@ public final class Material
 	 */
 	public void disable()
 	{
-		GL11.glBindTexture(GL11.GL_TEXTURE_2D, 0);
+		SpriteBatch.get()
+				.setTexture(0);
 	}
 
 	@Override
@@ -88,7 +110,7 @@ public final class Material
 		} else if (obj instanceof Material)
 		{
 			final Material otherMat = (Material) obj;
-			return otherMat.texture == this.texture;
+			return otherMat.getTexture() == this.getTexture();
 		}
 
 		return false;
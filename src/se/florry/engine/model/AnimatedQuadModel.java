@@ -1,8 +1,8 @@
 package se.florry.engine.model;
 
-import org.lwjgl.opengl.GL11;
 import org.lwjgl.util.vector.Vector2f;
 
+import se.florry.engine.render.SpriteBatch;
 import se.florry.engine.utils.EngineUtils;
 
 /*
@@ -74,36 +74,21 @@ public class AnimatedQuadModel extends QuadModel
 	 */
 	private void renderAnimatedQuad()
 	{
-		if (this.hasTransparency())
-		{
-			GL11.glEnable(GL11.GL_BLEND);
-			GL11.glBlendFunc(GL11.GL_SRC_ALPHA, GL11.GL_ONE_MINUS_SRC_ALPHA);
-		}
-
-		Color adjustedColor = new Color(this.color.r / 255, this.color.g / 255, this.color.b / 255);
-		GL11.glColor4f(adjustedColor.r, adjustedColor.g, adjustedColor.b, adjustedColor.a);
-
-		GL11.glBegin(GL11.GL_QUADS);
-
-		GL11.glTexCoord2f(this.textureSize.x * (0 + this.getCurrentAnimationOffset()), 0 + this.textureCoordinates.y);
-		GL11.glVertex2f(this.position.x + this.renderPositionOffset.x, this.position.y + this.renderPositionOffset.y);
-
-		GL11.glTexCoord2f(this.textureSize.x * (this.getFrameDimensions().x + this.getCurrentAnimationOffset()), 0 + this.textureCoordinates.y);
-		GL11.glVertex2f(this.position.x + this.renderPositionOffset.x + this.size.width, this.position.y + this.renderPositionOffset.y);
-
-		GL11.glTexCoord2f(this.textureSize.x * (this.getFrameDimensions().x + this.getCurrentAnimationOffset()),
-				1 * this.textureSize.y + this.textureCoordinates.y);
-		GL11.glVertex2f(this.position.x + this.renderPositionOffset.x + this.size.width, this.position.y + this.renderPositionOffset.y + +this.size.height);
-
-		GL11.glTexCoord2f(this.textureSize.x * (0 + this.getCurrentAnimationOffset()), 1 * this.textureSize.y + this.textureCoordinates.y);
-		GL11.glVertex2f(this.position.x + this.renderPositionOffset.x, this.position.y + this.renderPositionOffset.y + +this.size.height);
-
-		GL11.glEnd();
-
-		if (this.hasTransparency())
-		{
-			GL11.glDisable(GL11.GL_BLEND);
-		}
+		final float x = this.position.x + this.renderPositionOffset.x;
+		final float y = this.position.y + this.renderPositionOffset.y;
+		final float animationOffset = this.getCurrentAnimationOffset();
+
+		SpriteBatch.get()
+				.draw(x,
+						y,
+						x + this.size.width,
+						y + this.size.height,
+						this.textureCoordinates.x + this.textureSize.x * animationOffset,
+						this.textureCoordinates.y,
+						this.textureCoordinates.x + this.textureSize.x * (this.getFrameDimensions().x + animationOffset),
+						this.textureSize.y + this.textureCoordinates.y,
+						this.color,
+						this.hasTransparency());
 	}
 
 	/*
@@ -5,12 +5,36 @@ import static org.lwjgl.glfw.GLFW.glfwDestroyWindow;
 import static org.lwjgl.glfw.GLFW.glfwTerminate;
 import static org.lwjgl.glfw.GLFW.glfwWindowShouldClose;
 
+import java.util.concurrent.locks.LockSupport;
+
+import org.lwjgl.util.vector.Vector2f;
+
+import se.florry.engine.constants.Constants;
 import se.florry.engine.display.Display;
 import se.florry.engine.handler.LoopHandler;
+import se.florry.engine.handler.RenderHandler;
 import se.florry.engine.input.Input;
+import se.florry.engine.job.JobSystem;
+import se.florry.engine.render.InstancedRenderer;
+import se.florry.engine.render.RenderBackend;
+import se.florry.engine.render.RenderContext;
+import se.florry.engine.render.RenderLayers;
+import se.florry.engine.render.RenderSnapshot;
 import se.florry.engine.render.Renderer;
+import se.florry.engine.render.ResolutionController;
+import se.florry.engine.render.SnapshotBuffer;
+import se.florry.engine.render.SpriteBatch;
 import se.florry.engine.sound.Sound;
+import se.florry.engine.texture.AsyncTextureLoader;
+import se.florry.engine.texture.TextureRegistry;
+import se.florry.engine.timer.FixedTimestep;
 import se.florry.engine.trigger.Trigger;
+import se.florry.engine.ui.model.FrameTimeOverlay;
+import se.florry.engine.utils.AllocationTracker;
+import se.florry.engine.utils.EngineUtils;
+import se.florry.engine.utils.FrameProfiler;
+import se.florry.engine.utils.FrameProfiler.Phase;
+import se.florry.engine.utils.FrameTimeRecorder;
 import se.florry.engine.utils.FrameUtils;
 
 /*
@@ -20,25 +44,76 @@ public final class Engine
 {
 
 	private LoopHandler loopHandler;
+	private RenderHandler renderHandler;
+	private FixedTimestep fixedTimestep;
+	private final FrameProfiler profiler;
+	private FrameTimeOverlay frameTimeOverlay;
+	private boolean showFrameTimeOverlay;
+	private ResolutionController resolutionController;
+	private boolean trackAllocations;
+	private AllocationTracker allocationTracker;
+	private volatile AllocationTracker simulationAllocationTracker;
 	private final Display display;
-	private final Renderer renderer;
+	private final RenderBackend renderer;
 	private final Input input;
 	private final Trigger trigger;
+	private final JobSystem systems;
 	private final Sound sound;
+	private final SnapshotBuffer snapshots;
+	private final FrameTimeRecorder simulationTimes;
+	private volatile boolean simulationRunning;
+	private volatile boolean stopped;
+	private volatile Throwable simulationError;
 	private float deltaTime;
 	private int framerate;
-	private int currentFrame;
+	// Counts the drawn frames from 0 to 60 on the render thread, only read through getCurrentFrame.
+	private volatile int currentFrame;
 
 	public Engine()
+	{
+		this(false);
+	}
+
+	/*
+	 * @param instanced draws sprites with the instanced renderer, using
+	 * shaders instead of the fixed function pipeline.
+	 */
+	public Engine(final boolean instanced)
 	{
 		this.display = new Display("Engine");
 		this.display.init();
-		this.renderer = new Renderer();
+		this.renderer = instanced ? new InstancedRenderer(this.display.getWindow()) : new Renderer(this.display.getWindow());
+		RenderContext.set(this.renderer);
 		this.renderer.init();
 		this.input = new Input();
 		this.input.init(this.display.getWindow());
 		this.trigger = new Trigger();
+		this.systems = new JobSystem();
 		this.sound = new Sound();
+		this.profiler = new FrameProfiler(Constants.Loop.FRAME_TIME_WINDOW);
+		this.snapshots = new SnapshotBuffer();
+		this.simulationTimes = new FrameTimeRecorder(Constants.Loop.FRAME_TIME_WINDOW);
+	}
+
+	/*
+	 * Creates an engine without a display, drawing through the given render
+	 * backend, for example a headless backend on machines without a GPU. There
+	 * is no window to close, so the engine runs until stop is called, and no
+	 * key input.
+	 */
+	public Engine(final RenderBackend renderBackend)
+	{
+		this.display = null;
+		this.renderer = renderBackend;
+		RenderContext.set(this.renderer);
+		this.renderer.init();
+		this.input = new Input();
+		this.trigger = new Trigger();
+		this.systems = new JobSystem();
+		this.sound = new Sound();
+		this.profiler = new FrameProfiler(Constants.Loop.FRAME_TIME_WINDOW);
+		this.snapshots = new SnapshotBuffer();
+		this.simulationTimes = new FrameTimeRecorder(Constants.Loop.FRAME_TIME_WINDOW);
 	}
 
 	/*
@@ -51,12 +126,37 @@ public final class Engine
 	 */
 	public void run(final LoopHandler loop)
 	{
+		this.run(loop, null);
+	}
+
+	/*
+	 * The engine loop with game logic and rendering separated.
+	 * 
+	 * @param loop The main game loop handler. With a fixed timestep it is
+	 * called at the fixed update rate, otherwise once per frame.
+	 * 
+	 * @param render The render handler, called once per frame after the game
+	 * loop with the interpolation alpha between the last two steps. Required
+	 * with a fixed timestep, can be null otherwise.
+	 */
+	public void run(final LoopHandler loop, final RenderHandler render)
+	{
+		if (this.fixedTimestep != null && render == null)
+		{
+			throw new IllegalStateException("A render handler is required when running with a fixed timestep");
+		}
+
 		this.loopHandler = loop;
+		this.renderHandler = render;
+		this.allocationTracker = new AllocationTracker(this.trackAllocations);
 
 		try
 		{
-			while (glfwWindowShouldClose(this.display.getWindow()) == GLFW_FALSE)
+			while (!this.shouldClose())
 			{
+				this.profiler.startFrame();
+				this.allocationTracker.startFrame();
+
 				if (this.currentFrame >= 60)
 				{
 					this.currentFrame = 0;
@@ -65,34 +165,442 @@ public final class Engine
 					this.currentFrame++;
 				}
 				this.getDeltaTimeForFrame();
+				this.uploadTextures();
+				this.profiler.mark(Phase.TEXTURES);
 				this.handleTriggers();
-				this.input.triggerActiveInputs(this.deltaTime);
+				this.profiler.mark(Phase.TRIGGERS);
+
+				if (this.fixedTimestep != null)
+				{
+					this.runFixedSteps();
+				} else
+				{
+					this.input.triggerActiveInputs(this.deltaTime);
+					this.profiler.mark(Phase.INPUT);
+					this.renderer.prepare();
+					this.loopHandler.loop(this.deltaTime);
+					this.profiler.mark(Phase.LOGIC);
+					this.systems.update(this.deltaTime);
+					this.profiler.mark(Phase.SYSTEMS);
+
+					if (this.renderHandler != null)
+					{
+						this.renderHandler.render(1);
+					}
+				}
+
+				RenderLayers.get()
+						.render(SpriteBatch.get(), this.renderer, this.renderer.hasDepthTest());
+				this.renderFrameTimeOverlay();
+				this.profiler.mark(Phase.RENDER);
+				this.renderer.present();
+				this.profiler.mark(Phase.PRESENT);
+
+				this.getFramerateForFrame();
+				this.profiler.endFrame();
+				this.allocationTracker.endFrame();
+				this.scaleResolution();
+			}
+
+			this.destroyWindow();
+		} finally
+		{
+			this.cleanUp();
+		}
+	}
+
+	/*
+	 * The engine loop with game logic on a thread of its own, letting the game
+	 * loop run while the render thread waits for the driver and the display.
+	 * The simulation thread runs the inputs, triggers, game loop and systems,
+	 * then the render handler, whose quads are recorded into a render snapshot
+	 * instead of being drawn. The render thread draws the latest complete
+	 * snapshot every frame.
+	 * 
+	 * @param loop The main game loop handler, called on the simulation thread.
+	 * With a fixed timestep it is called at the fixed update rate, otherwise
+	 * once per frame drawn.
+	 * 
+	 * @param render The render handler, called on the simulation thread after
+	 * the game loop. The simulation thread has no Open GL context, so
+	 * textures acquired there, such as those of materials, UI quads and text
+	 * created while rendering, are loaded asynchronously and drawn with a
+	 * placeholder until uploaded. Distance field text can not be drawn there.
+	 */
+	public void runThreaded(final LoopHandler loop, final RenderHandler render)
+	{
+		this.loopHandler = loop;
+		this.renderHandler = render;
+		this.allocationTracker = new AllocationTracker(this.trackAllocations);
+		this.simulationRunning = true;
+
+		final Thread simulation = new Thread(this::simulate, "Simulation");
+
+		try
+		{
+			// Created here, with the Open GL context, for the textures the simulation thread loads.
+			AsyncTextureLoader.get()
+					.getPlaceholder();
+			simulation.start();
+
+			while (!this.shouldClose() && this.simulationError == null)
+			{
+				this.profiler.startFrame();
+				this.allocationTracker.startFrame();
+
+				if (this.currentFrame >= 60)
+				{
+					this.currentFrame = 0;
+				} else
+				{
+					this.currentFrame++;
+				}
+				this.getDeltaTimeForFrame();
+				this.uploadTextures();
+				this.profiler.mark(Phase.TEXTURES);
+
+				final RenderSnapshot snapshot = this.snapshots.acquire();
+
 				this.renderer.prepare();
-				this.loopHandler.loop(this.deltaTime);
-				this.renderer.render(this.display.getWindow());
+				this.renderer.draw(snapshot);
+				this.renderFrameTimeOverlay();
+				this.profiler.mark(Phase.RENDER);
+				this.renderer.present();
+				this.profiler.mark(Phase.PRESENT);
 
 				this.getFramerateForFrame();
+				this.profiler.endFrame();
+				this.allocationTracker.endFrame();
+				this.scaleResolution();
 			}
 
-			glfwDestroyWindow(this.display.getWindow());
-			this.input.getKeyCallback()
-					.release();
+			this.simulationRunning = false;
+			simulation.join();
+			this.destroyWindow();
+		} catch (final InterruptedException e)
+		{
+			Thread.currentThread()
+					.interrupt();
 		} finally
 		{
-			this.trigger.clean();
+			this.simulationRunning = false;
+			this.cleanUp();
+		}
+
+		if (this.simulationError != null)
+		{
+			throw new IllegalStateException("The simulation thread failed", this.simulationError);
+		}
+	}
+
+	/*
+	 * The loop of the simulation thread. Without a fixed timestep a new step is
+	 * only taken once the render thread has picked up the previous one.
+	 */
+	private void simulate()
+	{
+		final SpriteBatch batch = new SpriteBatch(Constants.Render.BATCH_SIZE, null);
+		// Created here, as a tracker counts the thread creating it.
+		final AllocationTracker tracker = new AllocationTracker(this.trackAllocations);
+		long lastStep = EngineUtils.getNanoTime();
+		long sequence = 0;
+
+		this.simulationAllocationTracker = tracker;
+		SpriteBatch.bind(batch);
+
+		try
+		{
+			while (this.simulationRunning)
+			{
+				final long now = EngineUtils.getNanoTime();
+				final int steps;
+				final float stepTime;
+				final float alpha;
+
+				if (this.fixedTimestep != null)
+				{
+					steps = this.fixedTimestep.advance(now);
+					stepTime = this.fixedTimestep.getStepSeconds();
+					alpha = this.fixedTimestep.getAlpha();
+				} else
+				{
+					steps = this.snapshots.hasFresh() ? 0 : 1;
+					stepTime = (now - lastStep) / 1000000000f;
+					alpha = 1;
+				}
+
+				if (steps == 0)
+				{
+					LockSupport.parkNanos(Constants.Loop.SIMULATION_WAIT_NANOS);
+					continue;
+				}
+
+				lastStep = now;
+				tracker.startFrame();
+				this.handleTriggers();
+
+				for (int i = 0; i < steps; i++)
+				{
+					this.input.triggerActiveInputs(stepTime);
+					this.loopHandler.loop(stepTime);
+					this.systems.update(stepTime);
+				}
+
+				final RenderSnapshot snapshot = this.snapshots.getWriteSnapshot();
+
+				snapshot.clear(sequence++, alpha);
+				batch.setHandler(snapshot.getRecorder());
+				batch.begin();
+
+				if (this.renderHandler != null)
+				{
+					this.renderHandler.render(alpha);
+				}
+
+				RenderLayers.get()
+						.render(batch, snapshot.getLayerRecorder(), this.renderer.hasDepthTest());
+				batch.end();
+				this.snapshots.publish();
+				this.simulationTimes.record(EngineUtils.getNanoTime() - now);
+				tracker.endFrame();
+			}
+		} catch (final Throwable e)
+		{
+			this.simulationError = e;
+		} finally
+		{
+			SpriteBatch.bind(null);
+		}
+	}
+
+	/*
+	 * Returns true once the window has been closed or stop has been called.
+	 */
+	private boolean shouldClose()
+	{
+		return this.stopped || this.display != null && glfwWindowShouldClose(this.display.getWindow()) != GLFW_FALSE;
+	}
+
+	/*
+	 * Makes the engine loop return after the current frame.
+	 */
+	public void stop()
+	{
+		this.stopped = true;
+	}
+
+	private void destroyWindow()
+	{
+		if (this.display == null)
+		{
+			return;
+		}
 
+		glfwDestroyWindow(this.display.getWindow());
+		this.input.getKeyCallback()
+				.release();
+	}
+
+	private void cleanUp()
+	{
+		this.trigger.clean();
+		this.systems.shutdown();
+		AsyncTextureLoader.get()
+				.shutdown();
+
+		if (this.display != null)
+		{
 			glfwTerminate();
 			this.display.getErrorCallback()
 					.release();
 		}
 	}
 
+	/*
+	 * Runs as many fixed steps of inputs and game loop as the time passed
+	 * since the last frame calls for, then renders the frame interpolated
+	 * between the last two steps.
+	 */
+	private void runFixedSteps()
+	{
+		final int steps = this.fixedTimestep.advance(EngineUtils.getNanoTime());
+		final float stepTime = this.fixedTimestep.getStepSeconds();
+
+		for (int i = 0; i < steps; i++)
+		{
+			this.input.triggerActiveInputs(stepTime);
+			this.profiler.mark(Phase.INPUT);
+			this.loopHandler.loop(stepTime);
+			this.profiler.mark(Phase.LOGIC);
+			this.systems.update(stepTime);
+			this.profiler.mark(Phase.SYSTEMS);
+		}
+
+		this.renderer.prepare();
+		this.renderHandler.render(this.fixedTimestep.getAlpha());
+	}
+
+	/*
+	 * Renders the frame time overlay on top of everything else, if shown.
+	 */
+	private void renderFrameTimeOverlay()
+	{
+		if (this.showFrameTimeOverlay)
+		{
+			if (this.frameTimeOverlay == null)
+			{
+				this.frameTimeOverlay = new FrameTimeOverlay(this.profiler, new Vector2f(10, 10));
+			}
+
+			this.frameTimeOverlay.render();
+		}
+	}
+
+	/*
+	 * Lowers and raises the resolution frames are rendered at to keep the
+	 * frame time under a target, by the time the GPU took where it can be
+	 * timed and by the time the frame took on the CPU, waiting for the
+	 * display left out, otherwise. Has to be set before calling run.
+	 *
+	 * @param targetFrameNanos the frame time to stay under, or 0 to render at
+	 * full resolution.
+	 */
+	public void setDynamicResolution(final long targetFrameNanos)
+	{
+		this.resolutionController = targetFrameNanos > 0 ? new ResolutionController(targetFrameNanos) : null;
+		this.renderer.setRenderScale(1);
+	}
+
+	private void scaleResolution()
+	{
+		if (this.resolutionController == null)
+		{
+			return;
+		}
+
+		long frameNanos = this.renderer.getGpuFrameNanos();
+
+		if (frameNanos < 0)
+		{
+			frameNanos = this.profiler.get(Phase.FRAME)
+					.getLast() - this.profiler.get(Phase.PRESENT)
+							.getLast();
+		}
+
+		this.renderer.setRenderScale(this.resolutionController.update(frameNanos));
+	}
+
+	/*
+	 * Counts the bytes every frame allocates on the thread running the engine
+	 * loop. Running threaded the render thread and the simulation thread are
+	 * counted apart, every simulation step being a frame of the simulation
+	 * tracker. Has to be set before calling run.
+	 */
+	public void trackAllocations(final boolean track)
+	{
+		this.trackAllocations = track;
+	}
+
+	/*
+	 * Returns the bytes allocated per frame, counted once running with
+	 * allocations tracked.
+	 */
+	public AllocationTracker getAllocationTracker()
+	{
+		return this.allocationTracker;
+	}
+
+	/*
+	 * Returns the bytes allocated per simulation step, counted once running
+	 * threaded with allocations tracked.
+	 */
+	public AllocationTracker getSimulationAllocationTracker()
+	{
+		return this.simulationAllocationTracker;
+	}
+
+	/*
+	 * Returns the controller scaling the resolution, or null when frames are
+	 * rendered at full resolution.
+	 */
+	public ResolutionController getResolutionController()
+	{
+		return this.resolutionController;
+	}
+
+	/*
+	 * Shows or hides text with frame time percentiles and the time spent in
+	 * each phase of the engine loop.
+	 */
+	public void showFrameTimeOverlay(final boolean show)
+	{
+		this.showFrameTimeOverlay = show;
+	}
+
+	/*
+	 * Returns the time of the latest simulation steps, from the game loop to
+	 * the recorded snapshot, when running threaded.
+	 */
+	public FrameTimeRecorder getSimulationTimes()
+	{
+		return this.simulationTimes;
+	}
+
+	/*
+	 * Returns the profiler timing the phases of every frame.
+	 */
+	public FrameProfiler getFrameProfiler()
+	{
+		return this.profiler;
+	}
+
+	/*
+	 * Runs the game loop at a fixed update rate instead of once per frame,
+	 * making game logic independent of the frame rate. Has to be set before
+	 * calling run.
+	 * 
+	 * @param updateRate the number of game loop steps per second.
+	 */
+	public void setFixedTimestep(final int updateRate)
+	{
+		this.fixedTimestep = new FixedTimestep(updateRate, Constants.Loop.MAX_UPDATES_PER_FRAME);
+	}
+
+	/*
+	 * Runs the game loop at the default fixed update rate.
+	 */
+	public void setFixedTimestep()
+	{
+		this.setFixedTimestep(Constants.Loop.UPDATE_RATE);
+	}
+
+	/*
+	 * Returns the fixed timestep, or null when the game loop runs once per
+	 * frame.
+	 */
+	public FixedTimestep getFixedTimestep()
+	{
+		return this.fixedTimestep;
+	}
+
 	/*
 	 * Handles triggers.
 	 */
 	private void handleTriggers()
 	{
-		this.trigger.handle(this.currentFrame);
+		this.trigger.handle();
+	}
+
+	/*
+	 * Uploads textures decoded in the background, within the time budget for
+	 * uploads, and deletes textures evicted on the simulation thread.
+	 */
+	private void uploadTextures()
+	{
+		AsyncTextureLoader.get()
+				.processUploads(Constants.Textures.UPLOAD_BUDGET_NANOS);
+		TextureRegistry.get()
+				.deletePending();
 	}
 
 	/*
@@ -116,7 +624,10 @@ public final class Engine
 	 */
 	public void setTitle(final String title)
 	{
-		this.display.setTitle(title);
+		if (this.display != null)
+		{
+			this.display.setTitle(title);
+		}
 	}
 
 	/*
@@ -129,13 +640,22 @@ public final class Engine
 	}
 
 	/*
-	 * Returns the display to which the engine/game is rendered.
+	 * Returns the display to which the engine/game is rendered, or null when
+	 * running without a display.
 	 */
 	public Display getDisplay()
 	{
 		return this.display;
 	}
 
+	/*
+	 * Returns the render backend drawing the frames.
+	 */
+	public RenderBackend getRenderBackend()
+	{
+		return this.renderer;
+	}
+
 	/*
 	 * Returns the input.
 	 */
@@ -152,6 +672,15 @@ public final class Engine
 		return this.trigger;
 	}
 
+	/*
+	 * Returns the job system running the systems of the game after the game
+	 * loop every step. The render handler runs once all systems are done.
+	 */
+	public JobSystem systems()
+	{
+		return this.systems;
+	}
+
 	/*
 	 * Returns delta time for the current frame.
 	 */
@@ -169,7 +698,9 @@ public final class Engine
 	}
 
 	/*
-	 * Returns the frame count of the current frame.
+	 * Returns the number of the frame being drawn, counting from 0 to 60 and
+	 * starting over. Running threaded it counts the frames of the render
+	 * thread, not the simulation steps.
 	 */
 	public int getCurrentFrame()
 	{
@@ -1,12 +1,12 @@
 package se.florry.engine.model;
 
-import java.nio.IntBuffer;
 import java.util.UUID;
 
-import org.lwjgl.BufferUtils;
-import org.lwjgl.opengl.GL11;
 import org.lwjgl.util.vector.Vector2f;
 
+import se.florry.engine.render.RenderQueue;
+import se.florry.engine.render.SpriteBatch;
+
 /*
  * Class for rendering a quad.
  */
@@ -57,51 +57,58 @@ public class QuadModel
 		this(new Size(size, size), 0, 0, 0, 0, 1, 1);
 	}
 
+	/*
+	 * Submits the quad to the sprite batch. The quad is drawn with whatever
+	 * texture the batch currently has set.
+	 */
 	public void render()
 	{
-		try
+		if (this.shouldRender)
 		{
-			if (this.shouldRender)
-			{
-				Color adjustedColor = new Color(this.color.r / 255, this.color.g / 255, this.color.b / 255);
-
-				if (this.hasTransparency() || this.color.a < 1)
-				{
-					GL11.glEnable(GL11.GL_BLEND);
-					GL11.glBlendFunc(GL11.GL_SRC_ALPHA, GL11.GL_ONE_MINUS_SRC_ALPHA);
-				}
-
-				final IntBuffer fb = BufferUtils.createIntBuffer(4);
-				GL11.glGetIntegerv(GL11.GL_CURRENT_COLOR, fb);
-
-				GL11.glColor4f(adjustedColor.r, adjustedColor.g, adjustedColor.b, adjustedColor.a);
-
-				GL11.glBegin(GL11.GL_QUADS);
-
-				GL11.glTexCoord2f(0 + this.textureCoordinates.x, 0 + this.textureCoordinates.y);
-				GL11.glVertex2f(this.position.x + this.renderPositionOffset.x, this.position.y + this.renderPositionOffset.y);
-
-				GL11.glTexCoord2f(1 * this.textureSize.x + this.textureCoordinates.x, 0 + this.textureCoordinates.y);
-				GL11.glVertex2f(this.position.x + this.renderPositionOffset.x + this.size.width, this.position.y + this.renderPositionOffset.y);
-
-				GL11.glTexCoord2f(1 * this.textureSize.x + this.textureCoordinates.x, 1 * this.textureSize.y + this.textureCoordinates.y);
-				GL11.glVertex2f(this.position.x + this.renderPositionOffset.x + this.size.width,
-						this.position.y + this.renderPositionOffset.y + this.size.height);
-
-				GL11.glTexCoord2f(0 + this.textureCoordinates.x, 1 * this.textureSize.y + this.textureCoordinates.y);
-				GL11.glVertex2f(this.position.x + this.renderPositionOffset.x, this.position.y + this.renderPositionOffset.y + this.size.height);
-
-				GL11.glEnd();
-
-				if (this.hasTransparency() || adjustedColor.a < 255)
-				{
-					GL11.glDisable(GL11.GL_BLEND);
-				}
+			final float x = this.position.x + this.renderPositionOffset.x;
+			final float y = this.position.y + this.renderPositionOffset.y;
+
+			SpriteBatch.get()
+					.draw(x,
+							y,
+							x + this.size.width,
+							y + this.size.height,
+							this.textureCoordinates.x,
+							this.textureCoordinates.y,
+							this.textureSize.x + this.textureCoordinates.x,
+							this.textureSize.y + this.textureCoordinates.y,
+							this.color,
+							this.hasTransparency() || this.color.a < 255);
+		}
+	}
 
-				GL11.glColor4i(fb.get(0), fb.get(1), fb.get(2), fb.get(3));
-			}
-		} catch (final Exception e)
+	/*
+	 * Submits the quad to a render queue instead of the sprite batch, to be
+	 * drawn sorted with the other quads of the queue.
+	 *
+	 * @param texture the texture to draw the quad with, such as the one of its
+	 * material.
+	 */
+	public void queue(final RenderQueue queue, final int layer, final int depth, final int texture)
+	{
+		if (this.shouldRender)
 		{
+			final float x = this.position.x + this.renderPositionOffset.x;
+			final float y = this.position.y + this.renderPositionOffset.y;
+
+			queue.submit(layer,
+					depth,
+					texture,
+					this.hasTransparency() || this.color.a < 255,
+					x,
+					y,
+					x + this.size.width,
+					y + this.size.height,
+					this.textureCoordinates.x,
+					this.textureCoordinates.y,
+					this.textureSize.x + this.textureCoordinates.x,
+					this.textureSize.y + this.textureCoordinates.y,
+					SpriteBatch.packColor(this.color));
 		}
 	}
 
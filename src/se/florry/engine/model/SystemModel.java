@@ -0,0 +1,102 @@
+package se.florry.engine.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import se.florry.engine.constants.Constants;
+import se.florry.engine.handler.SystemHandler;
+import se.florry.engine.utils.FrameTimeRecorder;
+
+/*
+ * Class for holding information about a system: the game logic updating some kind of data every step, and the
+ * components (named kinds of data) it reads and writes. Systems not writing anything the other reads or writes can
+ * run in parallel.
+ */
+public final class SystemModel
+{
+
+	private final String name;
+	private final SystemHandler handler;
+	private final List<String> reads;
+	private final List<String> writes;
+	private final FrameTimeRecorder times;
+
+	// The components as bits, set when the system is added to a job system.
+	private long readMask;
+	private long writeMask;
+
+	public SystemModel(final String name, final SystemHandler handler)
+	{
+		this.name = name;
+		this.handler = handler;
+		this.reads = new ArrayList<>();
+		this.writes = new ArrayList<>();
+		this.times = new FrameTimeRecorder(Constants.Loop.FRAME_TIME_WINDOW);
+	}
+
+	/*
+	 * Declares components the system reads.
+	 */
+	public SystemModel reads(final String... components)
+	{
+		Collections.addAll(this.reads, components);
+
+		return this;
+	}
+
+	/*
+	 * Declares components the system writes. Writing a component implies
+	 * reading it.
+	 */
+	public SystemModel writes(final String... components)
+	{
+		Collections.addAll(this.writes, components);
+
+		return this;
+	}
+
+	/*
+	 * Returns true if the system can not run at the same time as another
+	 * system.
+	 */
+	public boolean conflictsWith(final SystemModel system)
+	{
+		return (this.writeMask & (system.readMask | system.writeMask)) != 0 || (system.writeMask & this.readMask) != 0;
+	}
+
+	public String getName()
+	{
+		return this.name;
+	}
+
+	public SystemHandler getHandler()
+	{
+		return this.handler;
+	}
+
+	public List<String> getReads()
+	{
+		return this.reads;
+	}
+
+	public List<String> getWrites()
+	{
+		return this.writes;
+	}
+
+	public void setMasks(final long readMask, final long writeMask)
+	{
+		this.readMask = readMask | writeMask;
+		this.writeMask = writeMask;
+	}
+
+	/*
+	 * Returns the time of the latest updates of the system in nanoseconds.
+	 */
+	public FrameTimeRecorder getTimes()
+	{
+		return this.times;
+	}
+
+}
@@ -1,47 +1,88 @@
 package se.florry.engine.model;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.nio.CharBuffer;
 import java.util.UUID;
 
 import org.lwjgl.util.vector.Vector2f;
 
 import se.florry.engine.constants.Constants;
+import se.florry.engine.font.BitmapFont;
+import se.florry.engine.font.DistanceFieldShader;
+import se.florry.engine.font.TextLayout;
+import se.florry.engine.font.TextLayout.Alignment;
+import se.florry.engine.font.TextStyle;
 import se.florry.engine.material.Material;
+import se.florry.engine.render.SpriteBatch;
+import se.florry.engine.texture.TextureLoader;
 
 /*
- * Class for rendering text.
+ * Class for rendering text. The text is laid out once with its bitmap font into glyph quads, which is only redone
+ * when the text or its layout settings change, and the quads are submitted to the sprite batch offset by the
+ * position of the text. Without a font the text uses the letter texture.
  */
 public final class TextModel
 {
 
-	private List<TextQuadModel> sentenceQuads;
+	private static final int SHADOW_OFFSET = 3;
+
+	private char[] characters;
+	private int characterCount;
 	private String sentence;
+	private CharBuffer text;
+	private final TextLayout layout;
+	private boolean dirty;
+
+	private BitmapFont font;
+	private Material[] materials;
+	private float maxWidth;
+	private Alignment alignment;
+
 	private final int size;
 	public final Vector2f position;
 	private final Color color;
-	private final Material material;
-	private final boolean useShadows;
-
-	private final int letterSpacing;
+	private final TextStyle style;
 
 	private final String id;
 
-	public TextModel(final String sentence, final int size, final Vector2f position, final Color color, final boolean shadows, final int letterSpacing)
+	/*
+	 * @param font the font, or null for the letter texture.
+	 *
+	 * @param size the line height of the text for bitmap fonts, or the width
+	 * and height of a letter.
+	 */
+	public TextModel(final String sentence, final BitmapFont font, final int size, final Vector2f position, final Color color, final boolean shadows,
+			final int letterSpacing)
 	{
-		this.sentence = sentence.toUpperCase();
 		this.size = size;
 		this.position = position;
 		this.color = color;
-		this.sentenceQuads = new ArrayList<>();
-		this.material = new Material("letters");
-		this.useShadows = shadows;
-		this.letterSpacing = letterSpacing;
+		this.style = new TextStyle();
+		this.font = font != null ? font : BitmapFont.createLetters(size, letterSpacing);
+		this.alignment = Alignment.LEFT;
+		this.characters = new char[Math.max(16, sentence.length())];
+		this.text = CharBuffer.wrap(this.characters);
+		this.layout = new TextLayout();
 
 		this.id = UUID.randomUUID()
 				.toString();
 
-		this.convertToQuadList();
+		if (shadows)
+		{
+			this.style.setShadow(SHADOW_OFFSET, SHADOW_OFFSET, Constants.Colors.BLACK);
+		}
+
+		this.setSentence(sentence);
+		this.dirty = true;
+	}
+
+	public TextModel(final String sentence, final BitmapFont font, final int size, final Vector2f position, final Color color, final boolean shadows)
+	{
+		this(sentence, font, size, position, color, shadows, Constants.UI.Text.LETTER_SPACING);
+	}
+
+	public TextModel(final String sentence, final int size, final Vector2f position, final Color color, final boolean shadows, final int letterSpacing)
+	{
+		this(sentence, null, size, position, color, shadows, letterSpacing);
 	}
 
 	public TextModel(final String sentence, final int size, final Vector2f position, final Color color, final boolean shadows)
@@ -66,101 +107,247 @@ public final class TextModel
 
 	public void setSentence(final String sentence)
 	{
-		this.sentence = sentence.toUpperCase();
-		this.sentenceQuads = new ArrayList<>();
-		this.convertToQuadList();
+		this.setSentence((CharSequence) sentence);
 	}
 
 	/*
-	 * Converts the inputted sentence string to a list of quads.
+	 * Sets the text. Text equal to the current text is ignored, and a reused
+	 * StringBuilder can be passed to update the text without allocating.
 	 */
-	private void convertToQuadList()
+	public void setSentence(final CharSequence sentence)
 	{
-		for (int i = 0; i < this.sentence.length(); i++)
+		if (this.equalsSentence(sentence))
 		{
-			final float offset = this.getTextureOffsetForChar(this.sentence.charAt(i));
+			return;
+		}
+
+		final int length = sentence.length();
 
-			if (this.useShadows)
+		if (length > this.characters.length)
+		{
+			this.characters = new char[Math.max(length, this.characters.length * 2)];
+			this.text = CharBuffer.wrap(this.characters);
+		}
+
+		for (int i = 0; i < length; i++)
+		{
+			this.characters[i] = sentence.charAt(i);
+		}
+
+		this.characterCount = length;
+		this.sentence = null;
+		this.dirty = true;
+	}
+
+	private boolean equalsSentence(final CharSequence sentence)
+	{
+		if (sentence.length() != this.characterCount)
+		{
+			return false;
+		}
+
+		for (int i = 0; i < this.characterCount; i++)
+		{
+			if (sentence.charAt(i) != this.characters[i])
 			{
-				this.addQuadToList(this.letterSpacing * i + i * this.size + 3, 0 + 3, offset, new Color(0, 0, 0, 255));
+				return false;
 			}
-			this.addQuadToList(this.letterSpacing * i + i * this.size, 0, offset, this.color);
 		}
+
+		return true;
 	}
 
 	/*
-	 * Adds a quad to the list of quads. Sets the texture coordinates according
-	 * to which character it is.
+	 * Lays the text out again if it or the layout settings changed since the
+	 * last layout.
 	 */
-	private void addQuadToList(final float x, final float y, final float textureOffset, final Color color)
+	private void updateLayout()
 	{
-		final TextQuadModel letterQuad = new TextQuadModel(new Size(this.size, this.size), color);
+		if (this.dirty)
+		{
+			this.text.limit(this.characterCount)
+					.position(0);
+			this.layout.layout(this.font, this.text, this.getScale(), this.maxWidth, this.alignment);
+			this.dirty = false;
+		}
+	}
 
-		letterQuad.position.x = x;
-		letterQuad.position.y = y;
+	private float getScale()
+	{
+		return this.size / this.font.getSize();
+	}
 
-		letterQuad.textureSize.x = 0.025f;
-		letterQuad.textureSize.y = 1;
+	public String getSentence()
+	{
+		if (this.sentence == null)
+		{
+			this.sentence = new String(this.characters, 0, this.characterCount);
+		}
+
+		return this.sentence;
+	}
+
+	/*
+	 * Sets the font the text is drawn with. Releases the textures of the
+	 * previous font.
+	 */
+	public void setFont(final BitmapFont font)
+	{
+		if (font != this.font)
+		{
+			this.release();
+			this.materials = null;
+			this.font = font;
+			this.dirty = true;
+		}
+	}
 
-		letterQuad.textureCoordinates.x = 1f / Constants.UI.Text.LETTERS.length * textureOffset;
-		letterQuad.setTransparency(true);
+	public BitmapFont getFont()
+	{
+		return this.font;
+	}
 
-		this.sentenceQuads.add(letterQuad);
+	/*
+	 * Sets the width lines are wrapped at, 0 to not wrap lines.
+	 */
+	public void setMaxWidth(final float maxWidth)
+	{
+		if (maxWidth != this.maxWidth)
+		{
+			this.maxWidth = maxWidth;
+			this.dirty = true;
+		}
 	}
 
 	/*
-	 * Returns the index of a character in the char array constant.
+	 * Returns the style of the text, which can be changed at any time.
 	 */
-	private float getTextureOffsetForChar(final char charAt)
+	public TextStyle getStyle()
 	{
-		int i = 0;
+		return this.style;
+	}
 
-		for (i = 0; i < Constants.UI.Text.LETTERS.length; i++)
+	public void setAlignment(final Alignment alignment)
+	{
+		if (alignment != this.alignment)
 		{
-			if (Constants.UI.Text.LETTERS[i] == charAt)
-			{
-				break;
-			}
+			this.alignment = alignment;
+			this.dirty = true;
 		}
+	}
 
-		return i;
+	/*
+	 * Returns the width of the widest line of the text.
+	 */
+	public float getWidth()
+	{
+		this.updateLayout();
+
+		return this.layout.getWidth();
 	}
 
-	public String getSentence()
+	public float getHeight()
 	{
-		return this.sentence;
+		this.updateLayout();
+
+		return this.layout.getHeight();
 	}
 
 	/*
-	 * Goes through the whole list of quads and renders one at a time.
+	 * Submits the laid out glyph quads to the sprite batch page by page. With
+	 * a bitmap font the shadow of a page is drawn below its glyphs as a
+	 * second set of quads, with a distance field font the text shader draws
+	 * the effects of the style from one set.
 	 */
 	public void render()
 	{
-		this.material.setMaterial();
+		this.updateLayout();
 
-		try
+		final boolean distanceField = this.font.isDistanceField();
+
+		if (this.materials == null)
+		{
+			this.materials = new Material[this.font.getPageCount()];
+		}
+
+		if (distanceField)
 		{
-			for (final TextQuadModel letter : this.sentenceQuads)
+			DistanceFieldShader.get()
+					.begin(this.font, this.getScale(), this.style);
+		}
+
+		for (int page = 0; page < this.materials.length; page++)
+		{
+			if (this.materials[page] == null)
 			{
-				letter.position.x += this.position.x;
-				letter.position.y += this.position.y;
+				this.materials[page] = new Material(this.font.getPageTexture(page));
+
+				if (distanceField)
+				{
+					TextureLoader.setLinearFiltering(this.materials[page].getTexture(), true);
+				}
+			}
 
-				letter.render();
+			this.materials[page].setMaterial();
 
-				letter.position.x -= this.position.x;
-				letter.position.y -= this.position.y;
+			if (!distanceField && this.style.hasShadow())
+			{
+				this.renderPage(page, this.style.shadowOffsetX, this.style.shadowOffsetY, this.style.shadowColor);
 			}
-		} catch (final Exception e)
+			this.renderPage(page, 0, 0, this.color);
+		}
+
+		if (distanceField)
 		{
-			System.err.println(e.getMessage());
+			DistanceFieldShader.get()
+					.end();
 		}
+	}
 
-		this.material.disable();
+	private void renderPage(final int page, final float offsetX, final float offsetY, final Color color)
+	{
+		final SpriteBatch batch = SpriteBatch.get();
+		final float[] quads = this.layout.getQuads();
+		final int end = this.layout.getQuadCount() * TextLayout.QUAD_STRIDE;
+		final float x = this.position.x + offsetX;
+		final float y = this.position.y + offsetY;
+
+		for (int i = 0; i < end; i += TextLayout.QUAD_STRIDE)
+		{
+			if (quads[i + 8] == page)
+			{
+				batch.draw(x + quads[i], y + quads[i + 1], x + quads[i + 2], y + quads[i + 3], quads[i + 4], quads[i + 5], quads[i + 6], quads[i + 7], color,
+						true);
+			}
+		}
 	}
 
+	/*
+	 * Releases the font textures. The text should not be rendered after being
+	 * released.
+	 */
+	public void release()
+	{
+		if (this.materials != null)
+		{
+			for (final Material material : this.materials)
+			{
+				if (material != null)
+				{
+					material.release();
+				}
+			}
+		}
+	}
+
+	/*
+	 * Returns the number of quads the text is drawn with, shadows included.
+	 */
 	public int length()
 	{
-		return this.sentenceQuads.size();
+		this.updateLayout();
+
+		return this.layout.getQuadCount() * (this.style.hasShadow() && !this.font.isDistanceField() ? 2 : 1);
 	}
 
 	public int getSize()
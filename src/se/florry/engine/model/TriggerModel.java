@@ -1,11 +1,9 @@
 package se.florry.engine.model;
 
-import java.util.TimerTask;
-
 import se.florry.engine.handler.TriggerHandler;
 
 /*
- * Class for holding information about a trigger.
+ * Class for holding information about a trigger. Also works as the handle of a scheduled trigger, for cancelling it.
  */
 public final class TriggerModel
 {
@@ -14,9 +12,10 @@ public final class TriggerModel
 	private final String name;
 	private final TriggerHandler handler;
 	private final boolean shouldOnlyTriggerOnce;
+	private final long period;
 
-	public int nextTimeToTrigger;
-	private TimerTask timerObject;
+	private long nextTimeToTrigger;
+	private int timerHandle;
 
 	public TriggerModel(final int framerate, final String name, final TriggerHandler handler, final boolean shouldOnlyTriggerOnce)
 	{
@@ -24,6 +23,8 @@ public final class TriggerModel
 		this.name = name;
 		this.handler = handler;
 		this.shouldOnlyTriggerOnce = shouldOnlyTriggerOnce;
+		this.period = 1000000L / this.framerate;
+		this.timerHandle = -1;
 	}
 
 	public TriggerModel(final int framerate, final String name, final TriggerHandler handler)
@@ -46,24 +47,44 @@ public final class TriggerModel
 		return this.handler;
 	}
 
-	public int getNextTimeToTrigger()
+	/*
+	 * Returns the time between two executions in microseconds.
+	 */
+	public long getPeriod()
+	{
+		return this.period;
+	}
+
+	/*
+	 * Returns the time of the next execution in microseconds.
+	 */
+	public long getNextTimeToTrigger()
 	{
 		return this.nextTimeToTrigger;
 	}
 
-	public void setNextTimeToTrigger(final int nextTimeToTrigger)
+	public void setNextTimeToTrigger(final long nextTimeToTrigger)
 	{
 		this.nextTimeToTrigger = nextTimeToTrigger;
 	}
 
-	public TimerTask getTimerObject()
+	/*
+	 * Returns the handle of the trigger in the timer wheel, or -1 when it is
+	 * not scheduled.
+	 */
+	public int getTimerHandle()
+	{
+		return this.timerHandle;
+	}
+
+	public void setTimerHandle(final int timerHandle)
 	{
-		return this.timerObject;
+		this.timerHandle = timerHandle;
 	}
 
-	public void setTimerObject(final TimerTask timerObject)
+	public boolean isScheduled()
 	{
-		this.timerObject = timerObject;
+		return this.timerHandle != -1;
 	}
 
 	public boolean shouldOnlyTriggerOnce()
@@ -0,0 +1,272 @@
+package se.florry.engine.render;
+
+import se.florry.engine.constants.Constants;
+
+/*
+ * A 2D camera looking at a point of the world, zoomed and rotated around it, projecting the world onto the display.
+ * The projection is resolution independent: at zoom 1 the camera shows a display sized part of the world whatever
+ * size the frame is rendered at or the window shows it at. The camera can be kept within bounds, and gives the
+ * rectangle of the world it shows for culling.
+ */
+public final class Camera
+{
+
+	// The point looked at, in the middle of the display.
+	private float x;
+	private float y;
+	private float zoom;
+	private float rotation;
+
+	private boolean bounded;
+	private float minX;
+	private float minY;
+	private float maxX;
+	private float maxY;
+
+	// The projection from the world to normalized device coordinates, x' = a * x + c * y + tx and y' = b * x + d * y + ty.
+	private boolean dirty;
+	private float a;
+	private float b;
+	private float c;
+	private float d;
+	private float tx;
+	private float ty;
+	// The half width and height of the rectangle of the world shown.
+	private float halfWidth;
+	private float halfHeight;
+
+	/*
+	 * Creates a camera showing the display sized part of the world from the
+	 * origin, as drawing without a camera does.
+	 */
+	public Camera()
+	{
+		this.x = Constants.Display.WIDTH / 2f;
+		this.y = Constants.Display.HEIGHT / 2f;
+		this.zoom = 1;
+		this.dirty = true;
+	}
+
+	/*
+	 * Moves the camera to look at a point, kept within the bounds.
+	 */
+	public void setPosition(final float x, final float y)
+	{
+		this.x = x;
+		this.y = y;
+		this.dirty = true;
+	}
+
+	public void move(final float x, final float y)
+	{
+		this.setPosition(this.x + x, this.y + y);
+	}
+
+	/*
+	 * @param zoom how many times larger the world is shown, 2 showing half as
+	 * much of it.
+	 */
+	public void setZoom(final float zoom)
+	{
+		if (zoom <= 0)
+		{
+			throw new IllegalArgumentException("Camera zoom has to be over 0, was " + zoom);
+		}
+
+		this.zoom = zoom;
+		this.dirty = true;
+	}
+
+	/*
+	 * @param rotation the rotation of the camera in radians, the world turning
+	 * the other way on the display.
+	 */
+	public void setRotation(final float rotation)
+	{
+		this.rotation = rotation;
+		this.dirty = true;
+	}
+
+	/*
+	 * Keeps the rectangle of the world shown within a rectangle, or centered
+	 * on it where it is smaller than what the camera shows.
+	 */
+	public void setBounds(final float x, final float y, final float width, final float height)
+	{
+		this.bounded = true;
+		this.minX = x;
+		this.minY = y;
+		this.maxX = x + width;
+		this.maxY = y + height;
+		this.dirty = true;
+	}
+
+	public void clearBounds()
+	{
+		this.bounded = false;
+		this.dirty = true;
+	}
+
+	private void update()
+	{
+		if (!this.dirty)
+		{
+			return;
+		}
+
+		this.dirty = false;
+
+		final float cos = (float) Math.cos(this.rotation);
+		final float sin = (float) Math.sin(this.rotation);
+		final float width = Constants.Display.WIDTH / this.zoom;
+		final float height = Constants.Display.HEIGHT / this.zoom;
+
+		this.halfWidth = (Math.abs(cos) * width + Math.abs(sin) * height) / 2;
+		this.halfHeight = (Math.abs(sin) * width + Math.abs(cos) * height) / 2;
+
+		if (this.bounded)
+		{
+			this.x = clamp(this.x, this.minX + this.halfWidth, this.maxX - this.halfWidth);
+			this.y = clamp(this.y, this.minY + this.halfHeight, this.maxY - this.halfHeight);
+		}
+
+		// Rotates the world around the point looked at by minus the rotation, then scales it so the display spans -1 to 1 with y down.
+		final float scaleX = 2 / width;
+		final float scaleY = -2 / height;
+
+		this.a = cos * scaleX;
+		this.b = -sin * scaleY;
+		this.c = sin * scaleX;
+		this.d = cos * scaleY;
+		this.tx = -(this.a * this.x + this.c * this.y);
+		this.ty = -(this.b * this.x + this.d * this.y);
+	}
+
+	private static float clamp(final float value, final float min, final float max)
+	{
+		if (min > max)
+		{
+			return (min + max) / 2;
+		}
+
+		return Math.max(min, Math.min(max, value));
+	}
+
+	/*
+	 * Writes the projection to a 4 by 4 matrix in column major order, as
+	 * loaded by glLoadMatrix.
+	 */
+	public void getMatrix(final float[] matrix)
+	{
+		this.update();
+
+		matrix[0] = this.a;
+		matrix[1] = this.b;
+		matrix[2] = 0;
+		matrix[3] = 0;
+		matrix[4] = this.c;
+		matrix[5] = this.d;
+		matrix[6] = 0;
+		matrix[7] = 0;
+		matrix[8] = 0;
+		matrix[9] = 0;
+		matrix[10] = 1;
+		matrix[11] = 0;
+		matrix[12] = this.tx;
+		matrix[13] = this.ty;
+		matrix[14] = 0;
+		matrix[15] = 1;
+	}
+
+	/*
+	 * Returns the x of a point of the world on the display, in pixels of a
+	 * display sized frame.
+	 */
+	public float toScreenX(final float x, final float y)
+	{
+		this.update();
+
+		return (this.a * x + this.c * y + this.tx + 1) * Constants.Display.WIDTH / 2;
+	}
+
+	/*
+	 * Returns the y of a point of the world on the display, in pixels of a
+	 * display sized frame.
+	 */
+	public float toScreenY(final float x, final float y)
+	{
+		this.update();
+
+		return (1 - (this.b * x + this.d * y + this.ty)) * Constants.Display.HEIGHT / 2;
+	}
+
+	/*
+	 * Returns the left edge of the rectangle of the world shown, enclosing
+	 * all of it when rotated.
+	 */
+	public float getVisibleX()
+	{
+		this.update();
+
+		return this.x - this.halfWidth;
+	}
+
+	public float getVisibleY()
+	{
+		this.update();
+
+		return this.y - this.halfHeight;
+	}
+
+	public float getVisibleWidth()
+	{
+		this.update();
+
+		return this.halfWidth * 2;
+	}
+
+	public float getVisibleHeight()
+	{
+		this.update();
+
+		return this.halfHeight * 2;
+	}
+
+	/*
+	 * Returns true if a rectangle of the world overlaps the rectangle shown.
+	 */
+	public boolean isVisible(final float x, final float y, final float width, final float height)
+	{
+		this.update();
+
+		return x < this.x + this.halfWidth && x + width > this.x - this.halfWidth && y < this.y + this.halfHeight && y + height > this.y - this.halfHeight;
+	}
+
+	/*
+	 * Returns the point looked at, kept within the bounds.
+	 */
+	public float getX()
+	{
+		this.update();
+
+		return this.x;
+	}
+
+	public float getY()
+	{
+		this.update();
+
+		return this.y;
+	}
+
+	public float getZoom()
+	{
+		return this.zoom;
+	}
+
+	public float getRotation()
+	{
+		return this.rotation;
+	}
+
+}
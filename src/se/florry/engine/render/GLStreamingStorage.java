@@ -0,0 +1,116 @@
+package se.florry.engine.render;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.lwjgl.opengl.GL;
+import org.lwjgl.opengl.GL15;
+import org.lwjgl.opengl.GL30;
+import org.lwjgl.opengl.GL32;
+import org.lwjgl.opengl.GL44;
+
+/*
+ * Streaming storage in an Open GL buffer object. With Open GL 4.4 the buffer gets immutable storage mapped
+ * persistently and coherently, so writes need no upload or flush, and fence syncs guard the regions. Otherwise the
+ * buffer is uploaded to and orphaned. Has to be created and used on the render thread.
+ */
+public final class GLStreamingStorage implements StreamingStorage
+{
+
+	private static final int MAP_FLAGS = GL30.GL_MAP_WRITE_BIT | GL44.GL_MAP_PERSISTENT_BIT | GL44.GL_MAP_COHERENT_BIT;
+	// How long to wait for a fence at a time, in nanoseconds.
+	private static final long WAIT_NANOS = 1000000;
+
+	private final int target;
+	private int buffer;
+	private int size;
+
+	/*
+	 * @param target the binding the buffer is used through, such as
+	 * GL_ARRAY_BUFFER.
+	 */
+	public GLStreamingStorage(final int target)
+	{
+		this.target = target;
+	}
+
+	@Override
+	public ByteBuffer create(final int size)
+	{
+		this.size = size;
+		this.buffer = GL15.glGenBuffers();
+		GL15.glBindBuffer(this.target, this.buffer);
+
+		ByteBuffer mapped = null;
+
+		if (GL.getCapabilities().OpenGL44)
+		{
+			GL44.glBufferStorage(this.target, size, MAP_FLAGS);
+			mapped = GL30.glMapBufferRange(this.target, 0, size, MAP_FLAGS);
+		} else
+		{
+			GL15.glBufferData(this.target, size, GL15.GL_STREAM_DRAW);
+		}
+
+		GL15.glBindBuffer(this.target, 0);
+
+		return mapped != null ? mapped.order(ByteOrder.nativeOrder()) : null;
+	}
+
+	@Override
+	public void upload(final int offset, final ByteBuffer data)
+	{
+		GL15.glBindBuffer(this.target, this.buffer);
+		GL15.glBufferSubData(this.target, offset, data);
+		GL15.glBindBuffer(this.target, 0);
+	}
+
+	@Override
+	public void orphan()
+	{
+		GL15.glBindBuffer(this.target, this.buffer);
+		GL15.glBufferData(this.target, this.size, GL15.GL_STREAM_DRAW);
+		GL15.glBindBuffer(this.target, 0);
+	}
+
+	@Override
+	public long fence()
+	{
+		return GL32.glFenceSync(GL32.GL_SYNC_GPU_COMMANDS_COMPLETE, 0);
+	}
+
+	@Override
+	public boolean isSignaled(final long fence)
+	{
+		final int status = GL32.glClientWaitSync(fence, 0, 0);
+
+		return status == GL32.GL_ALREADY_SIGNALED || status == GL32.GL_CONDITION_SATISFIED;
+	}
+
+	@Override
+	public void waitFor(final long fence)
+	{
+		// Flushes the commands on the first wait, or the fence may never be reached.
+		int flags = GL32.GL_SYNC_FLUSH_COMMANDS_BIT;
+
+		while (GL32.glClientWaitSync(fence, flags, WAIT_NANOS) == GL32.GL_TIMEOUT_EXPIRED)
+		{
+			flags = 0;
+		}
+	}
+
+	@Override
+	public void deleteFence(final long fence)
+	{
+		GL32.glDeleteSync(fence);
+	}
+
+	/*
+	 * Returns the id of the buffer object.
+	 */
+	public int getBuffer()
+	{
+		return this.buffer;
+	}
+
+}
@@ -0,0 +1,116 @@
+package se.florry.engine.render;
+
+import org.lwjgl.opengl.GL;
+import org.lwjgl.opengl.GL15;
+import org.lwjgl.opengl.GL33;
+
+import se.florry.engine.constants.Constants;
+
+/*
+ * Times how long the GPU takes to draw each frame with timer queries. The queries are only read once the GPU has
+ * answered them, a few frames after the frame they time, so timing never makes the CPU wait for the GPU. Needs Open
+ * GL 3.3 or timer queries, and has to be used on the render thread.
+ */
+public final class GpuFrameTimer
+{
+
+	private final boolean supported;
+	private final int[] queries;
+	// If each query has been issued and not yet read.
+	private final boolean[] pending;
+	private int current;
+	private boolean timing;
+	private long lastNanos;
+
+	public GpuFrameTimer()
+	{
+		this.supported = GL.getCapabilities().OpenGL33 || GL.getCapabilities().GL_ARB_timer_query;
+		this.queries = new int[Constants.Render.GPU_TIMER_QUERIES];
+		this.pending = new boolean[this.queries.length];
+		this.lastNanos = -1;
+
+		if (this.supported)
+		{
+			for (int i = 0; i < this.queries.length; i++)
+			{
+				this.queries[i] = GL15.glGenQueries();
+			}
+		}
+	}
+
+	/*
+	 * Starts timing a frame, unless the GPU is so far behind that every query
+	 * is still waiting for an answer.
+	 */
+	public void begin()
+	{
+		if (!this.supported)
+		{
+			return;
+		}
+
+		this.read();
+
+		if (!this.pending[this.current])
+		{
+			GL15.glBeginQuery(GL33.GL_TIME_ELAPSED, this.queries[this.current]);
+			this.timing = true;
+		}
+	}
+
+	/*
+	 * Ends timing the frame.
+	 */
+	public void end()
+	{
+		if (!this.timing)
+		{
+			return;
+		}
+
+		GL15.glEndQuery(GL33.GL_TIME_ELAPSED);
+		this.pending[this.current] = true;
+		this.current = (this.current + 1) % this.queries.length;
+		this.timing = false;
+	}
+
+	/*
+	 * Reads the answered queries, from the oldest, keeping the time of the
+	 * latest frame answered.
+	 */
+	private void read()
+	{
+		for (int i = 0; i < this.queries.length; i++)
+		{
+			final int query = (this.current + i) % this.queries.length;
+
+			if (!this.pending[query])
+			{
+				continue;
+			}
+
+			if (GL15.glGetQueryObjecti(this.queries[query], GL15.GL_QUERY_RESULT_AVAILABLE) == 0)
+			{
+				return;
+			}
+
+			this.lastNanos = GL33.glGetQueryObjecti64(this.queries[query], GL15.GL_QUERY_RESULT);
+			this.pending[query] = false;
+		}
+	}
+
+	public boolean isSupported()
+	{
+		return this.supported;
+	}
+
+	/*
+	 * Returns the GPU time of the latest frame answered in nanoseconds, or -1
+	 * if no frame has been timed.
+	 */
+	public long getLastNanos()
+	{
+		return this.lastNanos;
+	}
+
+}
@@ -0,0 +1,409 @@
+package se.florry.engine.render;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import se.florry.engine.constants.Constants;
+import se.florry.engine.model.Color;
+import se.florry.engine.texture.TextureImage;
+
+/*
+ * Render backend drawing nothing, for running the engine without a display or a GPU, on build agents and simulation
+ * servers. Counts what would have been sent to the GPU every frame: draw calls, state changes, vertices and texture
+ * uploads, so performance regressions in batching show up in headless runs. Draws render layers depth tested like the
+ * Open GL renderer and counts the draws, quads and pixels shaded of every layer, with the pixels hidden by opaque
+ * quads in front estimated in cells of a few pixels.
+ */
+public final class HeadlessRenderBackend implements RenderBackend
+{
+
+	// Width and height in pixels of the cells pixels hidden by opaque quads are estimated in.
+	private static final int CELL_SIZE = 8;
+	private static final int CELL_COLUMNS = (Constants.Display.WIDTH + CELL_SIZE - 1) / CELL_SIZE;
+	private static final int CELL_ROWS = (Constants.Display.HEIGHT + CELL_SIZE - 1) / CELL_SIZE;
+
+	private int nextTexture;
+	private int texture;
+	private boolean blend;
+	private ShaderProgram program;
+
+	private int drawCalls;
+	private int stateChanges;
+	private int vertices;
+	private int textureUploads;
+	private long uploadedBytes;
+
+	private int frames;
+	private int drawCallsLastFrame;
+	private int stateChangesLastFrame;
+	private int verticesLastFrame;
+	private int textureUploadsLastFrame;
+	private long uploadedBytesLastFrame;
+	private long totalDrawCalls;
+	private long totalVertices;
+	private int liveTextures;
+
+	private RenderLayer layer;
+	// The depth of the frontmost opaque quad covering each cell, 1 where none does.
+	private final float[] occluders;
+	private long fragments;
+	private long fragmentsLastFrame;
+	// Per layer by rank: draw calls, quads, pixels shaded and pixels hidden by the depth test.
+	private int[][] layerCounts;
+	private long[][] layerFragments;
+	private int[][] layerCountsLastFrame;
+	private long[][] layerFragmentsLastFrame;
+
+	public HeadlessRenderBackend()
+	{
+		this.nextTexture = 1;
+		this.occluders = new float[CELL_COLUMNS * CELL_ROWS];
+		this.layerCounts = new int[0][];
+		this.layerFragments = new long[0][];
+		this.layerCountsLastFrame = new int[0][];
+		this.layerFragmentsLastFrame = new long[0][];
+	}
+
+	@Override
+	public void init()
+	{
+		SpriteBatch.get()
+				.setHandler(this::drawBatch);
+	}
+
+	@Override
+	public void prepare()
+	{
+		Arrays.fill(this.occluders, 1);
+		SpriteBatch.get()
+				.begin();
+	}
+
+	@Override
+	public void setLayer(final RenderLayer layer)
+	{
+		this.layer = layer;
+
+		if (layer != null && layer.getRank() >= this.layerCounts.length)
+		{
+			final int ranks = layer.getRank() + 1;
+
+			this.layerCounts = Arrays.copyOf(this.layerCounts, ranks);
+			this.layerFragments = Arrays.copyOf(this.layerFragments, ranks);
+			this.layerCountsLastFrame = Arrays.copyOf(this.layerCountsLastFrame, ranks);
+			this.layerFragmentsLastFrame = Arrays.copyOf(this.layerFragmentsLastFrame, ranks);
+
+			for (int rank = 0; rank < ranks; rank++)
+			{
+				if (this.layerCounts[rank] == null)
+				{
+					this.layerCounts[rank] = new int[2];
+					this.layerFragments[rank] = new long[2];
+					this.layerCountsLastFrame[rank] = new int[2];
+					this.layerFragmentsLastFrame[rank] = new long[2];
+				}
+			}
+		}
+	}
+
+	@Override
+	public boolean hasDepthTest()
+	{
+		return true;
+	}
+
+	@Override
+	public void drawBatch(final ByteBuffer vertices, final int vertexCount, final int texture, final boolean blend, final ShaderProgram program)
+	{
+		if (texture != this.texture)
+		{
+			this.texture = texture;
+			this.stateChanges++;
+		}
+
+		if (blend != this.blend)
+		{
+			this.blend = blend;
+			this.stateChanges++;
+		}
+
+		if (program != this.program)
+		{
+			this.program = program;
+			this.stateChanges++;
+		}
+
+		this.drawCalls++;
+		this.vertices += vertexCount;
+
+		if (this.layer != null)
+		{
+			this.layerCounts[this.layer.getRank()][0]++;
+			this.layerCounts[this.layer.getRank()][1] += vertexCount / SpriteBatch.VERTICES_PER_QUAD;
+		}
+
+		for (int quad = 0; quad < vertexCount / SpriteBatch.VERTICES_PER_QUAD; quad++)
+		{
+			this.shade(vertices, vertices.position() + quad * SpriteBatch.VERTICES_PER_QUAD * SpriteBatch.VERTEX_SIZE);
+		}
+	}
+
+	/*
+	 * Counts the pixels a quad covers on the display, by its bounding box.
+	 * In a layer, pixels in cells covered by an opaque quad in front are
+	 * counted as hidden instead, and the upright quads of an opaque layer
+	 * cover the cells they fill at their depth.
+	 */
+	private void shade(final ByteBuffer vertices, final int quad)
+	{
+		// The corners are top left, top right, bottom right and bottom left.
+		final float x0 = vertices.getFloat(quad + SpriteBatch.POSITION_OFFSET);
+		final float y0 = vertices.getFloat(quad + SpriteBatch.POSITION_OFFSET + 4);
+		final float x1 = vertices.getFloat(quad + SpriteBatch.VERTEX_SIZE + SpriteBatch.POSITION_OFFSET);
+		final float y1 = vertices.getFloat(quad + SpriteBatch.VERTEX_SIZE + SpriteBatch.POSITION_OFFSET + 4);
+		final float x2 = vertices.getFloat(quad + SpriteBatch.VERTEX_SIZE * 2 + SpriteBatch.POSITION_OFFSET);
+		final float y2 = vertices.getFloat(quad + SpriteBatch.VERTEX_SIZE * 2 + SpriteBatch.POSITION_OFFSET + 4);
+		final float x3 = vertices.getFloat(quad + SpriteBatch.VERTEX_SIZE * 3 + SpriteBatch.POSITION_OFFSET);
+		final float y3 = vertices.getFloat(quad + SpriteBatch.VERTEX_SIZE * 3 + SpriteBatch.POSITION_OFFSET + 4);
+		final RenderLayer layer = this.layer;
+		// The corners on the display, projected through the camera of the layer.
+		final Camera camera = layer != null ? layer.getCamera() : null;
+		final float screenX0 = camera != null ? camera.toScreenX(x0, y0) : x0;
+		final float screenY0 = camera != null ? camera.toScreenY(x0, y0) : y0;
+		final float screenX1 = camera != null ? camera.toScreenX(x1, y1) : x1;
+		final float screenY1 = camera != null ? camera.toScreenY(x1, y1) : y1;
+		final float screenX2 = camera != null ? camera.toScreenX(x2, y2) : x2;
+		final float screenY2 = camera != null ? camera.toScreenY(x2, y2) : y2;
+		final float screenX3 = camera != null ? camera.toScreenX(x3, y3) : x3;
+		final float screenY3 = camera != null ? camera.toScreenY(x3, y3) : y3;
+		final float left = Math.max(0, Math.min(Math.min(screenX0, screenX1), Math.min(screenX2, screenX3)));
+		final float top = Math.max(0, Math.min(Math.min(screenY0, screenY1), Math.min(screenY2, screenY3)));
+		final float right = Math.min(Constants.Display.WIDTH, Math.max(Math.max(screenX0, screenX1), Math.max(screenX2, screenX3)));
+		final float bottom = Math.min(Constants.Display.HEIGHT, Math.max(Math.max(screenY0, screenY1), Math.max(screenY2, screenY3)));
+
+		if (right <= left || bottom <= top)
+		{
+			return;
+		}
+
+		if (layer == null)
+		{
+			this.fragments += (long) ((right - left) * (bottom - top));
+			return;
+		}
+
+		// The depth in the depth range of the layer, as the depth test sees it.
+		final float depth = layer.getNearDepth() + (layer.getFarDepth() - layer.getNearDepth()) * (vertices.getFloat(quad + SpriteBatch.POSITION_OFFSET + 8) + 1)
+				/ 2;
+		// Upright quads, allowing for the rounding of the projection.
+		final boolean covers = layer.isOpaque() && Math.abs(screenY0 - screenY1) < 0.01f && Math.abs(screenX1 - screenX2) < 0.01f
+				&& Math.abs(screenY2 - screenY3) < 0.01f && Math.abs(screenX3 - screenX0) < 0.01f;
+		float shaded = 0;
+		float hidden = 0;
+
+		for (int row = (int) top / CELL_SIZE; row * CELL_SIZE < bottom; row++)
+		{
+			final float cellTop = row * CELL_SIZE;
+			final float height = Math.min(bottom, cellTop + CELL_SIZE) - Math.max(top, cellTop);
+
+			for (int column = (int) left / CELL_SIZE; column * CELL_SIZE < right; column++)
+			{
+				final int cell = row * CELL_COLUMNS + column;
+				final float cellLeft = column * CELL_SIZE;
+				final float area = (Math.min(right, cellLeft + CELL_SIZE) - Math.max(left, cellLeft)) * height;
+
+				if (this.occluders[cell] < depth)
+				{
+					hidden += area;
+				} else
+				{
+					shaded += area;
+
+					if (covers && area > CELL_SIZE * CELL_SIZE - 0.01f)
+					{
+						this.occluders[cell] = depth;
+					}
+				}
+			}
+		}
+
+		this.fragments += (long) shaded;
+		this.layerFragments[layer.getRank()][0] += (long) shaded;
+		this.layerFragments[layer.getRank()][1] += (long) hidden;
+	}
+
+	@Override
+	public void present()
+	{
+		SpriteBatch.get()
+				.end();
+
+		this.drawCallsLastFrame = this.drawCalls;
+		this.stateChangesLastFrame = this.stateChanges;
+		this.verticesLastFrame = this.vertices;
+		this.textureUploadsLastFrame = this.textureUploads;
+		this.uploadedBytesLastFrame = this.uploadedBytes;
+		this.fragmentsLastFrame = this.fragments;
+		this.totalDrawCalls += this.drawCalls;
+		this.totalVertices += this.vertices;
+		this.frames++;
+
+		this.drawCalls = 0;
+		this.stateChanges = 0;
+		this.vertices = 0;
+		this.textureUploads = 0;
+		this.uploadedBytes = 0;
+		this.fragments = 0;
+
+		for (int rank = 0; rank < this.layerCounts.length; rank++)
+		{
+			System.arraycopy(this.layerCounts[rank], 0, this.layerCountsLastFrame[rank], 0, 2);
+			System.arraycopy(this.layerFragments[rank], 0, this.layerFragmentsLastFrame[rank], 0, 2);
+			Arrays.fill(this.layerCounts[rank], 0);
+			Arrays.fill(this.layerFragments[rank], 0);
+		}
+	}
+
+	@Override
+	public int uploadTexture(final TextureImage image)
+	{
+		this.textureUploads++;
+		this.uploadedBytes += image.getByteSize();
+		this.liveTextures++;
+
+		return this.nextTexture++;
+	}
+
+	@Override
+	public void deleteTexture(final int texture)
+	{
+		this.liveTextures--;
+	}
+
+	@Override
+	public void setLinearFiltering(final int texture, final boolean linear)
+	{
+	}
+
+	@Override
+	public void setBackgroundColor(final Color color)
+	{
+	}
+
+	@Override
+	public boolean hasShaders()
+	{
+		return false;
+	}
+
+	/*
+	 * Returns the number of frames presented.
+	 */
+	public int getFrames()
+	{
+		return this.frames;
+	}
+
+	/*
+	 * Returns the number of draw calls of the last presented frame.
+	 */
+	public int getDrawCalls()
+	{
+		return this.drawCallsLastFrame;
+	}
+
+	/*
+	 * Returns the number of texture, blend and shader program changes of the
+	 * last presented frame.
+	 */
+	public int getStateChanges()
+	{
+		return this.stateChangesLastFrame;
+	}
+
+	/*
+	 * Returns the number of vertices drawn during the last presented frame.
+	 */
+	public int getVertices()
+	{
+		return this.verticesLastFrame;
+	}
+
+	/*
+	 * Returns the number of textures uploaded during the last presented frame.
+	 */
+	public int getTextureUploads()
+	{
+		return this.textureUploadsLastFrame;
+	}
+
+	public long getUploadedBytes()
+	{
+		return this.uploadedBytesLastFrame;
+	}
+
+	public long getTotalDrawCalls()
+	{
+		return this.totalDrawCalls;
+	}
+
+	public long getTotalVertices()
+	{
+		return this.totalVertices;
+	}
+
+	/*
+	 * Returns the pixels shaded during the last presented frame per pixel of
+	 * the display, 1 meaning every pixel was shaded once.
+	 */
+	public float getOverdraw()
+	{
+		return (float) this.fragmentsLastFrame / (Constants.Display.WIDTH * Constants.Display.HEIGHT);
+	}
+
+	/*
+	 * Returns the draw calls of a layer during the last presented frame.
+	 */
+	public int getDrawCalls(final RenderLayer layer)
+	{
+		return layer.getRank() < this.layerCountsLastFrame.length ? this.layerCountsLastFrame[layer.getRank()][0] : 0;
+	}
+
+	/*
+	 * Returns the quads of a layer drawn during the last presented frame.
+	 */
+	public int getQuads(final RenderLayer layer)
+	{
+		return layer.getRank() < this.layerCountsLastFrame.length ? this.layerCountsLastFrame[layer.getRank()][1] : 0;
+	}
+
+	/*
+	 * Returns the pixels of a layer shaded during the last presented frame
+	 * per pixel of the display.
+	 */
+	public float getOverdraw(final RenderLayer layer)
+	{
+		return layer.getRank() < this.layerFragmentsLastFrame.length ? (float) this.layerFragmentsLastFrame[layer.getRank()][0]
+				/ (Constants.Display.WIDTH * Constants.Display.HEIGHT) : 0;
+	}
+
+	/*
+	 * Returns the pixels of a layer hidden by the depth test during the last
+	 * presented frame per pixel of the display, the overdraw saved by drawing
+	 * opaque layers and their quads front to back.
+	 */
+	public float getHiddenOverdraw(final RenderLayer layer)
+	{
+		return layer.getRank() < this.layerFragmentsLastFrame.length ? (float) this.layerFragmentsLastFrame[layer.getRank()][1]
+				/ (Constants.Display.WIDTH * Constants.Display.HEIGHT) : 0;
+	}
+
+	/*
+	 * Returns the number of uploaded textures not deleted.
+	 */
+	public int getLiveTextures()
+	{
+		return this.liveTextures;
+	}
+
+}
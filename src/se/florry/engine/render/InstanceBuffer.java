@@ -0,0 +1,146 @@
+package se.florry.engine.render;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import se.florry.engine.handler.InstanceHandler;
+
+/*
+ * Packs the quads of the sprite batch into one instance per sprite for instanced drawing: the top left corner, the
+ * edges from it to the top right and the bottom left corner (the size, for a quad that is not rotated), the depth, the
+ * texture rectangle and the packed color, 48 bytes instead of the 96 of four vertices. Consecutive batches with the same
+ * texture and blend state are merged, so the sprites of a texture page are drawn with one draw call even when the
+ * sprite batch flushed them in several batches. Needs no Open GL context.
+ */
+public final class InstanceBuffer
+{
+
+	/*
+	 * Bytes per instance: the corner with its depth, the two edges and the
+	 * texture rectangle as floats followed by r, g, b and a as unsigned
+	 * bytes.
+	 */
+	public static final int INSTANCE_SIZE = 48;
+	public static final int POSITION_OFFSET = 0;
+	public static final int X_EDGE_OFFSET = 12;
+	public static final int Y_EDGE_OFFSET = 20;
+	public static final int TEXTURE_RECT_OFFSET = 28;
+	public static final int COLOR_OFFSET = 44;
+
+	private ByteBuffer instances;
+	private InstanceHandler handler;
+	private int instanceCount;
+	private int texture;
+	private boolean blend;
+
+	/*
+	 * @param capacity the number of instances held before the buffer grows.
+	 *
+	 * @param handler the handler drawing the instances.
+	 */
+	public InstanceBuffer(final int capacity, final InstanceHandler handler)
+	{
+		this.instances = ByteBuffer.allocateDirect(capacity * INSTANCE_SIZE)
+				.order(ByteOrder.nativeOrder());
+		this.handler = handler;
+	}
+
+	public void setHandler(final InstanceHandler handler)
+	{
+		this.handler = handler;
+	}
+
+	/*
+	 * Packs a batch of quad vertices from the sprite batch, first drawing the
+	 * instances packed so far if they have another texture or blend state.
+	 */
+	public void add(final ByteBuffer vertices, final int vertexCount, final int texture, final boolean blend)
+	{
+		if (this.instanceCount > 0 && (texture != this.texture || blend != this.blend))
+		{
+			this.flush();
+		}
+
+		this.texture = texture;
+		this.blend = blend;
+
+		final int quads = vertexCount / SpriteBatch.VERTICES_PER_QUAD;
+
+		if ((this.instanceCount + quads) * INSTANCE_SIZE > this.instances.capacity())
+		{
+			this.grow((this.instanceCount + quads) * INSTANCE_SIZE);
+		}
+
+		final ByteBuffer instances = this.instances;
+		final int start = vertices.position();
+
+		for (int quad = 0; quad < quads; quad++)
+		{
+			// The corners are top left, top right, bottom right and bottom left.
+			final int topLeft = start + quad * SpriteBatch.VERTICES_PER_QUAD * SpriteBatch.VERTEX_SIZE;
+			final int topRight = topLeft + SpriteBatch.VERTEX_SIZE;
+			final int bottomRight = topRight + SpriteBatch.VERTEX_SIZE;
+			final int bottomLeft = bottomRight + SpriteBatch.VERTEX_SIZE;
+			final float x = vertices.getFloat(topLeft + SpriteBatch.POSITION_OFFSET);
+			final float y = vertices.getFloat(topLeft + SpriteBatch.POSITION_OFFSET + 4);
+			final int instance = this.instanceCount++ * INSTANCE_SIZE;
+
+			instances.putFloat(instance + POSITION_OFFSET, x)
+					.putFloat(instance + POSITION_OFFSET + 4, y)
+					.putFloat(instance + POSITION_OFFSET + 8, vertices.getFloat(topLeft + SpriteBatch.POSITION_OFFSET + 8))
+					.putFloat(instance + X_EDGE_OFFSET, vertices.getFloat(topRight + SpriteBatch.POSITION_OFFSET) - x)
+					.putFloat(instance + X_EDGE_OFFSET + 4, vertices.getFloat(topRight + SpriteBatch.POSITION_OFFSET + 4) - y)
+					.putFloat(instance + Y_EDGE_OFFSET, vertices.getFloat(bottomLeft + SpriteBatch.POSITION_OFFSET) - x)
+					.putFloat(instance + Y_EDGE_OFFSET + 4, vertices.getFloat(bottomLeft + SpriteBatch.POSITION_OFFSET + 4) - y)
+					.putFloat(instance + TEXTURE_RECT_OFFSET, vertices.getFloat(topLeft + SpriteBatch.TEXTURE_COORDINATE_OFFSET))
+					.putFloat(instance + TEXTURE_RECT_OFFSET + 4, vertices.getFloat(topLeft + SpriteBatch.TEXTURE_COORDINATE_OFFSET + 4))
+					.putFloat(instance + TEXTURE_RECT_OFFSET + 8, vertices.getFloat(bottomRight + SpriteBatch.TEXTURE_COORDINATE_OFFSET))
+					.putFloat(instance + TEXTURE_RECT_OFFSET + 12, vertices.getFloat(bottomRight + SpriteBatch.TEXTURE_COORDINATE_OFFSET + 4))
+					// The color bytes are copied as they are, in r, g, b, a order.
+					.putInt(instance + COLOR_OFFSET, vertices.getInt(topLeft + SpriteBatch.COLOR_OFFSET));
+		}
+	}
+
+	/*
+	 * Hands the packed instances to the handler and empties the buffer.
+	 */
+	public void flush()
+	{
+		if (this.instanceCount == 0)
+		{
+			return;
+		}
+
+		this.instances.position(0);
+		this.instances.limit(this.instanceCount * INSTANCE_SIZE);
+
+		if (this.handler != null)
+		{
+			this.handler.draw(this.instances, this.instanceCount, this.texture, this.blend);
+		}
+
+		this.instances.clear();
+		this.instanceCount = 0;
+	}
+
+	private void grow(final int bytes)
+	{
+		final ByteBuffer instances = ByteBuffer.allocateDirect(Math.max(bytes, this.instances.capacity() * 2))
+				.order(ByteOrder.nativeOrder());
+
+		this.instances.position(0);
+		this.instances.limit(this.instanceCount * INSTANCE_SIZE);
+		instances.put(this.instances);
+		instances.clear();
+		this.instances = instances;
+	}
+
+	/*
+	 * Returns the number of instances waiting to be drawn.
+	 */
+	public int size()
+	{
+		return this.instanceCount;
+	}
+
+}
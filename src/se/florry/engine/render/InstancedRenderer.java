@@ -0,0 +1,331 @@
+package se.florry.engine.render;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+
+import org.lwjgl.BufferUtils;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL15;
+import org.lwjgl.opengl.GL20;
+import org.lwjgl.opengl.GL30;
+import org.lwjgl.opengl.GL31;
+import org.lwjgl.opengl.GL33;
+
+import se.florry.engine.constants.Constants;
+import se.florry.engine.model.Color;
+import se.florry.engine.texture.TextureImage;
+
+/*
+ * Renderer drawing sprites instanced instead of through the fixed function pipeline: a vertex array holding one unit
+ * quad and sprite instances streamed through the vertex stream of the wrapped renderer, drawn with
+ * glDrawArraysInstanced and a shader doing the texturing and coloring of the fixed function pipeline. Sprites are drawn with calls available in a core profile context only.
+ * Clearing, presenting and textures are left to the Open GL renderer it wraps, as are batches with a shader program of
+ * their own, such as distance field text, as those shaders are written for the fixed function vertex arrays.
+ */
+public final class InstancedRenderer implements RenderBackend
+{
+
+	private static final String VERTEX_SHADER = "#version 330 core\n"
+			+ "layout(location = 0) in vec2 corner;\n"
+			+ "layout(location = 1) in vec3 position;\n"
+			+ "layout(location = 2) in vec2 xEdge;\n"
+			+ "layout(location = 3) in vec2 yEdge;\n"
+			+ "layout(location = 4) in vec4 textureRect;\n"
+			+ "layout(location = 5) in vec4 color;\n"
+			+ "uniform vec3 projectionX;\n"
+			+ "uniform vec3 projectionY;\n"
+			+ "out vec2 textureCoordinate;\n"
+			+ "out vec4 vertexColor;\n"
+			+ "void main()\n"
+			+ "{\n"
+			+ "	vec2 point = position.xy + xEdge * corner.x + yEdge * corner.y;\n"
+			+ "	gl_Position = vec4(dot(projectionX, vec3(point, 1.0)), dot(projectionY, vec3(point, 1.0)), position.z, 1.0);\n"
+			+ "	textureCoordinate = mix(textureRect.xy, textureRect.zw, corner);\n"
+			+ "	vertexColor = color;\n"
+			+ "}\n";
+
+	private static final String FRAGMENT_SHADER = "#version 330 core\n"
+			+ "uniform sampler2D image;\n"
+			+ "uniform float textured;\n"
+			+ "in vec2 textureCoordinate;\n"
+			+ "in vec4 vertexColor;\n"
+			+ "out vec4 fragmentColor;\n"
+			+ "void main()\n"
+			+ "{\n"
+			+ "	fragmentColor = vertexColor * mix(vec4(1.0), texture(image, textureCoordinate), textured);\n"
+			+ "}\n";
+
+	// The attribute locations of the shader.
+	private static final int CORNER = 0;
+	private static final int POSITION = 1;
+	private static final int X_EDGE = 2;
+	private static final int Y_EDGE = 3;
+	private static final int TEXTURE_RECT = 4;
+	private static final int COLOR = 5;
+
+	private final Renderer renderer;
+	private final InstanceBuffer instances;
+	private ShaderProgram program;
+	private int vertexArray;
+	private float textured;
+	// The projection of quads drawn outside layers, and of the layer being drawn.
+	private final Camera screen;
+	private final float[] matrix;
+
+	private int drawCalls;
+	private int instanceCount;
+	private int drawCallsLastFrame;
+	private int instancesLastFrame;
+
+	/*
+	 * @param window the GLFW window with the Open GL context, presented to.
+	 */
+	public InstancedRenderer(final long window)
+	{
+		this.renderer = new Renderer(window);
+		this.instances = new InstanceBuffer(Constants.Render.BATCH_SIZE, this::drawInstances);
+		this.textured = -1;
+		this.screen = new Camera();
+		this.matrix = new float[16];
+	}
+
+	/*
+	 * Sets up the wrapped renderer, then the shader and vertex array. If the
+	 * shader does not compile, as without Open GL 3.3, everything is drawn by
+	 * the wrapped renderer instead.
+	 */
+	@Override
+	public void init()
+	{
+		this.renderer.init();
+		this.program = new ShaderProgram(VERTEX_SHADER, FRAGMENT_SHADER);
+
+		if (!this.program.isValid())
+		{
+			return;
+		}
+
+		this.setProjection(this.screen);
+		GL20.glUseProgram(0);
+
+		final FloatBuffer corners = BufferUtils.createFloatBuffer(8);
+		corners.put(new float[] { 0, 0, 1, 0, 0, 1, 1, 1 })
+				.flip();
+
+		this.vertexArray = GL30.glGenVertexArrays();
+		GL30.glBindVertexArray(this.vertexArray);
+
+		GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, GL15.glGenBuffers());
+		GL15.glBufferData(GL15.GL_ARRAY_BUFFER, corners, GL15.GL_STATIC_DRAW);
+		GL20.glEnableVertexAttribArray(CORNER);
+		GL20.glVertexAttribPointer(CORNER, 2, GL11.GL_FLOAT, false, 0, 0);
+
+		// The instance attributes are pointed into the stream of the wrapped renderer with every draw.
+		for (final int attribute : new int[] { POSITION, X_EDGE, Y_EDGE, TEXTURE_RECT, COLOR })
+		{
+			GL20.glEnableVertexAttribArray(attribute);
+			GL33.glVertexAttribDivisor(attribute, 1);
+		}
+
+		// The fixed function vertex arrays of the wrapped renderer need both unbound.
+		GL30.glBindVertexArray(0);
+		GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, 0);
+
+		SpriteBatch.get()
+				.setHandler(this::drawBatch);
+	}
+
+	private void setProjection(final Camera camera)
+	{
+		camera.getMatrix(this.matrix);
+		this.program.setUniform("projectionX", this.matrix[0], this.matrix[4], this.matrix[12]);
+		this.program.setUniform("projectionY", this.matrix[1], this.matrix[5], this.matrix[13]);
+	}
+
+	private static void instanceAttribute(final int location, final int size, final int type, final long offset)
+	{
+		GL20.glVertexAttribPointer(location, size, type, type == GL11.GL_UNSIGNED_BYTE, InstanceBuffer.INSTANCE_SIZE, offset);
+	}
+
+	@Override
+	public void prepare()
+	{
+		this.drawCalls = 0;
+		this.instanceCount = 0;
+		this.renderer.prepare();
+	}
+
+	/*
+	 * Packs a batch from the sprite batch into instances, drawn once the
+	 * texture or blend state changes. Batches with a shader program of their
+	 * own are drawn by the wrapped renderer.
+	 */
+	@Override
+	public void drawBatch(final ByteBuffer vertices, final int vertexCount, final int texture, final boolean blend, final ShaderProgram program)
+	{
+		if (program != null)
+		{
+			this.instances.flush();
+			this.renderer.drawBatch(vertices, vertexCount, texture, blend, program);
+			this.drawCalls++;
+			return;
+		}
+
+		this.instances.add(vertices, vertexCount, texture, blend);
+	}
+
+	private void drawInstances(final ByteBuffer instances, final int instanceCount, final int texture, final boolean blend)
+	{
+		GL11.glBindTexture(GL11.GL_TEXTURE_2D, texture);
+		GL20.glUseProgram(this.program.getId());
+		Renderer.setBlend(blend, this.renderer.getLayer());
+
+		// Without a texture the fixed function pipeline draws the color only.
+		final float textured = texture != 0 ? 1 : 0;
+
+		if (textured != this.textured)
+		{
+			this.textured = textured;
+			this.program.setUniform("textured", textured);
+		}
+
+		final StreamingBuffer stream = this.renderer.getStream();
+		// Instances fitting in a region of the stream, the most drawn at once.
+		final int perDraw = stream.getRegionSize() / InstanceBuffer.INSTANCE_SIZE;
+		final int limit = instances.limit();
+
+		GL30.glBindVertexArray(this.vertexArray);
+
+		for (int first = 0; first < instanceCount; first += perDraw)
+		{
+			final int count = Math.min(perDraw, instanceCount - first);
+
+			instances.limit((first + count) * InstanceBuffer.INSTANCE_SIZE);
+			instances.position(first * InstanceBuffer.INSTANCE_SIZE);
+			stream.reserve(count * InstanceBuffer.INSTANCE_SIZE)
+					.put(instances);
+
+			final long offset = stream.commit();
+
+			GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, this.renderer.getStreamBuffer());
+			instanceAttribute(POSITION, 3, GL11.GL_FLOAT, offset + InstanceBuffer.POSITION_OFFSET);
+			instanceAttribute(X_EDGE, 2, GL11.GL_FLOAT, offset + InstanceBuffer.X_EDGE_OFFSET);
+			instanceAttribute(Y_EDGE, 2, GL11.GL_FLOAT, offset + InstanceBuffer.Y_EDGE_OFFSET);
+			instanceAttribute(TEXTURE_RECT, 4, GL11.GL_FLOAT, offset + InstanceBuffer.TEXTURE_RECT_OFFSET);
+			instanceAttribute(COLOR, 4, GL11.GL_UNSIGNED_BYTE, offset + InstanceBuffer.COLOR_OFFSET);
+			GL31.glDrawArraysInstanced(GL11.GL_TRIANGLE_STRIP, 0, 4, count);
+
+			this.drawCalls++;
+		}
+
+		instances.limit(limit);
+		instances.position(0);
+		GL30.glBindVertexArray(0);
+		GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, 0);
+		GL20.glUseProgram(0);
+
+		this.instanceCount += instanceCount;
+	}
+
+	/*
+	 * Draws the instances of the previous layer before handing the layer to
+	 * the wrapped renderer, and projects through the camera of the layer.
+	 */
+	@Override
+	public void setLayer(final RenderLayer layer)
+	{
+		this.instances.flush();
+		this.renderer.setLayer(layer);
+
+		if (this.program.isValid())
+		{
+			this.setProjection(layer != null ? layer.getCamera() : this.screen);
+			GL20.glUseProgram(0);
+		}
+	}
+
+	@Override
+	public boolean hasDepthTest()
+	{
+		return true;
+	}
+
+	@Override
+	public void setRenderScale(final float scale)
+	{
+		this.renderer.setRenderScale(scale);
+	}
+
+	@Override
+	public float getRenderScale()
+	{
+		return this.renderer.getRenderScale();
+	}
+
+	@Override
+	public long getGpuFrameNanos()
+	{
+		return this.renderer.getGpuFrameNanos();
+	}
+
+	@Override
+	public void present()
+	{
+		SpriteBatch.get()
+				.end();
+		this.instances.flush();
+
+		this.drawCallsLastFrame = this.drawCalls;
+		this.instancesLastFrame = this.instanceCount;
+		this.renderer.present();
+	}
+
+	@Override
+	public int uploadTexture(final TextureImage image)
+	{
+		return this.renderer.uploadTexture(image);
+	}
+
+	@Override
+	public void deleteTexture(final int texture)
+	{
+		this.renderer.deleteTexture(texture);
+	}
+
+	@Override
+	public void setLinearFiltering(final int texture, final boolean linear)
+	{
+		this.renderer.setLinearFiltering(texture, linear);
+	}
+
+	@Override
+	public void setBackgroundColor(final Color color)
+	{
+		this.renderer.setBackgroundColor(color);
+	}
+
+	@Override
+	public boolean hasShaders()
+	{
+		return true;
+	}
+
+	/*
+	 * Returns the number of draw calls of the last presented frame, one per
+	 * texture page and blend state drawn in a row.
+	 */
+	public int getDrawCalls()
+	{
+		return this.drawCallsLastFrame;
+	}
+
+	/*
+	 * Returns the number of sprites drawn instanced during the last presented
+	 * frame.
+	 */
+	public int getInstances()
+	{
+		return this.instancesLastFrame;
+	}
+
+}
@@ -0,0 +1,113 @@
+package se.florry.engine.render;
+
+import java.nio.ByteBuffer;
+
+import se.florry.engine.handler.LayerHandler;
+import se.florry.engine.model.Color;
+import se.florry.engine.texture.TextureImage;
+
+/*
+ * Everything the engine needs from the graphics API: drawing the batches of the sprite batch, presenting frames and
+ * managing textures. The Open GL renderer draws to the display, the headless backend only counts what would have been
+ * drawn and the software backend draws into memory on the CPU, letting the engine loop run without a display or a GPU.
+ */
+public interface RenderBackend extends LayerHandler
+{
+
+	/*
+	 * Sets up the backend and makes it the drawing handler of the sprite
+	 * batch.
+	 */
+	void init();
+
+	/*
+	 * Starts a new frame.
+	 */
+	void prepare();
+
+	/*
+	 * Draws a batch of interleaved quad vertices from the sprite batch.
+	 */
+	void drawBatch(ByteBuffer vertices, int vertexCount, int texture, boolean blend, ShaderProgram program);
+
+	/*
+	 * Ends the frame, drawing what is left in the sprite batch and showing the
+	 * result.
+	 */
+	void present();
+
+	/*
+	 * Loads a decoded texture, returning the id of the texture.
+	 */
+	int uploadTexture(TextureImage image);
+
+	void deleteTexture(int texture);
+
+	/*
+	 * Switches a texture between nearest and linear filtering.
+	 */
+	void setLinearFiltering(int texture, boolean linear);
+
+	void setBackgroundColor(Color color);
+
+	/*
+	 * Returns false if shader programs can not be compiled, leaving them
+	 * invalid.
+	 */
+	boolean hasShaders();
+
+	/*
+	 * Sets the render layer the coming batches are drawn in, with its view,
+	 * blend mode and depth, or null to go back to drawing outside layers.
+	 * Backends without layer support draw every layer the same.
+	 */
+	@Override
+	default void setLayer(final RenderLayer layer)
+	{
+	}
+
+	/*
+	 * Returns true if layers are drawn depth tested, with the depth of every
+	 * quad, letting opaque layers and their quads be drawn front to back.
+	 * Otherwise every layer and quad is drawn back to front.
+	 */
+	default boolean hasDepthTest()
+	{
+		return false;
+	}
+
+	/*
+	 * Sets the scale of the display size frames are rendered at, letting
+	 * weaker machines render fewer pixels and scale the frame up. Backends
+	 * rendering at a fixed size ignore it.
+	 */
+	default void setRenderScale(final float scale)
+	{
+	}
+
+	/*
+	 * Returns the scale of the display size frames are rendered at.
+	 */
+	default float getRenderScale()
+	{
+		return 1;
+	}
+
+	/*
+	 * Returns the time the GPU took to draw the latest frame it has finished
+	 * in nanoseconds, or -1 if the backend can not time the GPU.
+	 */
+	default long getGpuFrameNanos()
+	{
+		return -1;
+	}
+
+	/*
+	 * Draws the batches recorded in a render snapshot.
+	 */
+	default void draw(final RenderSnapshot snapshot)
+	{
+		snapshot.replay(this);
+	}
+
+}
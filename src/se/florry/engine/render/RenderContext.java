@@ -0,0 +1,55 @@
+package se.florry.engine.render;
+
+/*
+ * Holds the render backend of the running engine, for the parts of the engine loading textures and shaders outside
+ * of the engine loop.
+ */
+public final class RenderContext
+{
+
+	private static RenderBackend backend;
+	// The thread the backend was set on, the one holding the Open GL context.
+	private static volatile Thread renderThread;
+
+	/*
+	 * Returns the render backend of the engine.
+	 */
+	public static RenderBackend get()
+	{
+		if (backend == null)
+		{
+			throw new IllegalStateException("Init engine before loading textures!");
+		}
+
+		return backend;
+	}
+
+	/*
+	 * Sets the render backend, making the calling thread the render thread.
+	 */
+	public static void set(final RenderBackend renderBackend)
+	{
+		backend = renderBackend;
+		renderThread = Thread.currentThread();
+	}
+
+	/*
+	 * Returns true on the render thread, the only thread that can create and
+	 * delete textures and shaders, or on any thread before a backend is set.
+	 */
+	public static boolean isRenderThread()
+	{
+		final Thread thread = renderThread;
+
+		return thread == null || thread == Thread.currentThread();
+	}
+
+	/*
+	 * Returns true once an engine has set its render backend.
+	 */
+	public static boolean isSet()
+	{
+		return backend != null;
+	}
+
+}
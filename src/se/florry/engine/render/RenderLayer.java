@@ -0,0 +1,134 @@
+package se.florry.engine.render;
+
+import se.florry.engine.constants.Constants;
+
+/*
+ * A named layer of the frame with an explicit z-order, higher layers drawn over lower ones whatever order their quads
+ * were submitted in. Quads are submitted to the render queue of the layer and drawn sorted when the layers are rendered
+ * at the end of the frame. Each layer has its own camera projecting it onto the display, so the world can scroll and
+ * zoom under a fixed HUD, and its own blend mode. Each layer also has its own slice of the depth range, which the
+ * depths of its quads are spread over. Opaque layers are drawn without blending and with depth testing, front to back
+ * and every quad at its own depth, so pixels covered by a layer or a quad in front are never shaded.
+ */
+public final class RenderLayer
+{
+
+	public enum BlendMode
+	{
+		// Drawn without blending, pixels with an alpha of zero discarded.
+		OPAQUE,
+		// Blended by alpha where the quads ask for it.
+		ALPHA,
+		// Added onto what is behind, scaled by alpha.
+		ADDITIVE
+	}
+
+	private final String name;
+	private final int z;
+	private final BlendMode blendMode;
+	private final RenderQueue queue;
+	private Camera camera;
+
+	// The place of the layer in z-order and the depth range it is drawn in, given by the layers it is added to.
+	private int rank;
+	private float nearDepth;
+	private float farDepth;
+
+	/*
+	 * @param z the z-order of the layer, higher layers drawn over lower ones.
+	 */
+	public RenderLayer(final String name, final int z, final BlendMode blendMode)
+	{
+		this.name = name;
+		this.z = z;
+		this.blendMode = blendMode;
+		this.queue = new RenderQueue(Constants.Render.BATCH_SIZE);
+		this.camera = new Camera();
+	}
+
+	/*
+	 * Sets the camera the layer is drawn through. Layers can share a camera.
+	 * By default each layer has a camera of its own showing the display sized
+	 * part of the world from the origin.
+	 */
+	public void setCamera(final Camera camera)
+	{
+		this.camera = camera;
+	}
+
+	public Camera getCamera()
+	{
+		return this.camera;
+	}
+
+	/*
+	 * Returns the queue quads of the layer are submitted to.
+	 */
+	public RenderQueue getQueue()
+	{
+		return this.queue;
+	}
+
+	public String getName()
+	{
+		return this.name;
+	}
+
+	public int getZ()
+	{
+		return this.z;
+	}
+
+	public BlendMode getBlendMode()
+	{
+		return this.blendMode;
+	}
+
+	public boolean isOpaque()
+	{
+		return this.blendMode == BlendMode.OPAQUE;
+	}
+
+	/*
+	 * Returns the place of the layer among the layers, 0 for the lowest.
+	 */
+	public int getRank()
+	{
+		return this.rank;
+	}
+
+	/*
+	 * Returns the depth the frontmost quads of the layer are drawn at, from 0
+	 * in front to 1 at the back.
+	 */
+	public float getNearDepth()
+	{
+		return this.nearDepth;
+	}
+
+	/*
+	 * Returns the depth the backmost quads of the layer are drawn at.
+	 */
+	public float getFarDepth()
+	{
+		return this.farDepth;
+	}
+
+	void setRank(final int rank, final int layerCount)
+	{
+		final float slice = 1f / layerCount;
+		// Between the slices of the layers, so quads of two layers never get the same depth.
+		final float gap = slice / 16;
+
+		this.rank = rank;
+		this.nearDepth = 1 - (rank + 1) * slice + gap;
+		this.farDepth = 1 - rank * slice - gap;
+	}
+
+	@Override
+	public String toString()
+	{
+		return this.name;
+	}
+
+}
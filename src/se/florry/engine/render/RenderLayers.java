@@ -0,0 +1,169 @@
+package se.florry.engine.render;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import se.florry.engine.handler.LayerHandler;
+import se.florry.engine.render.RenderLayer.BlendMode;
+
+/*
+ * The render layers of the engine in z-order. Renders the layers at the end of every frame, over the quads drawn
+ * straight to the sprite batch: opaque layers first, front to back, then the blended layers back to front, each
+ * drawn from its render queue. The quads of opaque layers are drawn by texture and front to back, their depth
+ * written and tested. Backends without depth testing get every layer and quad back to front instead.
+ */
+public final class RenderLayers
+{
+
+	private static final RenderLayers layers = new RenderLayers();
+
+	// The layers from the lowest z to the highest, layers with the same z in the order they were added.
+	private final List<RenderLayer> ordered;
+	// The order the layers are drawn in with and without depth testing.
+	private RenderLayer[] depthTestedPasses;
+	private RenderLayer[] paintedPasses;
+
+	public RenderLayers()
+	{
+		this.ordered = new ArrayList<>();
+		this.depthTestedPasses = new RenderLayer[0];
+		this.paintedPasses = new RenderLayer[0];
+	}
+
+	public static RenderLayers get()
+	{
+		return layers;
+	}
+
+	/*
+	 * Adds a layer, placed in z-order among the others.
+	 *
+	 * @throws IllegalArgumentException if there is a layer with the name.
+	 */
+	public RenderLayer add(final String name, final int z, final BlendMode blendMode)
+	{
+		if (this.get(name) != null)
+		{
+			throw new IllegalArgumentException("There is already a render layer named " + name);
+		}
+
+		final RenderLayer layer = new RenderLayer(name, z, blendMode);
+		int index = this.ordered.size();
+
+		while (index > 0 && this.ordered.get(index - 1)
+				.getZ() > z)
+		{
+			index--;
+		}
+
+		this.ordered.add(index, layer);
+		this.updatePasses();
+
+		return layer;
+	}
+
+	/*
+	 * Returns the layer with a name, or null if there is none.
+	 */
+	public RenderLayer get(final String name)
+	{
+		for (int i = 0; i < this.ordered.size(); i++)
+		{
+			if (this.ordered.get(i)
+					.getName()
+					.equals(name))
+			{
+				return this.ordered.get(i);
+			}
+		}
+
+		return null;
+	}
+
+	public void remove(final String name)
+	{
+		final RenderLayer layer = this.get(name);
+
+		if (layer != null)
+		{
+			this.ordered.remove(layer);
+			this.updatePasses();
+		}
+	}
+
+	private void updatePasses()
+	{
+		final int count = this.ordered.size();
+		int opaque = 0;
+
+		this.depthTestedPasses = new RenderLayer[count];
+		this.paintedPasses = new RenderLayer[count];
+
+		for (int i = 0; i < count; i++)
+		{
+			final RenderLayer layer = this.ordered.get(i);
+
+			layer.setRank(i, count);
+			this.paintedPasses[i] = layer;
+
+			if (layer.isOpaque())
+			{
+				opaque++;
+			}
+		}
+
+		int opaquePass = opaque - 1;
+		int blendedPass = opaque;
+
+		for (int i = 0; i < count; i++)
+		{
+			final RenderLayer layer = this.ordered.get(i);
+
+			if (layer.isOpaque())
+			{
+				this.depthTestedPasses[opaquePass--] = layer;
+			} else
+			{
+				this.depthTestedPasses[blendedPass++] = layer;
+			}
+		}
+	}
+
+	/*
+	 * Draws the queued quads of every layer through the batch, telling the
+	 * handler the layer before its quads and null once all layers are drawn,
+	 * and empties the queues.
+	 *
+	 * @param depthTested if the handler draws with depth testing, letting
+	 * opaque layers and their quads be drawn front to back.
+	 */
+	public void render(final SpriteBatch batch, final LayerHandler handler, final boolean depthTested)
+	{
+		final RenderLayer[] passes = depthTested ? this.depthTestedPasses : this.paintedPasses;
+
+		if (passes.length == 0)
+		{
+			return;
+		}
+
+		for (final RenderLayer layer : passes)
+		{
+			batch.flush();
+			handler.setLayer(layer);
+			layer.getQueue()
+					.execute(batch, depthTested && layer.isOpaque());
+		}
+
+		batch.flush();
+		handler.setLayer(null);
+	}
+
+	/*
+	 * Returns the layers from the lowest z to the highest.
+	 */
+	public List<RenderLayer> getLayers()
+	{
+		return this.ordered;
+	}
+
+}
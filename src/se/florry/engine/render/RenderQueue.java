@@ -0,0 +1,379 @@
+package se.florry.engine.render;
+
+import java.util.Arrays;
+
+import se.florry.engine.utils.EngineUtils;
+
+/*
+ * Collects the quads of a frame as commands, sorts them by a 64 bit key and draws them through a sprite batch, so
+ * quads sharing a texture and blend state are drawn together whatever order they were submitted in. A key holds, from
+ * the highest bits, the layer, the depth, the blend state and the texture. Quads are drawn back to front, lower layers
+ * and depths first, so they overlap in the order their layer and depth ask for, and quads at the same depth are
+ * grouped by blend state and texture. Every quad is also drawn at its own depth, spread over the depth range of the
+ * render layer, so with depth testing the quads of an opaque layer are instead ordered by blend state and texture
+ * first and front to back within a texture, the depth test keeping their z-order and rejecting pixels hidden by the
+ * quads drawn before. Quads with equal keys keep the order they were submitted in. The quads themselves are kept in
+ * primitive arrays, the sort only moving the keys and indices into them.
+ */
+public final class RenderQueue
+{
+
+	// Bits of the key from the lowest, the lowest 15 bits are left empty.
+	private static final int LOW_SHIFT = 15;
+	private static final int TEXTURE_BITS = 24;
+	private static final int BLEND_SHIFT = 39;
+	private static final int DEPTH_SHIFT = 40;
+	private static final int DEPTH_BITS = 16;
+	private static final int LAYER_SHIFT = 56;
+	// The blend state in the highest bit of depth tested keys, with the texture below it.
+	private static final int DEPTH_TESTED_BLEND_SHIFT = 63;
+	private static final int DEPTH_TESTED_TEXTURE_SHIFT = 39;
+	// The layer and depth as one number, the layer above the depth.
+	private static final int MAX_LAYER_DEPTH = (1 << 24) - 1;
+
+	public static final int MAX_LAYER = 255;
+	public static final int MAX_DEPTH = (1 << DEPTH_BITS) - 1;
+	public static final int MAX_TEXTURE = (1 << TEXTURE_BITS) - 1;
+
+	// The bits sorted per pass, eight passes covering the key.
+	private static final int RADIX_BITS = 8;
+	private static final int RADIX = 1 << RADIX_BITS;
+	private static final int PASSES = Long.SIZE / RADIX_BITS;
+
+	private float[] positions;
+	private float[] textureCoordinates;
+	private int[] colors;
+	private int[] textures;
+	private boolean[] blends;
+	private int[] layerDepths;
+
+	private long[] keys;
+	private int[] order;
+	private long[] sortedKeys;
+	private int[] sortedOrder;
+	private final int[] counts;
+
+	private int size;
+	// The state of the last submitted quad, counting the state changes of drawing in submission order.
+	private int submittedTexture;
+	private boolean submittedBlend;
+	private int submittedStateChanges;
+
+	private int stateChanges;
+	private int stateChangesAvoided;
+	private long sortNanos;
+
+	/*
+	 * @param capacity the number of quads held before the queue grows.
+	 */
+	public RenderQueue(final int capacity)
+	{
+		this.positions = new float[capacity * 4];
+		this.textureCoordinates = new float[capacity * 4];
+		this.colors = new int[capacity];
+		this.textures = new int[capacity];
+		this.blends = new boolean[capacity];
+		this.layerDepths = new int[capacity];
+		this.keys = new long[capacity];
+		this.order = new int[capacity];
+		this.sortedKeys = new long[capacity];
+		this.sortedOrder = new int[capacity];
+		this.counts = new int[PASSES * RADIX];
+		this.submittedTexture = -1;
+	}
+
+	/*
+	 * Returns the sort key of a quad.
+	 *
+	 * @param layer the layer, 0 to MAX_LAYER, lower layers drawn first.
+	 *
+	 * @param depth the depth within the layer, 0 to MAX_DEPTH, lower depths
+	 * drawn first.
+	 */
+	public static long key(final int layer, final int depth, final int texture, final boolean blend)
+	{
+		return (long) (layer & MAX_LAYER) << LAYER_SHIFT | (long) (depth & MAX_DEPTH) << DEPTH_SHIFT | (blend ? 1L << BLEND_SHIFT : 0)
+				| (long) (texture & MAX_TEXTURE) << LOW_SHIFT;
+	}
+
+	/*
+	 * Returns the sort key of a quad in an opaque layer drawn with depth
+	 * testing, ordered by blend state and texture, then front to back: higher
+	 * layers and depths first.
+	 */
+	public static long depthTestedKey(final int layer, final int depth, final int texture, final boolean blend)
+	{
+		return (blend ? 1L << DEPTH_TESTED_BLEND_SHIFT : 0) | (long) (texture & MAX_TEXTURE) << DEPTH_TESTED_TEXTURE_SHIFT
+				| (long) (MAX_LAYER_DEPTH - layerDepth(layer, depth)) << LOW_SHIFT;
+	}
+
+	private static int layerDepth(final int layer, final int depth)
+	{
+		return (layer & MAX_LAYER) << DEPTH_BITS | depth & MAX_DEPTH;
+	}
+
+	/*
+	 * Adds a quad to be drawn when the queue is executed. Takes the same
+	 * corners, texture coordinates and packed color as the sprite batch.
+	 */
+	public void submit(final int layer, final int depth, final int texture, final boolean blend, final float x0, final float y0, final float x1,
+			final float y1, final float u0, final float v0, final float u1, final float v1, final int color)
+	{
+		if (this.size == this.keys.length)
+		{
+			this.grow();
+		}
+
+		final int index = this.size++;
+		final int corner = index * 4;
+
+		this.positions[corner] = x0;
+		this.positions[corner + 1] = y0;
+		this.positions[corner + 2] = x1;
+		this.positions[corner + 3] = y1;
+		this.textureCoordinates[corner] = u0;
+		this.textureCoordinates[corner + 1] = v0;
+		this.textureCoordinates[corner + 2] = u1;
+		this.textureCoordinates[corner + 3] = v1;
+		this.colors[index] = color;
+		this.textures[index] = texture;
+		this.blends[index] = blend;
+		this.layerDepths[index] = layerDepth(layer, depth);
+		this.keys[index] = key(layer, depth, texture, blend);
+		this.order[index] = index;
+
+		if (texture != this.submittedTexture || blend != this.submittedBlend)
+		{
+			this.submittedTexture = texture;
+			this.submittedBlend = blend;
+			this.submittedStateChanges++;
+		}
+	}
+
+	/*
+	 * Sorts the queued quads back to front and draws them through the batch,
+	 * as by execute with depthTested false.
+	 */
+	public void execute(final SpriteBatch batch)
+	{
+		this.execute(batch, false);
+	}
+
+	/*
+	 * Sorts the queued quads and draws them through the batch, changing
+	 * texture and blend state only where it differs from the quad before, then
+	 * empties the queue. The depths of the quads are spread from the back to
+	 * the front of the depth range, keeping their order.
+	 *
+	 * @param depthTested if the quads are drawn in an opaque layer with depth
+	 * testing, which writes the depth of every quad and so keeps their z-order
+	 * whatever order they are drawn in.
+	 */
+	public void execute(final SpriteBatch batch, final boolean depthTested)
+	{
+		final long start = EngineUtils.getNanoTime();
+		int nearest = 0;
+		int farthest = MAX_LAYER_DEPTH;
+
+		for (int i = 0; i < this.size; i++)
+		{
+			nearest = Math.max(nearest, this.layerDepths[i]);
+			farthest = Math.min(farthest, this.layerDepths[i]);
+
+			if (depthTested)
+			{
+				final int layerDepth = this.layerDepths[i];
+
+				this.keys[i] = depthTestedKey(layerDepth >>> DEPTH_BITS, layerDepth & MAX_DEPTH, this.textures[i], this.blends[i]);
+			}
+		}
+
+		this.sort();
+		this.sortNanos = EngineUtils.getNanoTime() - start;
+
+		// From the depth range used, so as many depths as possible can be told apart.
+		final float depthScale = nearest > farthest ? 2f / (nearest - farthest) : 0;
+		int texture = -1;
+		boolean blend = false;
+		int stateChanges = 0;
+
+		for (int i = 0; i < this.size; i++)
+		{
+			final int index = this.order[i];
+			final int corner = index * 4;
+
+			if (this.textures[index] != texture || this.blends[index] != blend)
+			{
+				texture = this.textures[index];
+				blend = this.blends[index];
+				stateChanges++;
+				batch.setTexture(texture);
+			}
+
+			batch.setDepth(1 - (this.layerDepths[index] - farthest) * depthScale);
+			batch.draw(this.positions[corner],
+					this.positions[corner + 1],
+					this.positions[corner + 2],
+					this.positions[corner + 3],
+					this.textureCoordinates[corner],
+					this.textureCoordinates[corner + 1],
+					this.textureCoordinates[corner + 2],
+					this.textureCoordinates[corner + 3],
+					this.colors[index],
+					blend);
+		}
+
+		batch.setDepth(0);
+		this.stateChanges = stateChanges;
+		this.stateChangesAvoided = this.submittedStateChanges - stateChanges;
+		this.clear();
+	}
+
+	/*
+	 * Empties the queue without drawing it.
+	 */
+	public void clear()
+	{
+		this.size = 0;
+		this.submittedTexture = -1;
+		this.submittedBlend = false;
+		this.submittedStateChanges = 0;
+	}
+
+	/*
+	 * Stable least significant digit radix sort of the keys, moving the
+	 * indices along. The digits of every pass are counted in one go, and
+	 * passes where all keys have the same digit, such as the empty low bits,
+	 * are skipped.
+	 */
+	void sort()
+	{
+		final int size = this.size;
+		final int[] counts = this.counts;
+
+		if (size < 2)
+		{
+			return;
+		}
+
+		Arrays.fill(counts, 0);
+
+		for (int i = 0; i < size; i++)
+		{
+			final long key = this.keys[i];
+
+			for (int pass = 0; pass < PASSES; pass++)
+			{
+				counts[pass * RADIX + (int) (key >>> pass * RADIX_BITS & RADIX - 1)]++;
+			}
+		}
+
+		for (int pass = 0; pass < PASSES; pass++)
+		{
+			final int base = pass * RADIX;
+			final int shift = pass * RADIX_BITS;
+
+			if (counts[base + (int) (this.keys[0] >>> shift & RADIX - 1)] == size)
+			{
+				continue;
+			}
+
+			// The counts become the index each digit starts at.
+			int offset = 0;
+
+			for (int digit = 0; digit < RADIX; digit++)
+			{
+				final int count = counts[base + digit];
+
+				counts[base + digit] = offset;
+				offset += count;
+			}
+
+			final long[] keys = this.keys;
+			final int[] order = this.order;
+			final long[] sortedKeys = this.sortedKeys;
+			final int[] sortedOrder = this.sortedOrder;
+
+			for (int i = 0; i < size; i++)
+			{
+				final long key = keys[i];
+				final int target = counts[base + (int) (key >>> shift & RADIX - 1)]++;
+
+				sortedKeys[target] = key;
+				sortedOrder[target] = order[i];
+			}
+
+			this.keys = sortedKeys;
+			this.order = sortedOrder;
+			this.sortedKeys = keys;
+			this.sortedOrder = order;
+		}
+	}
+
+	private void grow()
+	{
+		final int capacity = Math.max(16, this.keys.length * 2);
+
+		this.positions = Arrays.copyOf(this.positions, capacity * 4);
+		this.textureCoordinates = Arrays.copyOf(this.textureCoordinates, capacity * 4);
+		this.colors = Arrays.copyOf(this.colors, capacity);
+		this.textures = Arrays.copyOf(this.textures, capacity);
+		this.blends = Arrays.copyOf(this.blends, capacity);
+		this.layerDepths = Arrays.copyOf(this.layerDepths, capacity);
+		this.keys = Arrays.copyOf(this.keys, capacity);
+		this.order = Arrays.copyOf(this.order, capacity);
+		this.sortedKeys = new long[capacity];
+		this.sortedOrder = new int[capacity];
+	}
+
+	/*
+	 * Returns the key at a position of the queue, in sorted order after a
+	 * sort.
+	 */
+	long getKey(final int index)
+	{
+		return this.keys[index];
+	}
+
+	/*
+	 * Returns the submission index of the quad at a position of the queue.
+	 */
+	int getOrder(final int index)
+	{
+		return this.order[index];
+	}
+
+	/*
+	 * Returns the number of quads waiting to be drawn.
+	 */
+	public int size()
+	{
+		return this.size;
+	}
+
+	/*
+	 * Returns the texture and blend state changes of the last execution.
+	 */
+	public int getStateChanges()
+	{
+		return this.stateChanges;
+	}
+
+	/*
+	 * Returns how many fewer state changes the last execution made than
+	 * drawing the quads in the order they were submitted would have.
+	 */
+	public int getStateChangesAvoided()
+	{
+		return this.stateChangesAvoided;
+	}
+
+	/*
+	 * Returns the time the sort of the last execution took in nanoseconds.
+	 */
+	public long getSortNanos()
+	{
+		return this.sortNanos;
+	}
+
+}
@@ -0,0 +1,238 @@
+package se.florry.engine.render;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+import se.florry.engine.handler.BatchHandler;
+import se.florry.engine.handler.LayerHandler;
+
+/*
+ * Everything drawn during one simulation step, recorded as the batches a sprite batch flushed: the vertices of every
+ * batch with the texture, blend state, shader program and render layer to draw them with. Recorded on the simulation thread and,
+ * once published, only read by the render thread, which replays the batches to Open GL. The buffers are reused
+ * between recordings and only grow.
+ */
+public final class RenderSnapshot
+{
+
+	private ByteBuffer[] vertices;
+	private int[] vertexCounts;
+	private int[] textures;
+	private boolean[] blends;
+	private ShaderProgram[] programs;
+	private RenderLayer[] layers;
+	private int batchCount;
+	private RenderLayer layer;
+
+	private long sequence;
+	private float alpha;
+
+	// Made once, as a method reference allocates every time it is evaluated.
+	private final BatchHandler recorder;
+	private final LayerHandler layerRecorder;
+
+	public RenderSnapshot()
+	{
+		this.vertices = new ByteBuffer[16];
+		this.vertexCounts = new int[16];
+		this.textures = new int[16];
+		this.blends = new boolean[16];
+		this.programs = new ShaderProgram[16];
+		this.layers = new RenderLayer[16];
+		this.recorder = this::record;
+		this.layerRecorder = this::recordLayer;
+	}
+
+	/*
+	 * Empties the snapshot before recording a new step.
+	 *
+	 * @param sequence the number of the simulation step recorded.
+	 *
+	 * @param alpha how far between the last two simulation steps the snapshot
+	 * is, from 0 to 1.
+	 */
+	public void clear(final long sequence, final float alpha)
+	{
+		for (int i = 0; i < this.batchCount; i++)
+		{
+			this.programs[i] = null;
+			this.layers[i] = null;
+		}
+
+		this.batchCount = 0;
+		this.layer = null;
+		this.sequence = sequence;
+		this.alpha = alpha;
+	}
+
+	/*
+	 * Copies a flushed batch into the snapshot. Used as the batch handler of
+	 * the sprite batch recording the snapshot.
+	 */
+	public void record(final ByteBuffer vertices, final int vertexCount, final int texture, final boolean blend, final ShaderProgram program)
+	{
+		if (this.batchCount == this.vertices.length)
+		{
+			final int capacity = this.batchCount * 2;
+
+			this.vertices = Arrays.copyOf(this.vertices, capacity);
+			this.vertexCounts = Arrays.copyOf(this.vertexCounts, capacity);
+			this.textures = Arrays.copyOf(this.textures, capacity);
+			this.blends = Arrays.copyOf(this.blends, capacity);
+			this.programs = Arrays.copyOf(this.programs, capacity);
+			this.layers = Arrays.copyOf(this.layers, capacity);
+		}
+
+		final int bytes = vertexCount * SpriteBatch.VERTEX_SIZE;
+		ByteBuffer copy = this.vertices[this.batchCount];
+
+		if (copy == null || copy.capacity() < bytes)
+		{
+			copy = ByteBuffer.allocateDirect(Math.max(bytes, copy != null ? copy.capacity() * 2 : 0))
+					.order(ByteOrder.nativeOrder());
+			this.vertices[this.batchCount] = copy;
+		}
+
+		final int position = vertices.position();
+		final int limit = vertices.limit();
+
+		copy.clear();
+		vertices.limit(position + bytes);
+		copy.put(vertices);
+		copy.flip();
+		vertices.limit(limit);
+		vertices.position(position);
+
+		this.vertexCounts[this.batchCount] = vertexCount;
+		this.textures[this.batchCount] = texture;
+		this.blends[this.batchCount] = blend;
+		this.programs[this.batchCount] = program;
+		this.layers[this.batchCount] = this.layer;
+		this.batchCount++;
+	}
+
+	/*
+	 * Records the render layer the batches recorded next are drawn in. Used
+	 * as the layer handler when rendering the layers into the snapshot.
+	 */
+	public void recordLayer(final RenderLayer layer)
+	{
+		this.layer = layer;
+	}
+
+	/*
+	 * Hands every recorded batch, in the order they were recorded, to a batch
+	 * handler.
+	 */
+	public void replay(final BatchHandler handler)
+	{
+		this.replay(handler, null);
+	}
+
+	/*
+	 * Hands every recorded batch to a batch handler, telling the layer handler
+	 * whenever the batches move to another render layer. The layer handler
+	 * can be null.
+	 */
+	public void replay(final BatchHandler handler, final LayerHandler layerHandler)
+	{
+		RenderLayer layer = null;
+
+		for (int i = 0; i < this.batchCount; i++)
+		{
+			if (layerHandler != null && this.layers[i] != layer)
+			{
+				layer = this.layers[i];
+				layerHandler.setLayer(layer);
+			}
+
+			this.vertices[i].position(0);
+			handler.flush(this.vertices[i], this.vertexCounts[i], this.textures[i], this.blends[i], this.programs[i]);
+		}
+
+		if (layer != null)
+		{
+			layerHandler.setLayer(null);
+		}
+	}
+
+	/*
+	 * Draws every recorded batch with a render backend, setting its render
+	 * layer whenever the batches move to another layer.
+	 */
+	public void replay(final RenderBackend backend)
+	{
+		RenderLayer layer = null;
+
+		for (int i = 0; i < this.batchCount; i++)
+		{
+			if (this.layers[i] != layer)
+			{
+				layer = this.layers[i];
+				backend.setLayer(layer);
+			}
+
+			this.vertices[i].position(0);
+			backend.drawBatch(this.vertices[i], this.vertexCounts[i], this.textures[i], this.blends[i], this.programs[i]);
+		}
+
+		if (layer != null)
+		{
+			backend.setLayer(null);
+		}
+	}
+
+	/*
+	 * Returns record as a batch handler, for the sprite batch recording the
+	 * snapshot.
+	 */
+	public BatchHandler getRecorder()
+	{
+		return this.recorder;
+	}
+
+	/*
+	 * Returns recordLayer as a layer handler, for rendering the layers into
+	 * the snapshot.
+	 */
+	public LayerHandler getLayerRecorder()
+	{
+		return this.layerRecorder;
+	}
+
+	/*
+	 * Returns the vertices of a recorded batch, positioned at the first
+	 * vertex.
+	 */
+	public ByteBuffer getVertices(final int batch)
+	{
+		this.vertices[batch].position(0);
+
+		return this.vertices[batch];
+	}
+
+	public int getVertexCount(final int batch)
+	{
+		return this.vertexCounts[batch];
+	}
+
+	public int getBatchCount()
+	{
+		return this.batchCount;
+	}
+
+	/*
+	 * Returns the number of the simulation step recorded.
+	 */
+	public long getSequence()
+	{
+		return this.sequence;
+	}
+
+	public float getAlpha()
+	{
+		return this.alpha;
+	}
+
+}
@@ -7,33 +7,71 @@ import static org.lwjgl.opengl.GL11.GL_DEPTH_BUFFER_BIT;
 import static org.lwjgl.opengl.GL11.glClear;
 import static org.lwjgl.opengl.GL11.glClearColor;
 
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+
+import org.lwjgl.BufferUtils;
+import org.lwjgl.glfw.GLFW;
+
 import org.lwjgl.opengl.GL;
 import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL14;
+import org.lwjgl.opengl.GL15;
 import org.lwjgl.opengl.GL20;
 import org.lwjgl.opengl.GL30;
 
 import se.florry.engine.constants.Constants;
 import se.florry.engine.model.Color;
+import se.florry.engine.render.RenderLayer.BlendMode;
+import se.florry.engine.texture.TextureImage;
 
 /*
  * The engine renderer. Sets up all initial Open GL and GLFW related stuff. Takes care of clearing and rendering to the display.
+ * Frames are rendered into a framebuffer of their own, at a scale of the display size that can change between frames,
+ * and scaled onto the window, letterboxed to keep the aspect ratio of the display.
  */
-public final class Renderer
+public final class Renderer implements RenderBackend
 {
 
+	private final long window;
 	private final Color backgroundColor;
 
 	private int fbo;
 	private int rbo;
+	private int depthRbo;
+	private RenderLayer layer;
+	private final float[] matrix;
+	private final FloatBuffer matrixBuffer;
+	private final IntBuffer windowWidth;
+	private final IntBuffer windowHeight;
+
+	// The scale asked for and the size of the framebuffer frames are rendered into.
+	private float renderScale;
+	private int renderWidth;
+	private int renderHeight;
+	private GLStreamingStorage streamStorage;
+	private StreamingBuffer stream;
+	private GpuFrameTimer gpuTimer;
 
-	public Renderer()
+	/*
+	 * @param window the GLFW window with the Open GL context, presented to.
+	 */
+	public Renderer(final long window)
 	{
+		this.window = window;
 		this.backgroundColor = new Color(Constants.Display.BACKGROUND_COLOR.x,
 				Constants.Display.BACKGROUND_COLOR.y,
 				Constants.Display.BACKGROUND_COLOR.z,
 				Constants.Display.BACKGROUND_COLOR.w);
+		this.matrix = new float[16];
+		this.matrixBuffer = BufferUtils.createFloatBuffer(16);
+		this.windowWidth = BufferUtils.createIntBuffer(1);
+		this.windowHeight = BufferUtils.createIntBuffer(1);
+		this.renderScale = Constants.Render.RENDER_SCALE;
 	}
 
+	@Override
 	public void init()
 	{
 		GL.createCapabilities();
@@ -47,19 +85,30 @@ public final class Renderer
 		GL11.glOrtho(0, Constants.Display.WIDTH, Constants.Display.HEIGHT, 0, -1, 1);
 		GL11.glMatrixMode(GL11.GL_MODELVIEW);
 		GL11.glLoadIdentity();
-		GL11.glViewport(0, 0, Constants.Display.WIDTH, Constants.Display.HEIGHT);
 
 		glClearColor(backgroundColor.r, backgroundColor.g, backgroundColor.b, backgroundColor.a);
 
+		GL11.glEnableClientState(GL11.GL_VERTEX_ARRAY);
+		GL11.glEnableClientState(GL11.GL_TEXTURE_COORD_ARRAY);
+		GL11.glEnableClientState(GL11.GL_COLOR_ARRAY);
+		SpriteBatch.get()
+				.setHandler(this::drawBatch);
+
+		this.streamStorage = new GLStreamingStorage(GL15.GL_ARRAY_BUFFER);
+		this.stream = new StreamingBuffer(this.streamStorage);
+		this.gpuTimer = new GpuFrameTimer();
+
 		try
 		{
 			this.fbo = GL30.glGenFramebuffers();
 			GL30.glBindFramebuffer(GL30.GL_FRAMEBUFFER, this.fbo);
 
 			this.rbo = GL30.glGenRenderbuffers();
-			GL30.glBindRenderbuffer(GL30.GL_RENDERBUFFER, this.rbo);
-			GL30.glRenderbufferStorage(GL30.GL_RENDERBUFFER, GL11.GL_RGBA8, Constants.Display.WIDTH, Constants.Display.HEIGHT);
+			// Depth for the render layers, drawn depth tested.
+			this.depthRbo = GL30.glGenRenderbuffers();
+			this.resizeTarget();
 			GL30.glFramebufferRenderbuffer(GL30.GL_FRAMEBUFFER, GL30.GL_COLOR_ATTACHMENT0, GL30.GL_RENDERBUFFER, this.rbo);
+			GL30.glFramebufferRenderbuffer(GL30.GL_FRAMEBUFFER, GL30.GL_DEPTH_ATTACHMENT, GL30.GL_RENDERBUFFER, this.depthRbo);
 
 			assert GL30.glCheckFramebufferStatus(GL30.GL_FRAMEBUFFER) == GL30.GL_FRAMEBUFFER_COMPLETE;
 
@@ -68,22 +117,58 @@ public final class Renderer
 		}
 	}
 
+	/*
+	 * Gives the framebuffer frames are rendered into the size of the render
+	 * scale, if it is not that size already.
+	 */
+	private void resizeTarget()
+	{
+		final int width = Math.max(1, Math.round(Constants.Display.WIDTH * this.renderScale));
+		final int height = Math.max(1, Math.round(Constants.Display.HEIGHT * this.renderScale));
+
+		if (width == this.renderWidth && height == this.renderHeight)
+		{
+			return;
+		}
+
+		this.renderWidth = width;
+		this.renderHeight = height;
+
+		GL30.glBindRenderbuffer(GL30.GL_RENDERBUFFER, this.rbo);
+		GL30.glRenderbufferStorage(GL30.GL_RENDERBUFFER, GL11.GL_RGBA8, width, height);
+		GL30.glBindRenderbuffer(GL30.GL_RENDERBUFFER, this.depthRbo);
+		GL30.glRenderbufferStorage(GL30.GL_RENDERBUFFER, GL14.GL_DEPTH_COMPONENT24, width, height);
+		GL30.glBindRenderbuffer(GL30.GL_RENDERBUFFER, 0);
+	}
+
+	@Override
 	public void prepare()
 	{
+		this.gpuTimer.begin();
 		glClear(GL_COLOR_BUFFER_BIT | GL_DEPTH_BUFFER_BIT);
 
 		try
 		{
+			this.resizeTarget();
 			GL30.glBindFramebuffer(GL30.GL_DRAW_FRAMEBUFFER, this.fbo);
+			GL11.glViewport(0, 0, this.renderWidth, this.renderHeight);
 			GL20.glDrawBuffers(GL30.GL_COLOR_ATTACHMENT0);
-			GL11.glClear(GL11.GL_COLOR_BUFFER_BIT);
+			GL11.glClear(GL11.GL_COLOR_BUFFER_BIT | GL11.GL_DEPTH_BUFFER_BIT);
 		} catch (final Exception e)
 		{
 		}
+
+		SpriteBatch.get()
+				.begin();
 	}
 
-	public void render(final long window)
+	@Override
+	public void present()
 	{
+		SpriteBatch.get()
+				.end();
+		this.stream.endFrame();
+
 		try
 		{
 			GL30.glBindFramebuffer(GL30.GL_READ_FRAMEBUFFER, this.fbo);
@@ -91,27 +176,245 @@ public final class Renderer
 			GL30.glBindFramebuffer(GL30.GL_DRAW_FRAMEBUFFER, 0);
 			GL20.glDrawBuffers(GL11.GL_BACK_LEFT);
 
+			// The largest rectangle of the window with the aspect ratio of the display, in the middle of it.
+			GLFW.glfwGetFramebufferSize(this.window, this.windowWidth, this.windowHeight);
+
+			final int width = Math.min(this.windowWidth.get(0), this.windowHeight.get(0) * Constants.Display.ASPECT_RATIO_NUMERATOR
+					/ Constants.Display.ASPECT_RATIO_DENOMINATOR);
+			final int height = width * Constants.Display.ASPECT_RATIO_DENOMINATOR / Constants.Display.ASPECT_RATIO_NUMERATOR;
+			final int x = (this.windowWidth.get(0) - width) / 2;
+			final int y = (this.windowHeight.get(0) - height) / 2;
+
 			GL30.glBlitFramebuffer(0,
 					0,
-					Constants.Display.WIDTH,
-					Constants.Display.HEIGHT,
-					0,
-					0,
-					Constants.Display.WIDTH,
-					Constants.Display.HEIGHT,
+					this.renderWidth,
+					this.renderHeight,
+					x,
+					y,
+					x + width,
+					y + height,
 					GL11.GL_COLOR_BUFFER_BIT,
-					GL11.GL_NEAREST);
+					width == this.renderWidth && height == this.renderHeight ? GL11.GL_NEAREST : GL11.GL_LINEAR);
 
 			GL30.glBindFramebuffer(GL30.GL_FRAMEBUFFER, 0);
 		} catch (final Exception e)
 		{
 		}
 
-		glfwSwapBuffers(window);
+		this.gpuTimer.end();
+		glfwSwapBuffers(this.window);
 		glfwPollEvents();
 	}
 
-	public void setBackgroundColor(Color color)
+	/*
+	 * Draws a batch of interleaved quad vertices from the sprite batch with a
+	 * single draw call, streaming the vertices to the GPU.
+	 */
+	@Override
+	public void drawBatch(final ByteBuffer vertices, final int vertexCount, final int texture, final boolean blend, final ShaderProgram program)
+	{
+		GL11.glBindTexture(GL11.GL_TEXTURE_2D, texture);
+		GL20.glUseProgram(program != null ? program.getId() : 0);
+		setBlend(blend, this.layer);
+
+		final int position = vertices.position();
+		final int limit = vertices.limit();
+
+		vertices.limit(position + vertexCount * SpriteBatch.VERTEX_SIZE);
+		this.stream.reserve(vertexCount * SpriteBatch.VERTEX_SIZE)
+				.put(vertices);
+		vertices.limit(limit);
+		vertices.position(position);
+
+		final int offset = this.stream.commit();
+
+		GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, this.streamStorage.getBuffer());
+		GL11.glVertexPointer(3, GL11.GL_FLOAT, SpriteBatch.VERTEX_SIZE, offset + SpriteBatch.POSITION_OFFSET);
+		GL11.glTexCoordPointer(2, GL11.GL_FLOAT, SpriteBatch.VERTEX_SIZE, offset + SpriteBatch.TEXTURE_COORDINATE_OFFSET);
+		GL11.glColorPointer(4, GL11.GL_UNSIGNED_BYTE, SpriteBatch.VERTEX_SIZE, offset + SpriteBatch.COLOR_OFFSET);
+		GL11.glDrawArrays(GL11.GL_QUADS, 0, vertexCount);
+		GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, 0);
+	}
+
+	/*
+	 * Turns blending on or off for the coming draws. Quads in a layer are
+	 * blended by the blend mode of the layer, opaque layers never blending.
+	 */
+	static void setBlend(final boolean blend, final RenderLayer layer)
+	{
+		final BlendMode mode = layer != null ? layer.getBlendMode() : BlendMode.ALPHA;
+
+		if (mode == BlendMode.ADDITIVE)
+		{
+			GL11.glEnable(GL11.GL_BLEND);
+			GL11.glBlendFunc(GL11.GL_SRC_ALPHA, GL11.GL_ONE);
+		} else if (blend && mode == BlendMode.ALPHA)
+		{
+			GL11.glEnable(GL11.GL_BLEND);
+			GL11.glBlendFunc(GL11.GL_SRC_ALPHA, GL11.GL_ONE_MINUS_SRC_ALPHA);
+		} else
+		{
+			GL11.glDisable(GL11.GL_BLEND);
+		}
+	}
+
+	/*
+	 * Projects the layer onto the display through its camera and maps the
+	 * depth of its quads into the depth range of the layer, in front of the
+	 * layers below it. Opaque layers write the depth of every quad,
+	 * discarding the pixels behind it in whatever is drawn later, and discard
+	 * transparent pixels instead of blending them. Blended layers are only
+	 * tested against the depth.
+	 */
+	@Override
+	public void setLayer(final RenderLayer layer)
+	{
+		this.layer = layer;
+
+		GL11.glMatrixMode(GL11.GL_PROJECTION);
+		GL11.glLoadIdentity();
+
+		if (layer == null)
+		{
+			GL11.glOrtho(0, Constants.Display.WIDTH, Constants.Display.HEIGHT, 0, -1, 1);
+			GL11.glDisable(GL11.GL_DEPTH_TEST);
+			GL11.glDisable(GL11.GL_ALPHA_TEST);
+			GL11.glDepthMask(true);
+			GL11.glDepthRange(0, 1);
+		} else
+		{
+			layer.getCamera()
+					.getMatrix(this.matrix);
+			this.matrixBuffer.put(this.matrix)
+					.flip();
+			GL11.glLoadMatrixf(this.matrixBuffer);
+			GL11.glEnable(GL11.GL_DEPTH_TEST);
+			GL11.glDepthFunc(GL11.GL_LEQUAL);
+			GL11.glDepthRange(layer.getNearDepth(), layer.getFarDepth());
+			GL11.glDepthMask(layer.isOpaque());
+
+			if (layer.isOpaque())
+			{
+				GL11.glEnable(GL11.GL_ALPHA_TEST);
+				GL11.glAlphaFunc(GL11.GL_GREATER, 0);
+			} else
+			{
+				GL11.glDisable(GL11.GL_ALPHA_TEST);
+			}
+		}
+
+		GL11.glMatrixMode(GL11.GL_MODELVIEW);
+	}
+
+	/*
+	 * Sets the scale of the display size frames are rendered at from the next
+	 * frame on, from Constants.Render.MIN_RENDER_SCALE to 1. Frames rendered
+	 * smaller are scaled up with linear filtering.
+	 */
+	@Override
+	public void setRenderScale(final float scale)
+	{
+		this.renderScale = Math.max(Constants.Render.MIN_RENDER_SCALE, Math.min(1, scale));
+	}
+
+	@Override
+	public float getRenderScale()
+	{
+		return this.renderScale;
+	}
+
+	@Override
+	public long getGpuFrameNanos()
+	{
+		return this.gpuTimer.getLastNanos();
+	}
+
+	/*
+	 * Returns the layer being drawn, or null outside layers.
+	 */
+	RenderLayer getLayer()
+	{
+		return this.layer;
+	}
+
+	@Override
+	public boolean hasDepthTest()
+	{
+		return true;
+	}
+
+	/*
+	 * Loads a decoded texture in the Open GL context, returning the id of that
+	 * texture within the context.
+	 */
+	@Override
+	public int uploadTexture(final TextureImage image)
+	{
+		final int texture = GL11.glGenTextures();
+
+		GL11.glBindTexture(GL11.GL_TEXTURE_2D, texture);
+		GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MAG_FILTER, GL11.GL_NEAREST);
+		GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MIN_FILTER, GL11.GL_NEAREST);
+		GL11.glTexParameterf(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_WRAP_S, GL11.GL_REPEAT);
+		GL11.glTexParameterf(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_WRAP_T, GL11.GL_REPEAT);
+		GL11.glPixelStorei(GL11.GL_UNPACK_ALIGNMENT, 4);
+		GL11.glTexImage2D(GL11.GL_TEXTURE_2D,
+				0,
+				GL11.GL_RGBA,
+				image.getWidth(),
+				image.getHeight(),
+				0,
+				GL11.GL_RGBA,
+				GL11.GL_UNSIGNED_BYTE,
+				image.getPixels());
+
+		return texture;
+	}
+
+	@Override
+	public void deleteTexture(final int texture)
+	{
+		GL11.glDeleteTextures(texture);
+	}
+
+	/*
+	 * Textures are uploaded with nearest filtering, distance fields need
+	 * linear filtering to be drawn smooth.
+	 */
+	@Override
+	public void setLinearFiltering(final int texture, final boolean linear)
+	{
+		final int filter = linear ? GL11.GL_LINEAR : GL11.GL_NEAREST;
+
+		GL11.glBindTexture(GL11.GL_TEXTURE_2D, texture);
+		GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MAG_FILTER, filter);
+		GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MIN_FILTER, filter);
+	}
+
+	@Override
+	public boolean hasShaders()
+	{
+		return true;
+	}
+
+	/*
+	 * Returns the buffer vertices are streamed to the GPU through.
+	 */
+	public StreamingBuffer getStream()
+	{
+		return this.stream;
+	}
+
+	/*
+	 * Returns the id of the buffer object behind the stream.
+	 */
+	int getStreamBuffer()
+	{
+		return this.streamStorage.getBuffer();
+	}
+
+	@Override
+	public void setBackgroundColor(final Color color)
 	{
 		this.backgroundColor.r = color.r / 255;
 		this.backgroundColor.g = color.g / 255;
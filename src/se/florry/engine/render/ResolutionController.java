@@ -0,0 +1,139 @@
+package se.florry.engine.render;
+
+import se.florry.engine.constants.Constants;
+
+/*
+ * Picks the scale frames are rendered at from measured frame times, lowering it when frames take longer than the
+ * target and raising it again once there is room. Frame times are averaged over a few frames, and the scale only
+ * changes after frames have been over the target, or well under it, for a number of frames in a row, so single slow
+ * frames and noise do not make the resolution flicker. Raising the scale needs the frame time the larger scale is
+ * expected to take, growing with the pixels rendered, to stay under a share of the target, leaving a band between
+ * lowering and raising. After a change the frame times are measured afresh before changing again. Only works on the
+ * frame times given to it, so the same frame times always give the same scales.
+ */
+public final class ResolutionController
+{
+
+	private final long targetNanos;
+	private final float minScale;
+	private final float maxScale;
+
+	// The latest frame times, averaged.
+	private final long[] frameTimes;
+	private int frameCount;
+	private int frameIndex;
+	private long frameTimeSum;
+
+	private float scale;
+	private int framesOver;
+	private int framesUnder;
+	private int changes;
+
+	/*
+	 * @param targetNanos the frame time to stay under.
+	 *
+	 * @param minScale the smallest scale of the display size to render at.
+	 *
+	 * @param maxScale the largest scale of the display size to render at, the
+	 * scale started at.
+	 */
+	public ResolutionController(final long targetNanos, final float minScale, final float maxScale)
+	{
+		this.targetNanos = targetNanos;
+		this.minScale = minScale;
+		this.maxScale = maxScale;
+		this.frameTimes = new long[Constants.Render.RESOLUTION_FRAME_WINDOW];
+		this.scale = maxScale;
+	}
+
+	public ResolutionController(final long targetNanos)
+	{
+		this(targetNanos, Constants.Render.MIN_RENDER_SCALE, 1);
+	}
+
+	/*
+	 * Adds the time of a frame rendered at the current scale, returning the
+	 * scale to render the coming frames at.
+	 */
+	public float update(final long frameNanos)
+	{
+		this.frameTimeSum += frameNanos - this.frameTimes[this.frameIndex];
+		this.frameTimes[this.frameIndex] = frameNanos;
+		this.frameIndex = (this.frameIndex + 1) % this.frameTimes.length;
+
+		if (this.frameCount < this.frameTimes.length)
+		{
+			this.frameCount++;
+			return this.scale;
+		}
+
+		final float average = (float) this.frameTimeSum / this.frameCount;
+		final float goal = this.targetNanos * Constants.Render.RESOLUTION_HEADROOM;
+
+		this.framesOver = average > this.targetNanos ? this.framesOver + 1 : 0;
+
+		// The frame time expected one step up, the time per pixel staying the same.
+		final float larger = Math.min(this.maxScale, this.scale + Constants.Render.RESOLUTION_STEP);
+		final float largerAverage = average * larger * larger / (this.scale * this.scale);
+
+		this.framesUnder = larger > this.scale && largerAverage < goal ? this.framesUnder + 1 : 0;
+
+		if (this.framesOver >= Constants.Render.RESOLUTION_DOWN_FRAMES)
+		{
+			// The scale whose pixels are expected to take the share of the target aimed for, rounded down to a step.
+			final float scale = this.scale * (float) Math.sqrt(goal / average);
+
+			this.change((float) Math.floor(scale / Constants.Render.RESOLUTION_STEP) * Constants.Render.RESOLUTION_STEP);
+		} else if (this.framesUnder >= Constants.Render.RESOLUTION_UP_FRAMES)
+		{
+			this.change(larger);
+		}
+
+		return this.scale;
+	}
+
+	private void change(final float scale)
+	{
+		final float clamped = Math.max(this.minScale, Math.min(this.maxScale, scale));
+
+		this.framesOver = 0;
+		this.framesUnder = 0;
+
+		if (clamped == this.scale)
+		{
+			return;
+		}
+
+		this.scale = clamped;
+		this.changes++;
+
+		// Frame times at the old scale say nothing about the new one.
+		this.frameCount = 0;
+		this.frameIndex = 0;
+		this.frameTimeSum = 0;
+
+		for (int i = 0; i < this.frameTimes.length; i++)
+		{
+			this.frameTimes[i] = 0;
+		}
+	}
+
+	public float getScale()
+	{
+		return this.scale;
+	}
+
+	/*
+	 * Returns the number of times the scale has changed.
+	 */
+	public int getChanges()
+	{
+		return this.changes;
+	}
+
+	public long getTargetNanos()
+	{
+		return this.targetNanos;
+	}
+
+}
@@ -0,0 +1,162 @@
+package se.florry.engine.render;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL20;
+
+import se.florry.engine.model.Color;
+
+/*
+ * A linked vertex and fragment shader. Shaders are written against GLSL 1.20 so they work with the compatibility
+ * context and the fixed function vertex arrays of the sprite batch (gl_Vertex, gl_MultiTexCoord0 and gl_Color).
+ * Has to be created and used on the render thread.
+ */
+public final class ShaderProgram
+{
+
+	private final int id;
+	private final Map<String, Integer> uniforms;
+
+	/*
+	 * Compiles and links a program. Errors are logged and leave the program
+	 * invalid, in which case the sprite batch draws with the fixed function
+	 * pipeline instead. Programs are always invalid with a render backend
+	 * without shaders.
+	 */
+	public ShaderProgram(final String vertexSource, final String fragmentSource)
+	{
+		this.uniforms = new HashMap<>();
+
+		if (!RenderContext.get()
+				.hasShaders())
+		{
+			this.id = 0;
+			return;
+		}
+
+		final int vertexShader = compile(GL20.GL_VERTEX_SHADER, vertexSource);
+		final int fragmentShader = compile(GL20.GL_FRAGMENT_SHADER, fragmentSource);
+
+		if (vertexShader == 0 || fragmentShader == 0)
+		{
+			GL20.glDeleteShader(vertexShader);
+			GL20.glDeleteShader(fragmentShader);
+			this.id = 0;
+			return;
+		}
+
+		final int program = GL20.glCreateProgram();
+		GL20.glAttachShader(program, vertexShader);
+		GL20.glAttachShader(program, fragmentShader);
+		GL20.glLinkProgram(program);
+		GL20.glDeleteShader(vertexShader);
+		GL20.glDeleteShader(fragmentShader);
+
+		if (GL20.glGetProgrami(program, GL20.GL_LINK_STATUS) == GL11.GL_FALSE)
+		{
+			System.out.println("Error linking shader program: " + GL20.glGetProgramInfoLog(program));
+			GL20.glDeleteProgram(program);
+			this.id = 0;
+			return;
+		}
+
+		this.id = program;
+	}
+
+	private static int compile(final int type, final String source)
+	{
+		final int shader = GL20.glCreateShader(type);
+		GL20.glShaderSource(shader, source);
+		GL20.glCompileShader(shader);
+
+		if (GL20.glGetShaderi(shader, GL20.GL_COMPILE_STATUS) == GL11.GL_FALSE)
+		{
+			System.out.println("Error compiling shader: " + GL20.glGetShaderInfoLog(shader));
+			GL20.glDeleteShader(shader);
+
+			return 0;
+		}
+
+		return shader;
+	}
+
+	/*
+	 * Returns the location of a uniform, looked up once and cached.
+	 */
+	public int getUniform(final String name)
+	{
+		Integer location = this.uniforms.get(name);
+
+		if (location == null)
+		{
+			location = GL20.glGetUniformLocation(this.id, name);
+			this.uniforms.put(name, location);
+		}
+
+		return location;
+	}
+
+	/*
+	 * Sets a uniform. Uniforms are set immediately, so the sprite batch has to
+	 * be flushed first if it holds quads drawn with the previous value.
+	 */
+	public void setUniform(final String name, final float value)
+	{
+		if (this.isValid())
+		{
+			GL20.glUseProgram(this.id);
+			GL20.glUniform1f(this.getUniform(name), value);
+		}
+	}
+
+	public void setUniform(final String name, final float x, final float y)
+	{
+		if (this.isValid())
+		{
+			GL20.glUseProgram(this.id);
+			GL20.glUniform2f(this.getUniform(name), x, y);
+		}
+	}
+
+	public void setUniform(final String name, final float x, final float y, final float z)
+	{
+		if (this.isValid())
+		{
+			GL20.glUseProgram(this.id);
+			GL20.glUniform3f(this.getUniform(name), x, y, z);
+		}
+	}
+
+	/*
+	 * Sets a vec4 uniform to a 0-255 RGBA color, as 0-1 values.
+	 */
+	public void setUniform(final String name, final Color color)
+	{
+		if (this.isValid())
+		{
+			GL20.glUseProgram(this.id);
+			GL20.glUniform4f(this.getUniform(name), color.r / 255, color.g / 255, color.b / 255, color.a / 255);
+		}
+	}
+
+	public int getId()
+	{
+		return this.id;
+	}
+
+	public boolean isValid()
+	{
+		return this.id != 0;
+	}
+
+	public void delete()
+	{
+		if (this.isValid())
+		{
+			GL20.glDeleteProgram(this.id);
+		}
+	}
+
+}
@@ -0,0 +1,75 @@
+package se.florry.engine.render;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * Three render snapshots passed between the simulation thread and the render thread without locks. The simulation
+ * records into its own snapshot and publishes it by swapping it with the shared one, the render thread picks up the
+ * shared one by swapping it with the snapshot it last drew. Neither thread ever touches the snapshot the other one
+ * holds, so the render thread always draws a complete step, never one that is half recorded, and neither thread waits
+ * for the other.
+ */
+public final class SnapshotBuffer
+{
+
+	// Set on the shared index when it holds a snapshot published after the render thread last picked one up.
+	private static final int FRESH = 4;
+	private static final int INDEX = 3;
+
+	private final RenderSnapshot[] snapshots;
+	private final AtomicInteger shared;
+	private int writing;
+	private int reading;
+
+	public SnapshotBuffer()
+	{
+		this.snapshots = new RenderSnapshot[] { new RenderSnapshot(), new RenderSnapshot(), new RenderSnapshot() };
+		this.writing = 0;
+		this.shared = new AtomicInteger(1);
+		this.reading = 2;
+	}
+
+	/*
+	 * Returns the snapshot the simulation thread records into. Only to be
+	 * called from the simulation thread.
+	 */
+	public RenderSnapshot getWriteSnapshot()
+	{
+		return this.snapshots[this.writing];
+	}
+
+	/*
+	 * Makes the recorded snapshot the latest one and hands the simulation
+	 * thread another snapshot to record into. Only to be called from the
+	 * simulation thread.
+	 */
+	public void publish()
+	{
+		this.writing = this.shared.getAndSet(this.writing | FRESH) & INDEX;
+	}
+
+	/*
+	 * Returns the latest published snapshot. If nothing has been published
+	 * since the last call the same snapshot is returned again. Only to be
+	 * called from the render thread.
+	 */
+	public RenderSnapshot acquire()
+	{
+		if ((this.shared.get() & FRESH) != 0)
+		{
+			this.reading = this.shared.getAndSet(this.reading) & INDEX;
+		}
+
+		return this.snapshots[this.reading];
+	}
+
+	/*
+	 * Returns true if a snapshot has been published that the render thread has
+	 * not picked up yet.
+	 */
+	public boolean hasFresh()
+	{
+		return (this.shared.get() & FRESH) != 0;
+	}
+
+}
@@ -0,0 +1,566 @@
+package se.florry.engine.render;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+import javax.imageio.ImageIO;
+
+import se.florry.engine.constants.Constants;
+import se.florry.engine.job.JobSystem;
+import se.florry.engine.model.Color;
+import se.florry.engine.texture.TextureImage;
+import se.florry.engine.utils.EngineUtils;
+
+/*
+ * Render backend drawing on the CPU into a framebuffer in memory, for golden image tests and recording replays
+ * without a GPU. Quads are drawn the way the Open GL renderer draws the sprite batch: textures sampled nearest and
+ * repeated outside 0 to 1, multiplied with the color of the quad and blended with source alpha when blending is on.
+ * The quads of a frame are sorted into screen tiles as they are drawn, and on present the tiles are rasterized in
+ * parallel, every tile drawing its quads in the order they were drawn.
+ */
+public final class SoftwareRenderBackend implements RenderBackend
+{
+
+	// Floats per quad: x, y, u and v of the four corners.
+	private static final int QUAD_SIZE = 16;
+	private static final int WHITE = 0xFFFFFFFF;
+
+	private final int width;
+	private final int height;
+	private final int tileSize;
+	private final int tilesX;
+	private final int tilesY;
+	private final IntBuffer framebuffer;
+	private final JobSystem jobs;
+	private int background;
+
+	// Texels of the uploaded textures as ARGB, by texture id.
+	private int[][] texels;
+	private int[] textureWidths;
+	private int[] textureHeights;
+	private int nextTexture;
+
+	private float[] quads;
+	private int[] colors;
+	private int[] textures;
+	private boolean[] blends;
+	private int quadCount;
+
+	// The quads overlapping every tile, in the order they were drawn.
+	private final int[][] bins;
+	private final int[] binSizes;
+
+	private int[] exportPixels;
+	private int frames;
+	private long rasterNanos;
+
+	/*
+	 * @param workers the number of threads rasterizing tiles.
+	 */
+	public SoftwareRenderBackend(final int workers)
+	{
+		this.width = Constants.Display.WIDTH;
+		this.height = Constants.Display.HEIGHT;
+		this.tileSize = Constants.Render.TILE_SIZE;
+		this.tilesX = (this.width + this.tileSize - 1) / this.tileSize;
+		this.tilesY = (this.height + this.tileSize - 1) / this.tileSize;
+		this.framebuffer = ByteBuffer.allocateDirect(this.width * this.height * 4)
+				.order(ByteOrder.nativeOrder())
+				.asIntBuffer();
+		this.jobs = new JobSystem(workers);
+		this.background = pack(Constants.Display.BACKGROUND_COLOR.x * 255,
+				Constants.Display.BACKGROUND_COLOR.y * 255,
+				Constants.Display.BACKGROUND_COLOR.z * 255,
+				Constants.Display.BACKGROUND_COLOR.w * 255);
+
+		this.texels = new int[16][];
+		this.textureWidths = new int[16];
+		this.textureHeights = new int[16];
+		this.nextTexture = 1;
+
+		this.quads = new float[1024 * QUAD_SIZE];
+		this.colors = new int[1024];
+		this.textures = new int[1024];
+		this.blends = new boolean[1024];
+
+		this.bins = new int[this.tilesX * this.tilesY][];
+		this.binSizes = new int[this.bins.length];
+
+		for (int i = 0; i < this.bins.length; i++)
+		{
+			this.bins[i] = new int[64];
+		}
+	}
+
+	public SoftwareRenderBackend()
+	{
+		this(Constants.Loop.WORKER_THREADS);
+	}
+
+	@Override
+	public void init()
+	{
+		SpriteBatch.get()
+				.setHandler(this::drawBatch);
+	}
+
+	@Override
+	public void prepare()
+	{
+		this.quadCount = 0;
+		Arrays.fill(this.binSizes, 0);
+
+		SpriteBatch.get()
+				.begin();
+	}
+
+	/*
+	 * Copies the quads of a batch and adds them to the tiles they overlap.
+	 * Nothing is rasterized until present.
+	 */
+	@Override
+	public void drawBatch(final ByteBuffer vertices, final int vertexCount, final int texture, final boolean blend, final ShaderProgram program)
+	{
+		final int start = vertices.position();
+
+		for (int vertex = 0; vertex < vertexCount; vertex += SpriteBatch.VERTICES_PER_QUAD)
+		{
+			if (this.quadCount == this.colors.length)
+			{
+				this.grow();
+			}
+
+			final float[] quads = this.quads;
+			final int offset = this.quadCount * QUAD_SIZE;
+			float minX = Float.MAX_VALUE;
+			float minY = Float.MAX_VALUE;
+			float maxX = -Float.MAX_VALUE;
+			float maxY = -Float.MAX_VALUE;
+
+			for (int corner = 0; corner < SpriteBatch.VERTICES_PER_QUAD; corner++)
+			{
+				final int index = start + (vertex + corner) * SpriteBatch.VERTEX_SIZE;
+				final float x = vertices.getFloat(index + SpriteBatch.POSITION_OFFSET);
+				final float y = vertices.getFloat(index + SpriteBatch.POSITION_OFFSET + 4);
+
+				quads[offset + corner * 4] = x;
+				quads[offset + corner * 4 + 1] = y;
+				quads[offset + corner * 4 + 2] = vertices.getFloat(index + SpriteBatch.TEXTURE_COORDINATE_OFFSET);
+				quads[offset + corner * 4 + 3] = vertices.getFloat(index + SpriteBatch.TEXTURE_COORDINATE_OFFSET + 4);
+				minX = Math.min(minX, x);
+				minY = Math.min(minY, y);
+				maxX = Math.max(maxX, x);
+				maxY = Math.max(maxY, y);
+			}
+
+			// Pixels are covered when their centre is inside the quad.
+			final int left = Math.max(0, (int) Math.ceil(minX - 0.5f));
+			final int top = Math.max(0, (int) Math.ceil(minY - 0.5f));
+			final int right = Math.min(this.width, (int) Math.ceil(maxX - 0.5f));
+			final int bottom = Math.min(this.height, (int) Math.ceil(maxY - 0.5f));
+
+			if (left >= right || top >= bottom)
+			{
+				continue;
+			}
+
+			final int color = start + vertex * SpriteBatch.VERTEX_SIZE + SpriteBatch.COLOR_OFFSET;
+
+			this.colors[this.quadCount] = (vertices.get(color + 3) & 0xFF) << 24 | (vertices.get(color) & 0xFF) << 16 | (vertices.get(color + 1) & 0xFF) << 8
+					| vertices.get(color + 2) & 0xFF;
+			this.textures[this.quadCount] = texture;
+			this.blends[this.quadCount] = blend;
+
+			for (int tileY = top / this.tileSize; tileY <= (bottom - 1) / this.tileSize; tileY++)
+			{
+				for (int tileX = left / this.tileSize; tileX <= (right - 1) / this.tileSize; tileX++)
+				{
+					this.addToBin(tileY * this.tilesX + tileX, this.quadCount);
+				}
+			}
+
+			this.quadCount++;
+		}
+	}
+
+	/*
+	 * Rasterizes the quads of the frame.
+	 */
+	@Override
+	public void present()
+	{
+		SpriteBatch.get()
+				.end();
+
+		final long start = EngineUtils.getNanoTime();
+
+		this.jobs.parallelFor(this.bins.length, 1, this::rasterizeTiles);
+		this.rasterNanos = EngineUtils.getNanoTime() - start;
+		this.frames++;
+	}
+
+	private void rasterizeTiles(final int start, final int end)
+	{
+		for (int tile = start; tile < end; tile++)
+		{
+			final int left = tile % this.tilesX * this.tileSize;
+			final int top = tile / this.tilesX * this.tileSize;
+			final int right = Math.min(this.width, left + this.tileSize);
+			final int bottom = Math.min(this.height, top + this.tileSize);
+
+			for (int y = top; y < bottom; y++)
+			{
+				for (int x = left; x < right; x++)
+				{
+					this.framebuffer.put(y * this.width + x, this.background);
+				}
+			}
+
+			final int[] bin = this.bins[tile];
+
+			for (int i = 0; i < this.binSizes[tile]; i++)
+			{
+				this.rasterizeQuad(bin[i], left, top, right, bottom);
+			}
+		}
+	}
+
+	/*
+	 * Draws the part of a quad inside a tile. Quads from the sprite batch are
+	 * parallelograms, being rectangles drawn through an affine transform, so
+	 * every pixel centre is expressed as corner 0 plus s times the edge to
+	 * corner 1 plus t times the edge to corner 3. The pixel is inside when s
+	 * and t are both from 0 up to but not including 1, so quads sharing an
+	 * edge never both draw a pixel, and the texture coordinates follow from s
+	 * and t the same way.
+	 */
+	private void rasterizeQuad(final int quad, final int tileLeft, final int tileTop, final int tileRight, final int tileBottom)
+	{
+		final float[] quads = this.quads;
+		final int offset = quad * QUAD_SIZE;
+		final float x0 = quads[offset];
+		final float y0 = quads[offset + 1];
+		final float u0 = quads[offset + 2];
+		final float v0 = quads[offset + 3];
+		final float sx = quads[offset + 4] - x0;
+		final float sy = quads[offset + 5] - y0;
+		final float tx = quads[offset + 12] - x0;
+		final float ty = quads[offset + 13] - y0;
+		final float determinant = sx * ty - tx * sy;
+
+		if (determinant == 0)
+		{
+			return;
+		}
+
+		final float su = quads[offset + 6] - u0;
+		final float sv = quads[offset + 7] - v0;
+		final float tu = quads[offset + 14] - u0;
+		final float tv = quads[offset + 15] - v0;
+		final float minX = Math.min(Math.min(x0, x0 + sx), Math.min(x0 + tx, x0 + sx + tx));
+		final float maxX = Math.max(Math.max(x0, x0 + sx), Math.max(x0 + tx, x0 + sx + tx));
+		final float minY = Math.min(Math.min(y0, y0 + sy), Math.min(y0 + ty, y0 + sy + ty));
+		final float maxY = Math.max(Math.max(y0, y0 + sy), Math.max(y0 + ty, y0 + sy + ty));
+		final int left = Math.max(tileLeft, (int) Math.ceil(minX - 0.5f));
+		final int right = Math.min(tileRight, (int) Math.ceil(maxX - 0.5f));
+		final int top = Math.max(tileTop, (int) Math.ceil(minY - 0.5f));
+		final int bottom = Math.min(tileBottom, (int) Math.ceil(maxY - 0.5f));
+
+		final int color = this.colors[quad];
+		final boolean blend = this.blends[quad];
+		final int texture = this.textures[quad];
+		final int[] texels = texture > 0 && texture < this.texels.length ? this.texels[texture] : null;
+		final int textureWidth = texels != null ? this.textureWidths[texture] : 1;
+		final int textureHeight = texels != null ? this.textureHeights[texture] : 1;
+		final float stepS = ty / determinant;
+		final float stepT = -sy / determinant;
+		// Texture coordinates in texels, and how much they change per pixel.
+		final float stepU = (stepS * su + stepT * tu) * textureWidth;
+		final float stepV = (stepS * sv + stepT * tv) * textureHeight;
+		final IntBuffer framebuffer = this.framebuffer;
+		// An upright rectangle covers its whole bounding box, needing no test per pixel.
+		final boolean rectangle = sy == 0 && tx == 0 && sx > 0 && ty > 0;
+
+		for (int y = top; y < bottom; y++)
+		{
+			final float dy = y + 0.5f - y0;
+			final float dx = left + 0.5f - x0;
+			float s = (dx * ty - dy * tx) / determinant;
+			float t = (dy * sx - dx * sy) / determinant;
+			float u = (u0 + s * su + t * tu) * textureWidth;
+			float v = (v0 + s * sv + t * tv) * textureHeight;
+			int index = y * this.width + left;
+
+			for (int x = left; x < right; x++, index++, s += stepS, t += stepT, u += stepU, v += stepV)
+			{
+				if (!rectangle && (s < 0 || s >= 1 || t < 0 || t >= 1))
+				{
+					continue;
+				}
+
+				int source = color;
+
+				if (texels != null)
+				{
+					source = modulate(texels[wrap(floor(v), textureHeight) * textureWidth + wrap(floor(u), textureWidth)], color);
+				}
+
+				if (blend)
+				{
+					source = blend(source, framebuffer.get(index));
+				}
+
+				framebuffer.put(index, source);
+			}
+		}
+	}
+
+	private void addToBin(final int tile, final int quad)
+	{
+		if (this.binSizes[tile] == this.bins[tile].length)
+		{
+			this.bins[tile] = Arrays.copyOf(this.bins[tile], this.binSizes[tile] * 2);
+		}
+
+		this.bins[tile][this.binSizes[tile]++] = quad;
+	}
+
+	private void grow()
+	{
+		final int capacity = this.colors.length * 2;
+
+		this.quads = Arrays.copyOf(this.quads, capacity * QUAD_SIZE);
+		this.colors = Arrays.copyOf(this.colors, capacity);
+		this.textures = Arrays.copyOf(this.textures, capacity);
+		this.blends = Arrays.copyOf(this.blends, capacity);
+	}
+
+	private static int floor(final float value)
+	{
+		final int truncated = (int) value;
+
+		return value < truncated ? truncated - 1 : truncated;
+	}
+
+	/*
+	 * Repeats texel coordinates outside the texture, as GL_REPEAT does.
+	 */
+	private static int wrap(final int coordinate, final int size)
+	{
+		if ((size & size - 1) == 0)
+		{
+			return coordinate & size - 1;
+		}
+
+		final int wrapped = coordinate % size;
+
+		return wrapped < 0 ? wrapped + size : wrapped;
+	}
+
+	/*
+	 * Multiplies two ARGB colors channel by channel.
+	 */
+	private static int modulate(final int first, final int second)
+	{
+		if (second == WHITE)
+		{
+			return first;
+		}
+
+		return multiply(first >>> 24, second >>> 24) << 24 | multiply(first >> 16 & 0xFF, second >> 16 & 0xFF) << 16
+				| multiply(first >> 8 & 0xFF, second >> 8 & 0xFF) << 8 | multiply(first & 0xFF, second & 0xFF);
+	}
+
+	/*
+	 * Multiplies two 0-255 values as if they were 0 to 1, exact when either
+	 * is 0 or 255.
+	 */
+	private static int multiply(final int first, final int second)
+	{
+		return first * second + 255 >> 8;
+	}
+
+	/*
+	 * Blends an ARGB color over another with GL_SRC_ALPHA and
+	 * GL_ONE_MINUS_SRC_ALPHA, for alpha as well as the colors. Red and blue,
+	 * then alpha and green, are blended two at a time, each pair sharing one
+	 * int with 16 bits per channel.
+	 */
+	private static int blend(final int source, final int destination)
+	{
+		final int alpha = source >>> 24;
+
+		if (alpha == 255)
+		{
+			return source;
+		} else if (alpha == 0)
+		{
+			return destination;
+		}
+
+		final int inverse = 255 - alpha;
+		final int redBlue = (source & 0xFF00FF) * alpha + (destination & 0xFF00FF) * inverse;
+		final int alphaGreen = (source >>> 8 & 0xFF00FF) * alpha + (destination >>> 8 & 0xFF00FF) * inverse;
+
+		return divide(alphaGreen) << 8 | divide(redBlue);
+	}
+
+	/*
+	 * Divides both 16 bit halves of an int by 255, rounded.
+	 */
+	private static int divide(final int pair)
+	{
+		return pair + 0x800080 + (pair >>> 8 & 0xFF00FF) >>> 8 & 0xFF00FF;
+	}
+
+	private static int pack(final float r, final float g, final float b, final float a)
+	{
+		return clamp(a) << 24 | clamp(r) << 16 | clamp(g) << 8 | clamp(b);
+	}
+
+	private static int clamp(final float channel)
+	{
+		return (int) Math.max(0, Math.min(255, channel));
+	}
+
+	/*
+	 * Keeps the texels of a texture as ARGB, returning the id of the texture.
+	 */
+	@Override
+	public int uploadTexture(final TextureImage image)
+	{
+		final int texture = this.nextTexture++;
+		final int width = image.getWidth();
+		final int height = image.getHeight();
+		final ByteBuffer pixels = image.getPixels();
+		final int start = pixels.position();
+		final int[] texels = new int[width * height];
+
+		for (int y = 0; y < height; y++)
+		{
+			for (int x = 0; x < width; x++)
+			{
+				final int index = start + y * image.getStride() + x * TextureImage.BYTES_PER_PIXEL;
+
+				texels[y * width + x] = (pixels.get(index + 3) & 0xFF) << 24 | (pixels.get(index) & 0xFF) << 16 | (pixels.get(index + 1) & 0xFF) << 8
+						| pixels.get(index + 2) & 0xFF;
+			}
+		}
+
+		if (texture == this.texels.length)
+		{
+			this.texels = Arrays.copyOf(this.texels, texture * 2);
+			this.textureWidths = Arrays.copyOf(this.textureWidths, texture * 2);
+			this.textureHeights = Arrays.copyOf(this.textureHeights, texture * 2);
+		}
+
+		this.texels[texture] = texels;
+		this.textureWidths[texture] = width;
+		this.textureHeights[texture] = height;
+
+		return texture;
+	}
+
+	@Override
+	public void deleteTexture(final int texture)
+	{
+		if (texture > 0 && texture < this.texels.length)
+		{
+			this.texels[texture] = null;
+		}
+	}
+
+	/*
+	 * Textures are always sampled nearest, so distance field text is drawn
+	 * blocky rather than smooth.
+	 */
+	@Override
+	public void setLinearFiltering(final int texture, final boolean linear)
+	{
+	}
+
+	@Override
+	public void setBackgroundColor(final Color color)
+	{
+		this.background = pack(color.r, color.g, color.b, color.a);
+	}
+
+	@Override
+	public boolean hasShaders()
+	{
+		return false;
+	}
+
+	/*
+	 * Returns the framebuffer of the last presented frame, ARGB pixels row by
+	 * row from the top left corner.
+	 */
+	public IntBuffer getFramebuffer()
+	{
+		return this.framebuffer;
+	}
+
+	/*
+	 * Returns the ARGB color of a pixel of the last presented frame.
+	 */
+	public int getPixel(final int x, final int y)
+	{
+		return this.framebuffer.get(y * this.width + x);
+	}
+
+	/*
+	 * Writes the last presented frame to a PNG file, without the alpha
+	 * channel as the display shows it.
+	 */
+	public void writePNG(final File file) throws IOException
+	{
+		if (this.exportPixels == null)
+		{
+			this.exportPixels = new int[this.width * this.height];
+		}
+
+		final BufferedImage image = new BufferedImage(this.width, this.height, BufferedImage.TYPE_INT_RGB);
+
+		this.framebuffer.get(this.exportPixels);
+		this.framebuffer.rewind();
+		image.setRGB(0, 0, this.width, this.height, this.exportPixels, 0, this.width);
+		ImageIO.write(image, "png", file);
+	}
+
+	public int getFrames()
+	{
+		return this.frames;
+	}
+
+	/*
+	 * Returns the quads drawn during the last presented frame, not counting
+	 * the ones outside the screen.
+	 */
+	public int getQuadCount()
+	{
+		return this.quadCount;
+	}
+
+	/*
+	 * Returns the time rasterizing the last presented frame took in
+	 * nanoseconds.
+	 */
+	public long getRasterNanos()
+	{
+		return this.rasterNanos;
+	}
+
+	/*
+	 * Stops the threads rasterizing tiles.
+	 */
+	public void shutdown()
+	{
+		this.jobs.shutdown();
+	}
+
+}
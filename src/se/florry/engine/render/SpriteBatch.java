@@ -0,0 +1,344 @@
+package se.florry.engine.render;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import se.florry.engine.constants.Constants;
+import se.florry.engine.handler.BatchHandler;
+import se.florry.engine.model.Color;
+
+/*
+ * Collects quads into one interleaved vertex buffer (position, depth, texture coordinates and color) and hands them to a
+ * batch handler in as few draws as possible. The batch is flushed whenever the texture, blend state or shader program
+ * changes, when the buffer is full and when the frame ends. Quads can be drawn through an affine transform, which is
+ * applied to the vertices as they are added and so never flushes the batch.
+ */
+public final class SpriteBatch
+{
+
+	/*
+	 * Bytes per vertex: x, y and z, u and v as floats followed by r, g, b and
+	 * a as unsigned bytes.
+	 */
+	public static final int VERTEX_SIZE = 24;
+	public static final int POSITION_OFFSET = 0;
+	public static final int TEXTURE_COORDINATE_OFFSET = 12;
+	public static final int COLOR_OFFSET = 20;
+	public static final int VERTICES_PER_QUAD = 4;
+
+	private static final SpriteBatch batch = new SpriteBatch(Constants.Render.BATCH_SIZE, null);
+	// The batch quads are drawn with on each thread, the shared batch unless another one has been bound.
+	private static final ThreadLocal<SpriteBatch> threadBatch = ThreadLocal.withInitial(() -> batch);
+
+	private final ByteBuffer vertices;
+	private final int capacity;
+	private BatchHandler handler;
+
+	private int quadCount;
+	private int texture;
+	private boolean blend;
+	private ShaderProgram program;
+	private float depth;
+
+	// The transform applied to the quads, x' = a * x + c * y + tx and y' = b * x + d * y + ty.
+	private boolean transformed;
+	private float a;
+	private float b;
+	private float c;
+	private float d;
+	private float tx;
+	private float ty;
+
+	private int flushCount;
+	private int vertexCount;
+	private int flushesLastFrame;
+	private int verticesLastFrame;
+
+	/*
+	 * @param capacity the maximum number of quads held before the batch is
+	 * flushed.
+	 *
+	 * @param handler the handler doing the actual drawing of a batch. Can be
+	 * null, in which case flushed batches are only counted.
+	 */
+	public SpriteBatch(final int capacity, final BatchHandler handler)
+	{
+		this.capacity = capacity;
+		this.handler = handler;
+		this.a = 1;
+		this.d = 1;
+		this.vertices = ByteBuffer.allocateDirect(capacity * VERTICES_PER_QUAD * VERTEX_SIZE)
+				.order(ByteOrder.nativeOrder());
+	}
+
+	/*
+	 * Returns the batch shared by all quads of the engine, or the batch bound
+	 * to the calling thread.
+	 */
+	public static SpriteBatch get()
+	{
+		return threadBatch.get();
+	}
+
+	/*
+	 * Makes get return another batch on the calling thread, letting a thread
+	 * without the Open GL context record quads, or null to go back to the
+	 * shared batch.
+	 */
+	public static void bind(final SpriteBatch recordingBatch)
+	{
+		threadBatch.set(recordingBatch != null ? recordingBatch : batch);
+	}
+
+	public void setHandler(final BatchHandler handler)
+	{
+		this.handler = handler;
+	}
+
+	/*
+	 * Starts a new frame, resetting the per frame counters.
+	 */
+	public void begin()
+	{
+		this.flush();
+		this.flushCount = 0;
+		this.vertexCount = 0;
+	}
+
+	/*
+	 * Ends the frame, drawing whatever is left in the batch.
+	 */
+	public void end()
+	{
+		this.flush();
+		this.flushesLastFrame = this.flushCount;
+		this.verticesLastFrame = this.vertexCount;
+	}
+
+	/*
+	 * Sets the texture for the coming quads. Changing texture flushes the
+	 * quads batched with the previous one.
+	 */
+	public void setTexture(final int texture)
+	{
+		if (this.texture != texture)
+		{
+			this.flush();
+			this.texture = texture;
+		}
+	}
+
+	public int getTexture()
+	{
+		return this.texture;
+	}
+
+	/*
+	 * Sets the shader program for the coming quads, or null for the fixed
+	 * function pipeline. Changing program flushes the quads batched with the
+	 * previous one.
+	 */
+	public void setProgram(final ShaderProgram program)
+	{
+		if (this.program != program)
+		{
+			this.flush();
+			this.program = program;
+		}
+	}
+
+	public ShaderProgram getProgram()
+	{
+		return this.program;
+	}
+
+	/*
+	 * Sets the depth the coming quads are drawn at, from -1 in front to 1 at
+	 * the back of the depth range of the render layer, letting the depth test
+	 * keep the order of quads drawn in another order. Changing depth never
+	 * flushes the batch.
+	 */
+	public void setDepth(final float depth)
+	{
+		this.depth = depth;
+	}
+
+	public float getDepth()
+	{
+		return this.depth;
+	}
+
+	/*
+	 * Sets the affine transform the coming quads are drawn through.
+	 */
+	public void setTransform(final float a, final float b, final float c, final float d, final float tx, final float ty)
+	{
+		this.transformed = a != 1 || b != 0 || c != 0 || d != 1 || tx != 0 || ty != 0;
+		this.a = a;
+		this.b = b;
+		this.c = c;
+		this.d = d;
+		this.tx = tx;
+		this.ty = ty;
+	}
+
+	/*
+	 * Draws the coming quads without a transform.
+	 */
+	public void resetTransform()
+	{
+		this.setTransform(1, 0, 0, 1, 0, 0);
+	}
+
+	/*
+	 * Adds an axis aligned quad to the batch.
+	 *
+	 * @param x0, y0 the top left corner of the quad.
+	 *
+	 * @param x1, y1 the bottom right corner of the quad.
+	 *
+	 * @param u0, v0, u1, v1 the texture coordinates of the top left and bottom
+	 * right corners.
+	 *
+	 * @param color 0-255 RGBA color the texture is multiplied with.
+	 *
+	 * @param blend if the quad should be alpha blended.
+	 */
+	public void draw(final float x0, final float y0, final float x1, final float y1, final float u0, final float v0, final float u1, final float v1,
+			final Color color, final boolean blend)
+	{
+		this.draw(x0, y0, x1, y1, u0, v0, u1, v1, toByte(color.r), toByte(color.g), toByte(color.b), toByte(color.a), blend);
+	}
+
+	/*
+	 * Adds an axis aligned quad to the batch with a color packed by
+	 * packColor.
+	 */
+	public void draw(final float x0, final float y0, final float x1, final float y1, final float u0, final float v0, final float u1, final float v1,
+			final int color, final boolean blend)
+	{
+		this.draw(x0, y0, x1, y1, u0, v0, u1, v1, (byte) color, (byte) (color >>> 8), (byte) (color >>> 16), (byte) (color >>> 24), blend);
+	}
+
+	private void draw(final float x0, final float y0, final float x1, final float y1, final float u0, final float v0, final float u1, final float v1,
+			final byte r, final byte g, final byte b, final byte a, final boolean blend)
+	{
+		if (this.blend != blend)
+		{
+			this.flush();
+			this.blend = blend;
+		}
+
+		if (this.quadCount == this.capacity)
+		{
+			this.flush();
+		}
+
+		if (this.transformed)
+		{
+			this.putTransformedVertex(x0, y0, u0, v0, r, g, b, a);
+			this.putTransformedVertex(x1, y0, u1, v0, r, g, b, a);
+			this.putTransformedVertex(x1, y1, u1, v1, r, g, b, a);
+			this.putTransformedVertex(x0, y1, u0, v1, r, g, b, a);
+		} else
+		{
+			this.putVertex(x0, y0, u0, v0, r, g, b, a);
+			this.putVertex(x1, y0, u1, v0, r, g, b, a);
+			this.putVertex(x1, y1, u1, v1, r, g, b, a);
+			this.putVertex(x0, y1, u0, v1, r, g, b, a);
+		}
+
+		this.quadCount++;
+	}
+
+	/*
+	 * Hands all batched quads to the handler and empties the batch.
+	 */
+	public void flush()
+	{
+		if (this.quadCount == 0)
+		{
+			return;
+		}
+
+		final int count = this.quadCount * VERTICES_PER_QUAD;
+
+		this.vertices.flip();
+
+		if (this.handler != null)
+		{
+			this.handler.flush(this.vertices, count, this.texture, this.blend, this.program);
+		}
+
+		this.vertices.clear();
+		this.quadCount = 0;
+		this.flushCount++;
+		this.vertexCount += count;
+	}
+
+	private void putVertex(final float x, final float y, final float u, final float v, final byte r, final byte g, final byte b, final byte a)
+	{
+		this.vertices.putFloat(x)
+				.putFloat(y)
+				.putFloat(this.depth)
+				.putFloat(u)
+				.putFloat(v)
+				.put(r)
+				.put(g)
+				.put(b)
+				.put(a);
+	}
+
+	private void putTransformedVertex(final float x, final float y, final float u, final float v, final byte r, final byte g, final byte b,
+			final byte a)
+	{
+		this.putVertex(this.a * x + this.c * y + this.tx, this.b * x + this.d * y + this.ty, u, v, r, g, b, a);
+	}
+
+	/*
+	 * Packs a 0-255 RGBA color into an int, red in the lowest byte.
+	 */
+	public static int packColor(final Color color)
+	{
+		return (toByte(color.r) & 0xFF) | (toByte(color.g) & 0xFF) << 8 | (toByte(color.b) & 0xFF) << 16 | (toByte(color.a) & 0xFF) << 24;
+	}
+
+	private static byte toByte(final float channel)
+	{
+		if (channel <= 0)
+		{
+			return 0;
+		} else if (channel >= 255)
+		{
+			return (byte) 255;
+		}
+
+		return (byte) channel;
+	}
+
+	/*
+	 * Returns the number of quads currently waiting in the batch.
+	 */
+	public int size()
+	{
+		return this.quadCount;
+	}
+
+	/*
+	 * Returns the number of flushes (draw calls) done during the last
+	 * completed frame.
+	 */
+	public int getFlushesPerFrame()
+	{
+		return this.flushesLastFrame;
+	}
+
+	/*
+	 * Returns the number of vertices drawn during the last completed frame.
+	 */
+	public int getVerticesPerFrame()
+	{
+		return this.verticesLastFrame;
+	}
+
+}
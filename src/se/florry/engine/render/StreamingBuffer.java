@@ -0,0 +1,210 @@
+package se.florry.engine.render;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import se.florry.engine.constants.Constants;
+import se.florry.engine.utils.EngineUtils;
+
+/*
+ * A ring of regions in one GPU buffer that vertices are streamed through every frame without the driver waiting for
+ * the GPU. Each frame writes its own region and fences it when the frame ends, and a region is only written again once
+ * the GPU has passed its fence, so with three regions the GPU can be two frames behind before writing has to wait.
+ * A frame needing more than a region fences the one it filled and carries on in the next. Where the storage can be
+ * mapped persistently, data is written straight into GPU memory, otherwise it is written to memory of its own and
+ * uploaded, with the buffer orphaned every time the ring wraps around instead of fenced.
+ */
+public final class StreamingBuffer
+{
+
+	private final StreamingStorage storage;
+	private final int regionSize;
+	private final long[] fences;
+	private final ByteBuffer memory;
+	private final boolean persistent;
+
+	private int region;
+	private int offset;
+	private boolean frameEnded;
+	private int reservedOffset;
+	private int reservedBytes;
+
+	private int stalls;
+	private int wrapArounds;
+	private long stallNanos;
+
+	/*
+	 * @param regionSize the bytes of each region, the most that can be
+	 * reserved at once.
+	 *
+	 * @param regions the number of regions, at least two.
+	 */
+	public StreamingBuffer(final int regionSize, final int regions, final StreamingStorage storage)
+	{
+		this.storage = storage;
+		this.regionSize = regionSize;
+		this.fences = new long[regions];
+
+		final ByteBuffer mapped = storage.create(regionSize * regions);
+
+		this.persistent = mapped != null;
+		this.memory = this.persistent ? mapped : ByteBuffer.allocateDirect(regionSize * regions)
+				.order(ByteOrder.nativeOrder());
+	}
+
+	public StreamingBuffer(final StreamingStorage storage)
+	{
+		this(Constants.Render.STREAM_REGION_SIZE, Constants.Render.STREAM_REGIONS, storage);
+	}
+
+	/*
+	 * Reserves bytes in the current region, moving on to the next region if
+	 * they do not fit or the frame has ended. Returns the buffer positioned
+	 * at the reserved bytes and limited to them, to be written with relative
+	 * puts and then committed.
+	 */
+	public ByteBuffer reserve(final int bytes)
+	{
+		if (bytes > this.regionSize)
+		{
+			throw new IllegalArgumentException("Can not reserve " + bytes + " bytes in regions of " + this.regionSize + " bytes");
+		}
+
+		// Keeps floats aligned.
+		this.offset = this.offset + 3 & ~3;
+
+		if (this.frameEnded || this.offset + bytes > this.regionSize)
+		{
+			if (!this.frameEnded)
+			{
+				this.fenceRegion();
+			}
+
+			this.advance();
+		}
+
+		this.reservedOffset = this.region * this.regionSize + this.offset;
+		this.reservedBytes = bytes;
+		this.offset += bytes;
+
+		this.memory.clear();
+		this.memory.position(this.reservedOffset);
+		this.memory.limit(this.reservedOffset + bytes);
+
+		return this.memory;
+	}
+
+	/*
+	 * Makes the last reserved bytes visible to the GPU, returning where in
+	 * the buffer they are.
+	 */
+	public int commit()
+	{
+		if (!this.persistent)
+		{
+			this.memory.position(this.reservedOffset);
+			this.memory.limit(this.reservedOffset + this.reservedBytes);
+			this.storage.upload(this.reservedOffset, this.memory);
+		}
+
+		this.memory.clear();
+
+		return this.reservedOffset;
+	}
+
+	/*
+	 * Fences the region written during the frame. The next frame starts in
+	 * the next region. Has to be called after the draws of the frame.
+	 */
+	public void endFrame()
+	{
+		if (!this.frameEnded)
+		{
+			this.fenceRegion();
+			this.frameEnded = true;
+		}
+	}
+
+	private void fenceRegion()
+	{
+		if (this.persistent)
+		{
+			this.fences[this.region] = this.storage.fence();
+		}
+	}
+
+	/*
+	 * Moves on to the next region, waiting for the GPU to be done with it.
+	 */
+	private void advance()
+	{
+		this.region = (this.region + 1) % this.fences.length;
+		this.offset = 0;
+		this.frameEnded = false;
+
+		if (this.region == 0)
+		{
+			this.wrapArounds++;
+
+			if (!this.persistent)
+			{
+				this.storage.orphan();
+			}
+		}
+
+		final long fence = this.fences[this.region];
+
+		if (fence != 0)
+		{
+			if (!this.storage.isSignaled(fence))
+			{
+				final long start = EngineUtils.getNanoTime();
+
+				this.storage.waitFor(fence);
+				this.stalls++;
+				this.stallNanos += EngineUtils.getNanoTime() - start;
+			}
+
+			this.storage.deleteFence(fence);
+			this.fences[this.region] = 0;
+		}
+	}
+
+	/*
+	 * Returns true if data is written straight into GPU memory.
+	 */
+	public boolean isPersistent()
+	{
+		return this.persistent;
+	}
+
+	public int getRegionSize()
+	{
+		return this.regionSize;
+	}
+
+	/*
+	 * Returns the number of times writing had to wait for the GPU.
+	 */
+	public int getStalls()
+	{
+		return this.stalls;
+	}
+
+	/*
+	 * Returns the time spent waiting for the GPU in nanoseconds.
+	 */
+	public long getStallNanos()
+	{
+		return this.stallNanos;
+	}
+
+	/*
+	 * Returns the number of times the ring went back to the first region.
+	 */
+	public int getWrapArounds()
+	{
+		return this.wrapArounds;
+	}
+
+}
@@ -0,0 +1,49 @@
+package se.florry.engine.render;
+
+import java.nio.ByteBuffer;
+
+/*
+ * The GPU side of a streaming buffer: the buffer the data is streamed into and the fences telling when the GPU is
+ * done reading it. Kept apart from the streaming buffer so its region and fence bookkeeping can run against a fake
+ * without a GPU.
+ */
+public interface StreamingStorage
+{
+
+	/*
+	 * Creates the buffer, returning its memory mapped persistently and
+	 * coherently, or null if it can not be mapped and data has to be
+	 * uploaded.
+	 */
+	ByteBuffer create(int size);
+
+	/*
+	 * Copies data into the buffer when it is not mapped.
+	 */
+	void upload(int offset, ByteBuffer data);
+
+	/*
+	 * Gives the buffer new storage when it is not mapped, so uploads never
+	 * wait for draws still reading the old storage.
+	 */
+	void orphan();
+
+	/*
+	 * Returns a fence signaled once the GPU is done with every command given
+	 * so far.
+	 */
+	long fence();
+
+	/*
+	 * Returns true if the GPU has passed a fence, without waiting.
+	 */
+	boolean isSignaled(long fence);
+
+	/*
+	 * Waits until the GPU has passed a fence.
+	 */
+	void waitFor(long fence);
+
+	void deleteFence(long fence);
+
+}
@@ -0,0 +1,155 @@
+package se.florry.engine.scene;
+
+import java.util.Arrays;
+
+import se.florry.engine.render.SpriteBatch;
+
+/*
+ * A tree of scene nodes rendered through the sprite batch. Nodes that change their transform are put on a dirty list,
+ * and only the subtrees below them get their world transforms recalculated, so a frame where nothing moved costs
+ * nothing but the rendering. The nodes to render are kept in a flat list, in the order of a depth first walk of the
+ * tree, which is only rebuilt when nodes are added, removed, shown or hidden.
+ */
+public final class SceneGraph
+{
+
+	private final SceneNode root;
+
+	private SceneNode[] dirtyNodes;
+	private int dirtyCount;
+	private SceneNode[] renderList;
+	private int renderCount;
+	private boolean structureDirty;
+
+	private int lastUpdatedNodes;
+	private int rebuilds;
+
+	public SceneGraph()
+	{
+		this.root = new SceneNode();
+		this.dirtyNodes = new SceneNode[64];
+		this.renderList = new SceneNode[64];
+		this.root.attach(this);
+	}
+
+	/*
+	 * Returns the node all other nodes of the graph are added under. Moving
+	 * the root moves the whole graph.
+	 */
+	public SceneNode getRoot()
+	{
+		return this.root;
+	}
+
+	/*
+	 * Recalculates the world transforms of the nodes that changed since the
+	 * last update, and rebuilds the render list if the tree changed.
+	 */
+	public void update()
+	{
+		int updated = 0;
+
+		for (int i = 0; i < this.dirtyCount; i++)
+		{
+			final SceneNode node = this.dirtyNodes[i];
+
+			// Nodes below another changed node are recalculated with it.
+			if (node.isDirty() && !node.hasDirtyParent())
+			{
+				updated += node.updateWorld();
+			}
+
+			this.dirtyNodes[i] = null;
+		}
+
+		this.dirtyCount = 0;
+		this.lastUpdatedNodes = updated;
+
+		if (this.structureDirty)
+		{
+			this.structureDirty = false;
+			this.rebuilds++;
+
+			for (int i = 0; i < this.renderCount; i++)
+			{
+				this.renderList[i] = null;
+			}
+
+			this.renderCount = 0;
+			this.root.flatten(this);
+		}
+	}
+
+	/*
+	 * Updates the graph and calls the render handler of every visible node,
+	 * parents before children, with the sprite batch transformed by the world
+	 * transform of the node.
+	 */
+	public void render()
+	{
+		this.update();
+
+		final SpriteBatch batch = SpriteBatch.get();
+
+		for (int i = 0; i < this.renderCount; i++)
+		{
+			final SceneNode node = this.renderList[i];
+
+			batch.setTransform(node.a, node.b, node.c, node.d, node.tx, node.ty);
+			node.render();
+		}
+
+		batch.resetTransform();
+	}
+
+	void addDirty(final SceneNode node)
+	{
+		if (this.dirtyCount == this.dirtyNodes.length)
+		{
+			this.dirtyNodes = Arrays.copyOf(this.dirtyNodes, this.dirtyCount * 2);
+		}
+
+		this.dirtyNodes[this.dirtyCount++] = node;
+	}
+
+	void addToRenderList(final SceneNode node)
+	{
+		if (this.renderCount == this.renderList.length)
+		{
+			this.renderList = Arrays.copyOf(this.renderList, this.renderCount * 2);
+		}
+
+		this.renderList[this.renderCount++] = node;
+	}
+
+	void markStructureDirty()
+	{
+		this.structureDirty = true;
+	}
+
+	/*
+	 * Returns the number of nodes whose world transform was recalculated by
+	 * the last update.
+	 */
+	public int getLastUpdatedNodes()
+	{
+		return this.lastUpdatedNodes;
+	}
+
+	/*
+	 * Returns the number of nodes in the render list.
+	 */
+	public int getRenderListSize()
+	{
+		return this.renderCount;
+	}
+
+	/*
+	 * Returns the number of times the render list has been rebuilt.
+	 */
+	public int getRebuilds()
+	{
+		return this.rebuilds;
+	}
+
+}
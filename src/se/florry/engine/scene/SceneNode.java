@@ -0,0 +1,376 @@
+package se.florry.engine.scene;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import se.florry.engine.handler.SceneRenderHandler;
+
+/*
+ * A node in a scene graph with a transform (translation, scale and rotation) relative to its parent. The world
+ * transform of the node is cached and only recalculated, together with the world transforms of its children, when
+ * the node or one of its parents has changed. A node can have a render handler, called with the sprite batch
+ * transformed by the world transform of the node, so whatever the handler draws is placed, scaled and rotated with
+ * the node.
+ */
+public class SceneNode
+{
+
+	private final List<SceneNode> children;
+	private SceneNode parent;
+	private SceneGraph graph;
+	private SceneRenderHandler handler;
+
+	private float x;
+	private float y;
+	private float scaleX;
+	private float scaleY;
+	private float rotation;
+
+	/*
+	 * The world transform, mapping a point to x' = a * x + c * y + tx and y' =
+	 * b * x + d * y + ty.
+	 */
+	float a;
+	float b;
+	float c;
+	float d;
+	float tx;
+	float ty;
+
+	private boolean dirty;
+	private boolean visible;
+
+	public SceneNode(final SceneRenderHandler handler)
+	{
+		this.children = new ArrayList<>();
+		this.handler = handler;
+		this.scaleX = 1;
+		this.scaleY = 1;
+		this.a = 1;
+		this.d = 1;
+		this.visible = true;
+	}
+
+	public SceneNode()
+	{
+		this(null);
+	}
+
+	public SceneNode add(final SceneNode child)
+	{
+		return this.add(this.children.size(), child);
+	}
+
+	/*
+	 * Adds a child at a position among the children of the node. Children are
+	 * rendered after their parent, in the order they have among their
+	 * siblings.
+	 */
+	public SceneNode add(final int index, final SceneNode child)
+	{
+		if (child.parent != null)
+		{
+			child.parent.remove(child);
+		}
+
+		this.children.add(index, child);
+		child.parent = this;
+		child.attach(this.graph);
+		child.markDirty();
+		this.markStructureDirty();
+
+		return child;
+	}
+
+	public void remove(final SceneNode child)
+	{
+		if (this.children.remove(child))
+		{
+			child.parent = null;
+			child.attach(null);
+			this.markStructureDirty();
+		}
+	}
+
+	public void clear()
+	{
+		for (final SceneNode child : this.children)
+		{
+			child.parent = null;
+			child.attach(null);
+		}
+
+		this.children.clear();
+		this.markStructureDirty();
+	}
+
+	public SceneNode setPosition(final float x, final float y)
+	{
+		if (x != this.x || y != this.y)
+		{
+			this.x = x;
+			this.y = y;
+			this.markDirty();
+		}
+
+		return this;
+	}
+
+	public SceneNode setScale(final float scaleX, final float scaleY)
+	{
+		if (scaleX != this.scaleX || scaleY != this.scaleY)
+		{
+			this.scaleX = scaleX;
+			this.scaleY = scaleY;
+			this.markDirty();
+		}
+
+		return this;
+	}
+
+	/*
+	 * @param rotation the clockwise rotation in radians.
+	 */
+	public SceneNode setRotation(final float rotation)
+	{
+		if (rotation != this.rotation)
+		{
+			this.rotation = rotation;
+			this.markDirty();
+		}
+
+		return this;
+	}
+
+	public SceneNode setHandler(final SceneRenderHandler handler)
+	{
+		if ((handler == null) != (this.handler == null))
+		{
+			this.markStructureDirty();
+		}
+
+		this.handler = handler;
+
+		return this;
+	}
+
+	/*
+	 * Hidden nodes are left out of rendering together with their children.
+	 */
+	public void setVisible(final boolean visible)
+	{
+		if (visible != this.visible)
+		{
+			this.visible = visible;
+			this.markStructureDirty();
+		}
+	}
+
+	/*
+	 * Recalculates the world transform of the node and all its children from
+	 * the world transform of its parent.
+	 *
+	 * @return the number of nodes recalculated.
+	 */
+	int updateWorld()
+	{
+		final float cos = (float) Math.cos(this.rotation);
+		final float sin = (float) Math.sin(this.rotation);
+		final float localA = this.scaleX * cos;
+		final float localB = this.scaleX * sin;
+		final float localC = -this.scaleY * sin;
+		final float localD = this.scaleY * cos;
+
+		if (this.parent == null)
+		{
+			this.a = localA;
+			this.b = localB;
+			this.c = localC;
+			this.d = localD;
+			this.tx = this.x;
+			this.ty = this.y;
+		} else
+		{
+			final SceneNode parent = this.parent;
+
+			this.a = parent.a * localA + parent.c * localB;
+			this.b = parent.b * localA + parent.d * localB;
+			this.c = parent.a * localC + parent.c * localD;
+			this.d = parent.b * localC + parent.d * localD;
+			this.tx = parent.a * this.x + parent.c * this.y + parent.tx;
+			this.ty = parent.b * this.x + parent.d * this.y + parent.ty;
+		}
+
+		this.dirty = false;
+		int updated = 1;
+
+		for (int i = 0; i < this.children.size(); i++)
+		{
+			updated += this.children.get(i)
+					.updateWorld();
+		}
+
+		return updated;
+	}
+
+	/*
+	 * Adds the visible nodes with a render handler of the subtree to the
+	 * render list, parents before children.
+	 */
+	void flatten(final SceneGraph graph)
+	{
+		if (!this.visible)
+		{
+			return;
+		}
+
+		if (this.handler != null)
+		{
+			graph.addToRenderList(this);
+		}
+
+		for (int i = 0; i < this.children.size(); i++)
+		{
+			this.children.get(i)
+					.flatten(graph);
+		}
+	}
+
+	void render()
+	{
+		this.handler.render(this);
+	}
+
+	/*
+	 * Returns true if a parent of the node is waiting for its world transform
+	 * to be recalculated, which recalculates the node as well.
+	 */
+	boolean hasDirtyParent()
+	{
+		for (SceneNode node = this.parent; node != null; node = node.parent)
+		{
+			if (node.dirty)
+			{
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	boolean isDirty()
+	{
+		return this.dirty;
+	}
+
+	private void markDirty()
+	{
+		if (!this.dirty)
+		{
+			this.dirty = true;
+
+			if (this.graph != null)
+			{
+				this.graph.addDirty(this);
+			}
+		}
+	}
+
+	private void markStructureDirty()
+	{
+		if (this.graph != null)
+		{
+			this.graph.markStructureDirty();
+		}
+	}
+
+	void attach(final SceneGraph graph)
+	{
+		this.graph = graph;
+
+		if (graph != null && this.dirty)
+		{
+			graph.addDirty(this);
+		}
+
+		for (int i = 0; i < this.children.size(); i++)
+		{
+			this.children.get(i)
+					.attach(graph);
+		}
+	}
+
+	/*
+	 * Transforms a point from the local space of the node to world space.
+	 */
+	public float toWorldX(final float x, final float y)
+	{
+		return this.a * x + this.c * y + this.tx;
+	}
+
+	public float toWorldY(final float x, final float y)
+	{
+		return this.b * x + this.d * y + this.ty;
+	}
+
+	public float getX()
+	{
+		return this.x;
+	}
+
+	public float getY()
+	{
+		return this.y;
+	}
+
+	public float getScaleX()
+	{
+		return this.scaleX;
+	}
+
+	public float getScaleY()
+	{
+		return this.scaleY;
+	}
+
+	public float getRotation()
+	{
+		return this.rotation;
+	}
+
+	public float getWorldX()
+	{
+		return this.tx;
+	}
+
+	public float getWorldY()
+	{
+		return this.ty;
+	}
+
+	public SceneNode getParent()
+	{
+		return this.parent;
+	}
+
+	public SceneNode getChild(final int index)
+	{
+		return this.children.get(index);
+	}
+
+	public int getChildCount()
+	{
+		return this.children.size();
+	}
+
+	public SceneRenderHandler getHandler()
+	{
+		return this.handler;
+	}
+
+	public boolean isVisible()
+	{
+		return this.visible;
+	}
+
+}
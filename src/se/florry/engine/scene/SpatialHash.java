@@ -0,0 +1,377 @@
+package se.florry.engine.scene;
+
+import java.util.Arrays;
+import java.util.List;
+
+import se.florry.engine.constants.Constants;
+import se.florry.engine.model.QuadModel;
+import se.florry.engine.render.Camera;
+import se.florry.engine.utils.LongIntMap;
+
+/*
+ * Scene container indexing quads in a uniform grid of cells, so the quads visible through a camera rectangle can be
+ * found by looking at the cells it covers instead of every quad. Quads are added once and given a handle; a quad
+ * that moves is updated through its handle, which only touches the grid when the quad crosses into other cells.
+ * Cells are kept in a primitive hash map and never freed, so moving quads around does not allocate once the cells
+ * they visit exist.
+ */
+public final class SpatialHash
+{
+
+	private final float cellSize;
+	private final LongIntMap cellIndices;
+	private int[][] cells;
+	private int[] cellSizes;
+	private int cellCount;
+
+	private QuadModel[] quads;
+	// The range of cells every quad is in, inclusive.
+	private int[] minCellX;
+	private int[] minCellY;
+	private int[] maxCellX;
+	private int[] maxCellY;
+	private int[] stamps;
+	private int[] freeHandles;
+	private int freeCount;
+	private int handleCount;
+	private int size;
+
+	private int stamp;
+	private int lastVisitedCells;
+	private int lastTestedQuads;
+
+	/*
+	 * @param cellSize the width and height of a cell. Somewhere between the
+	 * size of a typical quad and the camera size works well.
+	 */
+	public SpatialHash(final float cellSize)
+	{
+		this.cellSize = cellSize;
+		this.cellIndices = new LongIntMap(1024);
+		this.cells = new int[256][];
+		this.cellSizes = new int[256];
+
+		this.quads = new QuadModel[256];
+		this.minCellX = new int[256];
+		this.minCellY = new int[256];
+		this.maxCellX = new int[256];
+		this.maxCellY = new int[256];
+		this.stamps = new int[256];
+		this.freeHandles = new int[256];
+	}
+
+	public SpatialHash()
+	{
+		this(Constants.Scene.CELL_SIZE);
+	}
+
+	/*
+	 * Adds a quad to the grid.
+	 *
+	 * @return the handle used to update and remove the quad.
+	 */
+	public int add(final QuadModel quad)
+	{
+		final int handle;
+
+		if (this.freeCount > 0)
+		{
+			handle = this.freeHandles[--this.freeCount];
+		} else
+		{
+			if (this.handleCount == this.quads.length)
+			{
+				this.growHandles();
+			}
+
+			handle = this.handleCount++;
+		}
+
+		this.quads[handle] = quad;
+		this.stamps[handle] = this.stamp;
+		this.minCellX[handle] = this.cellOf(this.getX(quad));
+		this.minCellY[handle] = this.cellOf(this.getY(quad));
+		this.maxCellX[handle] = this.cellOf(this.getX(quad) + quad.size.width);
+		this.maxCellY[handle] = this.cellOf(this.getY(quad) + quad.size.height);
+		this.insert(handle);
+		this.size++;
+
+		return handle;
+	}
+
+	/*
+	 * Moves a quad to the cells of its current position and size, if it has
+	 * left the cells it was in.
+	 */
+	public void update(final int handle)
+	{
+		final QuadModel quad = this.quads[handle];
+		final int minX = this.cellOf(this.getX(quad));
+		final int minY = this.cellOf(this.getY(quad));
+		final int maxX = this.cellOf(this.getX(quad) + quad.size.width);
+		final int maxY = this.cellOf(this.getY(quad) + quad.size.height);
+
+		if (minX == this.minCellX[handle] && minY == this.minCellY[handle] && maxX == this.maxCellX[handle] && maxY == this.maxCellY[handle])
+		{
+			return;
+		}
+
+		this.erase(handle);
+		this.minCellX[handle] = minX;
+		this.minCellY[handle] = minY;
+		this.maxCellX[handle] = maxX;
+		this.maxCellY[handle] = maxY;
+		this.insert(handle);
+	}
+
+	public void remove(final int handle)
+	{
+		if (this.quads[handle] == null)
+		{
+			return;
+		}
+
+		this.erase(handle);
+		this.quads[handle] = null;
+
+		if (this.freeCount == this.freeHandles.length)
+		{
+			this.freeHandles = Arrays.copyOf(this.freeHandles, this.freeCount * 2);
+		}
+
+		this.freeHandles[this.freeCount++] = handle;
+		this.size--;
+	}
+
+	public QuadModel get(final int handle)
+	{
+		return this.quads[handle];
+	}
+
+	/*
+	 * Adds every quad overlapping a rectangle to the list, each quad once.
+	 *
+	 * @return the number of quads added.
+	 */
+	public int query(final float x, final float y, final float width, final float height, final List<QuadModel> visible)
+	{
+		final int minX = this.cellOf(x);
+		final int minY = this.cellOf(y);
+		final int maxX = this.cellOf(x + width);
+		final int maxY = this.cellOf(y + height);
+		final int stamp = this.nextStamp();
+		int found = 0;
+
+		this.lastVisitedCells = 0;
+		this.lastTestedQuads = 0;
+
+		for (int cellY = minY; cellY <= maxY; cellY++)
+		{
+			for (int cellX = minX; cellX <= maxX; cellX++)
+			{
+				final int cell = this.cellIndices.get(key(cellX, cellY), -1);
+
+				if (cell == -1)
+				{
+					continue;
+				}
+
+				final int[] handles = this.cells[cell];
+				final int count = this.cellSizes[cell];
+				this.lastVisitedCells++;
+
+				for (int i = 0; i < count; i++)
+				{
+					final int handle = handles[i];
+
+					if (this.stamps[handle] == stamp)
+					{
+						continue;
+					}
+
+					this.stamps[handle] = stamp;
+					this.lastTestedQuads++;
+
+					final QuadModel quad = this.quads[handle];
+					final float quadX = this.getX(quad);
+					final float quadY = this.getY(quad);
+
+					if (quadX < x + width && quadX + quad.size.width > x && quadY < y + height && quadY + quad.size.height > y)
+					{
+						visible.add(quad);
+						found++;
+					}
+				}
+			}
+		}
+
+		return found;
+	}
+
+	/*
+	 * Adds every quad overlapping the rectangle of the world a camera shows to
+	 * the list, each quad once.
+	 *
+	 * @return the number of quads added.
+	 */
+	public int query(final Camera camera, final List<QuadModel> visible)
+	{
+		return this.query(camera.getVisibleX(), camera.getVisibleY(), camera.getVisibleWidth(), camera.getVisibleHeight(), visible);
+	}
+
+	/*
+	 * Renders every quad overlapping a rectangle, in the order they are found.
+	 *
+	 * @param visible a list reused between frames for the visible quads.
+	 *
+	 * @return the number of quads rendered.
+	 */
+	public int render(final float x, final float y, final float width, final float height, final List<QuadModel> visible)
+	{
+		visible.clear();
+		this.query(x, y, width, height, visible);
+
+		for (int i = 0; i < visible.size(); i++)
+		{
+			visible.get(i)
+					.render();
+		}
+
+		return visible.size();
+	}
+
+	private void insert(final int handle)
+	{
+		for (int cellY = this.minCellY[handle]; cellY <= this.maxCellY[handle]; cellY++)
+		{
+			for (int cellX = this.minCellX[handle]; cellX <= this.maxCellX[handle]; cellX++)
+			{
+				final long key = key(cellX, cellY);
+				int cell = this.cellIndices.get(key, -1);
+
+				if (cell == -1)
+				{
+					cell = this.createCell(key);
+				}
+
+				if (this.cellSizes[cell] == this.cells[cell].length)
+				{
+					this.cells[cell] = Arrays.copyOf(this.cells[cell], this.cellSizes[cell] * 2);
+				}
+
+				this.cells[cell][this.cellSizes[cell]++] = handle;
+			}
+		}
+	}
+
+	private void erase(final int handle)
+	{
+		for (int cellY = this.minCellY[handle]; cellY <= this.maxCellY[handle]; cellY++)
+		{
+			for (int cellX = this.minCellX[handle]; cellX <= this.maxCellX[handle]; cellX++)
+			{
+				final int cell = this.cellIndices.get(key(cellX, cellY), -1);
+				final int[] handles = this.cells[cell];
+				final int count = this.cellSizes[cell];
+
+				for (int i = 0; i < count; i++)
+				{
+					if (handles[i] == handle)
+					{
+						handles[i] = handles[count - 1];
+						this.cellSizes[cell]--;
+						break;
+					}
+				}
+			}
+		}
+	}
+
+	private int createCell(final long key)
+	{
+		if (this.cellCount == this.cells.length)
+		{
+			this.cells = Arrays.copyOf(this.cells, this.cellCount * 2);
+			this.cellSizes = Arrays.copyOf(this.cellSizes, this.cellCount * 2);
+		}
+
+		final int cell = this.cellCount++;
+		this.cells[cell] = new int[8];
+		this.cellIndices.put(key, cell);
+
+		return cell;
+	}
+
+	private void growHandles()
+	{
+		final int capacity = this.quads.length * 2;
+
+		this.quads = Arrays.copyOf(this.quads, capacity);
+		this.minCellX = Arrays.copyOf(this.minCellX, capacity);
+		this.minCellY = Arrays.copyOf(this.minCellY, capacity);
+		this.maxCellX = Arrays.copyOf(this.maxCellX, capacity);
+		this.maxCellY = Arrays.copyOf(this.maxCellY, capacity);
+		this.stamps = Arrays.copyOf(this.stamps, capacity);
+	}
+
+	/*
+	 * Returns a new query stamp, clearing the stamps of every quad when the
+	 * counter wraps.
+	 */
+	private int nextStamp()
+	{
+		if (++this.stamp == Integer.MAX_VALUE)
+		{
+			Arrays.fill(this.stamps, 0);
+			this.stamp = 1;
+		}
+
+		return this.stamp;
+	}
+
+	private int cellOf(final float coordinate)
+	{
+		return (int) Math.floor(coordinate / this.cellSize);
+	}
+
+	private static long key(final int cellX, final int cellY)
+	{
+		return (long) cellX << 32 | cellY & 0xFFFFFFFFL;
+	}
+
+	private float getX(final QuadModel quad)
+	{
+		return quad.position.x + quad.renderPositionOffset.x;
+	}
+
+	private float getY(final QuadModel quad)
+	{
+		return quad.position.y + quad.renderPositionOffset.y;
+	}
+
+	/*
+	 * Returns the number of quads in the grid.
+	 */
+	public int size()
+	{
+		return this.size;
+	}
+
+	/*
+	 * Returns the number of non empty cells looked at by the last query.
+	 */
+	public int getLastVisitedCells()
+	{
+		return this.lastVisitedCells;
+	}
+
+	/*
+	 * Returns the number of quads tested against the rectangle by the last
+	 * query.
+	 */
+	public int getLastTestedQuads()
+	{
+		return this.lastTestedQuads;
+	}
+
+}
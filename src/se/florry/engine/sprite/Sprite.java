@@ -0,0 +1,134 @@
+package se.florry.engine.sprite;
+
+import se.florry.engine.model.Color;
+import se.florry.engine.render.SpriteBatch;
+
+/*
+ * A sprite in a sprite store, for code that wants to handle sprites one at a time like quad models. Holds nothing
+ * but the store and the handle, every property is read from and written to the arrays of the store.
+ */
+public final class Sprite
+{
+
+	private final SpriteStore store;
+	private final int handle;
+
+	public Sprite(final SpriteStore store, final float x, final float y, final float width, final float height, final int texture)
+	{
+		this(store, store.add(x, y, width, height, texture));
+	}
+
+	public Sprite(final SpriteStore store, final int handle)
+	{
+		this.store = store;
+		this.handle = handle;
+	}
+
+	public Sprite setPosition(final float x, final float y)
+	{
+		final int index = this.store.indexOf(this.handle);
+
+		this.store.x[index] = x;
+		this.store.y[index] = y;
+
+		return this;
+	}
+
+	public Sprite setSize(final float width, final float height)
+	{
+		final int index = this.store.indexOf(this.handle);
+
+		this.store.width[index] = width;
+		this.store.height[index] = height;
+
+		return this;
+	}
+
+	public Sprite setTextureCoordinates(final float u0, final float v0, final float u1, final float v1)
+	{
+		final int index = this.store.indexOf(this.handle);
+
+		this.store.u0[index] = u0;
+		this.store.v0[index] = v0;
+		this.store.u1[index] = u1;
+		this.store.v1[index] = v1;
+
+		return this;
+	}
+
+	public Sprite setColor(final Color color)
+	{
+		this.store.colors[this.store.indexOf(this.handle)] = SpriteBatch.packColor(color);
+
+		return this;
+	}
+
+	public Sprite setTexture(final int texture)
+	{
+		this.store.textures[this.store.indexOf(this.handle)] = texture;
+
+		return this;
+	}
+
+	public Sprite setTransparency(final boolean transparency)
+	{
+		this.store.setFlag(this.store.indexOf(this.handle), SpriteStore.BLEND, transparency);
+
+		return this;
+	}
+
+	public void hide()
+	{
+		this.store.setFlag(this.store.indexOf(this.handle), SpriteStore.VISIBLE, false);
+	}
+
+	public void show()
+	{
+		this.store.setFlag(this.store.indexOf(this.handle), SpriteStore.VISIBLE, true);
+	}
+
+	public float getX()
+	{
+		return this.store.x[this.store.indexOf(this.handle)];
+	}
+
+	public float getY()
+	{
+		return this.store.y[this.store.indexOf(this.handle)];
+	}
+
+	public float getWidth()
+	{
+		return this.store.width[this.store.indexOf(this.handle)];
+	}
+
+	public float getHeight()
+	{
+		return this.store.height[this.store.indexOf(this.handle)];
+	}
+
+	public boolean isVisible()
+	{
+		return this.store.hasFlag(this.store.indexOf(this.handle), SpriteStore.VISIBLE);
+	}
+
+	public int getHandle()
+	{
+		return this.handle;
+	}
+
+	/*
+	 * Removes the sprite from the store. The sprite can not be used after
+	 * being removed.
+	 */
+	public void remove()
+	{
+		this.store.remove(this.handle);
+	}
+
+	public boolean isValid()
+	{
+		return this.store.isValid(this.handle);
+	}
+
+}
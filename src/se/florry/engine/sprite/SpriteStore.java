@@ -0,0 +1,279 @@
+package se.florry.engine.sprite;
+
+import se.florry.engine.constants.Constants;
+import se.florry.engine.model.QuadModel;
+import se.florry.engine.render.RenderQueue;
+import se.florry.engine.render.SpriteBatch;
+
+/*
+ * Sprites stored as a structure of arrays, every property of the sprites in its own packed primitive array. The
+ * sprites are kept densely at indices 0 to size() - 1, removing a sprite moving the last sprite into its place, so
+ * systems updating the sprites and the submitting to the sprite batch walk the arrays linearly. Sprites are referred
+ * to by handles which stay valid while the sprites move around in the arrays, and stop being valid once the sprite is
+ * removed, even if its slot is reused.
+ */
+public final class SpriteStore
+{
+
+	public static final byte VISIBLE = 1;
+	public static final byte BLEND = 2;
+
+	// Handles are the slot of a sprite in the low bits and the generation of the slot in the high bits.
+	private static final int SLOT_BITS = 20;
+	private static final int SLOT_MASK = (1 << SLOT_BITS) - 1;
+	private static final int GENERATION_MASK = (1 << 32 - SLOT_BITS) - 1;
+
+	/*
+	 * The properties of the sprites by index. Systems can read and write them
+	 * directly for indices below size().
+	 */
+	public final float[] x;
+	public final float[] y;
+	public final float[] width;
+	public final float[] height;
+	public final float[] u0;
+	public final float[] v0;
+	public final float[] u1;
+	public final float[] v1;
+	// Colors packed by SpriteBatch.packColor.
+	public final int[] colors;
+	public final int[] textures;
+	public final byte[] flags;
+
+	private final int capacity;
+	private final int[] slotToIndex;
+	private final int[] indexToSlot;
+	private final int[] generations;
+	private final int[] freeSlots;
+	private int freeCount;
+	private int slotCount;
+	private int size;
+
+	public SpriteStore(final int capacity)
+	{
+		if (capacity > SLOT_MASK + 1)
+		{
+			throw new IllegalArgumentException("Sprite store capacity " + capacity + " is over " + (SLOT_MASK + 1));
+		}
+
+		this.capacity = capacity;
+		this.x = new float[capacity];
+		this.y = new float[capacity];
+		this.width = new float[capacity];
+		this.height = new float[capacity];
+		this.u0 = new float[capacity];
+		this.v0 = new float[capacity];
+		this.u1 = new float[capacity];
+		this.v1 = new float[capacity];
+		this.colors = new int[capacity];
+		this.textures = new int[capacity];
+		this.flags = new byte[capacity];
+
+		this.slotToIndex = new int[capacity];
+		this.indexToSlot = new int[capacity];
+		this.generations = new int[capacity];
+		this.freeSlots = new int[capacity];
+	}
+
+	public SpriteStore()
+	{
+		this(Constants.Render.SPRITE_CAPACITY);
+	}
+
+	/*
+	 * Adds a visible white sprite showing the whole texture.
+	 *
+	 * @return the handle of the sprite.
+	 */
+	public int add(final float x, final float y, final float width, final float height, final int texture)
+	{
+		if (this.size == this.capacity)
+		{
+			throw new IllegalStateException("Sprite store is full, capacity " + this.capacity);
+		}
+
+		final int slot = this.freeCount > 0 ? this.freeSlots[--this.freeCount] : this.slotCount++;
+		final int index = this.size++;
+
+		this.slotToIndex[slot] = index;
+		this.indexToSlot[index] = slot;
+
+		this.x[index] = x;
+		this.y[index] = y;
+		this.width[index] = width;
+		this.height[index] = height;
+		this.u0[index] = 0;
+		this.v0[index] = 0;
+		this.u1[index] = 1;
+		this.v1[index] = 1;
+		this.colors[index] = -1;
+		this.textures[index] = texture;
+		this.flags[index] = VISIBLE;
+
+		return this.generations[slot] << SLOT_BITS | slot;
+	}
+
+	/*
+	 * Adds a sprite with the position, size, texture coordinates, color and
+	 * transparency of a quad.
+	 */
+	public int add(final QuadModel quad, final int texture)
+	{
+		final int handle = this.add(quad.position.x + quad.renderPositionOffset.x, quad.position.y + quad.renderPositionOffset.y, quad.size.width,
+				quad.size.height, texture);
+		final int index = this.indexOf(handle);
+
+		this.u0[index] = quad.textureCoordinates.x;
+		this.v0[index] = quad.textureCoordinates.y;
+		this.u1[index] = quad.textureCoordinates.x + quad.textureSize.x;
+		this.v1[index] = quad.textureCoordinates.y + quad.textureSize.y;
+		this.colors[index] = SpriteBatch.packColor(quad.color);
+		this.setFlag(index, BLEND, quad.hasTransparency() || quad.color.a < 255);
+
+		return handle;
+	}
+
+	/*
+	 * Removes a sprite, moving the last sprite into its index.
+	 */
+	public void remove(final int handle)
+	{
+		final int index = this.indexOf(handle);
+		final int slot = handle & SLOT_MASK;
+		final int last = --this.size;
+
+		if (index != last)
+		{
+			this.x[index] = this.x[last];
+			this.y[index] = this.y[last];
+			this.width[index] = this.width[last];
+			this.height[index] = this.height[last];
+			this.u0[index] = this.u0[last];
+			this.v0[index] = this.v0[last];
+			this.u1[index] = this.u1[last];
+			this.v1[index] = this.v1[last];
+			this.colors[index] = this.colors[last];
+			this.textures[index] = this.textures[last];
+			this.flags[index] = this.flags[last];
+
+			final int movedSlot = this.indexToSlot[last];
+			this.indexToSlot[index] = movedSlot;
+			this.slotToIndex[movedSlot] = index;
+		}
+
+		this.generations[slot] = this.generations[slot] + 1 & GENERATION_MASK;
+		this.freeSlots[this.freeCount++] = slot;
+	}
+
+	public boolean isValid(final int handle)
+	{
+		final int slot = handle & SLOT_MASK;
+
+		return slot < this.slotCount && this.generations[slot] == handle >>> SLOT_BITS && this.slotToIndex[slot] < this.size
+				&& this.indexToSlot[this.slotToIndex[slot]] == slot;
+	}
+
+	/*
+	 * Returns the current index of a sprite in the property arrays. The index
+	 * changes when other sprites are removed.
+	 */
+	public int indexOf(final int handle)
+	{
+		if (!this.isValid(handle))
+		{
+			throw new IllegalArgumentException("Sprite handle " + handle + " is not valid");
+		}
+
+		return this.slotToIndex[handle & SLOT_MASK];
+	}
+
+	/*
+	 * Returns the handle of the sprite at an index.
+	 */
+	public int handleAt(final int index)
+	{
+		final int slot = this.indexToSlot[index];
+
+		return this.generations[slot] << SLOT_BITS | slot;
+	}
+
+	public void setFlag(final int index, final byte flag, final boolean set)
+	{
+		this.flags[index] = (byte) (set ? this.flags[index] | flag : this.flags[index] & ~flag);
+	}
+
+	public boolean hasFlag(final int index, final byte flag)
+	{
+		return (this.flags[index] & flag) != 0;
+	}
+
+	/*
+	 * Writes all visible sprites to the sprite batch, in index order.
+	 *
+	 * @return the number of sprites submitted.
+	 */
+	public int submit(final SpriteBatch batch)
+	{
+		int submitted = 0;
+
+		for (int i = 0; i < this.size; i++)
+		{
+			final byte flags = this.flags[i];
+
+			if ((flags & VISIBLE) == 0)
+			{
+				continue;
+			}
+
+			final float x = this.x[i];
+			final float y = this.y[i];
+
+			batch.setTexture(this.textures[i]);
+			batch.draw(x, y, x + this.width[i], y + this.height[i], this.u0[i], this.v0[i], this.u1[i], this.v1[i], this.colors[i], (flags & BLEND) != 0);
+			submitted++;
+		}
+
+		return submitted;
+	}
+
+	/*
+	 * Writes all visible sprites to a render queue on one layer, in index
+	 * order.
+	 *
+	 * @return the number of sprites submitted.
+	 */
+	public int queue(final RenderQueue queue, final int layer)
+	{
+		int submitted = 0;
+
+		for (int i = 0; i < this.size; i++)
+		{
+			final byte flags = this.flags[i];
+
+			if ((flags & VISIBLE) == 0)
+			{
+				continue;
+			}
+
+			final float x = this.x[i];
+			final float y = this.y[i];
+
+			queue.submit(layer, 0, this.textures[i], (flags & BLEND) != 0, x, y, x + this.width[i], y + this.height[i], this.u0[i], this.v0[i], this.u1[i],
+					this.v1[i], this.colors[i]);
+			submitted++;
+		}
+
+		return submitted;
+	}
+
+	public int size()
+	{
+		return this.size;
+	}
+
+	public int getCapacity()
+	{
+		return this.capacity;
+	}
+
+}
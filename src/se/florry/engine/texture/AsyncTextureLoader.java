@@ -0,0 +1,244 @@
+package se.florry.engine.texture;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import se.florry.engine.constants.Constants;
+import se.florry.engine.handler.GenericHandler;
+import se.florry.engine.render.RenderContext;
+import se.florry.engine.utils.ByteBufferPool;
+
+/*
+ * Loads textures without stalling the render thread. PNG files are decoded on a pool of worker threads into pooled
+ * direct buffers, and the decoded images are queued for upload to the Open GL context, which happens on the render
+ * thread within a time budget each frame.
+ */
+public final class AsyncTextureLoader
+{
+
+	private static final AsyncTextureLoader loader = new AsyncTextureLoader(Constants.Textures.DECODE_THREADS);
+
+	private final int threads;
+	// Started by the first load, and again by the first load after a shutdown.
+	private ExecutorService workers;
+	private final ByteBufferPool buffers;
+	private final Queue<PendingTexture> uploads;
+	private volatile int placeholder;
+
+	private final AtomicLong decodedImages;
+	private final AtomicLong decodedBytes;
+	private final AtomicLong firstDecodeStart;
+	private final AtomicLong lastDecodeEnd;
+
+	public AsyncTextureLoader(final int threads)
+	{
+		this.threads = threads;
+		this.buffers = new ByteBufferPool();
+		this.uploads = new ConcurrentLinkedQueue<>();
+
+		this.decodedImages = new AtomicLong();
+		this.decodedBytes = new AtomicLong();
+		this.firstDecodeStart = new AtomicLong(Long.MAX_VALUE);
+		this.lastDecodeEnd = new AtomicLong();
+	}
+
+	/*
+	 * Returns the loader shared by the engine, whose uploads are processed
+	 * every frame by the engine loop.
+	 */
+	public static AsyncTextureLoader get()
+	{
+		return loader;
+	}
+
+	/*
+	 * Starts loading a texture in the background.
+	 *
+	 * @param uploadedHandler called on the render thread with the Texture once
+	 * it has been uploaded, or with null if the texture could not be decoded.
+	 * Can be null.
+	 */
+	public PendingTexture load(final String textureName, final GenericHandler uploadedHandler)
+	{
+		final PendingTexture pending = new PendingTexture(textureName, uploadedHandler);
+
+		this.getWorkers()
+				.execute(() -> this.decode(pending));
+
+		return pending;
+	}
+
+	private synchronized ExecutorService getWorkers()
+	{
+		if (this.workers == null)
+		{
+			this.workers = Executors.newFixedThreadPool(this.threads, runnable ->
+			{
+				final Thread thread = new Thread(runnable, "Texture decoder");
+				thread.setDaemon(true);
+
+				return thread;
+			});
+		}
+
+		return this.workers;
+	}
+
+	public PendingTexture load(final String textureName)
+	{
+		return this.load(textureName, null);
+	}
+
+	/*
+	 * Decodes a texture on a worker thread and queues it for upload.
+	 */
+	private void decode(final PendingTexture pending)
+	{
+		final long start = System.nanoTime();
+		this.firstDecodeStart.accumulateAndGet(start, Math::min);
+
+		final TextureImage image = TextureLoader.decodeTexture(pending.getName(), this.buffers);
+
+		if (image != null)
+		{
+			pending.decoded(image);
+			this.decodedImages.incrementAndGet();
+			this.decodedBytes.addAndGet(image.getByteSize());
+		} else
+		{
+			pending.fail();
+		}
+
+		this.lastDecodeEnd.accumulateAndGet(System.nanoTime(), Math::max);
+		// Failed textures are queued as well, to tell their handler on the render thread.
+		this.uploads.offer(pending);
+	}
+
+	/*
+	 * Uploads decoded textures until the time budget is spent. At least one
+	 * texture is uploaded per call if any is waiting, so loading always
+	 * progresses. Textures that failed to decode are handed to their handler
+	 * without counting against the budget. Has to be called on the render
+	 * thread.
+	 *
+	 * @return the number of textures uploaded.
+	 */
+	public int processUploads(final long budgetNanos)
+	{
+		final long start = System.nanoTime();
+		int uploaded = 0;
+		PendingTexture pending;
+
+		while ((uploaded == 0 || System.nanoTime() - start < budgetNanos) && (pending = this.uploads.poll()) != null)
+		{
+			if (pending.isFailed())
+			{
+				pending.failedToLoad();
+				continue;
+			}
+
+			final TextureImage image = pending.getImage();
+			final ByteBuffer pixels = image.getPixels();
+
+			pending.uploaded(new Texture(TextureLoader.uploadTexture(image), image.getWidth(), image.getHeight()));
+			this.buffers.release(pixels);
+			uploaded++;
+		}
+
+		return uploaded;
+	}
+
+	/*
+	 * Returns a 1x1 white texture bound in place of textures still loading.
+	 * The first call creates it, and has to be on the render thread.
+	 */
+	public int getPlaceholder()
+	{
+		if (this.placeholder == 0)
+		{
+			if (!RenderContext.isRenderThread())
+			{
+				throw new IllegalStateException("The placeholder texture has to be created on the render thread");
+			}
+
+			final ByteBuffer white = ByteBuffer.allocateDirect(TextureImage.BYTES_PER_PIXEL);
+
+			while (white.hasRemaining())
+			{
+				white.put((byte) 255);
+			}
+			white.flip();
+
+			this.placeholder = TextureLoader.uploadTexture(new TextureImage(1, 1, white));
+		}
+
+		return this.placeholder;
+	}
+
+	/*
+	 * Returns the number of textures decoded and waiting to be uploaded.
+	 */
+	public int getQueuedUploads()
+	{
+		return this.uploads.size();
+	}
+
+	public long getDecodedImages()
+	{
+		return this.decodedImages.get();
+	}
+
+	/*
+	 * Returns the decoded megabytes per second of wall clock time, from the
+	 * start of the first decode to the end of the last one.
+	 */
+	public float getDecodeThroughput()
+	{
+		final float seconds = this.getDecodeSeconds();
+
+		return seconds > 0 ? this.decodedBytes.get() / (1024f * 1024f) / seconds : 0;
+	}
+
+	/*
+	 * Returns the decoded images per second of wall clock time, from the start
+	 * of the first decode to the end of the last one.
+	 */
+	public float getImagesPerSecond()
+	{
+		final float seconds = this.getDecodeSeconds();
+
+		return seconds > 0 ? this.decodedImages.get() / seconds : 0;
+	}
+
+	private float getDecodeSeconds()
+	{
+		final long start = this.firstDecodeStart.get();
+		final long end = this.lastDecodeEnd.get();
+
+		return end > start ? (end - start) / 1000000000f : 0;
+	}
+
+	/*
+	 * Stops the worker threads. Textures still being decoded are dropped, and
+	 * the placeholder is forgotten along with the Open GL context it was made
+	 * in. The loader can still be used afterwards, as by the next engine in
+	 * the same JVM, starting new worker threads on the next load.
+	 */
+	public synchronized void shutdown()
+	{
+		if (this.workers != null)
+		{
+			this.workers.shutdownNow();
+			this.workers = null;
+		}
+
+		this.uploads.clear();
+		this.buffers.clear();
+		this.placeholder = 0;
+	}
+
+}
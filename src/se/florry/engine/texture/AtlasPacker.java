@@ -0,0 +1,430 @@
+package se.florry.engine.texture;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import javax.imageio.ImageIO;
+
+import se.florry.engine.constants.Constants;
+import se.florry.engine.utils.EngineUtils;
+
+/*
+ * Packs many textures into a few large atlas pages using the MaxRects bin packing algorithm (best short side fit).
+ * Can be used in-process through TextureAtlas.pack or offline through AtlasPackerTool, producing page images and
+ * an index file that TextureAtlas.load reads.
+ */
+public final class AtlasPacker
+{
+
+	private final int pageSize;
+	private final int padding;
+
+	private final List<String> names;
+	private final List<TextureImage> images;
+	private final List<AtlasRegion> regions;
+	private final List<TextureImage> pages;
+
+	private long packTime;
+	private float efficiency;
+
+	/*
+	 * @param pageSize the maximum width and height of a page in pixels.
+	 *
+	 * @param padding the empty pixels between packed textures.
+	 */
+	public AtlasPacker(final int pageSize, final int padding)
+	{
+		this.pageSize = pageSize;
+		this.padding = padding;
+		this.names = new ArrayList<>();
+		this.images = new ArrayList<>();
+		this.regions = new ArrayList<>();
+		this.pages = new ArrayList<>();
+	}
+
+	public AtlasPacker()
+	{
+		this(Constants.Textures.ATLAS_PAGE_SIZE, Constants.Textures.ATLAS_PADDING);
+	}
+
+	/*
+	 * Adds a texture to be packed.
+	 *
+	 * @param name the name the texture is looked up by in the atlas.
+	 */
+	public AtlasPacker add(final String name, final TextureImage image)
+	{
+		this.names.add(name);
+		this.images.add(image);
+
+		return this;
+	}
+
+	/*
+	 * Packs all added textures, largest first, returning the resulting pages.
+	 * The placement of every texture is available through getRegions
+	 * afterwards.
+	 */
+	public List<TextureImage> pack()
+	{
+		final long start = System.nanoTime();
+
+		final Integer[] order = new Integer[this.images.size()];
+
+		for (int i = 0; i < order.length; i++)
+		{
+			order[i] = i;
+		}
+
+		Arrays.sort(order, (a, b) ->
+		{
+			final TextureImage first = this.images.get(a);
+			final TextureImage second = this.images.get(b);
+			final int side = Math.max(second.getWidth(), second.getHeight()) - Math.max(first.getWidth(), first.getHeight());
+
+			return side != 0 ? side : second.getWidth() * second.getHeight() - first.getWidth() * first.getHeight();
+		});
+
+		final List<Page> bins = new ArrayList<>();
+		final int[] pageOf = new int[order.length];
+		final int[] placement = new int[order.length * 2];
+		final int[] position = new int[2];
+
+		for (final int index : order)
+		{
+			final TextureImage image = this.images.get(index);
+			final int width = image.getWidth() + this.padding;
+			final int height = image.getHeight() + this.padding;
+
+			if (image.getWidth() > this.pageSize || image.getHeight() > this.pageSize)
+			{
+				throw new IllegalArgumentException("Texture " + this.names.get(index) + " does not fit in an atlas page of " + this.pageSize + " pixels");
+			}
+
+			int page = 0;
+
+			while (page < bins.size() && !bins.get(page)
+					.insert(width, height, position))
+			{
+				page++;
+			}
+
+			if (page == bins.size())
+			{
+				final Page bin = new Page(this.pageSize + this.padding);
+				bin.insert(width, height, position);
+				bins.add(bin);
+			}
+
+			pageOf[index] = page;
+			placement[index * 2] = position[0];
+			placement[index * 2 + 1] = position[1];
+		}
+
+		this.regions.clear();
+		this.pages.clear();
+
+		long usedPixels = 0;
+		long totalPixels = 0;
+
+		for (final Page bin : bins)
+		{
+			final int width = this.pageDimension(bin.usedWidth);
+			final int height = this.pageDimension(bin.usedHeight);
+
+			this.pages.add(new TextureImage(width, height, ByteBuffer.allocateDirect(width * height * TextureImage.BYTES_PER_PIXEL)));
+			totalPixels += (long) width * height;
+		}
+
+		for (int i = 0; i < this.images.size(); i++)
+		{
+			final TextureImage image = this.images.get(i);
+			final TextureImage page = this.pages.get(pageOf[i]);
+			final int x = placement[i * 2];
+			final int y = placement[i * 2 + 1];
+
+			copy(image, page, x, y);
+
+			this.regions.add(new AtlasRegion(this.names.get(i), pageOf[i], x, y, image.getWidth(), image.getHeight(), page.getWidth(), page.getHeight()));
+			usedPixels += (long) image.getWidth() * image.getHeight();
+		}
+
+		this.efficiency = totalPixels > 0 ? usedPixels / (float) totalPixels : 0;
+		this.packTime = System.nanoTime() - start;
+
+		return this.pages;
+	}
+
+	/*
+	 * Copies an image row by row into a page at the given position.
+	 */
+	private static void copy(final TextureImage image, final TextureImage page, final int x, final int y)
+	{
+		final ByteBuffer source = image.getPixels()
+				.duplicate();
+		final ByteBuffer destination = page.getPixels()
+				.duplicate();
+		final int rowBytes = image.getStride();
+
+		for (int row = 0; row < image.getHeight(); row++)
+		{
+			source.limit(row * rowBytes + rowBytes);
+			source.position(row * rowBytes);
+			destination.position(((y + row) * page.getWidth() + x) * TextureImage.BYTES_PER_PIXEL);
+			destination.put(source);
+		}
+	}
+
+	/*
+	 * Shrinks a page dimension to the smallest power of two holding the packed
+	 * pixels, never exceeding the page size.
+	 */
+	private int pageDimension(final int used)
+	{
+		final int pixels = used - this.padding;
+		int result = 1;
+
+		while (result < pixels)
+		{
+			result <<= 1;
+		}
+
+		return Math.min(result, this.pageSize);
+	}
+
+	public List<AtlasRegion> getRegions()
+	{
+		return Collections.unmodifiableList(this.regions);
+	}
+
+	public List<TextureImage> getPages()
+	{
+		return Collections.unmodifiableList(this.pages);
+	}
+
+	/*
+	 * Returns the time the last pack took in nanoseconds.
+	 */
+	public long getPackTime()
+	{
+		return this.packTime;
+	}
+
+	/*
+	 * Returns the share of the page pixels covered by textures after the last
+	 * pack, between 0 and 1.
+	 */
+	public float getEfficiency()
+	{
+		return this.efficiency;
+	}
+
+	/*
+	 * Writes the packed pages as PNG files named atlasName_page and the index
+	 * file atlasName.atlas to a directory.
+	 */
+	public void write(final String directory, final String atlasName) throws IOException
+	{
+		final File outputDirectory = new File(directory);
+		outputDirectory.mkdirs();
+
+		try (final PrintWriter index = new PrintWriter(new File(outputDirectory, atlasName + "." + Constants.Textures.ATLAS_FILEFORMAT), "UTF-8"))
+		{
+			for (int i = 0; i < this.pages.size(); i++)
+			{
+				final TextureImage page = this.pages.get(i);
+				final String pageName = atlasName + "_" + i;
+
+				ImageIO.write(toBufferedImage(page), Constants.Textures.TEXTURE_FILEFORMAT,
+						new File(outputDirectory, pageName + "." + Constants.Textures.TEXTURE_FILEFORMAT));
+				index.println("page " + page.getWidth() + " " + page.getHeight() + " " + pageName);
+			}
+
+			for (final AtlasRegion region : this.regions)
+			{
+				index.println("region " + region.getPage() + " " + region.getX() + " " + region.getY() + " " + region.getWidth() + " " + region.getHeight()
+						+ " " + region.getName());
+			}
+		}
+	}
+
+	private static BufferedImage toBufferedImage(final TextureImage page)
+	{
+		final BufferedImage image = new BufferedImage(page.getWidth(), page.getHeight(), BufferedImage.TYPE_INT_ARGB);
+		final ByteBuffer pixels = page.getPixels();
+
+		for (int y = 0; y < page.getHeight(); y++)
+		{
+			for (int x = 0; x < page.getWidth(); x++)
+			{
+				final int offset = (y * page.getWidth() + x) * TextureImage.BYTES_PER_PIXEL;
+				final int r = pixels.get(offset) & 0xFF;
+				final int g = pixels.get(offset + 1) & 0xFF;
+				final int b = pixels.get(offset + 2) & 0xFF;
+				final int a = pixels.get(offset + 3) & 0xFF;
+
+				image.setRGB(x, y, a << 24 | r << 16 | g << 8 | b);
+			}
+		}
+
+		return image;
+	}
+
+	/*
+	 * Logs the number of pages, packing efficiency and time of the last pack.
+	 */
+	public void report(final String atlasName)
+	{
+		EngineUtils.log("Packed", this.regions.size(), "textures into", this.pages.size(), "page(s) for atlas", atlasName, "in",
+				this.packTime / 1000000f, "ms,", Math.round(this.efficiency * 100), "% efficiency");
+	}
+
+	/*
+	 * A single page being packed, keeping track of the free rectangles left in
+	 * it.
+	 */
+	private static final class Page
+	{
+
+		private final List<int[]> freeRectangles;
+		private int usedWidth;
+		private int usedHeight;
+
+		private Page(final int size)
+		{
+			this.freeRectangles = new ArrayList<>();
+			this.freeRectangles.add(new int[] { 0, 0, size, size });
+		}
+
+		/*
+		 * Places a rectangle in the free rectangle leaving the shortest side
+		 * left over. Writes the position to the out array and returns true,
+		 * or returns false if it did not fit.
+		 */
+		private boolean insert(final int width, final int height, final int[] out)
+		{
+			int[] best = null;
+			int bestShortSide = Integer.MAX_VALUE;
+			int bestLongSide = Integer.MAX_VALUE;
+
+			for (final int[] free : this.freeRectangles)
+			{
+				if (free[2] >= width && free[3] >= height)
+				{
+					final int leftoverX = free[2] - width;
+					final int leftoverY = free[3] - height;
+					final int shortSide = Math.min(leftoverX, leftoverY);
+					final int longSide = Math.max(leftoverX, leftoverY);
+
+					if (shortSide < bestShortSide || shortSide == bestShortSide && longSide < bestLongSide)
+					{
+						best = free;
+						bestShortSide = shortSide;
+						bestLongSide = longSide;
+					}
+				}
+			}
+
+			if (best == null)
+			{
+				return false;
+			}
+
+			final int[] placed = { best[0], best[1], width, height };
+
+			this.split(placed);
+			this.prune();
+
+			this.usedWidth = Math.max(this.usedWidth, placed[0] + width);
+			this.usedHeight = Math.max(this.usedHeight, placed[1] + height);
+
+			out[0] = placed[0];
+			out[1] = placed[1];
+
+			return true;
+		}
+
+		/*
+		 * Replaces every free rectangle overlapped by the placed one with the
+		 * up to four rectangles left around it.
+		 */
+		private void split(final int[] placed)
+		{
+			final List<int[]> created = new ArrayList<>();
+
+			for (int i = this.freeRectangles.size() - 1; i >= 0; i--)
+			{
+				final int[] free = this.freeRectangles.get(i);
+
+				if (placed[0] >= free[0] + free[2] || placed[0] + placed[2] <= free[0] || placed[1] >= free[1] + free[3]
+						|| placed[1] + placed[3] <= free[1])
+				{
+					continue;
+				}
+
+				this.freeRectangles.remove(i);
+
+				if (placed[0] > free[0])
+				{
+					created.add(new int[] { free[0], free[1], placed[0] - free[0], free[3] });
+				}
+				if (placed[0] + placed[2] < free[0] + free[2])
+				{
+					created.add(new int[] { placed[0] + placed[2], free[1], free[0] + free[2] - placed[0] - placed[2], free[3] });
+				}
+				if (placed[1] > free[1])
+				{
+					created.add(new int[] { free[0], free[1], free[2], placed[1] - free[1] });
+				}
+				if (placed[1] + placed[3] < free[1] + free[3])
+				{
+					created.add(new int[] { free[0], placed[1] + placed[3], free[2], free[1] + free[3] - placed[1] - placed[3] });
+				}
+			}
+
+			this.freeRectangles.addAll(created);
+		}
+
+		/*
+		 * Removes free rectangles fully contained in other free rectangles.
+		 */
+		private void prune()
+		{
+			for (int i = 0; i < this.freeRectangles.size(); i++)
+			{
+				for (int j = i + 1; j < this.freeRectangles.size(); j++)
+				{
+					final int[] first = this.freeRectangles.get(i);
+					final int[] second = this.freeRectangles.get(j);
+
+					if (contains(second, first))
+					{
+						this.freeRectangles.remove(i);
+						i--;
+						break;
+					}
+					if (contains(first, second))
+					{
+						this.freeRectangles.remove(j);
+						j--;
+					}
+				}
+			}
+		}
+
+		private static boolean contains(final int[] outer, final int[] inner)
+		{
+			return inner[0] >= outer[0] && inner[1] >= outer[1] && inner[0] + inner[2] <= outer[0] + outer[2]
+					&& inner[1] + inner[3] <= outer[1] + outer[3];
+		}
+
+	}
+
+}
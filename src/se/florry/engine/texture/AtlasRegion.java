@@ -0,0 +1,67 @@
+package se.florry.engine.texture;
+
+/*
+ * The placement of one packed texture within a texture atlas page, in pixels and in UV space.
+ */
+public final class AtlasRegion
+{
+
+	private final String name;
+	private final int page;
+	private final int x;
+	private final int y;
+	private final int width;
+	private final int height;
+
+	public final float u0;
+	public final float v0;
+	public final float u1;
+	public final float v1;
+
+	public AtlasRegion(final String name, final int page, final int x, final int y, final int width, final int height, final int pageWidth,
+			final int pageHeight)
+	{
+		this.name = name;
+		this.page = page;
+		this.x = x;
+		this.y = y;
+		this.width = width;
+		this.height = height;
+
+		this.u0 = x / (float) pageWidth;
+		this.v0 = y / (float) pageHeight;
+		this.u1 = (x + width) / (float) pageWidth;
+		this.v1 = (y + height) / (float) pageHeight;
+	}
+
+	public String getName()
+	{
+		return this.name;
+	}
+
+	public int getPage()
+	{
+		return this.page;
+	}
+
+	public int getX()
+	{
+		return this.x;
+	}
+
+	public int getY()
+	{
+		return this.y;
+	}
+
+	public int getWidth()
+	{
+		return this.width;
+	}
+
+	public int getHeight()
+	{
+		return this.height;
+	}
+
+}
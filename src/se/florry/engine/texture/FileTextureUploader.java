@@ -0,0 +1,34 @@
+package se.florry.engine.texture;
+
+import se.florry.engine.render.RenderContext;
+
+/*
+ * Texture uploader reading textures from file and loading them through the render backend.
+ */
+public final class FileTextureUploader implements TextureUploader
+{
+
+	@Override
+	public Texture upload(final String textureName)
+	{
+		final TextureImage image = TextureLoader.decodeTexture(textureName);
+
+		if (image == null)
+		{
+			return new Texture(0, 0, 0);
+		}
+
+		return new Texture(TextureLoader.uploadTexture(image), image.getWidth(), image.getHeight());
+	}
+
+	@Override
+	public void delete(final Texture texture)
+	{
+		if (texture.getId() != 0)
+		{
+			RenderContext.get()
+					.deleteTexture(texture.getId());
+		}
+	}
+
+}
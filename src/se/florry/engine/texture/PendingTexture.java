@@ -0,0 +1,90 @@
+package se.florry.engine.texture;
+
+import se.florry.engine.handler.GenericHandler;
+
+/*
+ * Handle to a texture being loaded by the AsyncTextureLoader. The texture is decoded on a worker thread and becomes
+ * available once it has been uploaded on the render thread.
+ */
+public final class PendingTexture
+{
+
+	private final String name;
+	private final GenericHandler uploadedHandler;
+	private volatile TextureImage image;
+	private volatile Texture texture;
+	private volatile boolean failed;
+
+	PendingTexture(final String name, final GenericHandler uploadedHandler)
+	{
+		this.name = name;
+		this.uploadedHandler = uploadedHandler;
+	}
+
+	public String getName()
+	{
+		return this.name;
+	}
+
+	/*
+	 * Returns true when the texture has been uploaded or failed to load.
+	 */
+	public boolean isDone()
+	{
+		return this.texture != null || this.failed;
+	}
+
+	public boolean isFailed()
+	{
+		return this.failed;
+	}
+
+	/*
+	 * Returns the uploaded texture, or null while it is still loading.
+	 */
+	public Texture getTexture()
+	{
+		return this.texture;
+	}
+
+	TextureImage getImage()
+	{
+		return this.image;
+	}
+
+	void decoded(final TextureImage image)
+	{
+		this.image = image;
+	}
+
+	void fail()
+	{
+		this.failed = true;
+	}
+
+	/*
+	 * Called on the render thread for a texture that could not be decoded.
+	 */
+	void failedToLoad()
+	{
+		if (this.uploadedHandler != null)
+		{
+			this.uploadedHandler.handle(null);
+		}
+	}
+
+	/*
+	 * Called on the render thread once the texture has been uploaded.
+	 */
+	void uploaded(final Texture texture)
+	{
+		this.image = null;
+		this.texture = texture;
+
+		if (this.uploadedHandler != null)
+		{
+			this.uploadedHandler.handle(texture);
+		}
+	}
+
+}
@@ -0,0 +1,46 @@
+package se.florry.engine.texture;
+
+/*
+ * A texture loaded in the Open GL context.
+ */
+public final class Texture
+{
+
+	private final int id;
+	private final int width;
+	private final int height;
+
+	public Texture(final int id, final int width, final int height)
+	{
+		this.id = id;
+		this.width = width;
+		this.height = height;
+	}
+
+	/*
+	 * Returns the id of the texture within the Open GL context.
+	 */
+	public int getId()
+	{
+		return this.id;
+	}
+
+	public int getWidth()
+	{
+		return this.width;
+	}
+
+	public int getHeight()
+	{
+		return this.height;
+	}
+
+	/*
+	 * Returns the memory used by the texture in the Open GL context.
+	 */
+	public long getByteSize()
+	{
+		return (long) this.width * this.height * TextureImage.BYTES_PER_PIXEL;
+	}
+
+}
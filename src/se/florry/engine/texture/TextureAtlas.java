@@ -0,0 +1,166 @@
+package se.florry.engine.texture;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import se.florry.engine.constants.Constants;
+
+/*
+ * A set of texture pages with many textures packed into each, making it possible to render quads with different
+ * textures without rebinding the texture in between.
+ */
+public final class TextureAtlas
+{
+
+	private final int[] pages;
+	private final Map<String, AtlasRegion> regions;
+
+	private TextureAtlas(final int[] pages, final Map<String, AtlasRegion> regions)
+	{
+		this.pages = pages;
+		this.regions = regions;
+	}
+
+	/*
+	 * Loads an atlas packed offline by the AtlasPacker. Reads the index file
+	 * atlasName.atlas and the page textures from the texture location.
+	 */
+	public static TextureAtlas load(final String atlasName)
+	{
+		final String filename = Constants.Textures.TEXTURE_LOCATION + atlasName + "." + Constants.Textures.ATLAS_FILEFORMAT;
+		final List<String> pageNames = new ArrayList<>();
+		final List<int[]> pageSizes = new ArrayList<>();
+		final List<String[]> regionLines = new ArrayList<>();
+
+		try (final BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(filename), StandardCharsets.UTF_8)))
+		{
+			String line;
+
+			while ((line = reader.readLine()) != null)
+			{
+				if (line.startsWith("page "))
+				{
+					final String[] values = line.split(" ", 4);
+					pageSizes.add(new int[] { Integer.parseInt(values[1]), Integer.parseInt(values[2]) });
+					pageNames.add(values[3]);
+				} else if (line.startsWith("region "))
+				{
+					regionLines.add(line.split(" ", 7));
+				}
+			}
+		} catch (final IOException e)
+		{
+			System.out.println("Error reading atlas " + filename);
+		}
+
+		final int[] pages = new int[pageNames.size()];
+
+		for (int i = 0; i < pages.length; i++)
+		{
+			pages[i] = TextureLoader.readTexture(pageNames.get(i));
+		}
+
+		final Map<String, AtlasRegion> regions = new HashMap<>();
+
+		for (final String[] values : regionLines)
+		{
+			final int page = Integer.parseInt(values[1]);
+			final int[] pageSize = pageSizes.get(page);
+
+			regions.put(values[6],
+					new AtlasRegion(values[6],
+							page,
+							Integer.parseInt(values[2]),
+							Integer.parseInt(values[3]),
+							Integer.parseInt(values[4]),
+							Integer.parseInt(values[5]),
+							pageSize[0],
+							pageSize[1]));
+		}
+
+		return new TextureAtlas(pages, regions);
+	}
+
+	/*
+	 * Decodes and packs textures in-process and loads the resulting pages in
+	 * the Open GL context. The packing efficiency and time is logged.
+	 */
+	public static TextureAtlas pack(final String... textureNames)
+	{
+		final AtlasPacker packer = new AtlasPacker();
+
+		for (final String textureName : textureNames)
+		{
+			final TextureImage image = TextureLoader.decodeTexture(textureName);
+
+			if (image != null)
+			{
+				packer.add(textureName, image);
+			}
+		}
+
+		return pack(packer, String.join(",", textureNames));
+	}
+
+	/*
+	 * Packs the images added to a packer and loads the resulting pages in the
+	 * Open GL context, for textures already decoded or made in memory. The
+	 * packing efficiency and time is logged under the atlas name.
+	 */
+	public static TextureAtlas pack(final AtlasPacker packer, final String atlasName)
+	{
+		final List<TextureImage> packedPages = packer.pack();
+		final int[] pages = new int[packedPages.size()];
+
+		for (int i = 0; i < pages.length; i++)
+		{
+			pages[i] = TextureLoader.uploadTexture(packedPages.get(i));
+		}
+
+		final Map<String, AtlasRegion> regions = new HashMap<>();
+
+		for (final AtlasRegion region : packer.getRegions())
+		{
+			regions.put(region.getName(), region);
+		}
+
+		packer.report(atlasName);
+
+		return new TextureAtlas(pages, regions);
+	}
+
+	/*
+	 * Returns where a texture ended up in the atlas, or null if the atlas does
+	 * not contain it.
+	 */
+	public AtlasRegion getRegion(final String textureName)
+	{
+		return this.regions.get(textureName);
+	}
+
+	public boolean contains(final String textureName)
+	{
+		return this.regions.containsKey(textureName);
+	}
+
+	/*
+	 * Returns the id of a page texture within the Open GL context.
+	 */
+	public int getPageTexture(final int page)
+	{
+		return this.pages[page];
+	}
+
+	public int getPageCount()
+	{
+		return this.pages.length;
+	}
+
+}
@@ -0,0 +1,270 @@
+package se.florry.engine.texture;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+import se.florry.engine.constants.Constants;
+import se.florry.engine.utils.ByteBufferPool;
+import se.florry.engine.utils.Lz4Codec;
+
+/*
+ * Cache of pre-decoded textures. The first time a texture is decoded its raw RGBA pixels are written to a cache file,
+ * and later loads memory map that file and hand the mapped pixels straight to Open GL instead of decoding the PNG
+ * again. A cache file is used as long as its source PNG has the same modification time and size, or the same CRC32
+ * if only the modification time changed.
+ *
+ * File layout, little endian: magic, version, width, height, flags, payload length as ints, source modification time,
+ * source size and source CRC32 as longs, followed by the payload of raw or LZ4 compressed pixels.
+ */
+public final class TextureCache
+{
+
+	private static final int MAGIC = 0x58455446; // "FTEX"
+	private static final int VERSION = 1;
+	private static final int HEADER_SIZE = 48;
+	private static final int MODIFIED_OFFSET = 24;
+	private static final int FLAG_COMPRESSED = 1;
+
+	/*
+	 * Returns the cached pixels of a texture, or null if there is no valid
+	 * cache file for it. Uncompressed pixels are returned as a read only
+	 * mapping of the cache file, compressed pixels are decompressed into a
+	 * buffer from the pool, or a newly allocated buffer if no pool is given.
+	 */
+	public static TextureImage read(final String textureName, final ByteBufferPool pool)
+	{
+		final File cacheFile = getCacheFile(textureName);
+
+		if (!cacheFile.isFile())
+		{
+			return null;
+		}
+
+		try (final FileChannel channel = FileChannel.open(cacheFile.toPath(), StandardOpenOption.READ))
+		{
+			final MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			final ByteBuffer header = mapped.duplicate()
+					.order(ByteOrder.LITTLE_ENDIAN);
+
+			if (channel.size() < HEADER_SIZE || header.getInt(0) != MAGIC || header.getInt(4) != VERSION)
+			{
+				return null;
+			}
+
+			if (!isValid(textureName, header))
+			{
+				return null;
+			}
+
+			final int width = header.getInt(8);
+			final int height = header.getInt(12);
+			final int flags = header.getInt(16);
+			final int payloadLength = header.getInt(20);
+			final long pixelBytes = (long) width * height * TextureImage.BYTES_PER_PIXEL;
+			final boolean compressed = (flags & FLAG_COMPRESSED) != 0;
+
+			// A stale or corrupt file can claim any sizes, so they are checked before trusting the payload.
+			if (width <= 0 || height <= 0 || pixelBytes > Integer.MAX_VALUE || payloadLength < 0 || HEADER_SIZE + (long) payloadLength > channel.size()
+					|| !compressed && payloadLength != pixelBytes)
+			{
+				System.out.println("Error corrupt texture cache " + cacheFile);
+				return null;
+			}
+
+			mapped.position(HEADER_SIZE);
+			mapped.limit(HEADER_SIZE + payloadLength);
+
+			final ByteBuffer payload = mapped.slice();
+
+			if (!compressed)
+			{
+				return new TextureImage(width, height, payload);
+			}
+
+			return decompress(cacheFile, width, height, (int) pixelBytes, payload, pool);
+		} catch (final IOException e)
+		{
+			System.out.println("Error reading texture cache " + cacheFile);
+		}
+
+		return null;
+	}
+
+	/*
+	 * Decompresses the payload of a cache file, returning null and handing
+	 * the buffer back to the pool if the payload is corrupt.
+	 */
+	private static TextureImage decompress(final File cacheFile, final int width, final int height, final int bytes, final ByteBuffer payload,
+			final ByteBufferPool pool)
+	{
+		final ByteBuffer pixels = pool != null ? pool.acquire(bytes) : ByteBuffer.allocateDirect(bytes);
+
+		try
+		{
+			if (Lz4Codec.decompress(payload, pixels) == bytes)
+			{
+				pixels.flip();
+
+				return new TextureImage(width, height, pixels);
+			}
+		} catch (final RuntimeException e)
+		{
+			// Corrupt data reads or writes past the end of the buffers.
+		}
+
+		System.out.println("Error corrupt texture cache " + cacheFile);
+
+		if (pool != null)
+		{
+			pool.release(pixels);
+		}
+
+		return null;
+	}
+
+	/*
+	 * Checks the cache header against the source PNG. A source with a new
+	 * modification time but the same size and CRC32 is still valid, and gets
+	 * its new modification time written to the header to skip the CRC32 next
+	 * time. A missing source leaves the cache valid.
+	 */
+	private static boolean isValid(final String textureName, final ByteBuffer header) throws IOException
+	{
+		final File source = new File(TextureLoader.getTextureFilename(textureName));
+
+		if (!source.isFile())
+		{
+			return true;
+		}
+
+		if (source.length() != header.getLong(32))
+		{
+			return false;
+		}
+
+		if (source.lastModified() == header.getLong(MODIFIED_OFFSET))
+		{
+			return true;
+		}
+
+		if (crc(source) != header.getLong(40))
+		{
+			return false;
+		}
+
+		try (final FileChannel channel = FileChannel.open(getCacheFile(textureName).toPath(), StandardOpenOption.WRITE))
+		{
+			final ByteBuffer modified = ByteBuffer.allocate(8)
+					.order(ByteOrder.LITTLE_ENDIAN);
+			modified.putLong(0, source.lastModified());
+			channel.write(modified, MODIFIED_OFFSET);
+		}
+
+		return true;
+	}
+
+	/*
+	 * Writes the pixels of a decoded texture to its cache file.
+	 *
+	 * @param sourceCrc the CRC32 of the whole source PNG.
+	 */
+	public static void write(final String textureName, final TextureImage image, final long sourceCrc, final boolean compress)
+	{
+		final File source = new File(TextureLoader.getTextureFilename(textureName));
+		final File cacheFile = getCacheFile(textureName);
+		final File temporaryFile = new File(cacheFile.getPath() + ".tmp");
+		final ByteBuffer pixels = image.getPixels()
+				.duplicate();
+		ByteBuffer payload = pixels;
+
+		pixels.position(0);
+		pixels.limit(image.getByteSize());
+
+		if (compress)
+		{
+			payload = ByteBuffer.allocateDirect(Lz4Codec.maxCompressedLength(image.getByteSize()));
+			Lz4Codec.compress(pixels, payload);
+			payload.flip();
+		}
+
+		final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE)
+				.order(ByteOrder.LITTLE_ENDIAN);
+		header.putInt(MAGIC)
+				.putInt(VERSION)
+				.putInt(image.getWidth())
+				.putInt(image.getHeight())
+				.putInt(compress ? FLAG_COMPRESSED : 0)
+				.putInt(payload.remaining())
+				.putLong(source.lastModified())
+				.putLong(source.length())
+				.putLong(sourceCrc);
+		header.flip();
+
+		try
+		{
+			cacheFile.getParentFile()
+					.mkdirs();
+
+			try (final FileChannel channel = FileChannel.open(temporaryFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+					StandardOpenOption.TRUNCATE_EXISTING))
+			{
+				while (header.hasRemaining())
+				{
+					channel.write(header);
+				}
+				while (payload.hasRemaining())
+				{
+					channel.write(payload);
+				}
+			}
+
+			Files.move(temporaryFile.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		} catch (final IOException e)
+		{
+			System.out.println("Error writing texture cache " + cacheFile);
+			temporaryFile.delete();
+		}
+	}
+
+	/*
+	 * Removes the cache file of a texture.
+	 */
+	public static void invalidate(final String textureName)
+	{
+		getCacheFile(textureName).delete();
+	}
+
+	public static File getCacheFile(final String textureName)
+	{
+		return new File(Constants.Textures.TEXTURE_CACHE_LOCATION + textureName + "." + Constants.Textures.TEXTURE_CACHE_FILEFORMAT);
+	}
+
+	static long crc(final File file) throws IOException
+	{
+		final CRC32 crc = new CRC32();
+		final byte[] buffer = new byte[65536];
+
+		try (final InputStream in = new FileInputStream(file))
+		{
+			int read;
+
+			while ((read = in.read(buffer)) != -1)
+			{
+				crc.update(buffer, 0, read);
+			}
+		}
+
+		return crc.getValue();
+	}
+
+}
@@ -0,0 +1,76 @@
+package se.florry.engine.texture;
+
+/*
+ * A reference counted handle to a texture in the TextureRegistry. Stays valid until the texture is evicted, which
+ * can only happen once every holder has released it.
+ */
+public final class TextureHandle
+{
+
+	private final String name;
+	private volatile Texture texture;
+	private volatile boolean loaded;
+	private volatile boolean failed;
+	int references;
+	boolean evicted;
+
+	TextureHandle(final String name, final Texture texture, final boolean loaded)
+	{
+		this.name = name;
+		this.texture = texture;
+		this.loaded = loaded;
+	}
+
+	public String getName()
+	{
+		return this.name;
+	}
+
+	public Texture getTexture()
+	{
+		return this.texture;
+	}
+
+	/*
+	 * Returns false while an asynchronously loaded texture is still loading,
+	 * in which case the handle points at a placeholder texture.
+	 */
+	public boolean isLoaded()
+	{
+		return this.loaded;
+	}
+
+	/*
+	 * Returns true if an asynchronously loaded texture could not be loaded,
+	 * in which case the handle keeps pointing at the placeholder texture.
+	 */
+	public boolean isFailed()
+	{
+		return this.failed;
+	}
+
+	void fail()
+	{
+		this.failed = true;
+	}
+
+	void setTexture(final Texture texture)
+	{
+		this.texture = texture;
+		this.loaded = true;
+	}
+
+	/*
+	 * Returns the id of the texture within the Open GL context.
+	 */
+	public int getId()
+	{
+		return this.texture.getId();
+	}
+
+	public int getReferences()
+	{
+		return this.references;
+	}
+
+}
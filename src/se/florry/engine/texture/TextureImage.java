@@ -0,0 +1,52 @@
+package se.florry.engine.texture;
+
+import java.nio.ByteBuffer;
+
+/*
+ * A decoded texture living in memory as tightly packed RGBA pixels, not yet uploaded to the Open GL context.
+ */
+public final class TextureImage
+{
+
+	public static final int BYTES_PER_PIXEL = 4;
+
+	private final int width;
+	private final int height;
+	private final ByteBuffer pixels;
+
+	public TextureImage(final int width, final int height, final ByteBuffer pixels)
+	{
+		this.width = width;
+		this.height = height;
+		this.pixels = pixels;
+	}
+
+	public int getWidth()
+	{
+		return this.width;
+	}
+
+	public int getHeight()
+	{
+		return this.height;
+	}
+
+	/*
+	 * Returns the pixels, row by row from the top of the image.
+	 */
+	public ByteBuffer getPixels()
+	{
+		return this.pixels;
+	}
+
+	public int getStride()
+	{
+		return this.width * BYTES_PER_PIXEL;
+	}
+
+	public int getByteSize()
+	{
+		return this.width * this.height * BYTES_PER_PIXEL;
+	}
+
+}
@@ -3,56 +3,97 @@ package se.florry.engine.texture;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.nio.ByteBuffer;
-import java.nio.IntBuffer;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
 
 import javax.imageio.ImageIO;
 
-import org.lwjgl.BufferUtils;
-import org.lwjgl.opengl.GL11;
 import org.newdawn.slick.opengl.PNGDecoder;
 
 import se.florry.engine.constants.Constants;
+import se.florry.engine.render.RenderContext;
+import se.florry.engine.utils.ByteBufferPool;
 
 public final class TextureLoader
 {
 
 	/*
-	 * Reads a texture from file and loads it in the Open GL context, returning
-	 * the id of that texture within the context.
+	 * Reads a texture from file and loads it through the render backend,
+	 * returning the id of that texture. Returns 0 if the file could not be
+	 * read.
 	 */
-	public static int readTexture(String filename)
+	public static int readTexture(final String textureName)
 	{
-		filename = Constants.Textures.TEXTURE_LOCATION + filename + "." + Constants.Textures.TEXTURE_FILEFORMAT;
-		final IntBuffer tmp = BufferUtils.createIntBuffer(1);
+		final TextureImage image = decodeTexture(textureName);
 
-		try
-		{
-			GL11.glGenTextures(tmp);
-		} catch (final Exception e)
+		return image != null ? uploadTexture(image) : 0;
+	}
+
+	/*
+	 * Decodes a texture from file into memory without touching the Open GL
+	 * context. Returns null if the file could not be read.
+	 */
+	public static TextureImage decodeTexture(final String textureName)
+	{
+		return decodeTexture(textureName, null);
+	}
+
+	/*
+	 * Decodes a texture into memory, reading it from the texture cache when
+	 * there is a valid cache file for it. Returns null if the file could not
+	 * be read.
+	 *
+	 * @param pool the pool to take the pixel buffer from, or null to allocate
+	 * a new buffer. Cached pixels may come as a read only mapped buffer not
+	 * taken from the pool.
+	 */
+	public static TextureImage decodeTexture(final String textureName, final ByteBufferPool pool)
+	{
+		if (Constants.Textures.USE_TEXTURE_CACHE)
 		{
-			System.err.println("Init engine before loading textures!");
+			final TextureImage cached = TextureCache.read(textureName, pool);
+
+			if (cached != null)
+			{
+				return cached;
+			}
 		}
-		tmp.rewind();
 
-		try
+		return decodePNG(textureName, pool, Constants.Textures.USE_TEXTURE_CACHE);
+	}
+
+	/*
+	 * Decodes the PNG file of a texture, bypassing the texture cache. Returns
+	 * null if the file could not be read.
+	 *
+	 * @param cache if the decoded texture should be written to the texture
+	 * cache.
+	 */
+	public static TextureImage decodePNG(final String textureName, final ByteBufferPool pool, final boolean cache)
+	{
+		final String filename = getTextureFilename(textureName);
+
+		try (final CheckedInputStream in = new CheckedInputStream(new FileInputStream(filename), new CRC32()))
 		{
-			final InputStream in = new FileInputStream(filename);
-			final PNGDecoder decoder = new PNGDecoder(in);
+			final TextureImage image = decode(in, pool);
+
+			if (cache)
+			{
+				// Read what the decoder left so the checksum covers the whole file.
+				final byte[] rest = new byte[4096];
 
-			final ByteBuffer buf = ByteBuffer.allocateDirect(4 * decoder.getWidth() * decoder.getHeight());
-			decoder.decode(buf, decoder.getWidth() * 4, PNGDecoder.RGBA);
-			buf.flip();
+				while (in.read(rest) != -1)
+				{
+				}
 
-			GL11.glBindTexture(GL11.GL_TEXTURE_2D, tmp.get(0));
-			GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MAG_FILTER, GL11.GL_NEAREST);
-			GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MIN_FILTER, GL11.GL_NEAREST);
-			GL11.glTexParameterf(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_WRAP_S, GL11.GL_REPEAT);
-			GL11.glTexParameterf(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_WRAP_T, GL11.GL_REPEAT);
-			GL11.glPixelStorei(GL11.GL_UNPACK_ALIGNMENT, 4);
-			GL11.glTexImage2D(GL11.GL_TEXTURE_2D, 0, GL11.GL_RGBA, decoder.getWidth(), decoder.getHeight(), 0, GL11.GL_RGBA, GL11.GL_UNSIGNED_BYTE, buf);
+				TextureCache.write(textureName, image, in.getChecksum()
+						.getValue(), Constants.Textures.TEXTURE_CACHE_COMPRESSION);
+			}
 
+			return image;
 		} catch (final java.io.FileNotFoundException ex)
 		{
 			System.out.println("Error " + filename + " not found");
@@ -61,9 +102,60 @@ public final class TextureLoader
 			System.out.println("Error decoding " + filename);
 		}
 
-		tmp.rewind();
+		return null;
+	}
 
-		return tmp.get(0);
+	/*
+	 * Decodes a PNG stream into RGBA pixels.
+	 */
+	public static TextureImage decode(final InputStream in) throws IOException
+	{
+		return decode(in, null);
+	}
+
+	/*
+	 * Decodes a PNG stream into RGBA pixels held by a buffer from the pool, or
+	 * a newly allocated buffer if no pool is given.
+	 */
+	public static TextureImage decode(final InputStream in, final ByteBufferPool pool) throws IOException
+	{
+		final PNGDecoder decoder = new PNGDecoder(in);
+		final int bytes = TextureImage.BYTES_PER_PIXEL * decoder.getWidth() * decoder.getHeight();
+
+		final ByteBuffer buf = pool != null ? pool.acquire(bytes) : ByteBuffer.allocateDirect(bytes);
+		decoder.decode(buf, decoder.getWidth() * TextureImage.BYTES_PER_PIXEL, PNGDecoder.RGBA);
+		buf.flip();
+
+		return new TextureImage(decoder.getWidth(), decoder.getHeight(), buf);
+	}
+
+	/*
+	 * Loads a decoded texture through the render backend, returning the id of
+	 * that texture.
+	 */
+	public static int uploadTexture(final TextureImage image)
+	{
+		return RenderContext.get()
+				.uploadTexture(image);
+	}
+
+	/*
+	 * Switches a texture between nearest and linear filtering. Textures are
+	 * uploaded with nearest filtering, distance fields need linear filtering
+	 * to be drawn smooth.
+	 */
+	public static void setLinearFiltering(final int texture, final boolean linear)
+	{
+		RenderContext.get()
+				.setLinearFiltering(texture, linear);
+	}
+
+	/*
+	 * Returns the path of a texture file from the name of the texture.
+	 */
+	public static String getTextureFilename(final String textureName)
+	{
+		return Constants.Textures.TEXTURE_LOCATION + textureName + "." + Constants.Textures.TEXTURE_FILEFORMAT;
 	}
 
 	/*
@@ -72,7 +164,7 @@ public final class TextureLoader
 	 */
 	public static BufferedImage readTextureToBufferedImage(String filename)
 	{
-		filename = Constants.Textures.TEXTURE_LOCATION + filename + "." + Constants.Textures.TEXTURE_FILEFORMAT;
+		filename = getTextureFilename(filename);
 		try
 		{
 			final File file = new File(filename);
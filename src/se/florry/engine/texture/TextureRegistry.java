@@ -0,0 +1,280 @@
+package se.florry.engine.texture;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import se.florry.engine.constants.Constants;
+import se.florry.engine.render.RenderContext;
+
+/*
+ * Keeps track of loaded textures by name. Textures are handed out as reference counted handles and every texture
+ * nobody holds a reference to is deleted, least recently used first, as soon as the loaded textures exceed the
+ * byte budget. The registry can be used from any thread, such as the simulation thread of the threaded engine. Off
+ * the render thread textures are loaded asynchronously and evicted textures are deleted on the render thread by
+ * deletePending, as only the render thread can create and delete textures.
+ */
+public final class TextureRegistry
+{
+
+	private static final TextureRegistry registry = new TextureRegistry(new FileTextureUploader(), Constants.Textures.TEXTURE_BUDGET);
+
+	private final TextureUploader uploader;
+	// In access order, making the first entry the least recently used.
+	private final Map<String, TextureHandle> textures;
+	// Textures evicted off the render thread, waiting to be deleted on it.
+	private final List<Texture> pendingDeletes;
+	private long budget;
+	private long residentBytes;
+
+	private int hits;
+	private int misses;
+	private int evictions;
+
+	/*
+	 * @param uploader loads and deletes the actual textures.
+	 *
+	 * @param budget the bytes of textures kept loaded before unreferenced
+	 * textures are evicted. 0 evicts textures as soon as they are released.
+	 */
+	public TextureRegistry(final TextureUploader uploader, final long budget)
+	{
+		this.uploader = uploader;
+		this.budget = budget;
+		this.textures = new LinkedHashMap<>(16, 0.75f, true);
+		this.pendingDeletes = new ArrayList<>();
+	}
+
+	/*
+	 * Returns the registry shared by all materials of the engine.
+	 */
+	public static TextureRegistry get()
+	{
+		return registry;
+	}
+
+	/*
+	 * Returns a handle to a texture, loading it if it is not already loaded.
+	 * Every acquire has to be matched by a release for the texture to be
+	 * evictable. Off the render thread the texture is loaded asynchronously
+	 * by the shared loader, as by acquireAsync.
+	 */
+	public synchronized TextureHandle acquire(final String textureName)
+	{
+		if (!RenderContext.isRenderThread())
+		{
+			return this.acquireAsync(textureName, AsyncTextureLoader.get());
+		}
+
+		TextureHandle handle = this.textures.get(textureName);
+
+		if (handle == null)
+		{
+			this.misses++;
+
+			handle = new TextureHandle(textureName, this.uploader.upload(textureName), true);
+			this.textures.put(textureName, handle);
+			this.residentBytes += handle.getTexture()
+					.getByteSize();
+		} else
+		{
+			this.hits++;
+		}
+
+		handle.references++;
+		this.evict();
+
+		return handle;
+	}
+
+	/*
+	 * Returns a handle to a texture, loading it in the background if it is not
+	 * already loaded. Until the texture has been uploaded the handle points at
+	 * the placeholder texture of the loader.
+	 */
+	public synchronized TextureHandle acquireAsync(final String textureName, final AsyncTextureLoader loader)
+	{
+		TextureHandle handle = this.textures.get(textureName);
+
+		if (handle == null)
+		{
+			this.misses++;
+
+			final TextureHandle pendingHandle = new TextureHandle(textureName, new Texture(loader.getPlaceholder(), 0, 0), false);
+
+			loader.load(textureName, texture -> this.uploaded(pendingHandle, (Texture) texture));
+			this.textures.put(textureName, pendingHandle);
+			handle = pendingHandle;
+		} else
+		{
+			this.hits++;
+		}
+
+		handle.references++;
+
+		return handle;
+	}
+
+	/*
+	 * Swaps the placeholder of an asynchronously loaded texture for the
+	 * uploaded texture, or deletes it right away if the handle was evicted
+	 * while loading. A texture that failed to load is marked failed and
+	 * dropped from the registry, so acquiring it again retries the load.
+	 */
+	private synchronized void uploaded(final TextureHandle handle, final Texture texture)
+	{
+		if (texture == null)
+		{
+			handle.fail();
+			handle.evicted = true;
+			this.textures.remove(handle.getName(), handle);
+			return;
+		}
+
+		if (handle.evicted)
+		{
+			this.uploader.delete(texture);
+			return;
+		}
+
+		handle.setTexture(texture);
+		this.residentBytes += texture.getByteSize();
+		this.evict();
+	}
+
+	/*
+	 * Gives up a reference to a texture.
+	 */
+	public synchronized void release(final TextureHandle handle)
+	{
+		if (handle.references > 0)
+		{
+			handle.references--;
+		}
+
+		if (handle.references == 0)
+		{
+			this.evict();
+		}
+	}
+
+	/*
+	 * Deletes unreferenced textures, least recently used first, until the
+	 * loaded textures fit in the budget.
+	 */
+	private void evict()
+	{
+		final Iterator<TextureHandle> iterator = this.textures.values()
+				.iterator();
+
+		while (this.residentBytes > this.budget && iterator.hasNext())
+		{
+			final TextureHandle handle = iterator.next();
+
+			if (handle.references == 0)
+			{
+				iterator.remove();
+				this.delete(handle);
+				this.evictions++;
+			}
+		}
+	}
+
+	/*
+	 * Deletes all loaded textures, referenced or not.
+	 */
+	public synchronized void clear()
+	{
+		for (final TextureHandle handle : this.textures.values())
+		{
+			this.delete(handle);
+		}
+
+		this.textures.clear();
+	}
+
+	/*
+	 * Deletes the texture of a handle, leaving the shared placeholder of
+	 * textures still loading alone. Off the render thread the texture is
+	 * queued for deletePending.
+	 */
+	private void delete(final TextureHandle handle)
+	{
+		handle.evicted = true;
+
+		if (handle.isLoaded())
+		{
+			if (RenderContext.isRenderThread())
+			{
+				this.uploader.delete(handle.getTexture());
+			} else
+			{
+				this.pendingDeletes.add(handle.getTexture());
+			}
+
+			this.residentBytes -= handle.getTexture()
+					.getByteSize();
+		}
+	}
+
+	/*
+	 * Deletes the textures evicted off the render thread. Has to be called on
+	 * the render thread, which the engine does every frame.
+	 */
+	public synchronized void deletePending()
+	{
+		for (int i = 0; i < this.pendingDeletes.size(); i++)
+		{
+			this.uploader.delete(this.pendingDeletes.get(i));
+		}
+
+		this.pendingDeletes.clear();
+	}
+
+	public synchronized void setBudget(final long budget)
+	{
+		this.budget = budget;
+		this.evict();
+	}
+
+	public synchronized long getBudget()
+	{
+		return this.budget;
+	}
+
+	public synchronized boolean contains(final String textureName)
+	{
+		return this.textures.containsKey(textureName);
+	}
+
+	/*
+	 * Returns the bytes of all textures currently loaded.
+	 */
+	public synchronized long getResidentBytes()
+	{
+		return this.residentBytes;
+	}
+
+	public synchronized int size()
+	{
+		return this.textures.size();
+	}
+
+	public synchronized int getHits()
+	{
+		return this.hits;
+	}
+
+	public synchronized int getMisses()
+	{
+		return this.misses;
+	}
+
+	public synchronized int getEvictions()
+	{
+		return this.evictions;
+	}
+
+}
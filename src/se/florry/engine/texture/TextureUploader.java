@@ -0,0 +1,13 @@
+package se.florry.engine.texture;
+
+/*
+ * Loads textures into and deletes them from the rendering context on behalf of the TextureRegistry.
+ */
+public interface TextureUploader
+{
+
+	Texture upload(String textureName);
+
+	void delete(Texture texture);
+
+}
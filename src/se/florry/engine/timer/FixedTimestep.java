@@ -0,0 +1,124 @@
+package se.florry.engine.timer;
+
+import se.florry.engine.handler.LoopHandler;
+
+/*
+ * Accumulator for running simulation at a fixed update rate independent of the frame rate. Every frame the elapsed
+ * time is added and whole steps are taken out of it. What is left decides how far the rendered frame is between the
+ * last two steps.
+ */
+public final class FixedTimestep
+{
+
+	private final long stepNanos;
+	private final int maxStepsPerFrame;
+	private long accumulator;
+	private long lastTime;
+	private boolean started;
+
+	private long totalSteps;
+	private long droppedSteps;
+
+	/*
+	 * @param updateRate the number of simulation steps per second.
+	 *
+	 * @param maxStepsPerFrame the most steps taken in a single frame. Time
+	 * beyond that is dropped, slowing the simulation down instead of falling
+	 * further and further behind when steps take longer than they simulate.
+	 */
+	public FixedTimestep(final int updateRate, final int maxStepsPerFrame)
+	{
+		this.stepNanos = 1000000000L / (updateRate > 0 ? updateRate : 1);
+		this.maxStepsPerFrame = maxStepsPerFrame > 0 ? maxStepsPerFrame : 1;
+	}
+
+	/*
+	 * Adds the time elapsed since the last call and returns the number of
+	 * steps to take this frame. The first call only starts the clock.
+	 *
+	 * @param time the current time in nanoseconds.
+	 */
+	public int advance(final long time)
+	{
+		if (!this.started)
+		{
+			this.started = true;
+			this.lastTime = time;
+			return 0;
+		}
+
+		this.accumulator += time - this.lastTime;
+		this.lastTime = time;
+
+		int steps = (int) Math.min(this.accumulator / this.stepNanos, Integer.MAX_VALUE);
+
+		if (steps > this.maxStepsPerFrame)
+		{
+			this.droppedSteps += steps - this.maxStepsPerFrame;
+			this.accumulator -= (steps - this.maxStepsPerFrame) * this.stepNanos;
+			steps = this.maxStepsPerFrame;
+		}
+
+		this.accumulator -= steps * this.stepNanos;
+		this.totalSteps += steps;
+
+		return steps;
+	}
+
+	/*
+	 * Returns how far the current frame is between the last step and the next
+	 * one, from 0 to 1. Used to interpolate rendering between steps.
+	 */
+	public float getAlpha()
+	{
+		return this.accumulator / (float) this.stepNanos;
+	}
+
+	/*
+	 * Returns the simulated time of one step in seconds, the delta time handed
+	 * to the loop handler every step.
+	 */
+	public float getStepSeconds()
+	{
+		return this.stepNanos / 1000000000f;
+	}
+
+	public long getStepNanos()
+	{
+		return this.stepNanos;
+	}
+
+	public long getTotalSteps()
+	{
+		return this.totalSteps;
+	}
+
+	/*
+	 * Returns the number of steps skipped because a frame needed more than the
+	 * maximum steps per frame.
+	 */
+	public long getDroppedSteps()
+	{
+		return this.droppedSteps;
+	}
+
+	/*
+	 * Runs a simulation for a number of steps as fast as possible, without a
+	 * display or rendering. Useful for tests and server side simulation.
+	 *
+	 * @return the time all steps took in nanoseconds.
+	 */
+	public static long runHeadless(final LoopHandler loop, final int updateRate, final long steps)
+	{
+		final float deltaTime = 1f / (updateRate > 0 ? updateRate : 1);
+		final long start = System.nanoTime();
+
+		for (long i = 0; i < steps; i++)
+		{
+			loop.loop(deltaTime);
+		}
+
+		return System.nanoTime() - start;
+	}
+
+}
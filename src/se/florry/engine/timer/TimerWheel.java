@@ -0,0 +1,295 @@
+package se.florry.engine.timer;
+
+import java.util.Arrays;
+
+import se.florry.engine.handler.GenericHandler;
+
+/*
+ * Hierarchical timing wheel with 1 millisecond ticks. Four levels of 64 slots cover about 4.6 hours, timers further
+ * away wait in the last level and are moved down as time passes. Timers are nodes in primitive arrays linked into
+ * per slot lists, so scheduling and cancelling by handle are O(1) and nothing is allocated once the arrays have grown
+ * to the number of concurrent timers. Not thread safe, timers fire on the thread calling advance.
+ */
+public final class TimerWheel
+{
+
+	private static final int SLOT_BITS = 6;
+	private static final int SLOTS = 1 << SLOT_BITS;
+	private static final int SLOT_MASK = SLOTS - 1;
+	private static final int LEVELS = 4;
+	private static final long MAX_DELAY = (1L << SLOT_BITS * LEVELS) - 1;
+	// List of the timers being fired or moved down a level.
+	private static final int PROCESSING = SLOTS * LEVELS;
+	private static final int FREE = -2;
+
+	private final int[] heads;
+	private int[] next;
+	private int[] previous;
+	private int[] list;
+	private long[] deadlines;
+	private Object[] payloads;
+	private int freeHead;
+	private int size;
+
+	private long currentTick;
+
+	/*
+	 * @param startTime the current time in microseconds, on the clock used
+	 * for deadlines and advance.
+	 */
+	public TimerWheel(final int initialCapacity, final long startTime)
+	{
+		this.currentTick = startTime / 1000;
+
+		this.heads = new int[PROCESSING + 1];
+		Arrays.fill(this.heads, -1);
+
+		this.next = new int[0];
+		this.previous = new int[0];
+		this.list = new int[0];
+		this.deadlines = new long[0];
+		this.payloads = new Object[0];
+		this.freeHead = -1;
+		this.grow(Math.max(1, initialCapacity));
+	}
+
+	/*
+	 * Schedules a payload to expire at a time.
+	 *
+	 * @param deadline the time in microseconds, on the same clock as the times
+	 * given to advance. Deadlines already passed expire on the next advance.
+	 *
+	 * @return the handle used to cancel the timer.
+	 */
+	public int schedule(final Object payload, final long deadline)
+	{
+		if (this.freeHead == -1)
+		{
+			this.grow(this.payloads.length * 2);
+		}
+
+		final int node = this.freeHead;
+		this.freeHead = this.next[node];
+
+		this.payloads[node] = payload;
+		this.deadlines[node] = deadline;
+		this.size++;
+		this.insert(node, this.currentTick + 1);
+
+		return node;
+	}
+
+	/*
+	 * Cancels a timer. The payload guards against cancelling a timer that has
+	 * already expired and whose handle has been reused.
+	 *
+	 * @return true if the timer was cancelled, false if it was not scheduled.
+	 */
+	public boolean cancel(final int handle, final Object payload)
+	{
+		if (handle < 0 || handle >= this.payloads.length || this.list[handle] == FREE || this.payloads[handle] != payload)
+		{
+			return false;
+		}
+
+		this.unlink(handle);
+		this.free(handle);
+
+		return true;
+	}
+
+	/*
+	 * Moves time forward, tick by tick, expiring every timer whose deadline
+	 * has been reached. Expired timers are removed before the handler is
+	 * called, so the handler may schedule and cancel timers freely.
+	 *
+	 * @param time the current time in microseconds.
+	 *
+	 * @param expiredHandler called with the payload of every expired timer.
+	 *
+	 * @return the number of expired timers.
+	 */
+	public int advance(final long time, final GenericHandler expiredHandler)
+	{
+		final long targetTick = time / 1000;
+		int expired = 0;
+
+		while (this.currentTick < targetTick)
+		{
+			this.currentTick++;
+			this.cascade();
+
+			this.detach(this.currentTick & SLOT_MASK);
+
+			while (this.heads[PROCESSING] != -1)
+			{
+				final int node = this.heads[PROCESSING];
+				this.unlink(node);
+
+				if (this.deadlines[node] / 1000 > this.currentTick)
+				{
+					this.insert(node, this.currentTick + 1);
+					continue;
+				}
+
+				final Object payload = this.payloads[node];
+				this.free(node);
+				expired++;
+
+				expiredHandler.handle(payload);
+			}
+		}
+
+		return expired;
+	}
+
+	/*
+	 * Moves the timers of every higher level slot whose period starts at the
+	 * current tick down the wheel, highest level first.
+	 */
+	private void cascade()
+	{
+		for (int level = LEVELS - 1; level > 0; level--)
+		{
+			if ((this.currentTick & (1L << SLOT_BITS * level) - 1) == 0)
+			{
+				this.detach(level * SLOTS + (int) (this.currentTick >>> SLOT_BITS * level & SLOT_MASK));
+
+				while (this.heads[PROCESSING] != -1)
+				{
+					final int node = this.heads[PROCESSING];
+					this.unlink(node);
+					this.insert(node, this.currentTick);
+				}
+			}
+		}
+	}
+
+	/*
+	 * Links a node into the slot of its deadline, relative to the current
+	 * tick.
+	 *
+	 * @param earliestTick the tick to use for deadlines before it. Timers moved
+	 * down while a tick is processed can still make that tick, others go in the
+	 * next one.
+	 */
+	private void insert(final int node, final long earliestTick)
+	{
+		final long tick = Math.max(this.deadlines[node] / 1000, earliestTick);
+		final long delay = Math.min(tick - this.currentTick, MAX_DELAY);
+		final long slotTick = this.currentTick + delay;
+		int level = 0;
+
+		while (level < LEVELS - 1 && delay >= 1L << SLOT_BITS * (level + 1))
+		{
+			level++;
+		}
+
+		this.link(node, level * SLOTS + (int) (slotTick >>> SLOT_BITS * level & SLOT_MASK));
+	}
+
+	/*
+	 * Moves a whole slot list to the processing list.
+	 */
+	private void detach(final long slot)
+	{
+		final int index = (int) slot;
+		int node = this.heads[index];
+
+		this.heads[PROCESSING] = node;
+		this.heads[index] = -1;
+
+		while (node != -1)
+		{
+			this.list[node] = PROCESSING;
+			node = this.next[node];
+		}
+	}
+
+	private void link(final int node, final int slot)
+	{
+		final int head = this.heads[slot];
+
+		this.list[node] = slot;
+		this.previous[node] = -1;
+		this.next[node] = head;
+
+		if (head != -1)
+		{
+			this.previous[head] = node;
+		}
+
+		this.heads[slot] = node;
+	}
+
+	private void unlink(final int node)
+	{
+		final int before = this.previous[node];
+		final int after = this.next[node];
+
+		if (before == -1)
+		{
+			this.heads[this.list[node]] = after;
+		} else
+		{
+			this.next[before] = after;
+		}
+
+		if (after != -1)
+		{
+			this.previous[after] = before;
+		}
+	}
+
+	private void free(final int node)
+	{
+		this.payloads[node] = null;
+		this.list[node] = FREE;
+		this.next[node] = this.freeHead;
+		this.freeHead = node;
+		this.size--;
+	}
+
+	private void grow(final int capacity)
+	{
+		final int oldCapacity = this.payloads.length;
+
+		this.next = Arrays.copyOf(this.next, capacity);
+		this.previous = Arrays.copyOf(this.previous, capacity);
+		this.list = Arrays.copyOf(this.list, capacity);
+		this.deadlines = Arrays.copyOf(this.deadlines, capacity);
+		this.payloads = Arrays.copyOf(this.payloads, capacity);
+
+		for (int node = capacity - 1; node >= oldCapacity; node--)
+		{
+			this.list[node] = FREE;
+			this.next[node] = this.freeHead;
+			this.freeHead = node;
+		}
+	}
+
+	/*
+	 * Returns the deadline of a scheduled timer in microseconds.
+	 */
+	public long getDeadline(final int handle)
+	{
+		return this.deadlines[handle];
+	}
+
+	/*
+	 * Returns the number of scheduled timers.
+	 */
+	public int size()
+	{
+		return this.size;
+	}
+
+	/*
+	 * Returns the last tick processed by advance, in milliseconds.
+	 */
+	public long getCurrentTick()
+	{
+		return this.currentTick;
+	}
+
+}
@@ -1,156 +1,263 @@
 package se.florry.engine.trigger;
 
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
-import java.util.TimerTask;
+import java.util.Map;
 
+import se.florry.engine.constants.Constants;
+import se.florry.engine.handler.GenericHandler;
 import se.florry.engine.handler.TriggerHandler;
 import se.florry.engine.model.TriggerModel;
-import se.florry.engine.timer.Timeout;
+import se.florry.engine.timer.TimerWheel;
 import se.florry.engine.utils.EngineUtils;
 
 /*
- * Class for managing triggers. A trigger executes a handler with code continuously at a steady framerate.
+ * Class for managing triggers. A trigger executes a handler with code continuously at a steady framerate. Triggers are
+ * kept in a timer wheel and executed on the engine thread when the engine handles them each frame, at fixed rate
+ * times: the next execution is scheduled one period after the previous one was due, not after it happened. Triggers
+ * should be added and removed from the engine thread, for example from other trigger handlers.
  */
 public final class Trigger
 {
 
-	private final List<TriggerModel> triggers;
+	private final TimerWheel wheel;
+	private final Map<String, List<TriggerModel>> triggersByName;
+	private final GenericHandler expiredHandler;
+	private long currentTime;
+
+	private long lastDispatchTime;
+	private long executions;
 
 	public Trigger()
 	{
-		this.triggers = Collections.synchronizedList(new ArrayList<>());
+		this.wheel = new TimerWheel(Constants.Loop.TRIGGER_CAPACITY, getTime());
+		this.triggersByName = new HashMap<>();
+		this.expiredHandler = trigger -> this.execute((TriggerModel) trigger);
 	}
 
 	/*
 	 * @param name the name of the trigger, used for removing the trigger at a
 	 * later stage.
-	 * 
+	 *
 	 * @param framerate how many times the trigger should execute the code per
 	 * second.
-	 * 
+	 *
 	 * @param handler the handler with the code to be executed by the trigger.
 	 */
 	public Trigger add(final String name, final int framerate, final TriggerHandler handler)
 	{
-		final TriggerModel trigger = new TriggerModel(framerate, name, handler);
-		this.triggers.add(trigger);
+		this.schedule(new TriggerModel(framerate, name, handler));
 
 		return this;
 	}
 
 	public Trigger add(final String name, final int framerate, final TriggerHandler handler, final boolean shouldOnlyTriggerOnce)
 	{
-		final TriggerModel trigger = new TriggerModel(framerate, name, handler, shouldOnlyTriggerOnce);
-		this.triggers.add(trigger);
+		this.schedule(new TriggerModel(framerate, name, handler, shouldOnlyTriggerOnce));
 
 		return this;
 	}
 
 	/*
-	 * Removes a trigger by the name it was given when created.
+	 * Schedules a trigger to first execute one period from now.
+	 *
+	 * @return the trigger, which can be given to cancel to remove it without
+	 * looking it up by name.
+	 */
+	public TriggerModel schedule(final TriggerModel trigger)
+	{
+		if (trigger.isScheduled())
+		{
+			return trigger;
+		}
+
+		trigger.setNextTimeToTrigger(getTime() + trigger.getPeriod());
+		trigger.setTimerHandle(this.wheel.schedule(trigger, trigger.getNextTimeToTrigger()));
+
+		this.triggersByName.computeIfAbsent(trigger.getName(), name -> new ArrayList<>(1))
+				.add(trigger);
+
+		return trigger;
+	}
+
+	/*
+	 * Removes a trigger by the name it was given when created. If several
+	 * triggers share the name the oldest one is removed.
 	 */
 	public Trigger remove(final String name)
 	{
-		try
+		final List<TriggerModel> triggers = this.triggersByName.get(name);
+
+		if (triggers != null)
 		{
-			for (int i = 0; i < this.triggers.size(); i++)
-			{
-				if (i < this.triggers.size() && name.equals(this.triggers.get(i)
-						.getName()))
-				{
-					final TriggerModel trigger = this.triggers.get(i);
-
-					if (trigger != null && trigger.getTimerObject() != null)
-					{
-						trigger.getTimerObject()
-								.cancel();
-					}
-
-					if (this.triggers.size() > i && this.triggers.get(i) != null)
-					{
-						this.triggers.remove(i);
-					}
-					break;
-				}
-			}
-		} catch (final Exception e)
+			this.cancel(triggers.get(0));
+		}
+
+		return this;
+	}
+
+	/*
+	 * Removes a trigger returned by schedule.
+	 */
+	public Trigger cancel(final TriggerModel trigger)
+	{
+		if (!trigger.isScheduled())
 		{
-			System.out.println("Tried to remove trigger but couldn't");
+			return this;
 		}
 
+		this.wheel.cancel(trigger.getTimerHandle(), trigger);
+		trigger.setTimerHandle(-1);
+		this.forget(trigger);
+
 		return this;
 	}
 
-	private void removeAll()
+	/*
+	 * Drops a trigger from the triggers by name. Triggers are compared by
+	 * identity, since triggers sharing a name are equal.
+	 */
+	private void forget(final TriggerModel trigger)
 	{
-		for (int i = 0; i < this.triggers.size(); i++)
+		final List<TriggerModel> triggers = this.triggersByName.get(trigger.getName());
+
+		if (triggers == null)
 		{
-			final TimerTask timer = this.triggers.get(i)
-					.getTimerObject();
+			return;
+		}
 
-			if (timer != null)
+		for (int i = 0; i < triggers.size(); i++)
+		{
+			if (triggers.get(i) == trigger)
 			{
-				timer.cancel();
+				triggers.remove(i);
+				break;
 			}
 		}
 
-		this.triggers.clear();
+		if (triggers.isEmpty())
+		{
+			this.triggersByName.remove(trigger.getName());
+		}
 	}
 
-	public boolean contains(final String name)
+	private void removeAll()
 	{
-		final List<Object> currentTriggers = Arrays.asList(this.triggers.toArray());
-		for (final Object triggerObj : currentTriggers)
+		for (final List<TriggerModel> triggers : this.triggersByName.values())
 		{
-			final TriggerModel trigger = (TriggerModel) triggerObj;
-
-			if (trigger.getName()
-					.equals(name))
+			for (int i = 0; i < triggers.size(); i++)
 			{
-				return true;
+				final TriggerModel trigger = triggers.get(i);
+
+				this.wheel.cancel(trigger.getTimerHandle(), trigger);
+				trigger.setTimerHandle(-1);
 			}
 		}
-		return false;
+
+		this.triggersByName.clear();
+	}
+
+	public boolean contains(final String name)
+	{
+		return this.triggersByName.containsKey(name);
 	}
 
 	/*
-	 * Handles all triggers. Loops through each trigger model and determines if
-	 * they should be triggered at the current time or not.
+	 * Handles all triggers, executing every trigger that has become due since
+	 * the last frame.
 	 */
-	public void handle(final int currentFrame)
+	public void handle()
 	{
-		try
+		this.dispatch(getTime());
+	}
+
+	/*
+	 * Executes every trigger due up to the given time in microseconds.
+	 *
+	 * @return the number of executed triggers.
+	 */
+	public int dispatch(final long time)
+	{
+		final long start = EngineUtils.getNanoTime();
+
+		this.currentTime = time;
+		final int executed = this.wheel.advance(time, this.expiredHandler);
+
+		this.lastDispatchTime = EngineUtils.getNanoTime() - start;
+		this.executions += executed;
+
+		return executed;
+	}
+
+	/*
+	 * Executes a due trigger and schedules its next execution. A trigger that
+	 * has fallen too far behind skips the executions it missed instead of
+	 * running them all at once.
+	 */
+	private void execute(final TriggerModel trigger)
+	{
+		if (trigger.shouldOnlyTriggerOnce())
+		{
+			trigger.setTimerHandle(-1);
+			this.forget(trigger);
+		} else
 		{
-			final int currentTime = (int) (EngineUtils.getTime() - EngineUtils.getStartTime());
+			final long period = trigger.getPeriod();
+			long next = trigger.getNextTimeToTrigger() + period;
 
-			for (final TriggerModel trigger : this.triggers)
+			if (this.currentTime - next > Constants.Loop.MAX_TRIGGER_LAG)
 			{
-				if (trigger != null)
-				{
-					if (currentTime >= trigger.getNextTimeToTrigger())
-					{
-						trigger.setNextTimeToTrigger(currentTime + 1000 / trigger.getFramerate());
-						trigger.setTimerObject(Timeout.set(trigger.getHandler(), 1000 / trigger.getFramerate()));
-
-						if (trigger.shouldOnlyTriggerOnce())
-						{
-							this.remove(trigger.getName());
-						}
-					}
-				}
+				next += (this.currentTime - next) / period * period + period;
 			}
+
+			trigger.setNextTimeToTrigger(next);
+			trigger.setTimerHandle(this.wheel.schedule(trigger, next));
+		}
+
+		try
+		{
+			trigger.getHandler()
+					.handle(true);
 		} catch (final Exception e)
 		{
+			System.out.println("Error in trigger " + trigger.getName());
+			e.printStackTrace();
 		}
 	}
 
+	/*
+	 * Returns the number of scheduled triggers.
+	 */
+	public int size()
+	{
+		return this.wheel.size();
+	}
+
+	/*
+	 * Returns how long handling the triggers took the last frame, handlers
+	 * included, in nanoseconds.
+	 */
+	public long getLastDispatchTime()
+	{
+		return this.lastDispatchTime;
+	}
+
+	/*
+	 * Returns the number of trigger executions since creation.
+	 */
+	public long getExecutions()
+	{
+		return this.executions;
+	}
+
+	private static long getTime()
+	{
+		return EngineUtils.getNanoTime() / 1000;
+	}
+
 	public void clean()
 	{
-		Timeout.getTimer()
-				.cancel();
 		this.removeAll();
 	}
 
@@ -1,5 +1,6 @@
 package se.florry.engine.ui.model;
 
+import se.florry.engine.material.AtlasMaterial;
 import se.florry.engine.material.Material;
 import se.florry.engine.model.AnimatedQuadModel;
 import se.florry.engine.model.Size;
@@ -11,19 +12,51 @@ public final class AnimatedUIQuad extends AnimatedQuadModel
 {
 
 	private final Material material;
+	private final AtlasMaterial atlasMaterial;
 
 	public AnimatedUIQuad(final Size size, final int x, final int y, final int animationRate, final int totalFrames, final String texture)
 	{
 		super(size, x, y, animationRate, totalFrames);
 		this.material = new Material(texture);
+		this.atlasMaterial = null;
+	}
+
+	/*
+	 * Creates a quad animating a texture packed in an atlas, the frames laid
+	 * out side by side within the region of the texture.
+	 */
+	public AnimatedUIQuad(final Size size, final int x, final int y, final int animationRate, final int totalFrames, final AtlasMaterial material)
+	{
+		super(size, x, y, animationRate, totalFrames);
+		this.material = null;
+		this.atlasMaterial = material;
+		material.apply(this);
 	}
 
 	@Override
 	public void render()
 	{
-		this.material.setMaterial();
+		if (this.material != null)
+		{
+			this.material.setMaterial();
+		} else
+		{
+			this.atlasMaterial.setMaterial();
+		}
+
 		super.render();
-		this.material.disable();
+	}
+
+	/*
+	 * Releases the texture of the quad. The quad should not be rendered after
+	 * being released.
+	 */
+	public void release()
+	{
+		if (this.material != null)
+		{
+			this.material.release();
+		}
 	}
 
 }
\ No newline at end of file
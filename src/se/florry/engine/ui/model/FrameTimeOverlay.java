@@ -0,0 +1,89 @@
+package se.florry.engine.ui.model;
+
+import org.lwjgl.util.vector.Vector2f;
+
+import se.florry.engine.model.TextModel;
+import se.florry.engine.utils.EngineUtils;
+import se.florry.engine.utils.FrameProfiler;
+import se.florry.engine.utils.FrameProfiler.Phase;
+import se.florry.engine.utils.FrameTimeRecorder;
+
+/*
+ * On screen text showing frame time percentiles and the time spent in each phase of the engine loop. The text is
+ * refreshed a few times per second to keep it readable.
+ */
+public final class FrameTimeOverlay
+{
+
+	private static final int TEXT_SIZE = 12;
+	private static final int LINE_HEIGHT = 18;
+	private static final long REFRESH_INTERVAL = 250;
+
+	private final FrameProfiler profiler;
+	private final TextModel frameText;
+	private final TextModel phaseText;
+	private long lastRefresh;
+
+	public FrameTimeOverlay(final FrameProfiler profiler, final Vector2f position)
+	{
+		this.profiler = profiler;
+		this.frameText = new TextModel(" ", TEXT_SIZE, new Vector2f(position.x, position.y), true);
+		this.phaseText = new TextModel(" ", TEXT_SIZE, new Vector2f(position.x, position.y + LINE_HEIGHT), true);
+	}
+
+	public void render()
+	{
+		final long time = EngineUtils.getTime();
+
+		if (time - this.lastRefresh >= REFRESH_INTERVAL)
+		{
+			this.lastRefresh = time;
+			this.refresh();
+		}
+
+		this.frameText.render();
+		this.phaseText.render();
+	}
+
+	private void refresh()
+	{
+		final FrameTimeRecorder frame = this.profiler.get(Phase.FRAME);
+
+		this.frameText.setSentence("FRAME P50 " + milliseconds(frame.getPercentile(50)) + " P95 " + milliseconds(frame.getPercentile(95)) + " P99 "
+				+ milliseconds(frame.getPercentile(99)) + " MAX " + milliseconds(frame.getMax()));
+
+		final StringBuilder phases = new StringBuilder();
+
+		for (final Phase phase : Phase.values())
+		{
+			if (phase != Phase.FRAME)
+			{
+				phases.append(phase.name())
+						.append(' ')
+						.append(milliseconds(this.profiler.get(phase)
+								.getMean()))
+						.append(' ');
+			}
+		}
+
+		this.phaseText.setSentence(phases.toString());
+	}
+
+	/*
+	 * Formats nanoseconds as milliseconds with two decimals.
+	 */
+	private static String milliseconds(final long nanos)
+	{
+		final long hundredths = (nanos + 5000) / 10000;
+		final long decimals = hundredths % 100;
+
+		return hundredths / 100 + (decimals < 10 ? ".0" : ".") + decimals;
+	}
+
+	public void release()
+	{
+		this.frameText.release();
+		this.phaseText.release();
+	}
+
+}
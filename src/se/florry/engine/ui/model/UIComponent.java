@@ -4,15 +4,15 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 
-import org.lwjgl.util.vector.Vector2f;
-
 import se.florry.engine.input.Input;
 import se.florry.engine.model.QuadModel;
 import se.florry.engine.model.TextModel;
+import se.florry.engine.scene.SceneNode;
 
 /*
  * A set of UI quads, text models or UIComponents being rendered together. 
  * A ui component can have its own position essentially grouping together all entities within it.
+ * The position is kept in a scene node, so moving a component only updates the components within it.
  */
 public abstract class UIComponent
 {
@@ -22,7 +22,7 @@ public abstract class UIComponent
 	public final List<UIComponent> uiComponents;
 
 	protected final Input input;
-	public final Vector2f position;
+	private final SceneNode node;
 	protected boolean initialised;
 	private final String id;
 	private boolean shouldRender;
@@ -34,7 +34,8 @@ public abstract class UIComponent
 		this.uiComponents = new ArrayList<>();
 		this.input = input;
 
-		this.position = new Vector2f();
+		this.node = new SceneNode();
+		this.node.add(new SceneNode(this::renderContent));
 		this.id = UUID.randomUUID()
 				.toString();
 		this.shouldRender = true;
@@ -47,47 +48,47 @@ public abstract class UIComponent
 	protected abstract void initialised();
 
 	/*
-	 * Goes through and renders all UIComponent, QuadModels and TextModels with
-	 * its own position applied to them.
+	 * Prepares the component the first time it is about to be rendered, then
+	 * its child components, including those added while preparing. Called
+	 * before the scene graph is updated, so components added and moved while
+	 * preparing are drawn in place from the first frame.
 	 */
-	public void render()
+	void prepareComponents()
 	{
+		if (!this.shouldRender)
+		{
+			return;
+		}
+
 		if (!this.initialised)
 		{
 			this.prepare();
 		}
 
-		for (final UIComponent uiComponent : this.uiComponents)
+		for (int i = 0; i < this.uiComponents.size(); i++)
 		{
-			uiComponent.position.x += this.position.x;
-			uiComponent.position.y += this.position.y;
-
-			uiComponent.render();
-
-			uiComponent.position.x -= this.position.x;
-			uiComponent.position.y -= this.position.y;
+			this.uiComponents.get(i)
+					.prepareComponents();
 		}
+	}
 
-		for (final QuadModel quad : this.uiQuads)
+	/*
+	 * Renders the quads and text models of the component, after its child
+	 * components. The sprite batch is already transformed by the position of
+	 * the component.
+	 */
+	private void renderContent(final SceneNode node)
+	{
+		for (int i = 0; i < this.uiQuads.size(); i++)
 		{
-			quad.position.x += this.position.x;
-			quad.position.y += this.position.y;
-
-			quad.render();
-
-			quad.position.x -= this.position.x;
-			quad.position.y -= this.position.y;
+			this.uiQuads.get(i)
+					.render();
 		}
 
-		for (final TextModel text : this.uiTexts)
+		for (int i = 0; i < this.uiTexts.size(); i++)
 		{
-			text.position.x += this.position.x;
-			text.position.y += this.position.y;
-
-			text.render();
-
-			text.position.x -= this.position.x;
-			text.position.y -= this.position.y;
+			this.uiTexts.get(i)
+					.render();
 		}
 
 		if (!this.initialised)
@@ -99,6 +100,34 @@ public abstract class UIComponent
 		this.update();
 	}
 
+	/*
+	 * Moves the component and everything in it, relative to the component or
+	 * scene it is in.
+	 */
+	public void setPosition(final float x, final float y)
+	{
+		this.node.setPosition(x, y);
+	}
+
+	public float getX()
+	{
+		return this.node.getX();
+	}
+
+	public float getY()
+	{
+		return this.node.getY();
+	}
+
+	/*
+	 * Returns the scene node of the component, which can be used to scale or
+	 * rotate it.
+	 */
+	public SceneNode getNode()
+	{
+		return this.node;
+	}
+
 	/*
 	 * Used to build the UIComponent.
 	 */
@@ -121,6 +150,8 @@ public abstract class UIComponent
 	protected void addElement(final UIComponent uiComponent)
 	{
 		this.uiComponents.add(uiComponent);
+		// Child components are rendered before the quads and text models of the component.
+		this.node.add(this.node.getChildCount() - 1, uiComponent.node);
 	}
 
 	protected void remove(final QuadModel quad)
@@ -136,6 +167,7 @@ public abstract class UIComponent
 	protected void remove(final UIComponent uiComponent)
 	{
 		this.uiComponents.remove(uiComponent);
+		this.node.remove(uiComponent.node);
 	}
 
 	public String getId()
@@ -146,11 +178,13 @@ public abstract class UIComponent
 	public void hide()
 	{
 		this.shouldRender = false;
+		this.node.setVisible(false);
 	}
 
 	public void show()
 	{
 		this.shouldRender = true;
+		this.node.setVisible(true);
 	}
 
 	public boolean shouldRender()
@@ -2,24 +2,45 @@ package se.florry.engine.ui.model;
 
 import org.lwjgl.util.vector.Vector2f;
 
+import se.florry.engine.material.AtlasMaterial;
 import se.florry.engine.material.Material;
 import se.florry.engine.model.Color;
 import se.florry.engine.model.QuadModel;
 import se.florry.engine.model.Size;
+import se.florry.engine.render.SpriteBatch;
 
 /*
- * An extension of the QuadModel used for rendering quads to the UI.
+ * An extension of the QuadModel used for rendering quads to the UI. The texture of the quad is only set on the sprite
+ * batch, never unset, so consecutive quads with the same texture or atlas page are drawn in one batch.
  */
 public final class UIQuad extends QuadModel
 {
 
 	private final Material material;
+	private final AtlasMaterial atlasMaterial;
 
 	public UIQuad(final Size size, final Vector2f position, final String texture)
 	{
 		super(size);
 
 		this.material = new Material(texture);
+		this.atlasMaterial = null;
+
+		this.position.x = position.x;
+		this.position.y = position.y;
+	}
+
+	/*
+	 * Creates a quad showing a texture packed in an atlas, its texture
+	 * coordinates set to the region of the texture.
+	 */
+	public UIQuad(final Size size, final Vector2f position, final AtlasMaterial material)
+	{
+		super(size);
+
+		this.material = null;
+		this.atlasMaterial = material;
+		material.apply(this);
 
 		this.position.x = position.x;
 		this.position.y = position.y;
@@ -29,6 +50,7 @@ public final class UIQuad extends QuadModel
 	{
 		super(size);
 		this.material = null;
+		this.atlasMaterial = null;
 
 		this.position.x = position.x;
 		this.position.y = position.y;
@@ -45,13 +67,27 @@ public final class UIQuad extends QuadModel
 		if (this.material != null)
 		{
 			this.material.setMaterial();
+		} else if (this.atlasMaterial != null)
+		{
+			this.atlasMaterial.setMaterial();
+		} else
+		{
+			SpriteBatch.get()
+					.setTexture(0);
 		}
 
 		super.render();
+	}
 
+	/*
+	 * Releases the texture of the quad. The quad should not be rendered after
+	 * being released.
+	 */
+	public void release()
+	{
 		if (this.material != null)
 		{
-			this.material.disable();
+			this.material.release();
 		}
 	}
 }
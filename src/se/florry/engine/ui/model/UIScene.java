@@ -4,9 +4,8 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 
-import org.lwjgl.util.vector.Vector2f;
-
 import se.florry.engine.input.Input;
+import se.florry.engine.scene.SceneGraph;
 
 /*
  * A set of UIComponents being rendered together creating a scene. 
@@ -17,7 +16,7 @@ public abstract class UIScene
 {
 
 	private final List<UIComponent> uiComponents;
-	public final Vector2f position;
+	private final SceneGraph graph;
 	private final String id;
 
 	private boolean initialised;
@@ -25,7 +24,7 @@ public abstract class UIScene
 	public UIScene()
 	{
 		this.uiComponents = new ArrayList<>();
-		this.position = new Vector2f();
+		this.graph = new SceneGraph();
 		this.id = UUID.randomUUID()
 				.toString();
 	}
@@ -40,30 +39,40 @@ public abstract class UIScene
 			this.prepare();
 		}
 
-		for (final UIComponent uiComponent : this.uiComponents)
+		for (int i = 0; i < this.uiComponents.size(); i++)
 		{
-			if (uiComponent.shouldRender())
-			{
-				uiComponent.position.x += this.position.x;
-				uiComponent.position.y += this.position.y;
-
-				uiComponent.render();
-
-				uiComponent.position.x -= this.position.x;
-				uiComponent.position.y -= this.position.y;
-			}
+			this.uiComponents.get(i)
+					.prepareComponents();
 		}
+
+		this.graph.render();
 	}
 
 	public void addUIComponent(final UIComponent uiComponent)
 	{
 		this.uiComponents.add(uiComponent);
+		this.graph.getRoot()
+				.add(uiComponent.getNode());
+	}
+
+	/*
+	 * Moves all components of the scene.
+	 */
+	public void setPosition(final float x, final float y)
+	{
+		this.graph.getRoot()
+				.setPosition(x, y);
+	}
+
+	public SceneGraph getGraph()
+	{
+		return this.graph;
 	}
 
 	public void destroy()
 	{
 		this.removeInputs(this.uiComponents);
-		this.uiComponents.clear();
+		this.clear();
 		this.initialised = false;
 	}
 
@@ -100,5 +109,7 @@ public abstract class UIScene
 	public void clear()
 	{
 		this.uiComponents.clear();
+		this.graph.getRoot()
+				.clear();
 	}
 }
\ No newline at end of file
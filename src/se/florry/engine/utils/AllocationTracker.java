@@ -0,0 +1,177 @@
+package se.florry.engine.utils;
+
+import java.lang.management.ManagementFactory;
+
+/*
+ * Measures the bytes the calling thread allocates on the heap per frame, through the thread allocation counters of
+ * the JVM, to keep the engine loop from allocating in steady state and so from ever pausing for garbage collection.
+ * The bytes reading the counter allocates itself are measured once and left out. Direct buffers are allocated off the
+ * heap and not counted, only their small heap objects are. Where the JVM has no thread allocation counters nothing is
+ * counted.
+ */
+public final class AllocationTracker
+{
+
+	private final com.sun.management.ThreadMXBean threads;
+	private final boolean supported;
+	private final long threadId;
+	// The bytes a reading of the counter allocates itself.
+	private long overhead;
+
+	// Set by reset, which can be called from another thread, and done on the next startFrame.
+	private volatile boolean resetRequested;
+	private long frameStart;
+	private long lastFrameBytes;
+	private long maxFrameBytes;
+	private long totalBytes;
+	private int frames;
+	private int allocatingFrames;
+
+	/*
+	 * Creates a tracker for the calling thread, which has to be the thread
+	 * calling startFrame and endFrame.
+	 *
+	 * @param enabled if allocations should be counted, otherwise the tracker
+	 * does nothing.
+	 */
+	public AllocationTracker(final boolean enabled)
+	{
+		final java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+		this.threads = threads instanceof com.sun.management.ThreadMXBean ? (com.sun.management.ThreadMXBean) threads : null;
+		this.supported = enabled && this.threads != null && this.threads.isThreadAllocatedMemorySupported()
+				&& this.threads.isThreadAllocatedMemoryEnabled();
+		this.threadId = Thread.currentThread()
+				.getId();
+
+		if (this.supported)
+		{
+			// The smallest of a few readings, leaving out the first ones warming up the call.
+			this.overhead = Long.MAX_VALUE;
+
+			for (int i = 0; i < 100; i++)
+			{
+				final long start = this.read();
+
+				this.overhead = Math.min(this.overhead, this.read() - start);
+			}
+		}
+	}
+
+	public AllocationTracker()
+	{
+		this(true);
+	}
+
+	private long read()
+	{
+		return this.threads.getThreadAllocatedBytes(this.threadId);
+	}
+
+	public void startFrame()
+	{
+		if (this.resetRequested)
+		{
+			this.resetRequested = false;
+			this.lastFrameBytes = 0;
+			this.maxFrameBytes = 0;
+			this.totalBytes = 0;
+			this.frames = 0;
+			this.allocatingFrames = 0;
+		}
+
+		if (this.supported)
+		{
+			this.frameStart = this.read();
+		}
+	}
+
+	/*
+	 * Records the bytes allocated since startFrame.
+	 */
+	public void endFrame()
+	{
+		if (!this.supported)
+		{
+			return;
+		}
+
+		final long bytes = Math.max(0, this.read() - this.frameStart - this.overhead);
+
+		this.lastFrameBytes = bytes;
+		this.maxFrameBytes = Math.max(this.maxFrameBytes, bytes);
+		this.totalBytes += bytes;
+		this.frames++;
+
+		if (bytes > 0)
+		{
+			this.allocatingFrames++;
+		}
+	}
+
+	/*
+	 * Forgets the frames recorded so far, such as frames of the engine warming
+	 * up, once the next frame starts. Can be called from any thread, such as
+	 * the simulation thread resetting the tracker of the render thread.
+	 */
+	public void reset()
+	{
+		this.resetRequested = true;
+	}
+
+	/*
+	 * Throws if any frame recorded since the last reset allocated more bytes
+	 * than allowed, zero for an allocation free loop.
+	 *
+	 * @throws IllegalStateException if a frame allocated too much.
+	 */
+	public void assertMaxFrameBytes(final long bytes)
+	{
+		if (this.maxFrameBytes > bytes)
+		{
+			throw new IllegalStateException(this.allocatingFrames + " of " + this.frames + " frames allocated, up to " + this.maxFrameBytes + " bytes, "
+					+ this.totalBytes + " bytes in total");
+		}
+	}
+
+	/*
+	 * Returns false if the tracker is not enabled or the JVM has no thread
+	 * allocation counters, leaving every count at zero.
+	 */
+	public boolean isSupported()
+	{
+		return this.supported;
+	}
+
+	public long getLastFrameBytes()
+	{
+		return this.lastFrameBytes;
+	}
+
+	public long getMaxFrameBytes()
+	{
+		return this.maxFrameBytes;
+	}
+
+	public long getTotalBytes()
+	{
+		return this.totalBytes;
+	}
+
+	/*
+	 * Returns the frames recorded since the last reset.
+	 */
+	public int getFrames()
+	{
+		return this.frames;
+	}
+
+	/*
+	 * Returns the frames since the last reset that allocated anything.
+	 */
+	public int getAllocatingFrames()
+	{
+		return this.allocatingFrames;
+	}
+
+}
@@ -0,0 +1,76 @@
+package se.florry.engine.utils;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/*
+ * Thread safe pool of direct byte buffers, bucketed by power of two capacities so buffers of similar sizes can be
+ * reused instead of allocating new direct memory.
+ */
+public final class ByteBufferPool
+{
+
+	private final Queue<ByteBuffer>[] buckets;
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public ByteBufferPool()
+	{
+		this.buckets = new Queue[32];
+
+		for (int i = 0; i < this.buckets.length; i++)
+		{
+			this.buckets[i] = new ConcurrentLinkedQueue<>();
+		}
+	}
+
+	/*
+	 * Returns a cleared buffer holding at least the requested number of
+	 * bytes, with its limit set to exactly that number.
+	 */
+	public ByteBuffer acquire(final int bytes)
+	{
+		final int bucket = bucketFor(bytes);
+		ByteBuffer buffer = this.buckets[bucket].poll();
+
+		if (buffer == null)
+		{
+			buffer = ByteBuffer.allocateDirect(1 << bucket)
+					.order(ByteOrder.nativeOrder());
+		}
+
+		buffer.clear();
+		buffer.limit(bytes);
+
+		return buffer;
+	}
+
+	/*
+	 * Hands a buffer acquired from the pool back for reuse. Buffers not
+	 * allocated by a pool, like read only mappings, are ignored.
+	 */
+	public void release(final ByteBuffer buffer)
+	{
+		final int capacity = buffer.capacity();
+
+		if (buffer.isDirect() && !buffer.isReadOnly() && Integer.bitCount(capacity) == 1)
+		{
+			this.buckets[Integer.numberOfTrailingZeros(capacity)].offer(buffer);
+		}
+	}
+
+	public void clear()
+	{
+		for (final Queue<ByteBuffer> bucket : this.buckets)
+		{
+			bucket.clear();
+		}
+	}
+
+	private static int bucketFor(final int bytes)
+	{
+		return bytes <= 1 ? 0 : 32 - Integer.numberOfLeadingZeros(bytes - 1);
+	}
+
+}
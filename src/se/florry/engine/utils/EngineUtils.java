@@ -17,6 +17,15 @@ public final class EngineUtils
 		return System.currentTimeMillis();
 	}
 
+	/*
+	 * Returns a high resolution time in nanoseconds, only meaningful compared
+	 * to other values from this method.
+	 */
+	public static long getNanoTime()
+	{
+		return System.nanoTime();
+	}
+
 	public static long getStartTime()
 	{
 		return startTime;
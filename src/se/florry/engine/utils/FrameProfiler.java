@@ -0,0 +1,90 @@
+package se.florry.engine.utils;
+
+/*
+ * Times the phases of the engine loop every frame. The time between marks is added to the phase being marked and
+ * at the end of the frame every phase's total for the frame is recorded, together with the full frame time, in a
+ * rolling frame time histogram.
+ */
+public final class FrameProfiler
+{
+
+	public enum Phase
+	{
+		FRAME, TEXTURES, TRIGGERS, INPUT, LOGIC, SYSTEMS, RENDER, PRESENT
+	}
+
+	private static final Phase[] PHASES = Phase.values();
+
+	private final FrameTimeRecorder[] recorders;
+	private final long[] phaseTimes;
+	private long frameStart;
+	private long lastMark;
+
+	/*
+	 * @param windowSize the number of latest frames the statistics are
+	 * calculated over.
+	 */
+	public FrameProfiler(final int windowSize)
+	{
+		this.recorders = new FrameTimeRecorder[PHASES.length];
+		this.phaseTimes = new long[PHASES.length];
+
+		for (int i = 0; i < PHASES.length; i++)
+		{
+			this.recorders[i] = new FrameTimeRecorder(windowSize);
+		}
+	}
+
+	/*
+	 * Starts timing a new frame.
+	 */
+	public void startFrame()
+	{
+		this.frameStart = EngineUtils.getNanoTime();
+		this.lastMark = this.frameStart;
+	}
+
+	/*
+	 * Adds the time since the last mark, or since the frame started, to a
+	 * phase.
+	 */
+	public void mark(final Phase phase)
+	{
+		final long time = EngineUtils.getNanoTime();
+
+		this.phaseTimes[phase.ordinal()] += time - this.lastMark;
+		this.lastMark = time;
+	}
+
+	/*
+	 * Records the phase times of the frame and the full frame time.
+	 */
+	public void endFrame()
+	{
+		this.phaseTimes[Phase.FRAME.ordinal()] = EngineUtils.getNanoTime() - this.frameStart;
+
+		for (int i = 0; i < PHASES.length; i++)
+		{
+			this.recorders[i].record(this.phaseTimes[i]);
+			this.phaseTimes[i] = 0;
+		}
+	}
+
+	/*
+	 * Returns the frame time histogram of a phase. Phase.FRAME holds the full
+	 * frame times.
+	 */
+	public FrameTimeRecorder get(final Phase phase)
+	{
+		return this.recorders[phase.ordinal()];
+	}
+
+	public void reset()
+	{
+		for (final FrameTimeRecorder recorder : this.recorders)
+		{
+			recorder.reset();
+		}
+	}
+
+}
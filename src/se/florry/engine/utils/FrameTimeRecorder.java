@@ -0,0 +1,187 @@
+package se.florry.engine.utils;
+
+/*
+ * Records durations over a rolling window of the latest samples in a log-linear histogram (HDR histogram style, about
+ * 3% precision from 1 microsecond to over a second), answering percentile queries without sorting. Recording never
+ * allocates or locks. It is meant to be written by a single thread, other threads can read the statistics at any
+ * time at the cost of them possibly being a sample behind.
+ */
+public final class FrameTimeRecorder
+{
+
+	// Values below 2^MIN_EXPONENT nanoseconds share the first bucket.
+	private static final int MIN_EXPONENT = 10;
+	private static final int MAX_EXPONENT = 40;
+	private static final int SUB_BUCKET_BITS = 5;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	private static final int BUCKETS = (MAX_EXPONENT - MIN_EXPONENT) * SUB_BUCKETS + 1;
+
+	private final int[] counts;
+	private final long[] window;
+	private int head;
+	private int size;
+	private long sum;
+	private long total;
+
+	/*
+	 * @param windowSize the number of latest samples the statistics are
+	 * calculated over.
+	 */
+	public FrameTimeRecorder(final int windowSize)
+	{
+		this.counts = new int[BUCKETS];
+		this.window = new long[windowSize];
+	}
+
+	/*
+	 * Records a duration in nanoseconds, pushing the oldest sample out of the
+	 * window when it is full.
+	 */
+	public void record(final long nanos)
+	{
+		final long value = nanos > 0 ? nanos : 0;
+
+		if (this.size == this.window.length)
+		{
+			final long oldest = this.window[this.head];
+
+			this.counts[bucketOf(oldest)]--;
+			this.sum -= oldest;
+		} else
+		{
+			this.size++;
+		}
+
+		this.window[this.head] = value;
+		this.head = this.head + 1 == this.window.length ? 0 : this.head + 1;
+		this.counts[bucketOf(value)]++;
+		this.sum += value;
+		this.total++;
+	}
+
+	private static int bucketOf(final long value)
+	{
+		final int exponent = 63 - Long.numberOfLeadingZeros(value);
+
+		if (exponent < MIN_EXPONENT)
+		{
+			return 0;
+		} else if (exponent >= MAX_EXPONENT)
+		{
+			return BUCKETS - 1;
+		}
+
+		final int subBucket = (int) (value >>> exponent - SUB_BUCKET_BITS) & SUB_BUCKETS - 1;
+
+		return (exponent - MIN_EXPONENT) * SUB_BUCKETS + subBucket + 1;
+	}
+
+	/*
+	 * Returns the highest value falling in a bucket.
+	 */
+	private static long highestValueOf(final int bucket)
+	{
+		if (bucket == 0)
+		{
+			return (1L << MIN_EXPONENT) - 1;
+		}
+
+		final int exponent = (bucket - 1) / SUB_BUCKETS + MIN_EXPONENT;
+		final int subBucket = (bucket - 1) % SUB_BUCKETS;
+
+		return ((long) (SUB_BUCKETS + subBucket + 1) << exponent - SUB_BUCKET_BITS) - 1;
+	}
+
+	/*
+	 * Returns the value in nanoseconds that the given percentage of the
+	 * samples in the window are at or below.
+	 */
+	public long getPercentile(final double percentile)
+	{
+		if (this.size == 0)
+		{
+			return 0;
+		}
+
+		final long target = Math.max(1, (long) Math.ceil(percentile / 100 * this.size));
+		long seen = 0;
+
+		for (int bucket = 0; bucket < BUCKETS; bucket++)
+		{
+			seen += this.counts[bucket];
+
+			if (seen >= target)
+			{
+				return Math.min(highestValueOf(bucket), this.getMax());
+			}
+		}
+
+		return this.getMax();
+	}
+
+	/*
+	 * Returns the exact largest sample in the window in nanoseconds.
+	 */
+	public long getMax()
+	{
+		long max = 0;
+
+		for (int i = 0; i < this.size; i++)
+		{
+			max = Math.max(max, this.window[i]);
+		}
+
+		return max;
+	}
+
+	/*
+	 * Returns the mean of the window in nanoseconds.
+	 */
+	public long getMean()
+	{
+		return this.size > 0 ? this.sum / this.size : 0;
+	}
+
+	/*
+	 * Returns the most recently recorded sample in nanoseconds.
+	 */
+	public long getLast()
+	{
+		if (this.size == 0)
+		{
+			return 0;
+		}
+
+		return this.window[this.head == 0 ? this.window.length - 1 : this.head - 1];
+	}
+
+	/*
+	 * Returns the number of samples in the window.
+	 */
+	public int size()
+	{
+		return this.size;
+	}
+
+	/*
+	 * Returns the number of samples recorded since creation or the last reset.
+	 */
+	public long getTotal()
+	{
+		return this.total;
+	}
+
+	public void reset()
+	{
+		for (int i = 0; i < BUCKETS; i++)
+		{
+			this.counts[i] = 0;
+		}
+
+		this.head = 0;
+		this.size = 0;
+		this.sum = 0;
+		this.total = 0;
+	}
+
+}
@@ -6,15 +6,15 @@ package se.florry.engine.utils;
 public final class FrameUtils
 {
 
-	private static long lastFrame = EngineUtils.getTime();
-	private static long lastFPS = 60;
+	private static long lastFrame = EngineUtils.getNanoTime();
+	private static long lastFPS = EngineUtils.getNanoTime();
 	private static int fps = 60;
 	private static int lastFramerate = 60;
 
 	public static float getDeltaTime()
 	{
-		final long time = EngineUtils.getTime();
-		final float delta = (float) (time - lastFrame) / 1000L;
+		final long time = EngineUtils.getNanoTime();
+		final float delta = (time - lastFrame) / 1000000000f;
 		lastFrame = time;
 
 		return delta;
@@ -22,11 +22,13 @@ public final class FrameUtils
 
 	public static int getFramerate()
 	{
-		if (EngineUtils.getTime() - lastFPS > 1000)
+		final long time = EngineUtils.getNanoTime();
+
+		if (time - lastFPS > 1000000000L)
 		{
 			lastFramerate = fps;
 			fps = 0;
-			lastFPS = EngineUtils.getTime();
+			lastFPS = time;
 		}
 		fps++;
 
@@ -0,0 +1,119 @@
+package se.florry.engine.utils;
+
+import java.util.Arrays;
+
+/*
+ * Hash map from long keys to int values using open addressing with linear probing in primitive arrays, so lookups
+ * never box or allocate.
+ */
+public final class LongIntMap
+{
+
+	private long[] keys;
+	private int[] values;
+	private boolean[] used;
+	private int size;
+	private int mask;
+
+	public LongIntMap(final int expectedSize)
+	{
+		this.allocate(Math.max(4, Integer.highestOneBit(Math.max(1, expectedSize) * 2 - 1) << 1));
+	}
+
+	public LongIntMap()
+	{
+		this(16);
+	}
+
+	private void allocate(final int capacity)
+	{
+		this.keys = new long[capacity];
+		this.values = new int[capacity];
+		this.used = new boolean[capacity];
+		this.mask = capacity - 1;
+	}
+
+	private int indexOf(final long key)
+	{
+		final long hash = key * -7046029254386353131L;
+		int index = (int) (hash ^ hash >>> 32) & this.mask;
+
+		while (this.used[index] && this.keys[index] != key)
+		{
+			index = index + 1 & this.mask;
+		}
+
+		return index;
+	}
+
+	public void put(final long key, final int value)
+	{
+		final int index = this.indexOf(key);
+
+		if (this.used[index])
+		{
+			this.values[index] = value;
+			return;
+		}
+
+		this.used[index] = true;
+		this.keys[index] = key;
+		this.values[index] = value;
+		this.size++;
+
+		// Kept at most half full so probe sequences stay short.
+		if (this.size * 2 > this.keys.length)
+		{
+			this.grow();
+		}
+	}
+
+	/*
+	 * Returns the value of a key, or the default value if the key is not in
+	 * the map.
+	 */
+	public int get(final long key, final int defaultValue)
+	{
+		final int index = this.indexOf(key);
+
+		return this.used[index] ? this.values[index] : defaultValue;
+	}
+
+	public boolean containsKey(final long key)
+	{
+		return this.used[this.indexOf(key)];
+	}
+
+	private void grow()
+	{
+		final long[] oldKeys = this.keys;
+		final int[] oldValues = this.values;
+		final boolean[] oldUsed = this.used;
+
+		this.allocate(oldKeys.length * 2);
+
+		for (int i = 0; i < oldKeys.length; i++)
+		{
+			if (oldUsed[i])
+			{
+				final int index = this.indexOf(oldKeys[i]);
+
+				this.used[index] = true;
+				this.keys[index] = oldKeys[i];
+				this.values[index] = oldValues[i];
+			}
+		}
+	}
+
+	public int size()
+	{
+		return this.size;
+	}
+
+	public void clear()
+	{
+		Arrays.fill(this.used, false);
+		this.size = 0;
+	}
+
+}
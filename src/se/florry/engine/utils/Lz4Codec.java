@@ -0,0 +1,205 @@
+package se.florry.engine.utils;
+
+import java.nio.ByteBuffer;
+
+/*
+ * Compressor and decompressor for the LZ4 block format, trading a little size for fast decompression. Used for the
+ * optionally compressed texture cache.
+ */
+public final class Lz4Codec
+{
+
+	private static final int MIN_MATCH = 4;
+	// The last match has to start this many bytes before the end of the input.
+	private static final int MATCH_LIMIT = 12;
+	// The last bytes of the input are always literals.
+	private static final int LAST_LITERALS = 5;
+	private static final int MAX_OFFSET = 65535;
+	private static final int HASH_BITS = 16;
+
+	/*
+	 * Returns the largest possible compressed size of the given number of
+	 * bytes.
+	 */
+	public static int maxCompressedLength(final int length)
+	{
+		return length + length / 255 + 16;
+	}
+
+	/*
+	 * Compresses the bytes between position and limit of the source into the
+	 * destination, starting at the position of the destination.
+	 *
+	 * @return the number of compressed bytes written.
+	 */
+	public static int compress(final ByteBuffer source, final ByteBuffer destination)
+	{
+		final int start = source.position();
+		final int end = source.limit();
+		final int matchLimit = end - LAST_LITERALS;
+		final int inputLimit = end - MATCH_LIMIT;
+		final int outputStart = destination.position();
+		final int[] table = new int[1 << HASH_BITS];
+
+		int anchor = start;
+		int input = start;
+
+		while (input < inputLimit)
+		{
+			final int sequence = source.getInt(input);
+			final int hash = sequence * -1640531535 >>> 32 - HASH_BITS;
+			// Table entries are offset by one so 0 means empty.
+			final int reference = table[hash] - 1;
+			table[hash] = input + 1;
+
+			if (reference < start || input - reference > MAX_OFFSET || source.getInt(reference) != sequence)
+			{
+				input++;
+				continue;
+			}
+
+			int matchLength = MIN_MATCH;
+
+			while (input + matchLength < matchLimit && source.get(reference + matchLength) == source.get(input + matchLength))
+			{
+				matchLength++;
+			}
+
+			writeSequence(source, destination, anchor, input - anchor, input - reference, matchLength);
+
+			input += matchLength;
+			anchor = input;
+		}
+
+		writeLastLiterals(source, destination, anchor, end - anchor);
+
+		return destination.position() - outputStart;
+	}
+
+	private static void writeSequence(final ByteBuffer source, final ByteBuffer destination, final int literalStart, final int literalLength,
+			final int offset, final int matchLength)
+	{
+		final int extraMatch = matchLength - MIN_MATCH;
+
+		destination.put((byte) (Math.min(literalLength, 15) << 4 | Math.min(extraMatch, 15)));
+		writeLength(destination, literalLength);
+		copy(source, literalStart, destination, literalLength);
+
+		destination.put((byte) offset);
+		destination.put((byte) (offset >>> 8));
+		writeLength(destination, extraMatch);
+	}
+
+	private static void writeLastLiterals(final ByteBuffer source, final ByteBuffer destination, final int literalStart, final int literalLength)
+	{
+		destination.put((byte) (Math.min(literalLength, 15) << 4));
+		writeLength(destination, literalLength);
+		copy(source, literalStart, destination, literalLength);
+	}
+
+	/*
+	 * Writes the part of a length not fitting in the token, in runs of 255.
+	 */
+	private static void writeLength(final ByteBuffer destination, final int length)
+	{
+		if (length < 15)
+		{
+			return;
+		}
+
+		int remaining = length - 15;
+
+		while (remaining >= 255)
+		{
+			destination.put((byte) 255);
+			remaining -= 255;
+		}
+
+		destination.put((byte) remaining);
+	}
+
+	private static void copy(final ByteBuffer source, final int from, final ByteBuffer destination, final int length)
+	{
+		final ByteBuffer literals = source.duplicate();
+		literals.limit(from + length);
+		literals.position(from);
+		destination.put(literals);
+	}
+
+	/*
+	 * Decompresses the bytes between position and limit of the source into
+	 * the destination, starting at the position of the destination.
+	 *
+	 * @return the number of decompressed bytes written.
+	 */
+	public static int decompress(final ByteBuffer source, final ByteBuffer destination)
+	{
+		final int end = source.limit();
+		final int outputStart = destination.position();
+		int input = source.position();
+		int output = outputStart;
+
+		while (input < end)
+		{
+			final int token = source.get(input++) & 0xFF;
+			int literalLength = token >>> 4;
+
+			if (literalLength == 15)
+			{
+				int value;
+
+				do
+				{
+					value = source.get(input++) & 0xFF;
+					literalLength += value;
+				} while (value == 255);
+			}
+
+			destination.position(output);
+			copy(source, input, destination, literalLength);
+			input += literalLength;
+			output += literalLength;
+
+			if (input >= end)
+			{
+				break;
+			}
+
+			final int offset = source.get(input++) & 0xFF | (source.get(input++) & 0xFF) << 8;
+			int matchLength = token & 0x0F;
+
+			if (matchLength == 15)
+			{
+				int value;
+
+				do
+				{
+					value = source.get(input++) & 0xFF;
+					matchLength += value;
+				} while (value == 255);
+			}
+
+			matchLength += MIN_MATCH;
+
+			if (offset >= matchLength)
+			{
+				destination.position(output);
+				copy(destination, output - offset, destination, matchLength);
+				output += matchLength;
+			} else
+			{
+				// Byte by byte since the match overlaps the bytes being written.
+				for (int i = 0; i < matchLength; i++)
+				{
+					destination.put(output, destination.get(output - offset));
+					output++;
+				}
+			}
+		}
+
+		destination.position(output);
+
+		return output - outputStart;
+	}
+
+}